@@ -217,6 +217,18 @@ public enum ByteCodeInstruction {
 	private final byte payload; // The amount of additional bytes (instruction arguments).
 	private final ByteCodeInstructionPayload[] payloadTypes;
 	
+	/**
+	 * The stack effect of instructions for which the effect depends on their arguments or on the constant pool.
+	 */
+	public static final int VARIABLE_STACK_EFFECT = Integer.MIN_VALUE;
+	
+	private static final ByteCodeInstruction[] INSTRUCTIONS_BY_OPCODE = new ByteCodeInstruction[256];
+	static {
+		for(ByteCodeInstruction instr : ByteCodeInstruction.values()) {
+			INSTRUCTIONS_BY_OPCODE[instr.opCode & 0xFF] = instr;
+		}
+	}
+	
 	private ByteCodeInstruction(byte opCode, byte payload, ByteCodeInstructionPayload... payloadTypes) {
 		this.opCode = opCode;
 		this.payload = payload;
@@ -239,12 +251,86 @@ public enum ByteCodeInstruction {
 		return (this.name().charAt(0) == '_' ? this.name().substring(1) : this.name()); // Cut the "_" off if it was there.
 	}
 	
+	/**
+	 * Checks whether this instruction jumps to a single target given by a relative offset as its only argument.
+	 * @return True if this is a conditional branch, goto or jsr instruction, false otherwise.
+	 */
 	public boolean isBranchInstruction() {
-		return this == ifeq || this == ifne || this == iflt || this == ifge || this == ifgt || this == iflt
-				|| this == if_icmpeq || this == if_icmpne || this == if_icmplt || this == if_icmpge
-				|| this == if_icmpgt || this == if_icmple || this == if_acmpeq || this == if_acmpne
-				|| this == ifnull || this == ifnonnull || this == _goto || this == jsr || this == goto_w
-				|| this == jsr_w;
+		BranchKind branchKind = this.getBranchKind();
+		return branchKind == BranchKind.CONDITIONAL || branchKind == BranchKind.UNCONDITIONAL
+				|| branchKind == BranchKind.SUBROUTINE_CALL;
+	}
+	
+	/**
+	 * Gets the way in which this instruction affects the control flow.
+	 * @return The branch kind.
+	 */
+	public BranchKind getBranchKind() {
+		switch(this) {
+			case ifeq: case ifne: case iflt: case ifge: case ifgt: case ifle:
+			case if_icmpeq: case if_icmpne: case if_icmplt: case if_icmpge: case if_icmpgt: case if_icmple:
+			case if_acmpeq: case if_acmpne: case ifnull: case ifnonnull:
+				return BranchKind.CONDITIONAL;
+			case _goto: case goto_w:
+				return BranchKind.UNCONDITIONAL;
+			case jsr: case jsr_w:
+				return BranchKind.SUBROUTINE_CALL;
+			case ret:
+				return BranchKind.SUBROUTINE_RETURN;
+			case tableswitch: case lookupswitch:
+				return BranchKind.SWITCH;
+			case ireturn: case lreturn: case freturn: case dreturn: case areturn: case _return: case athrow:
+				return BranchKind.EXIT;
+			default:
+				return BranchKind.NONE;
+		}
+	}
+	
+	/**
+	 * Gets the change in operand stack size caused by this instruction, where long and double values take two slots.
+	 * @return The stack effect or {@link #VARIABLE_STACK_EFFECT} if it depends on the instruction arguments
+	 * (field access, method invocation, multianewarray and wide instructions).
+	 */
+	public int getStackEffect() {
+		switch(this) {
+			case aconst_null: case iconst_m1: case iconst_0: case iconst_1: case iconst_2: case iconst_3:
+			case iconst_4: case iconst_5: case fconst_0: case fconst_1: case fconst_2: case bipush: case sipush:
+			case ldc: case ldc_w: case iload: case fload: case aload: case iload_0: case iload_1: case iload_2:
+			case iload_3: case fload_0: case fload_1: case fload_2: case fload_3: case aload_0: case aload_1:
+			case aload_2: case aload_3: case dup: case dup_x1: case dup_x2: case i2l: case i2d: case f2l: case f2d:
+			case jsr: case jsr_w: case _new:
+				return 1;
+			case lconst_0: case lconst_1: case dconst_0: case dconst_1: case ldc2_w: case lload: case dload:
+			case lload_0: case lload_1: case lload_2: case lload_3: case dload_0: case dload_1: case dload_2:
+			case dload_3: case dup2: case dup2_x1: case dup2_x2:
+				return 2;
+			case iaload: case faload: case aaload: case baload: case caload: case saload: case istore: case fstore:
+			case astore: case istore_0: case istore_1: case istore_2: case istore_3: case fstore_0: case fstore_1:
+			case fstore_2: case fstore_3: case astore_0: case astore_1: case astore_2: case astore_3: case pop:
+			case iadd: case fadd: case isub: case fsub: case imul: case fmul: case idiv: case fdiv: case irem:
+			case frem: case ishl: case lshl: case ishr: case lshr: case iushr: case lushr: case iand: case ior:
+			case ixor: case l2i: case l2f: case d2i: case d2f: case fcmpl: case fcmpg: case ifeq: case ifne:
+			case iflt: case ifge: case ifgt: case ifle: case ifnull: case ifnonnull: case tableswitch:
+			case lookupswitch: case ireturn: case freturn: case areturn: case athrow: case monitorenter:
+			case monitorexit:
+				return -1;
+			case lstore: case dstore: case lstore_0: case lstore_1: case lstore_2: case lstore_3: case dstore_0:
+			case dstore_1: case dstore_2: case dstore_3: case pop2: case ladd: case dadd: case lsub: case dsub:
+			case lmul: case dmul: case ldiv: case ddiv: case lrem: case drem: case land: case lor: case lxor:
+			case if_icmpeq: case if_icmpne: case if_icmplt: case if_icmpge: case if_icmpgt: case if_icmple:
+			case if_acmpeq: case if_acmpne: case lreturn: case dreturn:
+				return -2;
+			case iastore: case fastore: case aastore: case bastore: case castore: case sastore: case lcmp:
+			case dcmpl: case dcmpg:
+				return -3;
+			case lastore: case dastore:
+				return -4;
+			case getstatic: case putstatic: case getfield: case putfield: case invokevirtual: case invokespecial:
+			case invokestatic: case invokeinterface: case invokedynamic: case multianewarray: case wide:
+				return VARIABLE_STACK_EFFECT;
+			default:
+				return 0;
+		}
 	}
 	
 	public boolean isReturn() {
@@ -252,12 +338,7 @@ public enum ByteCodeInstruction {
 	}
 	
 	public static ByteCodeInstruction forOpCode(byte opCode) {
-		for(ByteCodeInstruction instr : ByteCodeInstruction.values()) {
-			if(instr.getOpCode() == opCode) {
-				return instr;
-			}
-		}
-		return null;
+		return INSTRUCTIONS_BY_OPCODE[opCode & 0xFF];
 	}
 	
 	public static ByteCodeInstruction forName(String name) {
@@ -269,6 +350,20 @@ public enum ByteCodeInstruction {
 		return null;
 	}
 	
+	/**
+	 * BranchKind enum.
+	 * Contains the ways in which an instruction can affect the control flow.
+	 */
+	public static enum BranchKind {
+		NONE,
+		CONDITIONAL,
+		UNCONDITIONAL,
+		SUBROUTINE_CALL,
+		SUBROUTINE_RETURN,
+		SWITCH,
+		EXIT;
+	}
+	
 	public static enum ByteCodeInstructionPayload {
 		BYTE                 ((byte) 1),
 		SHORT                ((byte) 2),
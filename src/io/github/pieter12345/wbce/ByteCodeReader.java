@@ -13,7 +13,11 @@ import io.github.pieter12345.wbce.attribute.IAttribute;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolObject;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
 import io.github.pieter12345.wbce.decompile.DecompileException;
+import io.github.pieter12345.wbce.decompile.BatchDecompiler;
+import io.github.pieter12345.wbce.decompile.BatchDecompiler.BatchResult;
+import io.github.pieter12345.wbce.decompile.BatchDecompiler.ClassFailure;
 import io.github.pieter12345.wbce.decompile.Decompiler;
+import io.github.pieter12345.wbce.utils.ModifiedUTF8;
 import io.github.pieter12345.wbce.utils.Utils;
 
 public class ByteCodeReader {
@@ -24,6 +28,26 @@ public class ByteCodeReader {
 	// Main method.
 	public static void main(String[] args) {
 		
+		// Batch mode: Decompile all classes in a jar file or directory.
+		// Usage: <input jar or directory> <output directory> [decompile thread count].
+		if(args.length >= 2) {
+			BatchDecompiler batchDecompiler = (args.length >= 3
+					? new BatchDecompiler(Integer.parseInt(args[2])) : new BatchDecompiler());
+			try {
+				BatchResult result = batchDecompiler.decompile(new File(args[0]), new File(args[1]));
+				for(ClassFailure failure : result.getFailures()) {
+					System.out.println("[ByteCodeReader] Failed to decompile " + failure.getClassFileName()
+							+ " (" + failure.getStage() + "):\n" + Utils.getStacktrace(failure.getException()));
+				}
+				System.out.println("[ByteCodeReader] Decompiled " + (result.getClassCount() - result.getFailures().size())
+						+ "/" + result.getClassCount() + " classes.");
+			} catch (IOException | InterruptedException e) {
+				System.out.println("[ByteCodeReader] Batch decompilation failed. Here's the stacktrace:\n"
+						+ Utils.getStacktrace(e));
+			}
+			return;
+		}
+		
 //		String classFileName = "ByteCodeTest.class";
 //		String classFileName = "C:/Users/Pietje/Documents/Java Eclipse Workspace/HelloWorld/bin/SimpleClassForByteCodeAnalysis.class";
 		String classFileName = "C:/Users/Pietje/Documents/Java Eclipse Workspace/HelloWorld/bin/StructuresForByteCodeAnalysis.class";
@@ -250,7 +274,7 @@ public class ByteCodeReader {
 				byte[] strBytes = new byte[strSize];
 				System.arraycopy(bytes, bytesIndex, strBytes, 0, strSize);
 				bytesIndex += strSize;
-				String strVal = new String(strBytes, StandardCharsets.UTF_8); // This is a modified UTF-8 format, this might not matter.
+				String strVal = ModifiedUTF8.decode(strBytes);
 				System.out.println("\t" + i + " String: " + strVal);
 				break;
 			}
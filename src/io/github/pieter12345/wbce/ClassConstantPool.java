@@ -1,8 +1,17 @@
 package io.github.pieter12345.wbce;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import io.github.pieter12345.wbce.attribute.AttributeDecoder;
+import io.github.pieter12345.wbce.attribute.AttributeDecoderRegistry;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolClassRef;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolDouble;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolFieldRef;
@@ -14,104 +23,281 @@ import io.github.pieter12345.wbce.constantpool.ConstantPoolLong;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolMethodHandle;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolMethodRef;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolMethodType;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolModule;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolNameAndTypeDesc;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolObject;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolPackage;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolStringRef;
 
 public class ClassConstantPool {
 	
 	// Variables & Constants.
-	private ArrayList<ConstantPoolObject> constantPool;
+	private int size;
+	private byte[] tags; // The tag byte per index (0 for the second index of Longs and Doubles).
+	private int[] offsets; // The absolute offset of the tag byte in the buffer per index (-1 when not read).
+	private boolean[] accessed; // Whether the object per index has been handed out, and might have been modified.
+	private AtomicReferenceArray<ConstantPoolObject> objects; // The materialized object per index.
+	private ByteBuffer buffer; // The buffer the constant pool was read from, or its own arena when read compactly.
+	private Map<ContentKey, Integer> contentIndex = null; // The lowest index per value, or null if not yet created.
+	private final SymbolTable symbolTable; // The table to share strings through, or null.
+	private volatile AttributeDecoderCache attributeDecoders = null; // The cached attribute decoders, or null.
+	private AttributeDecoderRegistry attributeDecoderRegistry = null; // The registry to decode with, or null.
 	
-	private ClassConstantPool(ArrayList<ConstantPoolObject> constantPool) {
-		this.constantPool = constantPool;
+	private ClassConstantPool(int size, byte[] tags, int[] offsets,
+			AtomicReferenceArray<ConstantPoolObject> objects, ByteBuffer buffer, SymbolTable symbolTable) {
+		this.size = size;
+		this.tags = tags;
+		this.offsets = offsets;
+		this.accessed = new boolean[size];
+		this.objects = objects;
+		this.buffer = buffer;
+		this.symbolTable = symbolTable;
 	}
 	
-	public static ClassConstantPool fromInputStream(FancyInputStream inStream) throws IOException {
-		ArrayList<ConstantPoolObject> constantPool = new ArrayList<ConstantPoolObject>();
-		int poolCount = inStream.readTwoByteInt();
-		for(int i = 1; i < poolCount; i++) {
-			byte tagByte = inStream.readByte();
+	public static ClassConstantPool fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return fromByteBuffer(reader, EnumSet.noneOf(ReadOption.class));
+	}
+	
+	/**
+	 * Reads a constant pool from the given reader in a single pass, recording the tag and offset of every index.
+	 * When {@link ReadOption#LAZY_CONSTANT_POOL} is given, objects are only created when they are first requested
+	 * through {@link #get(int)}. Otherwise all objects are created while reading.
+	 * The raw bytes of objects that are never handed out through {@link #get(int)} are written back unchanged,
+	 * so the constant pool keeps a reference to the buffer of the given reader. When
+	 * {@link ReadOption#COMPACT_CONSTANT_POOL} is given, objects are created lazily from a copy of only the constant
+	 * pool bytes instead, so that the rest of the buffer is not kept reachable by the constant pool.
+	 * @param reader - The reader to read the constant pool from.
+	 * @param readOptions - The options to read the constant pool with.
+	 * @return The read constant pool, or null if an invalid or unsupported tag was found.
+	 * @throws IOException If the reader ends before the constant pool does.
+	 */
+	public static ClassConstantPool fromByteBuffer(FancyByteBufferReader reader,
+			Set<ReadOption> readOptions) throws IOException {
+		return fromByteBuffer(reader, readOptions, null);
+	}
+	
+	/**
+	 * Reads a constant pool from the given reader, as described in {@link #fromByteBuffer(FancyByteBufferReader, Set)}.
+	 * When a {@link SymbolTable} is given, strings share their bytes and decoded value with equal strings read through
+	 * the same table. This also applies to strings that are created later when the constant pool is read lazily.
+	 * @param reader - The reader to read the constant pool from.
+	 * @param readOptions - The options to read the constant pool with.
+	 * @param symbolTable - The table to share strings through, or null to not share strings.
+	 * @return The read constant pool, or null if an invalid or unsupported tag was found.
+	 * @throws IOException If the reader ends before the constant pool does.
+	 */
+	public static ClassConstantPool fromByteBuffer(FancyByteBufferReader reader,
+			Set<ReadOption> readOptions, SymbolTable symbolTable) throws IOException {
+		boolean compact = readOptions.contains(ReadOption.COMPACT_CONSTANT_POOL);
+		boolean lazy = compact || readOptions.contains(ReadOption.LAZY_CONSTANT_POOL);
+		int poolCount = reader.readTwoByteInt();
+		int poolStart = reader.getPosition();
+		int size = Math.max(poolCount - 1, 0);
+		byte[] tags = new byte[size];
+		int[] offsets = new int[size];
+		ConstantPoolObject[] objects = new ConstantPoolObject[size];
+		Arrays.fill(offsets, -1);
+		for(int i = 0; i < size; i++) {
+			int offset = reader.getPosition();
+			byte tagByte = reader.readByte();
 			ConstantPoolType type = ConstantPoolType.getTypeFromTag(tagByte);
 			if(type == null) {
 				System.out.println("[ClassConstantPool] Found invalid/unsupported Constant Pool tag:"
-						+ tagByte + " on index: " + i + ". Returning null since we don't know how much to read.");
+						+ tagByte + " on index: " + (i + 1) + ". Returning null since we don't know how much to read.");
 				return null;
 			}
-			ConstantPoolObject val;
-			switch(type) {
-			case STRING:
-				val = ConstantPoolString.fromInputStream(inStream);
-				break;
-			case INTEGER:
-				val = ConstantPoolInteger.fromInputStream(inStream);
-				break;
-			case FLOAT:
-				val = ConstantPoolFloat.fromInputStream(inStream);
-				break;
-			case LONG:
-				val = ConstantPoolLong.fromInputStream(inStream);
-				break;
-			case DOUBLE:
-				val = ConstantPoolDouble.fromInputStream(inStream);
-				break;
-			case CLASS_REF:
-				val = ConstantPoolClassRef.fromInputStream(inStream);
-				break;
-			case STRING_REF:
-				val = ConstantPoolStringRef.fromInputStream(inStream);
-				break;
-			case FIELD_REF:
-				val = ConstantPoolFieldRef.fromInputStream(inStream);
-				break;
-			case METHOD_REF:
-				val = ConstantPoolMethodRef.fromInputStream(inStream);
-				break;
-			case INTERFACE_REF:
-				val = ConstantPoolInterfaceRef.fromInputStream(inStream);
-				break;
-			case NAME_AND_TYPE_DESC:
-				val = ConstantPoolNameAndTypeDesc.fromInputStream(inStream);
-				break;
-			case METHOD_HANDLE:
-				val = ConstantPoolMethodHandle.fromInputStream(inStream);
-				break;
-			case METHOD_TYPE:
-				val = ConstantPoolMethodType.fromInputStream(inStream);
-				break;
-			case INVOKEDYNAMIC:
-				val = ConstantPoolInvokeDynamic.fromInputStream(inStream);
-				break;
-			default:
-				val = null;
-				System.out.println("[ClassConstantPool] Found invalid/unsupported Constant Pool tag:"
-						+ tagByte + " on index: " + i + ". Returning null since we don't know how much to read.");
-				return null;
+			tags[i] = tagByte;
+			offsets[i] = offset;
+			if(lazy) {
+				reader.skip(type == ConstantPoolType.STRING ? reader.readTwoByteInt() : type.getDataSize());
+			} else {
+				objects[i] = readObject(type, reader, symbolTable);
 			}
-			constantPool.add(val);
 			
 			// Handle double indices (Longs and Doubles use these).
 			if(type == ConstantPoolType.LONG || type == ConstantPoolType.DOUBLE) {
-				constantPool.add(null); // Placeholder.
-				i++;
+				i++; // Leave a placeholder.
+			}
+		}
+		ByteBuffer buffer = reader.getBuffer();
+		if(compact) {
+			
+			// Copy the constant pool into its own arena, so that the rest of the buffer does not have to be kept.
+			byte[] arena = new byte[reader.getPosition() - poolStart];
+			ByteBuffer source = buffer.duplicate();
+			source.limit(reader.getPosition()).position(poolStart);
+			source.get(arena);
+			for(int i = 0; i < size; i++) {
+				if(offsets[i] != -1) {
+					offsets[i] -= poolStart;
+				}
 			}
-//			System.out.println("[DEBUG] [ClassConstantPool] " + i + ": " + val.val(null));
+			buffer = ByteBuffer.wrap(arena);
 		}
-		return new ClassConstantPool(constantPool);
+		return new ClassConstantPool(size, tags, offsets,
+				new AtomicReferenceArray<ConstantPoolObject>(objects), buffer, symbolTable);
 	}
 	
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.constantPool.size() + 1); // One more than the actual size.
-		for(int i = 0; i < this.constantPool.size(); i++) {
-			ConstantPoolObject obj = this.constantPool.get(i);
-			if(obj != null) { // Null check required to remove placeholders for Doubles and Longs.
-				outStream.write(obj.toBytes());
+	/**
+	 * Creates a constant pool that creates its objects lazily from the given buffer, using the tags and offsets that
+	 * were recorded by an earlier read of the same bytes instead of reading the constant pool again.
+	 * This is used by {@link ClassFileSnapshot}.
+	 * @param buffer - The buffer containing the constant pool.
+	 * @param tags - The tag byte per index, as returned by {@link #getTagByte(int)}.
+	 * @param offsets - The absolute offset of the tag byte in the buffer per index, as returned by
+	 * {@link #getOffset(int)}.
+	 * @param symbolTable - The table to share strings through, or null to not share strings.
+	 * @return The constant pool, which takes ownership of the given arrays.
+	 */
+	static ClassConstantPool fromLayout(ByteBuffer buffer, byte[] tags, int[] offsets, SymbolTable symbolTable) {
+		return new ClassConstantPool(tags.length, tags, offsets,
+				new AtomicReferenceArray<ConstantPoolObject>(tags.length), buffer, symbolTable);
+	}
+	
+	private static ConstantPoolObject readObject(ConstantPoolType type,
+			FancyByteBufferReader reader, SymbolTable symbolTable) throws IOException {
+		switch(type) {
+		case STRING:
+			if(symbolTable != null) {
+				int strSize = reader.readTwoByteInt();
+				int strOffset = reader.getPosition();
+				reader.skip(strSize);
+				return symbolTable.intern(reader.getBuffer(), strOffset, strSize);
 			}
+			return ConstantPoolString.fromByteBuffer(reader);
+		case INTEGER:
+			return ConstantPoolInteger.fromByteBuffer(reader);
+		case FLOAT:
+			return ConstantPoolFloat.fromByteBuffer(reader);
+		case LONG:
+			return ConstantPoolLong.fromByteBuffer(reader);
+		case DOUBLE:
+			return ConstantPoolDouble.fromByteBuffer(reader);
+		case CLASS_REF:
+			return ConstantPoolClassRef.fromByteBuffer(reader);
+		case STRING_REF:
+			return ConstantPoolStringRef.fromByteBuffer(reader);
+		case FIELD_REF:
+			return ConstantPoolFieldRef.fromByteBuffer(reader);
+		case METHOD_REF:
+			return ConstantPoolMethodRef.fromByteBuffer(reader);
+		case INTERFACE_REF:
+			return ConstantPoolInterfaceRef.fromByteBuffer(reader);
+		case NAME_AND_TYPE_DESC:
+			return ConstantPoolNameAndTypeDesc.fromByteBuffer(reader);
+		case METHOD_HANDLE:
+			return ConstantPoolMethodHandle.fromByteBuffer(reader);
+		case METHOD_TYPE:
+			return ConstantPoolMethodType.fromByteBuffer(reader);
+		case INVOKEDYNAMIC:
+			return ConstantPoolInvokeDynamic.fromByteBuffer(reader);
+		case MODULE:
+			return ConstantPoolModule.fromByteBuffer(reader);
+		case PACKAGE:
+			return ConstantPoolPackage.fromByteBuffer(reader);
+		default:
+			throw new RuntimeException("Unsupported constant pool type: " + type);
 		}
-		return outStream.toByteArray();
+	}
+	
+	/**
+	 * Creates the object at the given index from the buffer this constant pool was read from.
+	 * @param i - The index in range [0, const pool length - 1].
+	 * @return The created object.
+	 */
+	private ConstantPoolObject materialize(int i) {
+		FancyByteBufferReader reader = new FancyByteBufferReader(this.buffer, this.offsets[i] + 1, this.buffer.limit());
+		try {
+			return readObject(ConstantPoolType.getTypeFromTag(this.tags[i]), reader, this.symbolTable);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read lazily read constant pool object at index: " + (i + 1), e);
+		}
+	}
+	
+	/**
+	 * Gets the size of the raw data (including the tag byte) of the object at the given index.
+	 * @param i - The index in range [0, const pool length - 1] of an object that was read from the buffer.
+	 * @return The size of the raw data in bytes.
+	 */
+	private int getRawSize(int i) {
+		ConstantPoolType type = ConstantPoolType.getTypeFromTag(this.tags[i]);
+		if(type == ConstantPoolType.STRING) {
+			return 3 + (this.buffer.getShort(this.offsets[i] + 1) & 0xFFFF);
+		}
+		return 1 + type.getDataSize();
+	}
+	
+	/**
+	 * Checks whether the raw bytes of the object at the given index are written, which is the case for objects that
+	 * have been read, but not replaced or handed out through {@link #get(int)}.
+	 * @param i - The index in range [0, const pool length - 1].
+	 * @return True if the raw bytes are written, false if the object is encoded.
+	 */
+	private boolean isRaw(int i) {
+		return this.offsets[i] != -1 && !this.accessed[i];
+	}
+	
+	/**
+	 * Gets the size of the class file representation of this {@link ClassConstantPool}, including the count.
+	 * @return The size in bytes.
+	 */
+	public int getByteSize() {
+		int byteSize = 2;
+		for(int i = 0; i < this.size; i++) {
+			if(this.isRaw(i)) {
+				byteSize += this.getRawSize(i);
+			} else {
+				ConstantPoolObject obj = this.objects.get(i);
+				if(obj != null) {
+					byteSize += obj.getByteSize();
+				}
+			}
+		}
+		return byteSize;
+	}
+	
+	/**
+	 * Writes the class file representation of this {@link ClassConstantPool}, including the count.
+	 * Consecutive objects that have not been handed out or replaced are copied from the read buffer at once.
+	 * @param writer - The writer to write to, which must have {@link #getByteSize()} bytes left.
+	 */
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.size + 1); // One more than the actual size.
+		int rawStart = -1;
+		int rawEnd = -1;
+		for(int i = 0; i < this.size; i++) {
+			if(this.isRaw(i)) {
+				
+				// Extend the current raw range, or write it and start a new one if this object is not adjacent to it.
+				if(this.offsets[i] != rawEnd) {
+					if(rawStart != -1) {
+						writer.write(this.buffer, rawStart, rawEnd - rawStart);
+					}
+					rawStart = this.offsets[i];
+				}
+				rawEnd = this.offsets[i] + this.getRawSize(i);
+			} else {
+				ConstantPoolObject obj = this.objects.get(i);
+				if(obj != null) {
+					if(rawStart != -1) {
+						writer.write(this.buffer, rawStart, rawEnd - rawStart);
+						rawStart = rawEnd = -1;
+					}
+					obj.writeTo(writer);
+				}
+				// Null objects are placeholders for Doubles and Longs and are not written.
+			}
+		}
+		if(rawStart != -1) {
+			writer.write(this.buffer, rawStart, rawEnd - rawStart);
+		}
+	}
+	
+	public byte[] toBytes() {
+		FancyByteArrayWriter writer = new FancyByteArrayWriter(this.getByteSize());
+		this.writeTo(writer);
+		return writer.toByteArray();
 	}
 	
 	/**
@@ -120,22 +306,50 @@ public class ClassConstantPool {
 	 * @return True if the index is in range [1, const pool length]. False otherwise.
 	 */
 	public boolean hasIndex(int index) {
-		return this.constantPool != null && index > 0 && index <= this.constantPool.size();
+		return index > 0 && index <= this.size;
 	}
 	
 	/**
 	 * get method.
 	 * Gets a value from the constant pool.
+	 * This method can be called concurrently, as long as the constant pool is not modified at the same time.
+	 * Since the returned object can be modified, it is encoded instead of copied when this constant pool is written.
 	 * @param index The index in range [1, const pool length].
 	 * @return The ConstantPoolObject at the given index.
 	 * @throws IndexOutOfBoundsException
 	 */
 	public ConstantPoolObject get(int index) throws IndexOutOfBoundsException {
-		try {
-			return this.constantPool.get(index - 1);
-		} catch(IndexOutOfBoundsException e) {
+		this.checkIndex(index);
+		int i = index - 1;
+		ConstantPoolObject obj = this.objects.get(i);
+		if(obj == null && this.offsets[i] != -1) {
+			
+			// Materialize the object. When multiple threads do this concurrently, only the first result is stored.
+			obj = this.materialize(i);
+			if(!this.objects.compareAndSet(i, null, obj)) {
+				obj = this.objects.get(i);
+			}
+		}
+		this.accessed[i] = true;
+		return obj;
+	}
+	
+	/**
+	 * getType method.
+	 * Gets the type of a value in the constant pool without creating its {@link ConstantPoolObject}.
+	 * @param index The index in range [1, const pool length].
+	 * @return The type of the value at the given index, or null for a placeholder or null value.
+	 * @throws IndexOutOfBoundsException
+	 */
+	public ConstantPoolType getType(int index) throws IndexOutOfBoundsException {
+		this.checkIndex(index);
+		return ConstantPoolType.getTypeFromTag(this.tags[index - 1]);
+	}
+	
+	private void checkIndex(int index) throws IndexOutOfBoundsException {
+		if(index < 1 || index > this.size) {
 			throw new IndexOutOfBoundsException("Expecting the constant pool index to be in range [1, const pool size]."
-					+ " Size: " + this.constantPool.size() + " , Received: " + index);
+					+ " Size: " + this.size + " , Received: " + index);
 		}
 	}
 	
@@ -167,18 +381,326 @@ public class ClassConstantPool {
 	 * @param constPoolObj The constant pool object to set.
 	 */
 	public void set(int index, ConstantPoolObject constPoolObj) {
-		this.constantPool.set(index - 1, constPoolObj);
+		this.checkIndex(index);
+		if(this.contentIndex != null) {
+			ContentKey oldKey = this.getContentKey(index - 1);
+			if(oldKey != null && Integer.valueOf(index).equals(this.contentIndex.get(oldKey))) {
+				
+				// An equal value might exist at a higher index, so recreate the hash index when it is used.
+				this.contentIndex = null;
+			}
+		}
+		this.tags[index - 1] = (constPoolObj == null ? 0 : constPoolObj.getType().getTagByte());
+		this.offsets[index - 1] = -1;
+		this.objects.set(index - 1, constPoolObj);
+		AttributeDecoderCache attributeDecoders = this.attributeDecoders;
+		if(attributeDecoders != null && index <= attributeDecoders.decoders.length()) {
+			attributeDecoders.decoders.set(index - 1, null);
+		}
+		if(this.contentIndex != null && constPoolObj != null) {
+			this.contentIndex.merge(new ContentKey(constPoolObj.toBytes()), index, Math::min);
+		}
 	}
 	
 	/**
 	 * add method.
-	 * Adds a value to the constant pool.
+	 * Adds a value to the constant pool. Longs and Doubles are followed by a placeholder index.
 	 * @param constPoolObj The constant pool object to set.
 	 * @return The index of the object in the constant pool.
 	 */
 	public int add(ConstantPoolObject constPoolObj) {
-		this.constantPool.add(constPoolObj);
-		return this.constantPool.size();
+		int index = this.append(constPoolObj);
+		if(constPoolObj != null) {
+			ConstantPoolType type = constPoolObj.getType();
+			if(type == ConstantPoolType.LONG || type == ConstantPoolType.DOUBLE) {
+				this.append(null);
+			}
+			if(this.contentIndex != null) {
+				this.contentIndex.putIfAbsent(new ContentKey(constPoolObj.toBytes()), index);
+			}
+		}
+		return index;
+	}
+	
+	/**
+	 * Gets the index of a value in the constant pool that is equal to the given value.
+	 * Values are equal when their tags and data are equal. The lookup uses a hash index of the constant pool contents,
+	 * which is created on the first call and maintained by {@link #set(int, ConstantPoolObject)} and
+	 * {@link #add(ConstantPoolObject)}. Values that have been modified in place after they were handed out by
+	 * {@link #get(int)} are detected when they are found, in which case the hash index is recreated.
+	 * @param constPoolObj - The constant pool object to find.
+	 * @return The lowest index of an equal value in range [1, const pool length], or -1 if there is none.
+	 */
+	public int indexOf(ConstantPoolObject constPoolObj) {
+		if(constPoolObj == null) {
+			return -1;
+		}
+		ContentKey key = new ContentKey(constPoolObj.toBytes());
+		Integer index = this.getContentIndex().get(key);
+		if(index != null && !key.equals(this.getContentKey(index - 1))) {
+			
+			// The value at the found index has been modified in place, so the hash index is outdated.
+			this.contentIndex = null;
+			index = this.getContentIndex().get(key);
+		}
+		return (index == null ? -1 : index);
+	}
+	
+	/**
+	 * Gets the index of a value in the constant pool that is equal to the given value, adding the given value if
+	 * there is none. See {@link #indexOf(ConstantPoolObject)} for when values are equal.
+	 * @param constPoolObj - The constant pool object to find or add.
+	 * @return The index of the equal or added value in range [1, const pool length].
+	 */
+	public int addIfAbsent(ConstantPoolObject constPoolObj) {
+		int index = this.indexOf(constPoolObj);
+		return (index != -1 ? index : this.add(constPoolObj));
+	}
+	
+	private Map<ContentKey, Integer> getContentIndex() {
+		if(this.contentIndex == null) {
+			Map<ContentKey, Integer> contentIndex = new HashMap<ContentKey, Integer>();
+			for(int i = 0; i < this.size; i++) {
+				ContentKey key = this.getContentKey(i);
+				if(key != null) {
+					contentIndex.putIfAbsent(key, i + 1);
+				}
+			}
+			this.contentIndex = contentIndex;
+		}
+		return this.contentIndex;
+	}
+	
+	/**
+	 * Gets the content key of the value at the given index, without creating its {@link ConstantPoolObject}.
+	 * @param i - The index in range [0, const pool length - 1].
+	 * @return The content key, or null for a placeholder or null value.
+	 */
+	private ContentKey getContentKey(int i) {
+		if(this.isRaw(i)) {
+			byte[] bytes = new byte[this.getRawSize(i)];
+			ByteBuffer rawBuffer = this.buffer.duplicate();
+			rawBuffer.position(this.offsets[i]);
+			rawBuffer.get(bytes);
+			return new ContentKey(bytes);
+		}
+		ConstantPoolObject obj = this.objects.get(i);
+		return (obj == null ? null : new ContentKey(obj.toBytes()));
+	}
+	
+	private int append(ConstantPoolObject constPoolObj) {
+		if(this.size == this.objects.length()) {
+			int newCapacity = Math.max(this.size * 2, 16);
+			this.tags = Arrays.copyOf(this.tags, newCapacity);
+			this.offsets = Arrays.copyOf(this.offsets, newCapacity);
+			this.accessed = Arrays.copyOf(this.accessed, newCapacity);
+			AtomicReferenceArray<ConstantPoolObject> objects = new AtomicReferenceArray<ConstantPoolObject>(newCapacity);
+			for(int i = 0; i < this.size; i++) {
+				objects.set(i, this.objects.get(i));
+			}
+			this.objects = objects;
+		}
+		this.tags[this.size] = (constPoolObj == null ? 0 : constPoolObj.getType().getTagByte());
+		this.offsets[this.size] = -1;
+		this.objects.set(this.size, constPoolObj);
+		return ++this.size;
+	}
+	
+	/**
+	 * Gets the registry that attributes read with this constant pool are decoded with. This includes attributes that
+	 * are decoded lazily after reading.
+	 * @return The registry, or the default registry if no registry has been set.
+	 */
+	public AttributeDecoderRegistry getAttributeDecoderRegistry() {
+		return (this.attributeDecoderRegistry != null
+				? this.attributeDecoderRegistry : AttributeDecoderRegistry.getDefault());
+	}
+	
+	/**
+	 * Sets the registry that attributes read with this constant pool are decoded with.
+	 * @param registry - The registry, or null to use the default registry.
+	 */
+	public void setAttributeDecoderRegistry(AttributeDecoderRegistry registry) {
+		this.attributeDecoderRegistry = registry;
+	}
+	
+	/**
+	 * Gets the decoder for attributes with the name at the given index from the given registry.
+	 * The found decoders are cached per index, so that getting the decoder for an index that has been requested before
+	 * is an array lookup. The cache is cleared when the registry is modified, and per index when the index is set.
+	 * Strings that are modified in place after being handed out by {@link #get(int)} are not detected.
+	 * This method can be called concurrently, as long as the constant pool is not modified at the same time.
+	 * @param attrNameIndex - The index of the attribute name in range [1, const pool length].
+	 * @param registry - The registry to get the decoder from.
+	 * @return The decoder.
+	 * @throws IndexOutOfBoundsException If the given index is out of range.
+	 * @throws RuntimeException If the given index does not point to a {@link ConstantPoolString}.
+	 */
+	public AttributeDecoder getAttributeDecoder(int attrNameIndex, AttributeDecoderRegistry registry) {
+		AttributeDecoderCache cache = this.getAttributeDecoderCache(attrNameIndex, registry);
+		if(cache == null) {
+			throw new RuntimeException("Attribute name index did not point to a ConstantPoolString object.");
+		}
+		return cache.decoders.get(attrNameIndex - 1);
+	}
+	
+	/**
+	 * Gets the read option that skips attributes with the name at the given index, as defined by the given registry.
+	 * The option is cached per index together with the decoder, as described in
+	 * {@link #getAttributeDecoder(int, AttributeDecoderRegistry)}.
+	 * @param attrNameIndex - The index of the attribute name in range [1, const pool length].
+	 * @param registry - The registry to get the skip option from.
+	 * @return The skip option, or null if attributes with this name cannot be skipped or if the given index does not
+	 * point to a {@link ConstantPoolString}.
+	 * @throws IndexOutOfBoundsException If the given index is out of range.
+	 * @see AttributeDecoderRegistry#getSkipOption(String)
+	 */
+	public ReadOption getAttributeSkipOption(int attrNameIndex, AttributeDecoderRegistry registry) {
+		AttributeDecoderCache cache = this.getAttributeDecoderCache(attrNameIndex, registry);
+		return (cache == null ? null : cache.skipOptions.get(attrNameIndex - 1));
+	}
+	
+	/**
+	 * Gets the attribute decoder cache for the given registry, in which the entry for the given index is filled.
+	 * @param attrNameIndex - The index of the attribute name in range [1, const pool length].
+	 * @param registry - The registry to get the decoder and skip option from.
+	 * @return The cache, or null if the given index does not point to a {@link ConstantPoolString}.
+	 * @throws IndexOutOfBoundsException If the given index is out of range.
+	 */
+	private AttributeDecoderCache getAttributeDecoderCache(int attrNameIndex, AttributeDecoderRegistry registry) {
+		this.checkIndex(attrNameIndex);
+		AttributeDecoderCache cache = this.attributeDecoders;
+		int version = registry.getVersion();
+		if(cache == null || cache.registry != registry || cache.version != version
+				|| cache.decoders.length() < this.size) {
+			cache = new AttributeDecoderCache(registry, version, this.size);
+			this.attributeDecoders = cache;
+		}
+		if(cache.decoders.get(attrNameIndex - 1) == null) {
+			ConstantPoolObject constPoolObj = this.get(attrNameIndex);
+			if(!(constPoolObj instanceof ConstantPoolString)) {
+				return null;
+			}
+			
+			// Set the skip option first, since a set decoder marks the entry as filled.
+			String attrName = ((ConstantPoolString) constPoolObj).getString();
+			cache.skipOptions.set(attrNameIndex - 1, registry.getSkipOption(attrName));
+			cache.decoders.set(attrNameIndex - 1, registry.getDecoder(attrName));
+		}
+		return cache;
+	}
+	
+	/**
+	 * Computes the new indices for removing the unused values from this constant pool, where the remaining values keep
+	 * their order. Values that are referenced by used values are marked as used as well, as are the placeholders of
+	 * used Longs and Doubles.
+	 * @param used - Whether each index is used, by index. Indices found through references are marked in this array.
+	 * @return The new index per current index (0 for removed indices), or null if no index would be removed.
+	 * @throws IndexOutOfBoundsException If a used value refers to an index that does not exist.
+	 */
+	int[] computeCompactIndices(boolean[] used) {
+		for(int index = 1; index <= this.size; index++) {
+			if(used[index]) {
+				this.markReferences(index, used);
+			}
+		}
+		int[] newIndices = new int[this.size + 1];
+		int newIndex = 1;
+		for(int index = 1; index <= this.size; index++) {
+			if(used[index]) {
+				ConstantPoolType type = ConstantPoolType.getTypeFromTag(this.tags[index - 1]);
+				newIndices[index] = newIndex++;
+				if((type == ConstantPoolType.LONG || type == ConstantPoolType.DOUBLE) && index < this.size) {
+					newIndices[++index] = newIndex++;
+				}
+			}
+		}
+		return (newIndex - 1 == this.size ? null : newIndices);
+	}
+	
+	private void markReferences(int index, boolean[] used) {
+		if(this.hasReferences(index - 1)) {
+			ConstantPoolObject obj = this.objects.get(index - 1);
+			if(obj == null) {
+				obj = this.materialize(index - 1); // Not stored, since it is not handed out.
+			}
+			obj.remapConstPoolIndices((refIndex) -> {
+				this.checkIndex(refIndex);
+				if(!used[refIndex]) {
+					used[refIndex] = true;
+					this.markReferences(refIndex, used);
+				}
+				return refIndex;
+			});
+		}
+	}
+	
+	/**
+	 * Checks whether the value at the given index can refer to other values in this constant pool.
+	 * @param i - The index in range [0, const pool length - 1].
+	 * @return True if the value is a reference type, false for values and placeholders.
+	 */
+	private boolean hasReferences(int i) {
+		ConstantPoolType type = ConstantPoolType.getTypeFromTag(this.tags[i]);
+		return type != null && type != ConstantPoolType.STRING && type != ConstantPoolType.INTEGER
+				&& type != ConstantPoolType.FLOAT && type != ConstantPoolType.LONG && type != ConstantPoolType.DOUBLE;
+	}
+	
+	/**
+	 * Moves the values in this constant pool to their new indices, removing the values with new index 0.
+	 * The references in the moved values are remapped to the new indices. Values that are not reference types and
+	 * have not been handed out are still written by copying their raw bytes.
+	 * @param newIndices - The new index per current index, as computed by {@link #computeCompactIndices(boolean[])}.
+	 */
+	void renumber(int[] newIndices) {
+		int newSize = 0;
+		for(int index = 1; index <= this.size; index++) {
+			newSize = Math.max(newSize, newIndices[index]);
+		}
+		byte[] tags = new byte[newSize];
+		int[] offsets = new int[newSize];
+		Arrays.fill(offsets, -1);
+		boolean[] accessed = new boolean[newSize];
+		AtomicReferenceArray<ConstantPoolObject> objects = new AtomicReferenceArray<ConstantPoolObject>(newSize);
+		for(int i = 0; i < this.size; i++) {
+			int j = newIndices[i + 1] - 1;
+			if(j != -1) {
+				if(this.hasReferences(i)) {
+					this.get(i + 1).remapConstPoolIndices((index) -> newIndices[index]);
+				}
+				tags[j] = this.tags[i];
+				offsets[j] = this.offsets[i];
+				accessed[j] = this.accessed[i];
+				objects.set(j, this.objects.get(i));
+			}
+		}
+		this.size = newSize;
+		this.tags = tags;
+		this.offsets = offsets;
+		this.accessed = accessed;
+		this.objects = objects;
+		this.contentIndex = null;
+		this.attributeDecoders = null;
+	}
+	
+	/**
+	 * Gets the tag byte of the value at the given index.
+	 * @param index - The index in range [1, const pool length].
+	 * @return The tag byte, or 0 for a placeholder or null value.
+	 */
+	byte getTagByte(int index) {
+		this.checkIndex(index);
+		return this.tags[index - 1];
+	}
+	
+	/**
+	 * Gets the absolute offset in the read buffer of the tag byte of the value at the given index.
+	 * @param index - The index in range [1, const pool length].
+	 * @return The offset, or -1 if the value was not read from the buffer.
+	 */
+	int getOffset(int index) {
+		this.checkIndex(index);
+		return this.offsets[index - 1];
 	}
 	
 	/**
@@ -186,7 +708,25 @@ public class ClassConstantPool {
 	 * @return The size of the constant pool.
 	 */
 	public int size() {
-		return this.constantPool.size();
+		return this.size;
+	}
+	
+	/**
+	 * Contains the attribute decoders and skip options found in a registry per constant pool index.
+	 */
+	private static class AttributeDecoderCache {
+		
+		private final AttributeDecoderRegistry registry;
+		private final int version;
+		private final AtomicReferenceArray<AttributeDecoder> decoders; // Null for entries that are not filled yet.
+		private final AtomicReferenceArray<ReadOption> skipOptions;
+		
+		private AttributeDecoderCache(AttributeDecoderRegistry registry, int version, int size) {
+			this.registry = registry;
+			this.version = version;
+			this.decoders = new AtomicReferenceArray<AttributeDecoder>(size);
+			this.skipOptions = new AtomicReferenceArray<ReadOption>(size);
+		}
 	}
 	
 	/**
@@ -194,38 +734,77 @@ public class ClassConstantPool {
 	 * Contains all possible constant pool data types with their matching identifier (tag) byte.
 	 */
 	public static enum ConstantPoolType {
-		STRING            ((byte) 1),
-		INTEGER           ((byte) 3),
-		FLOAT             ((byte) 4),
-		LONG              ((byte) 5),
-		DOUBLE            ((byte) 6),
-		CLASS_REF         ((byte) 7),
-		STRING_REF        ((byte) 8),
-		FIELD_REF         ((byte) 9),
-		METHOD_REF        ((byte) 10),
-		INTERFACE_REF     ((byte) 11),
-		NAME_AND_TYPE_DESC((byte) 12),
-		METHOD_HANDLE     ((byte) 15),
-		METHOD_TYPE       ((byte) 16),
-		INVOKEDYNAMIC     ((byte) 18);
+		STRING            ((byte) 1, -1), // Variable size: 2 byte length + length bytes.
+		INTEGER           ((byte) 3, 4),
+		FLOAT             ((byte) 4, 4),
+		LONG              ((byte) 5, 8),
+		DOUBLE            ((byte) 6, 8),
+		CLASS_REF         ((byte) 7, 2),
+		STRING_REF        ((byte) 8, 2),
+		FIELD_REF         ((byte) 9, 4),
+		METHOD_REF        ((byte) 10, 4),
+		INTERFACE_REF     ((byte) 11, 4),
+		NAME_AND_TYPE_DESC((byte) 12, 4),
+		METHOD_HANDLE     ((byte) 15, 3),
+		METHOD_TYPE       ((byte) 16, 2),
+		INVOKEDYNAMIC     ((byte) 18, 4),
+		MODULE            ((byte) 19, 2),
+		PACKAGE           ((byte) 20, 2);
+		
+		private static final ConstantPoolType[] TYPES_BY_TAG = new ConstantPoolType[256];
+		static {
+			for(ConstantPoolType type : ConstantPoolType.values()) {
+				TYPES_BY_TAG[type.tag & 0xFF] = type;
+			}
+		}
 		
 		private final byte tag;
+		private final int dataSize;
 		
-		private ConstantPoolType(byte tag) {
+		private ConstantPoolType(byte tag, int dataSize) {
 			this.tag = tag;
+			this.dataSize = dataSize;
 		}
 		
 		public byte getTagByte() {
 			return this.tag;
 		}
 		
+		/**
+		 * Gets the size of the data following the tag byte.
+		 * @return The data size in bytes, or -1 for variable sized types.
+		 */
+		public int getDataSize() {
+			return this.dataSize;
+		}
+		
 		public static ConstantPoolType getTypeFromTag(byte tag) {
-			for(ConstantPoolType type : ConstantPoolType.values()) {
-				if(type.getTagByte() == tag) {
-					return type;
-				}
-			}
-			return null;
+			return TYPES_BY_TAG[tag & 0xFF];
+		}
+	}
+	
+	/**
+	 * Represents the tag and data of a constant pool value as used in the class file format.
+	 */
+	private static class ContentKey {
+		
+		private final byte[] bytes;
+		private final int hash;
+		
+		private ContentKey(byte[] bytes) {
+			this.bytes = bytes;
+			this.hash = Arrays.hashCode(bytes);
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof ContentKey && ((ContentKey) obj).hash == this.hash
+					&& Arrays.equals(((ContentKey) obj).bytes, this.bytes);
 		}
 	}
 }
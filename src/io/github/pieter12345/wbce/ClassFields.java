@@ -2,6 +2,7 @@ package io.github.pieter12345.wbce;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Set;
 
 import io.github.pieter12345.wbce.attribute.AttributeSet;
 
@@ -13,23 +14,43 @@ public class ClassFields {
 		this.fields = fields;
 	}
 	
-	public static ClassFields fromInputStream(FancyInputStream inStream, ClassConstantPool constPool) throws IOException {
-		int fieldCount = inStream.readTwoByteInt();
+	public static ClassFields fromByteBuffer(FancyByteBufferReader reader,
+			ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException {
+		int fieldCount = reader.readTwoByteInt();
 		ArrayList<ClassField> fields = new ArrayList<ClassField>(fieldCount);
 		for(int i = 0; i < fieldCount; i++) {
-			fields.add(ClassField.fromInputStream(inStream, constPool));
+			fields.add(ClassField.fromByteBuffer(reader, constPool, readOptions));
 		}
 		return new ClassFields(fields);
 	}
 	
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.fields.size());
+	/**
+	 * Gets the size of the class file representation of this {@link ClassFields}.
+	 * @return The size in bytes.
+	 */
+	public int getByteSize() {
+		int size = 2;
+		for(int i = 0; i < this.fields.size(); i++) {
+			size += this.fields.get(i).getByteSize();
+		}
+		return size;
+	}
+	
+	/**
+	 * Writes the class file representation of this {@link ClassFields}.
+	 * @param writer - The writer to write to, which must have {@link #getByteSize()} bytes left.
+	 */
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.fields.size());
 		for(int i = 0; i < this.fields.size(); i++) {
-			outStream.write(this.fields.get(i).toBytes());
+			this.fields.get(i).writeTo(writer);
 		}
-		return outStream.toByteArray();
+	}
+	
+	public byte[] toBytes() {
+		FancyByteArrayWriter writer = new FancyByteArrayWriter(this.getByteSize());
+		this.writeTo(writer);
+		return writer.toByteArray();
 	}
 	
 	public int size() {
@@ -82,22 +103,24 @@ public class ClassFields {
 			this.fieldAttributes = fieldAttributes;
 		}
 		
-		public static ClassField fromInputStream(FancyInputStream inStream, ClassConstantPool constPool) throws IOException {
-			FieldAccessFlags accessFlags = new FieldAccessFlags(inStream.readTwoByteInt());
-			int fieldNameIndex = inStream.readTwoByteInt();
-			int fieldDescIndex = inStream.readTwoByteInt();
-			AttributeSet fieldAttributes = AttributeSet.fromInputStream(inStream, constPool);
+		public static ClassField fromByteBuffer(FancyByteBufferReader reader,
+				ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException {
+			FieldAccessFlags accessFlags = new FieldAccessFlags(reader.readTwoByteInt());
+			int fieldNameIndex = reader.readTwoByteInt();
+			int fieldDescIndex = reader.readTwoByteInt();
+			AttributeSet fieldAttributes = AttributeSet.fromByteBuffer(reader, constPool, readOptions);
 			return new ClassField(accessFlags, fieldNameIndex, fieldDescIndex, fieldAttributes);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.accessFlags.getValue());
-			outStream.writeTwoByteInteger(this.fieldNameIndex);
-			outStream.writeTwoByteInteger(this.fieldDescIndex);
-			outStream.write(this.fieldAttributes.toBytes());
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 6 + this.fieldAttributes.getByteSize();
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.accessFlags.getValue());
+			writer.writeTwoByteInteger(this.fieldNameIndex);
+			writer.writeTwoByteInteger(this.fieldDescIndex);
+			this.fieldAttributes.writeTo(writer);
 		}
 		
 		public FieldAccessFlags getAccessFlags() {
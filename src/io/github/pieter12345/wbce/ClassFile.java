@@ -5,11 +5,23 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
 
+import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 import io.github.pieter12345.wbce.ClassFields.ClassField;
+import io.github.pieter12345.wbce.ClassFileVisitor.AttributeTarget;
+import io.github.pieter12345.wbce.ClassInterfaces.ClassInterface;
 import io.github.pieter12345.wbce.ClassMethods.ClassMethod;
+import io.github.pieter12345.wbce.attribute.AttributeDecoderRegistry;
 import io.github.pieter12345.wbce.attribute.AttributeSet;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolObject;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
 
 /*
  * TODO - Revise this class:
@@ -49,6 +61,7 @@ public class ClassFile {
 	
 	/**
 	 * Reads the given class file and returns a {@link ClassFile} representing that file.
+	 * The file is read into memory with a single read and parsed through {@link #read(ByteBuffer)}.
 	 * @param classFile - The class file to read.
 	 * @return A {@link ClassFile} representing the given class file.
 	 * @throws FileNotFoundException If the given file was not found.
@@ -56,47 +69,267 @@ public class ClassFile {
 	 * @throws Exception If the file has an illegal or unsupported format.
 	 */
 	public static ClassFile readFromFile(File classFile) throws FileNotFoundException, IOException, Exception {
-		FancyInputStream inStream = new FancyInputStream(new FileInputStream(classFile));
+		return readFromFile(classFile, EnumSet.noneOf(ReadOption.class));
+	}
+	
+	/**
+	 * Reads the given class file and returns a {@link ClassFile} representing that file.
+	 * The file is read into memory with a single read and parsed through {@link #read(ByteBuffer, Set)}.
+	 * Since the read bytes are kept in memory, the given file can safely be overwritten by this {@link ClassFile}.
+	 * @param classFile - The class file to read.
+	 * @param readOptions - The options to parse the class file with.
+	 * @return A {@link ClassFile} representing the given class file.
+	 * @throws FileNotFoundException If the given file was not found.
+	 * @throws IOException If an I/O error occurs while reading the given file.
+	 * @throws Exception If the file has an illegal or unsupported format.
+	 */
+	public static ClassFile readFromFile(File classFile, Set<ReadOption> readOptions)
+			throws FileNotFoundException, IOException, Exception {
+		return read(readFileToBuffer(classFile), readOptions);
+	}
+	
+	private static ByteBuffer readFileToBuffer(File classFile) throws FileNotFoundException, IOException {
+		try(FileChannel channel = new FileInputStream(classFile).getChannel()) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to be a class file: " + classFile.getAbsolutePath());
+			}
+			ByteBuffer buffer = ByteBuffer.allocate((int) size);
+			while(buffer.hasRemaining()) {
+				if(channel.read(buffer) == -1) {
+					throw new IOException("Unexpected end of file: " + classFile.getAbsolutePath());
+				}
+			}
+			buffer.flip();
+			return buffer;
+		}
+	}
+	
+	/**
+	 * Reads the given class file and returns a {@link ClassFile} representing that file.
+	 * The file is memory-mapped and parsed through {@link #read(ByteBuffer, Set)}.
+	 * The returned {@link ClassFile} copies unchanged parts from the mapped file when it is written, so the given
+	 * file must not be modified or overwritten while the returned {@link ClassFile} is in use.
+	 * Use {@link #readFromFile(File, Set)} to read a file that will be overwritten.
+	 * @param classFile - The class file to read.
+	 * @param readOptions - The options to parse the class file with.
+	 * @return A {@link ClassFile} representing the given class file.
+	 * @throws FileNotFoundException If the given file was not found.
+	 * @throws IOException If an I/O error occurs while reading the given file.
+	 * @throws Exception If the file has an illegal or unsupported format.
+	 */
+	public static ClassFile mapFromFile(File classFile, Set<ReadOption> readOptions)
+			throws FileNotFoundException, IOException, Exception {
+		try(FileChannel channel = new FileInputStream(classFile).getChannel()) {
+			return read(channel.map(MapMode.READ_ONLY, 0, channel.size()), readOptions);
+		}
+	}
+	
+	/**
+	 * Reads a class file from the given input stream and returns a {@link ClassFile} representing it.
+	 * The stream is read until its end, but is not closed.
+	 * @param inStream - The input stream to read the class file from.
+	 * @return A {@link ClassFile} representing the read class file.
+	 * @throws IOException If an I/O error occurs while reading the given stream.
+	 * @throws Exception If the stream data has an illegal or unsupported format.
+	 */
+	public static ClassFile read(InputStream inStream) throws IOException, Exception {
+		return read(inStream, EnumSet.noneOf(ReadOption.class));
+	}
+	
+	/**
+	 * Reads a class file from the given input stream and returns a {@link ClassFile} representing it.
+	 * The stream is read until its end, but is not closed.
+	 * @param inStream - The input stream to read the class file from.
+	 * @param readOptions - The options to parse the class file with.
+	 * @return A {@link ClassFile} representing the read class file.
+	 * @throws IOException If an I/O error occurs while reading the given stream.
+	 * @throws Exception If the stream data has an illegal or unsupported format.
+	 */
+	public static ClassFile read(InputStream inStream, Set<ReadOption> readOptions) throws IOException, Exception {
+		@SuppressWarnings("resource") // No resources leak from not closing the output stream.
+		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
+		byte[] buff = new byte[8192];
+		int amount;
+		while((amount = inStream.read(buff)) != -1) {
+			outStream.write(buff, 0, amount);
+		}
+		return read(outStream.toByteArray(), readOptions);
+	}
+	
+	/**
+	 * Reads a class file from the given bytes and returns a {@link ClassFile} representing it.
+	 * @param bytes - The bytes in the class file format.
+	 * @return A {@link ClassFile} representing the given bytes.
+	 * @throws IOException If the bytes end before the class file does.
+	 * @throws Exception If the bytes have an illegal or unsupported format.
+	 */
+	public static ClassFile read(byte[] bytes) throws IOException, Exception {
+		return read(ByteBuffer.wrap(bytes));
+	}
+	
+	/**
+	 * Reads a class file from the given bytes and returns a {@link ClassFile} representing it.
+	 * @param bytes - The bytes in the class file format.
+	 * @param readOptions - The options to parse the class file with.
+	 * @return A {@link ClassFile} representing the given bytes.
+	 * @throws IOException If the bytes end before the class file does.
+	 * @throws Exception If the bytes have an illegal or unsupported format.
+	 */
+	public static ClassFile read(byte[] bytes, Set<ReadOption> readOptions) throws IOException, Exception {
+		return read(ByteBuffer.wrap(bytes), readOptions);
+	}
+	
+	/**
+	 * Reads a class file from the given bytes and returns a {@link ClassFile} representing it.
+	 * @param bytes - The bytes in the class file format.
+	 * @param readOptions - The options to parse the class file with.
+	 * @param symbolTable - The table to share strings through, or null to not share strings.
+	 * @return A {@link ClassFile} representing the given bytes.
+	 * @throws IOException If the bytes end before the class file does.
+	 * @throws Exception If the bytes have an illegal or unsupported format.
+	 * @see #read(ByteBuffer, Set, SymbolTable)
+	 */
+	public static ClassFile read(byte[] bytes, Set<ReadOption> readOptions,
+			SymbolTable symbolTable) throws IOException, Exception {
+		return read(ByteBuffer.wrap(bytes), readOptions, symbolTable);
+	}
+	
+	/**
+	 * Reads a class file from the given bytes and returns a {@link ClassFile} representing it.
+	 * @param bytes - The bytes in the class file format.
+	 * @param readOptions - The options to parse the class file with.
+	 * @param symbolTable - The table to share strings through, or null to not share strings.
+	 * @param attrDecoderRegistry - The registry to decode attributes with, or null to use the default registry.
+	 * @return A {@link ClassFile} representing the given bytes.
+	 * @throws IOException If the bytes end before the class file does.
+	 * @throws Exception If the bytes have an illegal or unsupported format.
+	 * @see #read(ByteBuffer, Set, SymbolTable, AttributeDecoderRegistry)
+	 */
+	public static ClassFile read(byte[] bytes, Set<ReadOption> readOptions, SymbolTable symbolTable,
+			AttributeDecoderRegistry attrDecoderRegistry) throws IOException, Exception {
+		return read(ByteBuffer.wrap(bytes), readOptions, symbolTable, attrDecoderRegistry);
+	}
+	
+	/**
+	 * Reads a class file from the given buffer and returns a {@link ClassFile} representing it.
+	 * The class file is read from the position to the limit of the buffer using absolute-offset reads,
+	 * so the position of the given buffer is not modified.
+	 * @param buffer - The buffer containing the class file.
+	 * @return A {@link ClassFile} representing the class file in the given buffer.
+	 * @throws IOException If the buffer ends before the class file does.
+	 * @throws Exception If the buffer data has an illegal or unsupported format.
+	 */
+	public static ClassFile read(ByteBuffer buffer) throws IOException, Exception {
+		return read(buffer, EnumSet.noneOf(ReadOption.class));
+	}
+	
+	/**
+	 * Reads a class file from the given buffer and returns a {@link ClassFile} representing it.
+	 * The class file is read from the position to the limit of the buffer using absolute-offset reads,
+	 * so the position of the given buffer is not modified.
+	 * The returned {@link ClassFile} keeps a reference to the buffer, from which the raw bytes of constant pool
+	 * objects and attributes that have not been accessed are copied when it is written. The buffer should therefore
+	 * not be modified while the returned {@link ClassFile} is in use.
+	 * @param buffer - The buffer containing the class file.
+	 * @param readOptions - The options to parse the class file with.
+	 * @return A {@link ClassFile} representing the class file in the given buffer.
+	 * @throws IOException If the buffer ends before the class file does.
+	 * @throws Exception If the buffer data has an illegal or unsupported format.
+	 */
+	public static ClassFile read(ByteBuffer buffer, Set<ReadOption> readOptions) throws IOException, Exception {
+		return read(buffer, readOptions, null);
+	}
+	
+	/**
+	 * Reads a class file from the given buffer and returns a {@link ClassFile} representing it, as described in
+	 * {@link #read(ByteBuffer, Set)}. When a {@link SymbolTable} is given, the strings in the constant pool share
+	 * their bytes and decoded value with equal strings in all other classes read through the same table.
+	 * @param buffer - The buffer containing the class file.
+	 * @param readOptions - The options to parse the class file with.
+	 * @param symbolTable - The table to share strings through, or null to not share strings.
+	 * @return A {@link ClassFile} representing the class file in the given buffer.
+	 * @throws IOException If the buffer ends before the class file does.
+	 * @throws Exception If the buffer data has an illegal or unsupported format.
+	 */
+	public static ClassFile read(ByteBuffer buffer, Set<ReadOption> readOptions,
+			SymbolTable symbolTable) throws IOException, Exception {
+		return read(buffer, readOptions, symbolTable, null);
+	}
+	
+	/**
+	 * Reads a class file from the given buffer and returns a {@link ClassFile} representing it, as described in
+	 * {@link #read(ByteBuffer, Set, SymbolTable)}. Attributes are decoded with the decoders from the given registry,
+	 * also when they are decoded lazily after reading. This allows decoders to be registered, overridden or suppressed
+	 * for this read only, without affecting other reads.
+	 * @param buffer - The buffer containing the class file.
+	 * @param readOptions - The options to parse the class file with.
+	 * @param symbolTable - The table to share strings through, or null to not share strings.
+	 * @param attrDecoderRegistry - The registry to decode attributes with, or null to use the default registry.
+	 * @return A {@link ClassFile} representing the class file in the given buffer.
+	 * @throws IOException If the buffer ends before the class file does.
+	 * @throws Exception If the buffer data has an illegal or unsupported format.
+	 */
+	public static ClassFile read(ByteBuffer buffer, Set<ReadOption> readOptions, SymbolTable symbolTable,
+			AttributeDecoderRegistry attrDecoderRegistry) throws IOException, Exception {
+		FancyByteBufferReader reader = new FancyByteBufferReader(buffer);
 		
 		// Get the magic value (CAFEBABE, 4 bytes as 8 bit integers) to verify that the file is a class file.
-		int magicValue = inStream.readFourByteInt();
+		int magicValue = reader.readFourByteInt();
 		if(magicValue != 0xCAFEBABE) {
-			inStream.close();
 			throw new Exception("File is not a class file.");
 		}
 		
 		// Get the minor version (2 bytes, big edian).
-		int minorVersion = inStream.readTwoByteInt();
+		int minorVersion = reader.readTwoByteInt();
 		
 		// Get the major version (2 bytes, big edian).
-		int majorVersion = inStream.readTwoByteInt();
+		int majorVersion = reader.readTwoByteInt();
 		
 		// Get the constant pool.
-		ClassConstantPool constPool = ClassConstantPool.fromInputStream(inStream);
+		ClassConstantPool constPool = ClassConstantPool.fromByteBuffer(reader, readOptions, symbolTable);
+		constPool.setAttributeDecoderRegistry(attrDecoderRegistry);
+		return readAfterConstantPool(reader, minorVersion, majorVersion, constPool, readOptions);
+	}
+	
+	/**
+	 * Reads the part of a class file that follows the constant pool and returns a {@link ClassFile} representing the
+	 * class file. This allows the constant pool to be created without reading it, as done by {@link ClassFileSnapshot}.
+	 * @param reader - The reader, positioned at the access flags that follow the constant pool.
+	 * @param minorVersion - The minor class file version.
+	 * @param majorVersion - The major class file version.
+	 * @param constPool - The constant pool of the class file.
+	 * @param readOptions - The options to parse the class file with.
+	 * @return A {@link ClassFile} representing the class file.
+	 * @throws IOException If the reader ends before the class file does.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	static ClassFile readAfterConstantPool(FancyByteBufferReader reader, int minorVersion, int majorVersion,
+			ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException, Exception {
 		
 		// Get the access flags (2 bytes bitmask).
-		ClassAccessFlags accessFlags = new ClassAccessFlags(inStream.readTwoByteInt());
+		ClassAccessFlags accessFlags = new ClassAccessFlags(reader.readTwoByteInt());
 		
 		// Get class identifier (index in constant pool).
-		int thisClassIdentifierIndex = inStream.readTwoByteInt();
+		int thisClassIdentifierIndex = reader.readTwoByteInt();
 		
 		// Get super class identifier (index in constant pool).
-		int superClassIdentifierIndex = inStream.readTwoByteInt();
+		int superClassIdentifierIndex = reader.readTwoByteInt();
 		
 		// Get the interfaces.
-		ClassInterfaces interfaces = ClassInterfaces.fromInputStream(inStream);
+		ClassInterfaces interfaces = ClassInterfaces.fromByteBuffer(reader);
 
 		// Get the fields.
-		ClassFields fields = ClassFields.fromInputStream(inStream, constPool);
+		ClassFields fields = ClassFields.fromByteBuffer(reader, constPool, readOptions);
 		
 		// Get the methods.
-		ClassMethods methods = ClassMethods.fromInputStream(inStream, constPool);
+		ClassMethods methods = ClassMethods.fromByteBuffer(reader, constPool, readOptions);
 		
 		// Get the class attributes.
-		AttributeSet attributes = AttributeSet.fromInputStream(inStream, constPool);
+		AttributeSet attributes = AttributeSet.fromByteBuffer(reader, constPool, readOptions);
 		
 		// Check if the end of the file has been reached.
-		if(inStream.read() != -1) {
+		if(reader.remaining() != 0) {
 			System.out.println("[Warning] [" + ClassFile.class.getSimpleName() + "]"
 					+ " The class file contains more bytes then expected.");
 		}
@@ -106,6 +339,172 @@ public class ClassFile {
 				thisClassIdentifierIndex, superClassIdentifierIndex, interfaces, fields, methods, attributes);
 	}
 	
+	/**
+	 * Reads the header of the given class file. See {@link #readHeader(ByteBuffer, boolean)}.
+	 * @param classFile - The class file to read the header of.
+	 * @param scanMembers - True to scan the fields, methods and attributes by their lengths, false to stop reading
+	 * after the interfaces.
+	 * @return A {@link ClassHeader} representing the header of the given class file.
+	 * @throws FileNotFoundException If the given file was not found.
+	 * @throws IOException If an I/O error occurs while reading the given file.
+	 * @throws Exception If the file has an illegal or unsupported format.
+	 */
+	public static ClassHeader readHeaderFromFile(File classFile, boolean scanMembers)
+			throws FileNotFoundException, IOException, Exception {
+		return readHeader(readFileToBuffer(classFile), scanMembers);
+	}
+	
+	/**
+	 * Reads the header of the class file in the given bytes. See {@link #readHeader(ByteBuffer, boolean)}.
+	 * @param bytes - The bytes in the class file format.
+	 * @param scanMembers - True to scan the fields, methods and attributes by their lengths, false to stop reading
+	 * after the interfaces.
+	 * @return A {@link ClassHeader} representing the header of the class file in the given bytes.
+	 * @throws IOException If the bytes end before the read part of the class file does.
+	 * @throws Exception If the bytes have an illegal or unsupported format.
+	 */
+	public static ClassHeader readHeader(byte[] bytes, boolean scanMembers) throws IOException, Exception {
+		return readHeader(ByteBuffer.wrap(bytes), scanMembers);
+	}
+	
+	/**
+	 * Reads the header of the class file in the given buffer, without reading the fields, methods and attributes.
+	 * The constant pool is read lazily, so the cost of reading a header is bounded by the size of the constant pool
+	 * rather than by the size of the code in the class file. This makes it suitable for building class hierarchy
+	 * information over many classes. The position of the given buffer is not modified and the returned
+	 * {@link ClassHeader} does not reference the buffer.
+	 * @param buffer - The buffer containing the class file.
+	 * @param scanMembers - True to scan the fields, methods and attributes by their lengths, false to stop reading
+	 * after the interfaces.
+	 * @return A {@link ClassHeader} representing the header of the class file in the given buffer.
+	 * @throws IOException If the buffer ends before the read part of the class file does.
+	 * @throws Exception If the buffer data has an illegal or unsupported format.
+	 * @see ClassHeader#fromByteBuffer(FancyByteBufferReader, boolean)
+	 */
+	public static ClassHeader readHeader(ByteBuffer buffer, boolean scanMembers) throws IOException, Exception {
+		return ClassHeader.fromByteBuffer(new FancyByteBufferReader(buffer), scanMembers);
+	}
+	
+	/**
+	 * Passes the class file in the given bytes to the given visitor in a single forward pass.
+	 * @param bytes - The bytes in the class file format.
+	 * @param visitor - The visitor to pass the class file parts to.
+	 * @throws IOException If the bytes end before the class file does.
+	 * @throws Exception If the bytes have an illegal or unsupported format.
+	 * @see #accept(ByteBuffer, ClassFileVisitor)
+	 */
+	public static void accept(byte[] bytes, ClassFileVisitor visitor) throws IOException, Exception {
+		accept(ByteBuffer.wrap(bytes), visitor);
+	}
+	
+	/**
+	 * Passes the class file in the given buffer to the given visitor in a single forward pass, without creating a
+	 * {@link ClassFile}. The constant pool is read lazily and parts that the visitor skips are skipped by their
+	 * length without being decoded. See {@link ClassFileVisitor} for the order in which parts are visited.
+	 * @param buffer - The buffer containing the class file.
+	 * @param visitor - The visitor to pass the class file parts to.
+	 * @throws IOException If the buffer ends before the class file does.
+	 * @throws Exception If the buffer data has an illegal or unsupported format.
+	 */
+	public static void accept(ByteBuffer buffer, ClassFileVisitor visitor) throws IOException, Exception {
+		FancyByteBufferReader reader = new FancyByteBufferReader(buffer);
+		
+		// Read the header.
+		if(reader.readFourByteInt() != 0xCAFEBABE) {
+			throw new Exception("File is not a class file.");
+		}
+		int minorVersion = reader.readTwoByteInt();
+		int majorVersion = reader.readTwoByteInt();
+		ClassConstantPool constPool = ClassConstantPool.fromByteBuffer(
+				reader, EnumSet.of(ReadOption.LAZY_CONSTANT_POOL));
+		if(constPool == null) {
+			throw new Exception("The class file contains an invalid or unsupported constant pool tag.");
+		}
+		int accessFlags = reader.readTwoByteInt();
+		int thisClassIdentifierIndex = reader.readTwoByteInt();
+		int superClassIdentifierIndex = reader.readTwoByteInt();
+		ClassInterfaces interfaces = ClassInterfaces.fromByteBuffer(reader);
+		visitor.visitHeader(minorVersion, majorVersion, constPool,
+				accessFlags, thisClassIdentifierIndex, superClassIdentifierIndex, interfaces);
+		
+		// Visit the constant pool.
+		for(int i = 1; i <= constPool.size(); i++) {
+			ConstantPoolType type = constPool.getType(i);
+			if(type != null) { // Skip placeholders for Doubles and Longs.
+				visitor.visitConstant(i, type);
+			}
+		}
+		
+		// Visit the fields.
+		int fieldCount = reader.readTwoByteInt();
+		for(int i = 0; i < fieldCount; i++) {
+			boolean visitAttributes = visitor.visitField(
+					reader.readTwoByteInt(), reader.readTwoByteInt(), reader.readTwoByteInt());
+			acceptAttributes(reader, constPool, visitor, (visitAttributes ? AttributeTarget.FIELD : null));
+		}
+		
+		// Visit the methods.
+		int methodCount = reader.readTwoByteInt();
+		for(int i = 0; i < methodCount; i++) {
+			boolean visitAttributes = visitor.visitMethod(
+					reader.readTwoByteInt(), reader.readTwoByteInt(), reader.readTwoByteInt());
+			acceptAttributes(reader, constPool, visitor, (visitAttributes ? AttributeTarget.METHOD : null));
+		}
+		
+		// Visit the class attributes.
+		acceptAttributes(reader, constPool, visitor, AttributeTarget.CLASS);
+		visitor.visitEnd();
+	}
+	
+	/**
+	 * Passes the attributes at the position of the given reader to the given visitor.
+	 * @param reader - The reader, positioned at the attribute count.
+	 * @param constPool - The constant pool.
+	 * @param visitor - The visitor.
+	 * @param target - The kind of structure the attributes belong to, or null to skip the attributes.
+	 * @throws IOException If the reader ends before the attributes do.
+	 */
+	private static void acceptAttributes(FancyByteBufferReader reader, ClassConstantPool constPool,
+			ClassFileVisitor visitor, AttributeTarget target) throws IOException {
+		int attributeCount = reader.readTwoByteInt();
+		for(int i = 0; i < attributeCount; i++) {
+			int attrNameIndex = reader.readTwoByteInt();
+			int attrLengthOffset = reader.getPosition();
+			int attrLength = reader.readFourByteInt();
+			int attrOffset = reader.getPosition();
+			reader.skip(attrLength);
+			if(target == null) {
+				continue;
+			}
+			int attrEnd = reader.getPosition();
+			if(target == AttributeTarget.METHOD && isCodeAttributeName(constPool, attrNameIndex)) {
+				
+				// Visit the code and the code attributes, skipping the exception table.
+				reader.setPosition(attrOffset);
+				int maxStack = reader.readTwoByteInt();
+				int maxLocals = reader.readTwoByteInt();
+				int codeLength = reader.readFourByteInt();
+				int codeOffset = reader.getPosition();
+				reader.skip(codeLength);
+				if(visitor.visitCode(maxStack, maxLocals, reader.getBuffer(), codeOffset, codeLength)) {
+					reader.skip(8 * reader.readTwoByteInt());
+					acceptAttributes(reader, constPool, visitor, AttributeTarget.CODE);
+				}
+				reader.setPosition(attrEnd);
+			} else if(visitor.visitAttribute(target, attrNameIndex, reader.getBuffer(), attrOffset, attrLength)) {
+				reader.setPosition(attrLengthOffset);
+				visitor.visitDecodedAttribute(target, AttributeSet.decodeAttribute(
+						attrNameIndex, reader, constPool, EnumSet.noneOf(ReadOption.class)));
+				reader.setPosition(attrEnd);
+			}
+		}
+	}
+	
+	private static boolean isCodeAttributeName(ClassConstantPool constPool, int attrNameIndex) {
+		return constPool.getType(attrNameIndex) == ConstantPoolType.STRING
+				&& "Code".equals(((ConstantPoolString) constPool.get(attrNameIndex)).getString());
+	}
+	
 	/**
 	 * Writes this {@link ClassFile} to the given file.
 	 * @param file - The file to write to.
@@ -121,9 +520,12 @@ public class ClassFile {
 			throw new IOException(
 					"Parent directory does not exist: " + file.getAbsoluteFile().getParentFile().getAbsolutePath());
 		}
+		
+		// Serialize before opening the file, since unchanged parts are copied from the buffer this was read from.
+		byte[] bytes = this.toBytes();
 		file.createNewFile();
 		FileOutputStream outStream = new FileOutputStream(file);
-		outStream.write(this.toBytes());
+		outStream.write(bytes);
 		outStream.close();
 	}
 	
@@ -132,20 +534,87 @@ public class ClassFile {
 	 * @return A byte array containing this {@link ClassFile} in the class file format.
 	 */
 	public byte[] toBytes() {
-		@SuppressWarnings("resource") // No resources leak from not closing the output stream.
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeFourByteInteger(0xCAFEBABE);
-		outStream.writeTwoByteInteger(this.minorVersion);
-		outStream.writeTwoByteInteger(this.majorVersion);
-		outStream.write(this.constPool.toBytes());
-		outStream.writeTwoByteInteger(this.accessFlags.getValue());
-		outStream.writeTwoByteInteger(this.thisClassIdentifierIndex);
-		outStream.writeTwoByteInteger(this.superClassIdentifierIndex);
-		outStream.write(this.interfaces.toBytes());
-		outStream.write(this.fields.toBytes());
-		outStream.write(this.methods.toBytes());
-		outStream.write(this.attributes.toBytes());
-		return outStream.toByteArray();
+		
+		// Compute the exact size first, so that everything can be written into a single array.
+		int size = 14 + this.constPool.getByteSize() + this.interfaces.getByteSize()
+				+ this.fields.getByteSize() + this.methods.getByteSize() + this.attributes.getByteSize();
+		FancyByteArrayWriter writer = new FancyByteArrayWriter(size);
+		writer.writeFourByteInteger(0xCAFEBABE);
+		writer.writeTwoByteInteger(this.minorVersion);
+		writer.writeTwoByteInteger(this.majorVersion);
+		this.constPool.writeTo(writer);
+		writer.writeTwoByteInteger(this.accessFlags.getValue());
+		writer.writeTwoByteInteger(this.thisClassIdentifierIndex);
+		writer.writeTwoByteInteger(this.superClassIdentifierIndex);
+		this.interfaces.writeTo(writer);
+		this.fields.writeTo(writer);
+		this.methods.writeTo(writer);
+		this.attributes.writeTo(writer);
+		return writer.toByteArray();
+	}
+	
+	/**
+	 * Replaces every constant pool index in this class file by the index that the given remapper maps it to.
+	 * This includes the indices in the header, interfaces, fields, methods, attributes and bytecode, but not the
+	 * indices that constant pool values refer to. Optional indices that are absent are passed as 0 as well.
+	 * All attributes are decoded, so they are encoded instead of copied when this class file is written.
+	 * @param remapper - The function mapping current constant pool indices to new constant pool indices.
+	 * @throws UnsupportedOperationException If this class file contains an attribute with an unknown layout.
+	 * @throws IllegalStateException If a remapped index does not fit in an ldc instruction.
+	 */
+	public void remapConstPoolIndices(IntUnaryOperator remapper) {
+		this.thisClassIdentifierIndex = remapper.applyAsInt(this.thisClassIdentifierIndex);
+		this.superClassIdentifierIndex = remapper.applyAsInt(this.superClassIdentifierIndex);
+		for(int i = 0; i < this.interfaces.size(); i++) {
+			ClassInterface classInterface = this.interfaces.getInterface(i);
+			classInterface.setNameIndex(remapper.applyAsInt(classInterface.getNameIndex()));
+		}
+		for(int i = 0; i < this.fields.size(); i++) {
+			ClassField field = this.fields.getField(i);
+			field.setNameIndex(remapper.applyAsInt(field.getNameIndex()));
+			field.setDescIndex(remapper.applyAsInt(field.getDescIndex()));
+			field.getAttributes().remapConstPoolIndices(remapper, this.constPool);
+		}
+		for(int i = 0; i < this.methods.size(); i++) {
+			ClassMethod method = this.methods.getMethod(i);
+			method.setNameIndex(remapper.applyAsInt(method.getNameIndex()));
+			method.setDescIndex(remapper.applyAsInt(method.getDescIndex()));
+			method.getAttributes().remapConstPoolIndices(remapper, this.constPool);
+		}
+		this.attributes.remapConstPoolIndices(remapper, this.constPool);
+	}
+	
+	/**
+	 * Removes all values from the constant pool that are not referenced from this class file, either directly or
+	 * through other constant pool values, and updates all references to the remaining values.
+	 * The remaining values keep their order, so no index increases and ldc instructions never have to be widened.
+	 * Nothing is changed when the class file contains an attribute with an unknown layout, since the references in
+	 * such an attribute cannot be found.
+	 * @return The amount of removed constant pool indices.
+	 * @throws UnsupportedOperationException If this class file contains an attribute with an unknown layout.
+	 * @throws IndexOutOfBoundsException If this class file refers to a constant pool index that does not exist.
+	 */
+	public int compactConstantPool() {
+		
+		// Mark the used indices. This finds unknown attributes and invalid indices before anything is changed.
+		boolean[] used = new boolean[this.constPool.size() + 1];
+		this.remapConstPoolIndices((index) -> {
+			if(index < 0 || index >= used.length) {
+				throw new IndexOutOfBoundsException("Constant pool index out of range: " + index);
+			}
+			used[index] = true;
+			return index;
+		});
+		int[] newIndices = this.constPool.computeCompactIndices(used);
+		if(newIndices == null) {
+			return 0;
+		}
+		
+		// Renumber. The constant pool is renumbered last, since remapping unknown attributes looks up their names.
+		int oldSize = this.constPool.size();
+		this.remapConstPoolIndices((index) -> newIndices[index]);
+		this.constPool.renumber(newIndices);
+		return oldSize - this.constPool.size();
 	}
 	
 	public int getMinorVersion() {
@@ -0,0 +1,514 @@
+package io.github.pieter12345.wbce;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
+import io.github.pieter12345.wbce.attribute.AttributeDecoderRegistry;
+import io.github.pieter12345.wbce.jar.MappedJarFile;
+
+/**
+ * Represents a snapshot of the class files in a jar file, stored in a file that is memory-mapped when opened.
+ * The snapshot contains the uncompressed bytes of every class file, together with the tag and offset of every
+ * constant pool value. Opening a snapshot only maps the file and checks its header, and reading a class file from it
+ * neither inflates the class file nor reads its constant pool, since constant pool values are created lazily from the
+ * recorded offsets. Attributes are read as described by the given {@link ReadOption}s.
+ * <p>
+ * A snapshot records the size, modification time and SHA-256 hash of its jar file. It is used for a jar file when
+ * the size matches and either the modification time or the hash matches, so that a jar file that was only touched or
+ * copied does not invalidate its snapshot.
+ * <p>
+ * The snapshot file has the following layout, where all values are big-endian and all offsets are absolute:
+ * <pre>
+ * header:   magic (4), version (4), jar size (8), jar modification time (8), jar SHA-256 hash (32),
+ *           class count (4), index offset (4)
+ * classes:  per class, the class file bytes, followed by a constant pool table if the constant pool could be read:
+ *           constant pool size (4), tag per index (size), padding to 4 bytes, tag offset per index (4 * size)
+ * index:    per class, sorted by the UTF-8 bytes of the name: name offset (4), class offset (4), class length (4),
+ *           constant pool end offset (4), constant pool table offset (4, -1 if absent)
+ * names:    per class, the entry name: length (2), UTF-8 bytes (length)
+ * </pre>
+ * Instances of this class can be used by multiple threads concurrently.
+ * @author P.J.S. Kools
+ */
+public class ClassFileSnapshot {
+	
+	// Variables & Constants.
+	private static final int MAGIC = 0x57424353; // "WBCS".
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int INDEX_RECORD_SIZE = 20;
+	
+	private final File file;
+	private final ByteBuffer buffer; // The mapped snapshot file, only read through absolute reads.
+	private final long jarSize;
+	private final long jarLastModified;
+	private final byte[] jarHash;
+	private final int classCount;
+	private final int indexOffset;
+	
+	private ClassFileSnapshot(File file, ByteBuffer buffer) {
+		this.file = file;
+		this.buffer = buffer;
+		this.jarSize = buffer.getLong(8);
+		this.jarLastModified = buffer.getLong(16);
+		this.jarHash = new byte[32];
+		ByteBuffer hashBuffer = buffer.duplicate();
+		hashBuffer.position(24);
+		hashBuffer.get(this.jarHash);
+		this.classCount = buffer.getInt(56);
+		this.indexOffset = buffer.getInt(60);
+	}
+	
+	/**
+	 * Opens the snapshot for the given jar file, creating or replacing the snapshot file when it does not exist, has
+	 * an unsupported format or does not match the jar file.
+	 * @param jarFile - The jar file.
+	 * @param snapshotFile - The snapshot file.
+	 * @return The opened snapshot.
+	 * @throws IOException If an I/O error occurs while reading the jar file, or reading or writing the snapshot file.
+	 */
+	public static ClassFileSnapshot openOrCreate(File jarFile, File snapshotFile) throws IOException {
+		ClassFileSnapshot snapshot = open(jarFile, snapshotFile);
+		return (snapshot != null ? snapshot : create(jarFile, snapshotFile));
+	}
+	
+	/**
+	 * Opens the snapshot for the given jar file. The hash of the jar file is only computed when its size matches the
+	 * snapshot, but its modification time does not.
+	 * @param jarFile - The jar file.
+	 * @param snapshotFile - The snapshot file.
+	 * @return The opened snapshot, or null if the snapshot file does not exist, has an unsupported format or does not
+	 * match the jar file.
+	 * @throws IOException If an I/O error occurs while mapping the snapshot file or hashing the jar file.
+	 */
+	public static ClassFileSnapshot open(File jarFile, File snapshotFile) throws IOException {
+		if(!snapshotFile.isFile()) {
+			return null;
+		}
+		ByteBuffer buffer;
+		try(FileChannel channel = new FileInputStream(snapshotFile).getChannel()) {
+			long size = channel.size();
+			if(size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+				return null;
+			}
+			buffer = channel.map(MapMode.READ_ONLY, 0, size);
+		}
+		if(buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+			return null;
+		}
+		ClassFileSnapshot snapshot = new ClassFileSnapshot(snapshotFile, buffer);
+		if(snapshot.indexOffset < HEADER_SIZE || snapshot.classCount < 0
+				|| (long) snapshot.indexOffset + (long) snapshot.classCount * INDEX_RECORD_SIZE > buffer.limit()) {
+			return null;
+		}
+		return (snapshot.matches(jarFile, false) ? snapshot : null);
+	}
+	
+	/**
+	 * Creates a snapshot of the class files in the given jar file, replacing the snapshot file if it exists.
+	 * The snapshot is written to a temporary file first, so that a snapshot file is never partially written.
+	 * @param jarFile - The jar file.
+	 * @param snapshotFile - The snapshot file.
+	 * @return The opened snapshot.
+	 * @throws IOException If an I/O error occurs while reading the jar file or writing the snapshot file, or if the
+	 * snapshot would be larger than 2GB.
+	 */
+	public static ClassFileSnapshot create(File jarFile, File snapshotFile) throws IOException {
+		long jarSize = jarFile.length();
+		long jarLastModified = jarFile.lastModified();
+		byte[] jarHash = computeHash(jarFile);
+		
+		File parentDir = snapshotFile.getAbsoluteFile().getParentFile();
+		Path tempFile = Files.createTempFile(parentDir.toPath(), snapshotFile.getName(), ".tmp");
+		try {
+			int classCount;
+			int indexOffset;
+			try(MappedJarFile jar = new MappedJarFile(jarFile); DataOutputStream outStream = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tempFile.toFile()), 1 << 16))) {
+				
+				// Sort the class file entries by the UTF-8 bytes of their names, so that they can be binary searched.
+				List<byte[]> names = new ArrayList<byte[]>();
+				for(MappedJarFile.Entry entry : jar.getEntries()) {
+					if(!entry.isDirectory() && entry.getName().endsWith(".class")) {
+						names.add(entry.getName().getBytes(StandardCharsets.UTF_8));
+					}
+				}
+				Collections.sort(names, (name1, name2) -> compare(name1, name2));
+				classCount = names.size();
+				
+				// Write the classes, recording their index records.
+				outStream.write(new byte[HEADER_SIZE]);
+				int[] index = new int[classCount * 5];
+				for(int i = 0; i < classCount; i++) {
+					byte[] bytes = jar.readBytes(jar.getEntry(new String(names.get(i), StandardCharsets.UTF_8)));
+					int classOffset = outStream.size();
+					outStream.write(bytes);
+					index[5 * i + 1] = classOffset;
+					index[5 * i + 2] = bytes.length;
+					index[5 * i + 3] = -1;
+					index[5 * i + 4] = -1;
+					
+					// Write the constant pool table, unless the constant pool cannot be read.
+					ClassConstantPool constPool = readConstantPool(bytes);
+					if(constPool != null) {
+						while(outStream.size() % 4 != 0) {
+							outStream.write(0);
+						}
+						index[5 * i + 3] = classOffset + getConstantPoolEnd(bytes, constPool);
+						index[5 * i + 4] = outStream.size();
+						int size = constPool.size();
+						outStream.writeInt(size);
+						for(int j = 1; j <= size; j++) {
+							outStream.write(constPool.getTagByte(j));
+						}
+						while(outStream.size() % 4 != 0) {
+							outStream.write(0);
+						}
+						for(int j = 1; j <= size; j++) {
+							int offset = constPool.getOffset(j);
+							outStream.writeInt(offset == -1 ? -1 : classOffset + offset);
+						}
+					}
+					if(outStream.size() == Integer.MAX_VALUE) {
+						throw new IOException("The snapshot of the jar file is larger than 2GB: " + jarFile);
+					}
+				}
+				
+				// Write the index, followed by the names.
+				indexOffset = outStream.size();
+				int nameOffset = indexOffset + classCount * INDEX_RECORD_SIZE;
+				for(int i = 0; i < classCount; i++) {
+					index[5 * i] = nameOffset;
+					nameOffset += 2 + names.get(i).length;
+					for(int j = 0; j < 5; j++) {
+						outStream.writeInt(index[5 * i + j]);
+					}
+				}
+				for(byte[] name : names) {
+					outStream.writeShort(name.length);
+					outStream.write(name);
+				}
+				if(outStream.size() == Integer.MAX_VALUE) {
+					throw new IOException("The snapshot of the jar file is larger than 2GB: " + jarFile);
+				}
+			}
+			
+			// Write the header last, so that an incomplete snapshot file never has a valid header.
+			try(RandomAccessFile outFile = new RandomAccessFile(tempFile.toFile(), "rw")) {
+				outFile.writeInt(MAGIC);
+				outFile.writeInt(VERSION);
+				outFile.writeLong(jarSize);
+				outFile.writeLong(jarLastModified);
+				outFile.write(jarHash);
+				outFile.writeInt(classCount);
+				outFile.writeInt(indexOffset);
+			}
+			try {
+				Files.move(tempFile, snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile, snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+		ClassFileSnapshot snapshot = open(jarFile, snapshotFile);
+		if(snapshot == null) {
+			throw new IOException("The jar file was modified while creating its snapshot: " + jarFile);
+		}
+		return snapshot;
+	}
+	
+	private static ClassConstantPool readConstantPool(byte[] bytes) {
+		FancyByteBufferReader reader = new FancyByteBufferReader(ByteBuffer.wrap(bytes));
+		try {
+			if(reader.readFourByteInt() != 0xCAFEBABE) {
+				return null;
+			}
+			reader.skip(4); // Minor and major version.
+			return ClassConstantPool.fromByteBuffer(reader, EnumSet.of(ReadOption.LAZY_CONSTANT_POOL));
+		} catch (IOException e) {
+			return null;
+		}
+	}
+	
+	private static int getConstantPoolEnd(byte[] bytes, ClassConstantPool constPool) {
+		for(int index = constPool.size(); index >= 1; index--) {
+			int offset = constPool.getOffset(index);
+			if(offset != -1) {
+				ConstantPoolType type = ConstantPoolType.getTypeFromTag(constPool.getTagByte(index));
+				return offset + 1 + (type == ConstantPoolType.STRING
+						? 2 + (((bytes[offset + 1] & 0xFF) << 8) | (bytes[offset + 2] & 0xFF)) : type.getDataSize());
+			}
+		}
+		return 10; // Magic, minor and major version and constant pool count.
+	}
+	
+	/**
+	 * Checks whether this snapshot matches the given jar file.
+	 * @param jarFile - The jar file.
+	 * @param verifyHash - True to always compare the hash of the jar file, false to only compare it when the size
+	 * matches, but the modification time does not.
+	 * @return True if this snapshot matches the jar file, false otherwise.
+	 * @throws IOException If an I/O error occurs while hashing the jar file.
+	 */
+	public boolean matches(File jarFile, boolean verifyHash) throws IOException {
+		if(!jarFile.isFile() || jarFile.length() != this.jarSize) {
+			return false;
+		}
+		if(!verifyHash && jarFile.lastModified() == this.jarLastModified) {
+			return true;
+		}
+		return Arrays.equals(computeHash(jarFile), this.jarHash);
+	}
+	
+	private static byte[] computeHash(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new Error("SHA-256 is required to be supported by every Java platform.", e);
+		}
+		try(FileChannel channel = new FileInputStream(file).getChannel()) {
+			long size = channel.size();
+			for(long pos = 0; pos < size; pos += Integer.MAX_VALUE) {
+				digest.update(channel.map(MapMode.READ_ONLY, pos, Math.min(size - pos, Integer.MAX_VALUE)));
+			}
+		}
+		return digest.digest();
+	}
+	
+	/**
+	 * Compares two names by their unsigned bytes.
+	 */
+	private static int compare(byte[] name1, byte[] name2) {
+		int length = Math.min(name1.length, name2.length);
+		for(int i = 0; i < length; i++) {
+			if(name1[i] != name2[i]) {
+				return (name1[i] & 0xFF) - (name2[i] & 0xFF);
+			}
+		}
+		return name1.length - name2.length;
+	}
+	
+	/**
+	 * Compares the name at the given offset in the snapshot to the given name by their unsigned bytes.
+	 */
+	private int compare(int nameOffset, byte[] name) {
+		int nameLength = this.buffer.getShort(nameOffset) & 0xFFFF;
+		int length = Math.min(nameLength, name.length);
+		for(int i = 0; i < length; i++) {
+			byte b = this.buffer.get(nameOffset + 2 + i);
+			if(b != name[i]) {
+				return (b & 0xFF) - (name[i] & 0xFF);
+			}
+		}
+		return nameLength - name.length;
+	}
+	
+	/**
+	 * Finds the index record of the class file with the given name through a binary search.
+	 * @param name - The entry name.
+	 * @return The offset of the index record, or -1 if this snapshot does not contain the class file.
+	 */
+	private int findRecord(String name) {
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = this.classCount - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int recordOffset = this.indexOffset + mid * INDEX_RECORD_SIZE;
+			int cmp = this.compare(this.buffer.getInt(recordOffset), nameBytes);
+			if(cmp < 0) {
+				low = mid + 1;
+			} else if(cmp > 0) {
+				high = mid - 1;
+			} else {
+				return recordOffset;
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * Checks whether this snapshot contains the class file with the given name.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @return True if this snapshot contains the class file, false otherwise.
+	 */
+	public boolean contains(String name) {
+		return this.findRecord(name) != -1;
+	}
+	
+	/**
+	 * Gets the names of all class files in this snapshot.
+	 * @return An unmodifiable {@link List} containing the entry names, sorted by their UTF-8 bytes.
+	 */
+	public List<String> getClassNames() {
+		String[] names = new String[this.classCount];
+		for(int i = 0; i < this.classCount; i++) {
+			int nameOffset = this.buffer.getInt(this.indexOffset + i * INDEX_RECORD_SIZE);
+			byte[] nameBytes = new byte[this.buffer.getShort(nameOffset) & 0xFFFF];
+			ByteBuffer nameBuffer = this.buffer.duplicate();
+			nameBuffer.position(nameOffset + 2);
+			nameBuffer.get(nameBytes);
+			names[i] = new String(nameBytes, StandardCharsets.UTF_8);
+		}
+		return Collections.unmodifiableList(Arrays.asList(names));
+	}
+	
+	/**
+	 * Gets the bytes of the class file with the given name.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @return A read-only slice of the mapped snapshot containing the class file, or null if this snapshot does not
+	 * contain the class file.
+	 */
+	public ByteBuffer getBytes(String name) {
+		int recordOffset = this.findRecord(name);
+		if(recordOffset == -1) {
+			return null;
+		}
+		ByteBuffer slice = this.buffer.duplicate();
+		int classOffset = this.buffer.getInt(recordOffset + 4);
+		slice.limit(classOffset + this.buffer.getInt(recordOffset + 8)).position(classOffset);
+		return slice.slice().asReadOnlyBuffer();
+	}
+	
+	/**
+	 * Reads the class file with the given name. See {@link #getClassFile(String, Set, SymbolTable)}.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @return A {@link ClassFile} representing the class file, or null if this snapshot does not contain it.
+	 * @throws IOException If the class file ends before it should.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassFile getClassFile(String name) throws IOException, Exception {
+		return this.getClassFile(name, EnumSet.noneOf(ReadOption.class), null);
+	}
+	
+	/**
+	 * Reads the class file with the given name. See {@link #getClassFile(String, Set, SymbolTable)}.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @param readOptions - The options to parse the class file with.
+	 * @return A {@link ClassFile} representing the class file, or null if this snapshot does not contain it.
+	 * @throws IOException If the class file ends before it should.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassFile getClassFile(String name, Set<ReadOption> readOptions) throws IOException, Exception {
+		return this.getClassFile(name, readOptions, null);
+	}
+	
+	/**
+	 * Reads the class file with the given name from the mapped snapshot. The constant pool is not read, but created
+	 * from the recorded offsets, so its values are always created lazily as with
+	 * {@link ReadOption#LAZY_CONSTANT_POOL}. The fields, methods and attributes are read with the given options.
+	 * When {@link ReadOption#COMPACT_CONSTANT_POOL} is given, the class file is read through
+	 * {@link ClassFile#read(ByteBuffer, Set, SymbolTable)} instead.
+	 * The returned {@link ClassFile} keeps a reference to the mapped snapshot.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @param readOptions - The options to parse the class file with.
+	 * @param symbolTable - The table to share strings through, or null to not share strings.
+	 * @return A {@link ClassFile} representing the class file, or null if this snapshot does not contain it.
+	 * @throws IOException If the class file ends before it should.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassFile getClassFile(String name, Set<ReadOption> readOptions,
+			SymbolTable symbolTable) throws IOException, Exception {
+		return this.getClassFile(name, readOptions, symbolTable, null);
+	}
+	
+	/**
+	 * Reads the class file with the given name as described in {@link #getClassFile(String, Set, SymbolTable)},
+	 * decoding attributes with the decoders from the given registry.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @param readOptions - The options to parse the class file with.
+	 * @param symbolTable - The table to share strings through, or null to not share strings.
+	 * @param attrDecoderRegistry - The registry to decode attributes with, or null to use the default registry.
+	 * @return A {@link ClassFile} representing the class file, or null if this snapshot does not contain it.
+	 * @throws IOException If the class file ends before it should.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassFile getClassFile(String name, Set<ReadOption> readOptions, SymbolTable symbolTable,
+			AttributeDecoderRegistry attrDecoderRegistry) throws IOException, Exception {
+		int recordOffset = this.findRecord(name);
+		if(recordOffset == -1) {
+			return null;
+		}
+		int classOffset = this.buffer.getInt(recordOffset + 4);
+		int classEnd = classOffset + this.buffer.getInt(recordOffset + 8);
+		int poolEnd = this.buffer.getInt(recordOffset + 12);
+		int poolTableOffset = this.buffer.getInt(recordOffset + 16);
+		if(poolTableOffset == -1 || readOptions.contains(ReadOption.COMPACT_CONSTANT_POOL)) {
+			return ClassFile.read(this.getBytes(name), readOptions, symbolTable, attrDecoderRegistry);
+		}
+		
+		// Create the constant pool from the recorded tags and offsets.
+		int size = this.buffer.getInt(poolTableOffset);
+		byte[] tags = new byte[size];
+		int[] offsets = new int[size];
+		ByteBuffer table = this.buffer.duplicate();
+		table.position(poolTableOffset + 4);
+		table.get(tags);
+		table.position((poolTableOffset + 4 + size + 3) & ~3);
+		table.asIntBuffer().get(offsets);
+		ClassConstantPool constPool = ClassConstantPool.fromLayout(this.buffer, tags, offsets, symbolTable);
+		constPool.setAttributeDecoderRegistry(attrDecoderRegistry);
+		
+		// Read the rest of the class file.
+		FancyByteBufferReader reader = new FancyByteBufferReader(this.buffer, poolEnd, classEnd);
+		int minorVersion = this.buffer.getShort(classOffset + 4) & 0xFFFF;
+		int majorVersion = this.buffer.getShort(classOffset + 6) & 0xFFFF;
+		return ClassFile.readAfterConstantPool(reader, minorVersion, majorVersion, constPool, readOptions);
+	}
+	
+	/**
+	 * Gets the snapshot file.
+	 * @return The snapshot file.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+	
+	/**
+	 * Gets the amount of class files in this snapshot.
+	 * @return The class count.
+	 */
+	public int size() {
+		return this.classCount;
+	}
+	
+	public long getJarSize() {
+		return this.jarSize;
+	}
+	
+	public long getJarLastModified() {
+		return this.jarLastModified;
+	}
+	
+	/**
+	 * Gets the SHA-256 hash of the jar file that this snapshot was created from.
+	 * @return A new array containing the 32 byte hash.
+	 */
+	public byte[] getJarHash() {
+		return this.jarHash.clone();
+	}
+}
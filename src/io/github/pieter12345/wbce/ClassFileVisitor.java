@@ -0,0 +1,123 @@
+package io.github.pieter12345.wbce;
+
+import java.nio.ByteBuffer;
+
+import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
+import io.github.pieter12345.wbce.attribute.IAttribute;
+
+/**
+ * Receives the parts of a class file during a single forward pass over its bytes through
+ * {@link ClassFile#accept(ByteBuffer, ClassFileVisitor)}, without building a {@link ClassFile}.
+ * The methods are called in the following order:
+ * <ol>
+ * <li>{@link #visitHeader} once.</li>
+ * <li>{@link #visitConstant} for every constant pool index (except for Long and Double placeholders).</li>
+ * <li>{@link #visitField} for every field, followed by the attributes of that field.</li>
+ * <li>{@link #visitMethod} for every method, followed by the attributes of that method.
+ * The Code attribute of a method is passed to {@link #visitCode}, followed by the attributes of that code.</li>
+ * <li>{@link #visitAttribute} for every class attribute.</li>
+ * <li>{@link #visitEnd} once.</li>
+ * </ol>
+ * Parts that are skipped are skipped by their length, without being decoded.
+ * All methods do nothing by default and only visit the parts that are required to reach the next part.
+ * @author P.J.S. Kools
+ */
+public abstract class ClassFileVisitor {
+	
+	/**
+	 * Visits the class header.
+	 * @param minorVersion - The minor class file version.
+	 * @param majorVersion - The major class file version.
+	 * @param constPool - The constant pool. Its objects are only created when requested.
+	 * @param accessFlags - The class access flags.
+	 * @param thisClassIdentifierIndex - The constant pool index of this class.
+	 * @param superClassIdentifierIndex - The constant pool index of the super class, or 0 if there is none.
+	 * @param interfaces - The implemented interfaces.
+	 */
+	public void visitHeader(int minorVersion, int majorVersion, ClassConstantPool constPool, int accessFlags,
+			int thisClassIdentifierIndex, int superClassIdentifierIndex, ClassInterfaces interfaces) {
+	}
+	
+	/**
+	 * Visits a constant pool index.
+	 * @param index - The constant pool index.
+	 * @param type - The type of the value at the given index.
+	 */
+	public void visitConstant(int index, ConstantPoolType type) {
+	}
+	
+	/**
+	 * Visits a field.
+	 * @param accessFlags - The field access flags.
+	 * @param nameIndex - The constant pool index of the field name.
+	 * @param descIndex - The constant pool index of the field descriptor.
+	 * @return True to visit the attributes of this field, false to skip them.
+	 */
+	public boolean visitField(int accessFlags, int nameIndex, int descIndex) {
+		return false;
+	}
+	
+	/**
+	 * Visits a method.
+	 * @param accessFlags - The method access flags.
+	 * @param nameIndex - The constant pool index of the method name.
+	 * @param descIndex - The constant pool index of the method descriptor.
+	 * @return True to visit the attributes (including the code) of this method, false to skip them.
+	 */
+	public boolean visitMethod(int accessFlags, int nameIndex, int descIndex) {
+		return false;
+	}
+	
+	/**
+	 * Visits the Code attribute of the last visited method.
+	 * The bytecode is in the given buffer from the given offset (inclusive) to offset + length (exclusive).
+	 * @param maxStack - The maximum stack depth of the code.
+	 * @param maxLocals - The amount of local variables of the code.
+	 * @param buffer - The buffer containing the class file.
+	 * @param codeOffset - The absolute offset of the bytecode in the buffer.
+	 * @param codeLength - The length of the bytecode.
+	 * @return True to visit the attributes of the code, false to skip them.
+	 */
+	public boolean visitCode(int maxStack, int maxLocals, ByteBuffer buffer, int codeOffset, int codeLength) {
+		return false;
+	}
+	
+	/**
+	 * Visits an attribute. The attribute data (excluding the name index and length) is in the given buffer from the
+	 * given offset (inclusive) to offset + length (exclusive).
+	 * @param target - The kind of structure the attribute belongs to.
+	 * @param attrNameIndex - The constant pool index of the attribute name.
+	 * @param buffer - The buffer containing the class file.
+	 * @param offset - The absolute offset of the attribute data in the buffer.
+	 * @param length - The length of the attribute data.
+	 * @return True to have the attribute decoded and passed to {@link #visitDecodedAttribute}, false to skip it.
+	 */
+	public boolean visitAttribute(AttributeTarget target, int attrNameIndex, ByteBuffer buffer, int offset, int length) {
+		return false;
+	}
+	
+	/**
+	 * Visits an attribute for which {@link #visitAttribute} returned true.
+	 * @param target - The kind of structure the attribute belongs to.
+	 * @param attribute - The decoded attribute.
+	 */
+	public void visitDecodedAttribute(AttributeTarget target, IAttribute attribute) {
+	}
+	
+	/**
+	 * Visits the end of the class file.
+	 */
+	public void visitEnd() {
+	}
+	
+	/**
+	 * AttributeTarget enum.
+	 * Contains the kinds of structures that can have attributes.
+	 */
+	public static enum AttributeTarget {
+		CLASS,
+		FIELD,
+		METHOD,
+		CODE;
+	}
+}
@@ -0,0 +1,244 @@
+package io.github.pieter12345.wbce;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+
+import io.github.pieter12345.wbce.constantpool.ConstantPoolClassRef;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolObject;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
+
+/**
+ * Represents the header of a class file, being its version, access flags, class name, super class name and interface
+ * names. Reading a header only reads the class file up to and including the interfaces, where only the constant pool
+ * values that are needed to resolve the names are created. The fields, methods and attributes can optionally be
+ * scanned by their lengths without being decoded, to get their counts and the size of the class file.
+ * Class names are in internal form, such as "java/lang/Object". Instances of this class are immutable.
+ * @author P.J.S. Kools
+ */
+public final class ClassHeader {
+	
+	// Variables & Constants.
+	private final int minorVersion;
+	private final int majorVersion;
+	private final int accessFlags;
+	private final String className;
+	private final String superClassName;
+	private final List<String> interfaceNames;
+	private final int fieldCount;
+	private final int methodCount;
+	private final int byteSize;
+	
+	/**
+	 * Creates a new {@link ClassHeader}.
+	 * @param minorVersion - The minor class file version.
+	 * @param majorVersion - The major class file version.
+	 * @param accessFlags - The raw class access flags value.
+	 * @param className - The name of the class.
+	 * @param superClassName - The name of the super class, or null if there is none.
+	 * @param interfaceNames - The names of the implemented interfaces.
+	 * @param fieldCount - The amount of fields, or -1 if the members were not scanned.
+	 * @param methodCount - The amount of methods, or -1 if the members were not scanned.
+	 * @param byteSize - The size of the class file in bytes, or -1 if the members were not scanned.
+	 */
+	public ClassHeader(int minorVersion, int majorVersion, int accessFlags, String className, String superClassName,
+			String[] interfaceNames, int fieldCount, int methodCount, int byteSize) {
+		this.minorVersion = minorVersion;
+		this.majorVersion = majorVersion;
+		this.accessFlags = accessFlags;
+		this.className = Objects.requireNonNull(className);
+		this.superClassName = superClassName;
+		this.interfaceNames = Collections.unmodifiableList(Arrays.asList(interfaceNames.clone()));
+		this.fieldCount = fieldCount;
+		this.methodCount = methodCount;
+		this.byteSize = byteSize;
+	}
+	
+	/**
+	 * Reads a class header from the given reader. The reader is expected to be positioned at the start of the class
+	 * file. After reading, the reader is positioned after the interfaces, or at the end of the class file if the
+	 * members were scanned.
+	 * @param reader - The reader to read the class header from.
+	 * @param scanMembers - True to scan the fields, methods and attributes by their lengths, false to stop reading
+	 * after the interfaces.
+	 * @return The read class header.
+	 * @throws IOException If the reader ends before the class header (or the class file when scanning) does.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public static ClassHeader fromByteBuffer(FancyByteBufferReader reader,
+			boolean scanMembers) throws IOException, Exception {
+		int start = reader.getPosition();
+		if(reader.readFourByteInt() != 0xCAFEBABE) {
+			throw new Exception("File is not a class file.");
+		}
+		int minorVersion = reader.readTwoByteInt();
+		int majorVersion = reader.readTwoByteInt();
+		
+		// Read the constant pool lazily, so that only the values of the names are created.
+		ClassConstantPool constPool = ClassConstantPool.fromByteBuffer(
+				reader, EnumSet.of(ReadOption.LAZY_CONSTANT_POOL));
+		if(constPool == null) {
+			throw new Exception("The class file contains an invalid or unsupported constant pool tag.");
+		}
+		int accessFlags = reader.readTwoByteInt();
+		String className = getClassName(constPool, reader.readTwoByteInt());
+		if(className == null) {
+			throw new Exception("The class file does not define a class name.");
+		}
+		String superClassName = getClassName(constPool, reader.readTwoByteInt());
+		String[] interfaceNames = new String[reader.readTwoByteInt()];
+		for(int i = 0; i < interfaceNames.length; i++) {
+			interfaceNames[i] = getClassName(constPool, reader.readTwoByteInt());
+		}
+		if(!scanMembers) {
+			return new ClassHeader(minorVersion, majorVersion, accessFlags,
+					className, superClassName, interfaceNames, -1, -1, -1);
+		}
+		
+		// Skip the fields, methods and attributes by their lengths.
+		int fieldCount = skipMembers(reader);
+		int methodCount = skipMembers(reader);
+		skipAttributes(reader);
+		return new ClassHeader(minorVersion, majorVersion, accessFlags, className, superClassName,
+				interfaceNames, fieldCount, methodCount, reader.getPosition() - start);
+	}
+	
+	private static String getClassName(ClassConstantPool constPool, int classIndex) throws Exception {
+		if(classIndex == 0) {
+			return null;
+		}
+		ConstantPoolObject classRef = (constPool.hasIndex(classIndex) ? constPool.get(classIndex) : null);
+		if(!(classRef instanceof ConstantPoolClassRef)) {
+			throw new Exception("Class index " + classIndex + " does not point to a class reference.");
+		}
+		int nameIndex = ((ConstantPoolClassRef) classRef).getIndex();
+		ConstantPoolObject name = (constPool.hasIndex(nameIndex) ? constPool.get(nameIndex) : null);
+		if(!(name instanceof ConstantPoolString)) {
+			throw new Exception("Class name index " + nameIndex + " does not point to a string.");
+		}
+		return ((ConstantPoolString) name).getString();
+	}
+	
+	private static int skipMembers(FancyByteBufferReader reader) throws IOException {
+		int memberCount = reader.readTwoByteInt();
+		for(int i = 0; i < memberCount; i++) {
+			reader.skip(6); // Access flags, name index and descriptor index.
+			skipAttributes(reader);
+		}
+		return memberCount;
+	}
+	
+	private static void skipAttributes(FancyByteBufferReader reader) throws IOException {
+		int attributeCount = reader.readTwoByteInt();
+		for(int i = 0; i < attributeCount; i++) {
+			reader.skip(2); // Attribute name index.
+			reader.skip(reader.readFourByteInt());
+		}
+	}
+	
+	public int getMinorVersion() {
+		return this.minorVersion;
+	}
+	
+	public int getMajorVersion() {
+		return this.majorVersion;
+	}
+	
+	/**
+	 * Gets the class access flags.
+	 * @return A new {@link ClassAccessFlags} containing the access flags.
+	 */
+	public ClassAccessFlags getAccessFlags() {
+		return new ClassAccessFlags(this.accessFlags);
+	}
+	
+	/**
+	 * Gets the name of the class in internal form.
+	 * @return The class name.
+	 */
+	public String getClassName() {
+		return this.className;
+	}
+	
+	/**
+	 * Gets the name of the super class in internal form.
+	 * @return The super class name, or null if the class has no super class.
+	 */
+	public String getSuperClassName() {
+		return this.superClassName;
+	}
+	
+	/**
+	 * Gets the names of the implemented interfaces in internal form.
+	 * @return An unmodifiable {@link List} containing the interface names.
+	 */
+	public List<String> getInterfaceNames() {
+		return this.interfaceNames;
+	}
+	
+	/**
+	 * Checks whether the fields, methods and attributes were scanned while reading this header.
+	 * @return True if the field count, method count and byte size are known, false otherwise.
+	 */
+	public boolean isMembersScanned() {
+		return this.byteSize != -1;
+	}
+	
+	/**
+	 * Gets the amount of fields.
+	 * @return The field count, or -1 if the members were not scanned.
+	 */
+	public int getFieldCount() {
+		return this.fieldCount;
+	}
+	
+	/**
+	 * Gets the amount of methods.
+	 * @return The method count, or -1 if the members were not scanned.
+	 */
+	public int getMethodCount() {
+		return this.methodCount;
+	}
+	
+	/**
+	 * Gets the size of the class file.
+	 * @return The size in bytes, or -1 if the members were not scanned.
+	 */
+	public int getByteSize() {
+		return this.byteSize;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if(obj == this) {
+			return true;
+		}
+		if(!(obj instanceof ClassHeader)) {
+			return false;
+		}
+		ClassHeader header = (ClassHeader) obj;
+		return this.minorVersion == header.minorVersion && this.majorVersion == header.majorVersion
+				&& this.accessFlags == header.accessFlags && this.className.equals(header.className)
+				&& Objects.equals(this.superClassName, header.superClassName)
+				&& this.interfaceNames.equals(header.interfaceNames) && this.fieldCount == header.fieldCount
+				&& this.methodCount == header.methodCount && this.byteSize == header.byteSize;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Objects.hash(this.minorVersion, this.majorVersion, this.accessFlags, this.className,
+				this.superClassName, this.interfaceNames, this.fieldCount, this.methodCount, this.byteSize);
+	}
+	
+	@Override
+	public String toString() {
+		return ClassHeader.class.getSimpleName() + ": {version=" + this.majorVersion + "." + this.minorVersion
+				+ ", access_flags=0x" + Integer.toHexString(this.accessFlags) + ", class=" + this.className
+				+ ", super_class=" + this.superClassName + ", interfaces=" + this.interfaceNames
+				+ (this.isMembersScanned() ? ", field_count=" + this.fieldCount + ", method_count="
+				+ this.methodCount + ", byte_size=" + this.byteSize : "") + "}";
+	}
+}
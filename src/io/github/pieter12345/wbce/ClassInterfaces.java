@@ -11,23 +11,38 @@ public class ClassInterfaces {
 		this.interfaces = interfaces;
 	}
 	
-	public static ClassInterfaces fromInputStream(FancyInputStream inStream) throws IOException {
-		int interfaceCount = inStream.readTwoByteInt();
+	public static ClassInterfaces fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		int interfaceCount = reader.readTwoByteInt();
 		ArrayList<ClassInterface> interfaces = new ArrayList<ClassInterface>(interfaceCount);
 		for(int i = 0; i < interfaceCount; i++) {
-			interfaces.add(ClassInterface.fromInputStream(inStream));
+			interfaces.add(ClassInterface.fromByteBuffer(reader));
 		}
 		return new ClassInterfaces(interfaces);
 	}
 	
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.interfaces.size());
+	/**
+	 * Gets the size of the class file representation of this {@link ClassInterfaces}.
+	 * @return The size in bytes.
+	 */
+	public int getByteSize() {
+		return 2 + 2 * this.interfaces.size();
+	}
+	
+	/**
+	 * Writes the class file representation of this {@link ClassInterfaces}.
+	 * @param writer - The writer to write to, which must have {@link #getByteSize()} bytes left.
+	 */
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.interfaces.size());
 		for(int i = 0; i < this.interfaces.size(); i++) {
-			outStream.write(this.interfaces.get(i).toBytes());
+			this.interfaces.get(i).writeTo(writer);
 		}
-		return outStream.toByteArray();
+	}
+	
+	public byte[] toBytes() {
+		FancyByteArrayWriter writer = new FancyByteArrayWriter(this.getByteSize());
+		this.writeTo(writer);
+		return writer.toByteArray();
 	}
 	
 	public int size() {
@@ -88,16 +103,17 @@ public class ClassInterfaces {
 			this.interfaceNameIndex = interfaceNameIndex;
 		}
 		
-		public static ClassInterface fromInputStream(FancyInputStream inStream) throws IOException {
-			int interfaceNameIndex = inStream.readTwoByteInt();
+		public static ClassInterface fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int interfaceNameIndex = reader.readTwoByteInt();
 			return new ClassInterface(interfaceNameIndex);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.interfaceNameIndex);
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 2;
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.interfaceNameIndex);
 		}
 		
 		public int getNameIndex() {
@@ -2,6 +2,7 @@ package io.github.pieter12345.wbce;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Set;
 
 import io.github.pieter12345.wbce.attribute.AttributeSet;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
@@ -14,23 +15,43 @@ public class ClassMethods {
 		this.methods = methods;
 	}
 	
-	public static ClassMethods fromInputStream(FancyInputStream inStream, ClassConstantPool constPool) throws IOException {
-		int methodCount = inStream.readTwoByteInt();
+	public static ClassMethods fromByteBuffer(FancyByteBufferReader reader,
+			ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException {
+		int methodCount = reader.readTwoByteInt();
 		ArrayList<ClassMethod> methods = new ArrayList<ClassMethod>(methodCount);
 		for(int i = 0; i < methodCount; i++) {
-			methods.add(ClassMethod.fromInputStream(inStream, constPool));
+			methods.add(ClassMethod.fromByteBuffer(reader, constPool, readOptions));
 		}
 		return new ClassMethods(methods);
 	}
 	
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.methods.size());
+	/**
+	 * Gets the size of the class file representation of this {@link ClassMethods}.
+	 * @return The size in bytes.
+	 */
+	public int getByteSize() {
+		int size = 2;
+		for(int i = 0; i < this.methods.size(); i++) {
+			size += this.methods.get(i).getByteSize();
+		}
+		return size;
+	}
+	
+	/**
+	 * Writes the class file representation of this {@link ClassMethods}.
+	 * @param writer - The writer to write to, which must have {@link #getByteSize()} bytes left.
+	 */
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.methods.size());
 		for(int i = 0; i < this.methods.size(); i++) {
-			outStream.write(this.methods.get(i).toBytes());
+			this.methods.get(i).writeTo(writer);
 		}
-		return outStream.toByteArray();
+	}
+	
+	public byte[] toBytes() {
+		FancyByteArrayWriter writer = new FancyByteArrayWriter(this.getByteSize());
+		this.writeTo(writer);
+		return writer.toByteArray();
 	}
 	
 	public int size() {
@@ -93,22 +114,24 @@ public class ClassMethods {
 			this.methodAttributes = methodAttributes;
 		}
 		
-		public static ClassMethod fromInputStream(FancyInputStream inStream, ClassConstantPool constPool) throws IOException {
-			MethodAccessFlags accessFlags = new MethodAccessFlags(inStream.readTwoByteInt());
-			int methodNameIndex = inStream.readTwoByteInt();
-			int methodDescIndex = inStream.readTwoByteInt();
-			AttributeSet methodAttributes = AttributeSet.fromInputStream(inStream, constPool);
+		public static ClassMethod fromByteBuffer(FancyByteBufferReader reader,
+				ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException {
+			MethodAccessFlags accessFlags = new MethodAccessFlags(reader.readTwoByteInt());
+			int methodNameIndex = reader.readTwoByteInt();
+			int methodDescIndex = reader.readTwoByteInt();
+			AttributeSet methodAttributes = AttributeSet.fromByteBuffer(reader, constPool, readOptions);
 			return new ClassMethod(accessFlags, methodNameIndex, methodDescIndex, methodAttributes);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.accessFlags.getValue());
-			outStream.writeTwoByteInteger(this.methodNameIndex);
-			outStream.writeTwoByteInteger(this.methodDescIndex);
-			outStream.write(this.methodAttributes.toBytes());
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 6 + this.methodAttributes.getByteSize();
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.accessFlags.getValue());
+			writer.writeTwoByteInteger(this.methodNameIndex);
+			writer.writeTwoByteInteger(this.methodDescIndex);
+			this.methodAttributes.writeTo(writer);
 		}
 		
 		public MethodAccessFlags getAccessFlags() {
@@ -0,0 +1,98 @@
+package io.github.pieter12345.wbce;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Writes class file data into a byte array of a size that is known in advance.
+ * Class file structures first compute their exact size, after which they are written into a single array without
+ * any intermediate buffers. Writing more or less bytes than the array size is a bug in the size computation.
+ * @author P.J.S. Kools
+ */
+public class FancyByteArrayWriter {
+	
+	// Variables & Constants.
+	private final byte[] bytes;
+	private int position = 0;
+	
+	/**
+	 * Creates a new {@link FancyByteArrayWriter} that writes the given amount of bytes.
+	 * @param size - The amount of bytes that will be written.
+	 */
+	public FancyByteArrayWriter(int size) {
+		this.bytes = new byte[size];
+	}
+	
+	public void writeByte(byte value) {
+		this.bytes[this.position++] = value;
+	}
+	
+	public void writeUnsignedByte(int value) {
+		this.bytes[this.position++] = (byte) value;
+	}
+	
+	public void writeTwoByteInteger(int value) {
+		this.bytes[this.position] = (byte) (value >>> 8);
+		this.bytes[this.position + 1] = (byte) value;
+		this.position += 2;
+	}
+	
+	public void writeFourByteInteger(int value) {
+		this.bytes[this.position] = (byte) (value >>> 24);
+		this.bytes[this.position + 1] = (byte) (value >>> 16);
+		this.bytes[this.position + 2] = (byte) (value >>> 8);
+		this.bytes[this.position + 3] = (byte) value;
+		this.position += 4;
+	}
+	
+	public void writeFloat(float value) {
+		this.writeFourByteInteger(Float.floatToRawIntBits(value));
+	}
+	
+	public void writeLong(long value) {
+		this.writeFourByteInteger((int) (value >>> 32));
+		this.writeFourByteInteger((int) value);
+	}
+	
+	public void writeDouble(double value) {
+		this.writeLong(Double.doubleToLongBits(value));
+	}
+	
+	public void write(byte[] bytes) {
+		System.arraycopy(bytes, 0, this.bytes, this.position, bytes.length);
+		this.position += bytes.length;
+	}
+	
+	/**
+	 * Writes the given range of the given buffer, without modifying the position of the buffer.
+	 * @param buffer - The buffer to copy from.
+	 * @param offset - The absolute offset in the buffer of the first byte to copy.
+	 * @param length - The amount of bytes to copy.
+	 */
+	public void write(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer source = buffer.duplicate();
+		source.limit(offset + length).position(offset);
+		source.get(this.bytes, this.position, length);
+		this.position += length;
+	}
+	
+	/**
+	 * Gets the absolute offset in the array of the next byte to write.
+	 * @return The write position.
+	 */
+	public int getPosition() {
+		return this.position;
+	}
+	
+	/**
+	 * Gets the written bytes.
+	 * @return The byte array that was written to.
+	 * @throws IllegalStateException If not all bytes have been written.
+	 */
+	public byte[] toByteArray() {
+		if(this.position != this.bytes.length) {
+			throw new IllegalStateException("Wrote " + this.position + " bytes, but " + this.bytes.length
+					+ " bytes were expected.");
+		}
+		return this.bytes;
+	}
+}
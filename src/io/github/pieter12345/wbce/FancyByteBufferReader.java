@@ -0,0 +1,143 @@
+package io.github.pieter12345.wbce;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads class file data from a {@link ByteBuffer} using absolute-offset reads.
+ * The reader keeps its own position, so the position and limit of the given buffer are never modified and
+ * reading primitives does not allocate any objects.
+ * @author P.J.S. Kools
+ */
+public class FancyByteBufferReader {
+	
+	// Variables & Constants.
+	private final ByteBuffer buffer;
+	private final int limit;
+	private int position;
+	
+	/**
+	 * Creates a new {@link FancyByteBufferReader} reading from the position to the limit of the given buffer.
+	 * @param buffer - The buffer to read from.
+	 */
+	public FancyByteBufferReader(ByteBuffer buffer) {
+		this(buffer, buffer.position(), buffer.limit());
+	}
+	
+	/**
+	 * Creates a new {@link FancyByteBufferReader} reading from the given offset to the given limit of the given buffer.
+	 * @param buffer - The buffer to read from.
+	 * @param offset - The absolute offset in the buffer to start reading at.
+	 * @param limit - The absolute offset in the buffer to stop reading at (exclusive).
+	 */
+	public FancyByteBufferReader(ByteBuffer buffer, int offset, int limit) {
+		if(offset < 0 || limit > buffer.limit() || offset > limit) {
+			throw new IndexOutOfBoundsException("Invalid reader bounds: offset=" + offset
+					+ ", limit=" + limit + ", buffer limit=" + buffer.limit());
+		}
+		this.buffer = (buffer.order() == ByteOrder.BIG_ENDIAN ? buffer : buffer.duplicate().order(ByteOrder.BIG_ENDIAN));
+		this.position = offset;
+		this.limit = limit;
+	}
+	
+	private int advance(int byteCount) throws IOException {
+		int pos = this.position;
+		if(byteCount < 0 || byteCount > this.limit - pos) {
+			throw new IOException("End of buffer.");
+		}
+		this.position = pos + byteCount;
+		return pos;
+	}
+	
+	public int readTwoByteInt() throws IOException {
+		return this.buffer.getShort(this.advance(2)) & 0xFFFF;
+	}
+	
+	public int readFourByteInt() throws IOException {
+		return this.buffer.getInt(this.advance(4));
+	}
+	
+	public byte readByte() throws IOException {
+		return this.buffer.get(this.advance(1));
+	}
+	
+	public int readUnsignedByte() throws IOException {
+		return this.readByte() & 0xFF;
+	}
+	
+	public long readLong() throws IOException {
+		return this.buffer.getLong(this.advance(8));
+	}
+	
+	public float readFloat() throws IOException {
+		return this.buffer.getFloat(this.advance(4));
+	}
+	
+	public double readDouble() throws IOException {
+		return this.buffer.getDouble(this.advance(8));
+	}
+	
+	/**
+	 * Reads the given amount of bytes into a new byte array.
+	 * @param byteCount - The amount of bytes to read.
+	 * @return The read bytes.
+	 * @throws IOException If less than the given amount of bytes is available.
+	 */
+	public byte[] readBytes(int byteCount) throws IOException {
+		int pos = this.advance(byteCount);
+		byte[] bytes = new byte[byteCount];
+		if(this.buffer.hasArray()) {
+			System.arraycopy(this.buffer.array(), this.buffer.arrayOffset() + pos, bytes, 0, byteCount);
+		} else {
+			for(int i = 0; i < byteCount; i++) {
+				bytes[i] = this.buffer.get(pos + i);
+			}
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Skips the given amount of bytes.
+	 * @param byteCount - The amount of bytes to skip.
+	 * @throws IOException If less than the given amount of bytes is available.
+	 */
+	public void skip(int byteCount) throws IOException {
+		this.advance(byteCount);
+	}
+	
+	/**
+	 * Gets the absolute offset in the buffer of the next byte to read.
+	 * @return The absolute read position.
+	 */
+	public int getPosition() {
+		return this.position;
+	}
+	
+	/**
+	 * Sets the absolute offset in the buffer of the next byte to read.
+	 * @param position - The new absolute read position.
+	 */
+	public void setPosition(int position) {
+		if(position < 0 || position > this.limit) {
+			throw new IndexOutOfBoundsException("Position out of bounds: " + position + " (limit: " + this.limit + ")");
+		}
+		this.position = position;
+	}
+	
+	/**
+	 * Gets the amount of bytes that can still be read.
+	 * @return The amount of remaining bytes.
+	 */
+	public int remaining() {
+		return this.limit - this.position;
+	}
+	
+	/**
+	 * Gets the buffer this reader reads from.
+	 * @return The underlying {@link ByteBuffer}.
+	 */
+	public ByteBuffer getBuffer() {
+		return this.buffer;
+	}
+}
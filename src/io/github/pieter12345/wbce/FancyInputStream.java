@@ -15,27 +15,24 @@ public class FancyInputStream extends BufferedInputStream {
 	}
 	
 	public int readTwoByteInt() throws IOException {
-		byte[] buff = new byte[2];
-		if(this.read(buff, 0, 2) == -1) {
+		int b1 = this.read();
+		int b2 = this.read();
+		if((b1 | b2) < 0) {
 			throw new IOException("End of stream.");
 		}
-		return ((buff[0] & 0xFF) << 8) + (buff[1] & 0xFF);
+		return (b1 << 8) + b2;
 	}
 	
 	public int readFourByteInt() throws IOException {
-		byte[] buff = new byte[4];
-		if(this.read(buff, 0, 4) == -1) {
-			throw new IOException("End of stream.");
-		}
-		return ((buff[0] & 0xFF) << 24) + ((buff[1] & 0xFF) << 16) + ((buff[2] & 0xFF) << 8) + (buff[3] & 0xFF);
+		return (this.readTwoByteInt() << 16) + this.readTwoByteInt();
 	}
 	
 	public byte readByte() throws IOException {
-		byte[] buff = new byte[1];
-		if(this.read(buff, 0, 1) == -1) {
+		int b = this.read();
+		if(b < 0) {
 			throw new IOException("End of stream.");
 		}
-		return buff[0];
+		return (byte) b;
 	}
 	
 	public int readUnsignedByte() throws IOException {
@@ -43,15 +40,7 @@ public class FancyInputStream extends BufferedInputStream {
 	}
 	
 	public long readLong() throws IOException {
-		byte[] buff = new byte[8];
-		if(this.read(buff, 0, 8) == -1) {
-			throw new IOException("End of stream.");
-		}
-		long ret = 0L;
-		for(int i = 0; i < 8; i++) {
-			ret += ((buff[i] & 0xFF) << (7 - i) * 8);
-		}
-		return ret;
+		return ((long) this.readFourByteInt() << 32) + (this.readFourByteInt() & 0xFFFFFFFFL);
 	}
 	
 	public float readFloat() throws IOException {
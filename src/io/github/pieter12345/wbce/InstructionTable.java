@@ -0,0 +1,271 @@
+package io.github.pieter12345.wbce;
+
+import io.github.pieter12345.wbce.ByteCodeInstruction.ByteCodeInstructionPayload;
+
+/**
+ * Decoded bytecode instructions of a method, stored as parallel arrays indexed by instruction index.
+ * The arguments of an instruction are stored unsigned in a fixed amount of slots per instruction. The arguments of
+ * tableswitch and lookupswitch instructions are stored in a separate switch table, where both are stored as a
+ * default jump followed by (key, jump) pairs. All jumps are relative to the offset of the switch instruction.
+ * The arguments of a wide instruction are the opcode of the widened instruction, the local variable index and,
+ * for iinc, the constant.
+ * @author P.J.S. Kools
+ */
+public class InstructionTable {
+	
+	// Variables & Constants.
+	public static final int MAX_ARGS = 3;
+	
+	private final int size;
+	private final byte[] opCodes;
+	private final int[] offsets;
+	private final int[] args;
+	private final int[] switchTable;
+	
+	private InstructionTable(int size, int codeLength, int switchTableSize) {
+		this.size = size;
+		this.opCodes = new byte[size];
+		this.offsets = new int[size + 1];
+		this.offsets[size] = codeLength;
+		this.args = new int[size * MAX_ARGS];
+		this.switchTable = new int[switchTableSize];
+	}
+	
+	/**
+	 * Decodes the instructions in the given bytecode.
+	 * @param code - The bytecode.
+	 * @return The decoded instructions.
+	 * @throws IllegalArgumentException If the bytecode contains an unknown opcode or ends in the middle of an instruction.
+	 */
+	public static InstructionTable fromCodeBytes(byte[] code) {
+		
+		// Count the instructions and the switch table entries, so that all arrays can be allocated at their final size.
+		int size = 0;
+		int switchTableSize = 0;
+		for(int offset = 0; offset < code.length; offset += getInstructionLength(code, offset)) {
+			ByteCodeInstruction instr = ByteCodeInstruction.forOpCode(code[offset]);
+			if(instr == ByteCodeInstruction.tableswitch || instr == ByteCodeInstruction.lookupswitch) {
+				switchTableSize += 2 + 2 * getSwitchCaseCount(code, offset);
+			}
+			size++;
+		}
+		
+		// Decode the instructions.
+		InstructionTable table = new InstructionTable(size, code.length, switchTableSize);
+		int switchTableIndex = 0;
+		int offset = 0;
+		for(int i = 0; i < size; i++) {
+			ByteCodeInstruction instr = ByteCodeInstruction.forOpCode(code[offset]);
+			table.opCodes[i] = code[offset];
+			table.offsets[i] = offset;
+			int argsIndex = i * MAX_ARGS;
+			switch(instr) {
+				case tableswitch: {
+					int tableOffset = offset + 4 - (offset % 4);
+					int low = readInt(code, tableOffset + 4);
+					int caseCount = getSwitchCaseCount(code, offset);
+					table.args[argsIndex] = switchTableIndex;
+					table.switchTable[switchTableIndex++] = readInt(code, tableOffset);
+					table.switchTable[switchTableIndex++] = caseCount;
+					for(int j = 0; j < caseCount; j++) {
+						table.switchTable[switchTableIndex++] = low + j;
+						table.switchTable[switchTableIndex++] = readInt(code, tableOffset + 12 + 4 * j);
+					}
+					break;
+				}
+				case lookupswitch: {
+					int tableOffset = offset + 4 - (offset % 4);
+					int caseCount = getSwitchCaseCount(code, offset);
+					table.args[argsIndex] = switchTableIndex;
+					table.switchTable[switchTableIndex++] = readInt(code, tableOffset);
+					table.switchTable[switchTableIndex++] = caseCount;
+					for(int j = 0; j < 2 * caseCount; j++) {
+						table.switchTable[switchTableIndex++] = readInt(code, tableOffset + 8 + 4 * j);
+					}
+					break;
+				}
+				case wide: {
+					table.args[argsIndex] = code[offset + 1] & 0xFF;
+					table.args[argsIndex + 1] = ((code[offset + 2] & 0xFF) << 8) | (code[offset + 3] & 0xFF);
+					if(ByteCodeInstruction.forOpCode(code[offset + 1]) == ByteCodeInstruction.iinc) {
+						table.args[argsIndex + 2] = ((code[offset + 4] & 0xFF) << 8) | (code[offset + 5] & 0xFF);
+					}
+					break;
+				}
+				default: {
+					int argOffset = offset + 1;
+					ByteCodeInstructionPayload[] payloadTypes = instr.getPayloadTypes();
+					for(int j = 0; j < payloadTypes.length; j++) {
+						int value = 0;
+						for(int k = 0; k < payloadTypes[j].getByteSize(); k++) {
+							value = (value << 8) | (code[argOffset++] & 0xFF);
+						}
+						table.args[argsIndex + j] = value;
+					}
+					break;
+				}
+			}
+			offset += getInstructionLength(code, offset);
+		}
+		return table;
+	}
+	
+	private static int getInstructionLength(byte[] code, int offset) {
+		ByteCodeInstruction instr = ByteCodeInstruction.forOpCode(code[offset]);
+		if(instr == null) {
+			throw new IllegalArgumentException(
+					"Unknown bytecode instruction ID found at offset " + offset + ": " + (code[offset] & 0xFF));
+		}
+		int length;
+		switch(instr) {
+			case tableswitch: {
+				
+				// tableswitch: {<0-3 bytes padding>, (int) default, (int) low, (int) high, (int)[high - low + 1] jumps}.
+				length = 4 - (offset % 4) + 12 + 4 * getSwitchCaseCount(code, offset);
+				break;
+			}
+			case lookupswitch: {
+				
+				// lookupswitch: {<0-3 bytes padding>, (int) default, (int) npairs, {(int) key, (int) jump}[npairs]}.
+				length = 4 - (offset % 4) + 8 + 8 * getSwitchCaseCount(code, offset);
+				break;
+			}
+			case wide: {
+				if(offset + 1 >= code.length) {
+					throw new IllegalArgumentException("Bytecode ends in the middle of instruction wide at offset " + offset);
+				}
+				length = (ByteCodeInstruction.forOpCode(code[offset + 1]) == ByteCodeInstruction.iinc ? 6 : 4);
+				break;
+			}
+			default: {
+				length = 1 + instr.getPayload();
+				break;
+			}
+		}
+		if(offset + length > code.length) {
+			throw new IllegalArgumentException("Bytecode ends in the middle of instruction "
+					+ instr.getInstructionName() + " at offset " + offset);
+		}
+		return length;
+	}
+	
+	private static int getSwitchCaseCount(byte[] code, int offset) {
+		int tableOffset = offset + 4 - (offset % 4);
+		boolean isTableSwitch = (ByteCodeInstruction.forOpCode(code[offset]) == ByteCodeInstruction.tableswitch);
+		if(tableOffset + (isTableSwitch ? 12 : 8) > code.length) {
+			throw new IllegalArgumentException("Bytecode ends in the middle of a switch instruction at offset " + offset);
+		}
+		int caseCount = (isTableSwitch ? readInt(code, tableOffset + 8) - readInt(code, tableOffset + 4) + 1
+				: readInt(code, tableOffset + 4));
+		if(caseCount < 0 || caseCount > code.length) {
+			throw new IllegalArgumentException("Invalid switch case count at offset " + offset + ": " + caseCount);
+		}
+		return caseCount;
+	}
+	
+	private static int readInt(byte[] code, int offset) {
+		return ((code[offset] & 0xFF) << 24) | ((code[offset + 1] & 0xFF) << 16)
+				| ((code[offset + 2] & 0xFF) << 8) | (code[offset + 3] & 0xFF);
+	}
+	
+	/**
+	 * Gets the amount of instructions.
+	 * @return The amount of instructions.
+	 */
+	public int size() {
+		return this.size;
+	}
+	
+	/**
+	 * Gets the length of the decoded bytecode.
+	 * @return The length in bytes.
+	 */
+	public int getCodeLength() {
+		return this.offsets[this.size];
+	}
+	
+	public byte getOpCode(int instrIndex) {
+		return this.opCodes[instrIndex];
+	}
+	
+	public ByteCodeInstruction getInstruction(int instrIndex) {
+		return ByteCodeInstruction.forOpCode(this.opCodes[instrIndex]);
+	}
+	
+	/**
+	 * Gets the byte offset of the instruction in the code.
+	 * @param instrIndex - The instruction index.
+	 * @return The byte offset.
+	 */
+	public int getOffset(int instrIndex) {
+		return this.offsets[instrIndex];
+	}
+	
+	/**
+	 * Gets an argument of the instruction as an unsigned value.
+	 * @param instrIndex - The instruction index.
+	 * @param argIndex - The index of the argument in the instruction payload.
+	 * @return The unsigned argument value.
+	 */
+	public int getArg(int instrIndex, int argIndex) {
+		return this.args[instrIndex * MAX_ARGS + argIndex];
+	}
+	
+	/**
+	 * Gets an argument of the instruction as a signed value.
+	 * @param instrIndex - The instruction index.
+	 * @param argIndex - The index of the argument in the instruction payload.
+	 * @return The signed argument value.
+	 */
+	public int getSignedArg(int instrIndex, int argIndex) {
+		int value = this.args[instrIndex * MAX_ARGS + argIndex];
+		ByteCodeInstruction instr = this.getInstruction(instrIndex);
+		int byteSize;
+		if(instr == ByteCodeInstruction.wide) {
+			byteSize = (argIndex == 0 ? 1 : 2);
+		} else {
+			ByteCodeInstructionPayload[] payloadTypes = instr.getPayloadTypes();
+			byteSize = (argIndex < payloadTypes.length ? payloadTypes[argIndex].getByteSize() : 4);
+		}
+		int shift = 32 - 8 * byteSize;
+		return (value << shift) >> shift;
+	}
+	
+	/**
+	 * Gets the relative jump of the default case of a tableswitch or lookupswitch instruction.
+	 * @param instrIndex - The instruction index.
+	 * @return The jump relative to the offset of the switch instruction.
+	 */
+	public int getSwitchDefaultJump(int instrIndex) {
+		return this.switchTable[this.args[instrIndex * MAX_ARGS]];
+	}
+	
+	/**
+	 * Gets the amount of non-default cases of a tableswitch or lookupswitch instruction.
+	 * @param instrIndex - The instruction index.
+	 * @return The amount of cases.
+	 */
+	public int getSwitchCaseCount(int instrIndex) {
+		return this.switchTable[this.args[instrIndex * MAX_ARGS] + 1];
+	}
+	
+	/**
+	 * Gets the key of a case of a tableswitch or lookupswitch instruction.
+	 * @param instrIndex - The instruction index.
+	 * @param caseIndex - The case index.
+	 * @return The key.
+	 */
+	public int getSwitchCaseKey(int instrIndex, int caseIndex) {
+		return this.switchTable[this.args[instrIndex * MAX_ARGS] + 2 + 2 * caseIndex];
+	}
+	
+	/**
+	 * Gets the relative jump of a case of a tableswitch or lookupswitch instruction.
+	 * @param instrIndex - The instruction index.
+	 * @param caseIndex - The case index.
+	 * @return The jump relative to the offset of the switch instruction.
+	 */
+	public int getSwitchCaseJump(int instrIndex, int caseIndex) {
+		return this.switchTable[this.args[instrIndex * MAX_ARGS] + 3 + 2 * caseIndex];
+	}
+}
@@ -0,0 +1,54 @@
+package io.github.pieter12345.wbce;
+
+/**
+ * Represents an option that changes how a class file is parsed.
+ * @author P.J.S. Kools
+ */
+public enum ReadOption {
+	
+	/**
+	 * Keeps attributes as raw bytes until they are first accessed through an {@link
+	 * io.github.pieter12345.wbce.attribute.AttributeSet AttributeSet}. Attributes that are never accessed are
+	 * written back unchanged.
+	 */
+	LAZY_ATTRIBUTES,
+	
+	/**
+	 * Only records the tag and offset of every constant pool index while reading, and creates the
+	 * {@link io.github.pieter12345.wbce.constantpool.ConstantPoolObject ConstantPoolObject} of an index when it is
+	 * first requested. Objects that are never requested are written back unchanged.
+	 */
+	LAZY_CONSTANT_POOL,
+	
+	/**
+	 * Reads the constant pool as with {@link #LAZY_CONSTANT_POOL}, but copies the bytes of the constant pool into an
+	 * arena owned by the constant pool. The constant pool is then stored as a tag array, an offset array and the
+	 * arena, without a reference to the read buffer and without objects for values that are never requested.
+	 * Other parts of the class file might still reference the read buffer.
+	 */
+	COMPACT_CONSTANT_POOL,
+	
+	/**
+	 * Skips the debug attributes "LineNumberTable", "LocalVariableTable", "LocalVariableTypeTable" and
+	 * "SourceDebugExtension" by their length without decoding them. Skipped attributes are left out of the read
+	 * {@link io.github.pieter12345.wbce.attribute.AttributeSet AttributeSet}s and are therefore not written.
+	 * When combined with {@link #LAZY_ATTRIBUTES}, "Code" attributes that are never accessed are written unchanged.
+	 */
+	SKIP_DEBUG,
+	
+	/**
+	 * Skips "StackMapTable" attributes by their length without decoding them. Skipped attributes are left out of the
+	 * read {@link io.github.pieter12345.wbce.attribute.AttributeSet AttributeSet}s and are therefore not written.
+	 * Since class files of version 50 and up require stack map frames to be verified, a class file read with this
+	 * option should only be written after recomputing its frames.
+	 * When combined with {@link #LAZY_ATTRIBUTES}, "Code" attributes that are never accessed are written unchanged.
+	 */
+	SKIP_FRAMES,
+	
+	/**
+	 * Skips "Code" attributes by their length without decoding them, which also skips all attributes nested in them.
+	 * Skipped attributes are left out of the read {@link io.github.pieter12345.wbce.attribute.AttributeSet
+	 * AttributeSet}s, so a class file read with this option is suitable for structural analysis, but not for writing.
+	 */
+	SKIP_CODE;
+}
@@ -0,0 +1,174 @@
+package io.github.pieter12345.wbce;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
+import io.github.pieter12345.wbce.utils.ModifiedUTF8;
+
+/**
+ * Shares the bytes and decoded value of equal modified UTF-8 constants between the constant pools of many classes.
+ * Class, method and field names, descriptors and attribute names are largely the same across classes, so reading
+ * many classes with the same {@link SymbolTable} stores each of them once instead of once per class.
+ * The table only weakly references its symbols, so symbols that are no longer used by any constant pool can be
+ * garbage collected. The table can be used by multiple threads concurrently.
+ * The shared byte arrays are returned by {@link ConstantPoolString#getBytes()} and must not be modified.
+ * @author P.J.S. Kools
+ */
+public class SymbolTable {
+	
+	// Variables & Constants.
+	private final ConcurrentHashMap<Object, Symbol> symbols = new ConcurrentHashMap<Object, Symbol>();
+	private final ReferenceQueue<byte[]> staleSymbols = new ReferenceQueue<byte[]>();
+	
+	/**
+	 * Creates a {@link ConstantPoolString} for the modified UTF-8 bytes in the given range of the given buffer.
+	 * The created object shares its bytes and decoded value with all other objects created by this table for equal
+	 * bytes. The bytes are only copied and decoded when this table does not contain them yet.
+	 * @param buffer - The buffer containing the bytes.
+	 * @param offset - The absolute offset of the first byte in the buffer.
+	 * @param length - The amount of bytes.
+	 * @return The created {@link ConstantPoolString}.
+	 */
+	public ConstantPoolString intern(ByteBuffer buffer, int offset, int length) {
+		this.removeStaleSymbols();
+		
+		// Look up the bytes in the buffer without copying them.
+		Symbol symbol = this.symbols.get(new LookupKey(buffer, offset, length));
+		if(symbol != null) {
+			byte[] bytes = symbol.get();
+			if(bytes != null) {
+				return new ConstantPoolString(bytes, symbol.str);
+			}
+		}
+		
+		// Add a new symbol. Another thread might add an equal symbol at the same time, in which case that one is used.
+		byte[] bytes = new byte[length];
+		ByteBuffer source = buffer.duplicate();
+		source.limit(offset + length).position(offset);
+		source.get(bytes);
+		Symbol newSymbol = new Symbol(bytes, ModifiedUTF8.decode(bytes), this.staleSymbols);
+		while(true) {
+			symbol = this.symbols.putIfAbsent(newSymbol, newSymbol);
+			if(symbol == null) {
+				return new ConstantPoolString(bytes, newSymbol.str);
+			}
+			byte[] symbolBytes = symbol.get();
+			if(symbolBytes != null) {
+				return new ConstantPoolString(symbolBytes, symbol.str);
+			}
+			this.symbols.remove(symbol, symbol); // The found symbol has been garbage collected.
+		}
+	}
+	
+	/**
+	 * Creates a {@link ConstantPoolString} for the given modified UTF-8 bytes.
+	 * @param bytes - The bytes.
+	 * @return The created {@link ConstantPoolString}.
+	 * @see #intern(ByteBuffer, int, int)
+	 */
+	public ConstantPoolString intern(byte[] bytes) {
+		return this.intern(ByteBuffer.wrap(bytes), 0, bytes.length);
+	}
+	
+	/**
+	 * Gets the amount of symbols in this table. This includes symbols that have been garbage collected, but have not
+	 * been removed from the table yet.
+	 * @return The amount of symbols.
+	 */
+	public int size() {
+		this.removeStaleSymbols();
+		return this.symbols.size();
+	}
+	
+	private void removeStaleSymbols() {
+		Object ref;
+		while((ref = this.staleSymbols.poll()) != null) {
+			this.symbols.remove(ref, ref);
+		}
+	}
+	
+	private static int hashCode(ByteBuffer buffer, int offset, int length) {
+		int hash = 1;
+		for(int i = offset; i < offset + length; i++) {
+			hash = 31 * hash + buffer.get(i);
+		}
+		return hash;
+	}
+	
+	/**
+	 * Represents a symbol in the table. The symbol is removed from the table once its bytes have been garbage
+	 * collected, which also releases the decoded value. Symbols are equal when their bytes are equal.
+	 */
+	private static class Symbol extends WeakReference<byte[]> {
+		
+		private final String str;
+		private final int hash;
+		
+		private Symbol(byte[] bytes, String str, ReferenceQueue<byte[]> queue) {
+			super(bytes, queue);
+			this.str = str;
+			this.hash = SymbolTable.hashCode(ByteBuffer.wrap(bytes), 0, bytes.length);
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(obj == this) {
+				return true;
+			}
+			if(!(obj instanceof Symbol)) {
+				return false;
+			}
+			byte[] bytes = this.get();
+			return bytes != null && Arrays.equals(bytes, ((Symbol) obj).get());
+		}
+	}
+	
+	/**
+	 * Represents a range of bytes in a buffer to look up in the table.
+	 */
+	private static class LookupKey {
+		
+		private final ByteBuffer buffer;
+		private final int offset;
+		private final int length;
+		private final int hash;
+		
+		private LookupKey(ByteBuffer buffer, int offset, int length) {
+			this.buffer = buffer;
+			this.offset = offset;
+			this.length = length;
+			this.hash = SymbolTable.hashCode(buffer, offset, length);
+		}
+		
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Symbol)) {
+				return false;
+			}
+			byte[] bytes = ((Symbol) obj).get();
+			if(bytes == null || bytes.length != this.length) {
+				return false;
+			}
+			for(int i = 0; i < this.length; i++) {
+				if(bytes[i] != this.buffer.get(this.offset + i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
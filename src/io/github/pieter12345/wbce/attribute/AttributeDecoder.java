@@ -0,0 +1,30 @@
+package io.github.pieter12345.wbce.attribute;
+
+import java.io.IOException;
+import java.util.Set;
+
+import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
+import io.github.pieter12345.wbce.ReadOption;
+
+/**
+ * Decodes attributes of a single attribute type. Decoders are registered by attribute name in an
+ * {@link AttributeDecoderRegistry}.
+ * @author P.J.S. Kools
+ */
+@FunctionalInterface
+public interface AttributeDecoder {
+	
+	/**
+	 * Decodes an attribute. The reader is positioned at the attribute length, directly after the attribute name
+	 * index, and is expected to be positioned directly after the attribute when this method returns.
+	 * @param attrNameIndex - The constant pool index of the attribute name.
+	 * @param reader - The reader to read the attribute from.
+	 * @param constPool - The constant pool of the class.
+	 * @param readOptions - The options to read nested attributes with.
+	 * @return The decoded attribute.
+	 * @throws IOException If the reader ends before the attribute does.
+	 */
+	public IAttribute decode(int attrNameIndex, FancyByteBufferReader reader,
+			ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException;
+}
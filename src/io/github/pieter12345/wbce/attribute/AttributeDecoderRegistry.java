@@ -0,0 +1,196 @@
+package io.github.pieter12345.wbce.attribute;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.ReadOption;
+
+/**
+ * Maps attribute names to the {@link AttributeDecoder}s that decode them. Attributes without a registered decoder are
+ * read as {@link UnknownAttribute} and counted per attribute name, which can be retrieved through
+ * {@link #getUnknownAttributeCounts()}. A registry can be used and modified by multiple threads concurrently.
+ * {@link ClassConstantPool#getAttributeDecoder(int, AttributeDecoderRegistry)} caches the found decoders per constant
+ * pool index, so that attributes are dispatched and skipped through an array lookup instead of by name.
+ * @author P.J.S. Kools
+ */
+public class AttributeDecoderRegistry {
+	
+	// Variables & Constants.
+	/**
+	 * Reads attributes as {@link UnknownAttribute}, without counting them as unknown.
+	 */
+	public static final AttributeDecoder RAW_DECODER =
+			(attrNameIndex, reader, constPool, readOptions) -> UnknownAttribute.fromByteBuffer(attrNameIndex, reader);
+	
+	private static final AttributeDecoderRegistry DEFAULT_REGISTRY = new AttributeDecoderRegistry();
+	private static final Map<String, ReadOption> SKIP_OPTIONS;
+	static {
+		Map<String, ReadOption> skipOptions = new HashMap<String, ReadOption>();
+		skipOptions.put("LineNumberTable", ReadOption.SKIP_DEBUG);
+		skipOptions.put("LocalVariableTable", ReadOption.SKIP_DEBUG);
+		skipOptions.put("LocalVariableTypeTable", ReadOption.SKIP_DEBUG);
+		skipOptions.put("SourceDebugExtension", ReadOption.SKIP_DEBUG);
+		skipOptions.put("StackMapTable", ReadOption.SKIP_FRAMES);
+		skipOptions.put("Code", ReadOption.SKIP_CODE);
+		SKIP_OPTIONS = Collections.unmodifiableMap(skipOptions);
+	}
+	
+	private final ConcurrentHashMap<String, AttributeDecoder> decoders =
+			new ConcurrentHashMap<String, AttributeDecoder>();
+	private final ConcurrentHashMap<String, LongAdder> unknownAttributeCounts =
+			new ConcurrentHashMap<String, LongAdder>();
+	private final AtomicInteger version = new AtomicInteger();
+	
+	/**
+	 * Creates a new {@link AttributeDecoderRegistry} containing decoders for all implemented attributes.
+	 */
+	public AttributeDecoderRegistry() {
+		
+		// TODO - Add an IAttribute implementation for each attribute.
+		this.register("ConstantValue", (attrNameIndex, reader, constPool, readOptions)
+				-> ConstantValueAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("Code", CodeAttribute::fromByteBuffer);
+		this.register("StackMapTable", (attrNameIndex, reader, constPool, readOptions)
+				-> StackMapTableAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("Exceptions", (attrNameIndex, reader, constPool, readOptions)
+				-> ExceptionsAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("InnerClasses", (attrNameIndex, reader, constPool, readOptions)
+				-> InnerClassesAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("EnclosingMethod", (attrNameIndex, reader, constPool, readOptions)
+				-> EnclosingMethodAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("Synthetic", (attrNameIndex, reader, constPool, readOptions)
+				-> SyntheticAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("Signature", (attrNameIndex, reader, constPool, readOptions)
+				-> SignatureAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("SourceFile", (attrNameIndex, reader, constPool, readOptions)
+				-> SourceFileAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("SourceDebugExtension", (attrNameIndex, reader, constPool, readOptions)
+				-> SourceDebugExtensionAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("LineNumberTable", (attrNameIndex, reader, constPool, readOptions)
+				-> LineNumberTableAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("LocalVariableTable", (attrNameIndex, reader, constPool, readOptions)
+				-> LocalVariableTableAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("LocalVariableTypeTable", (attrNameIndex, reader, constPool, readOptions)
+				-> LocalVariableTypeTableAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("Deprecated", (attrNameIndex, reader, constPool, readOptions)
+				-> DeprecatedAttribute.fromByteBuffer(attrNameIndex, reader));
+//		this.register("RuntimeInvisibleAnnotations", (attrNameIndex, reader, constPool, readOptions)
+//				-> RuntimeInvisibleAnnotationsAttribute.fromByteBuffer(attrNameIndex, reader));
+//		this.register("AnnotationDefault", (attrNameIndex, reader, constPool, readOptions)
+//				-> AnnotationDefaultAttribute.fromByteBuffer(attrNameIndex, reader));
+		this.register("BootstrapMethods", (attrNameIndex, reader, constPool, readOptions)
+				-> BootstrapMethodsAttribute.fromByteBuffer(attrNameIndex, reader));
+	}
+	
+	/**
+	 * Gets the registry that is used when reading class files without a registry. Registering, unregistering or
+	 * suppressing decoders in this registry affects all such reads in the process, including concurrent ones.
+	 * To change how attributes are decoded for specific reads, pass a separate registry to
+	 * {@link io.github.pieter12345.wbce.ClassFile#read(java.nio.ByteBuffer, java.util.Set,
+	 * io.github.pieter12345.wbce.SymbolTable, AttributeDecoderRegistry) ClassFile.read} instead.
+	 * @return The default registry.
+	 */
+	public static AttributeDecoderRegistry getDefault() {
+		return DEFAULT_REGISTRY;
+	}
+	
+	/**
+	 * Registers a decoder for the given attribute name, replacing the decoder that was registered for it.
+	 * @param attrName - The attribute name.
+	 * @param decoder - The decoder.
+	 * @return The replaced decoder, or null if no decoder was registered for the given attribute name.
+	 */
+	public AttributeDecoder register(String attrName, AttributeDecoder decoder) {
+		if(attrName == null || decoder == null) {
+			throw new NullPointerException("Attribute name and decoder cannot be null.");
+		}
+		AttributeDecoder oldDecoder = this.decoders.put(attrName, decoder);
+		this.version.incrementAndGet();
+		return oldDecoder;
+	}
+	
+	/**
+	 * Removes the decoder for the given attribute name, so that attributes with that name are read as unknown.
+	 * @param attrName - The attribute name.
+	 * @return The removed decoder, or null if no decoder was registered for the given attribute name.
+	 */
+	public AttributeDecoder unregister(String attrName) {
+		AttributeDecoder oldDecoder = this.decoders.remove(attrName);
+		this.version.incrementAndGet();
+		return oldDecoder;
+	}
+	
+	/**
+	 * Suppresses decoding attributes with the given name. These attributes are read as {@link UnknownAttribute},
+	 * but are not counted as unknown.
+	 * @param attrName - The attribute name.
+	 * @return The replaced decoder, or null if no decoder was registered for the given attribute name.
+	 */
+	public AttributeDecoder suppress(String attrName) {
+		return this.register(attrName, RAW_DECODER);
+	}
+	
+	/**
+	 * Gets the decoder for the given attribute name. For attribute names without a registered decoder, this returns a
+	 * decoder that reads the attribute as {@link UnknownAttribute} and counts it as unknown.
+	 * @param attrName - The attribute name.
+	 * @return The decoder.
+	 */
+	public AttributeDecoder getDecoder(String attrName) {
+		AttributeDecoder decoder = this.decoders.get(attrName);
+		if(decoder != null) {
+			return decoder;
+		}
+		LongAdder count = this.unknownAttributeCounts.computeIfAbsent(attrName, (name) -> new LongAdder());
+		return (attrNameIndex, reader, constPool, readOptions) -> {
+			count.increment();
+			return UnknownAttribute.fromByteBuffer(attrNameIndex, reader);
+		};
+	}
+	
+	/**
+	 * Gets the read option that skips attributes with the given name without decoding them.
+	 * @param attrName - The attribute name.
+	 * @return {@link ReadOption#SKIP_DEBUG}, {@link ReadOption#SKIP_FRAMES} or {@link ReadOption#SKIP_CODE}, or null if
+	 * attributes with the given name are never skipped.
+	 */
+	public ReadOption getSkipOption(String attrName) {
+		return SKIP_OPTIONS.get(attrName);
+	}
+	
+	/**
+	 * Gets the version of this registry, which changes whenever a decoder is registered or unregistered.
+	 * This is used to detect that cached decoders are outdated.
+	 * @return The version.
+	 */
+	public int getVersion() {
+		return this.version.get();
+	}
+	
+	/**
+	 * Gets the amount of read attributes without a registered decoder per attribute name.
+	 * @return A sorted {@link Map} containing the counts by attribute name.
+	 */
+	public Map<String, Long> getUnknownAttributeCounts() {
+		Map<String, Long> counts = new TreeMap<String, Long>();
+		for(Map.Entry<String, LongAdder> entry : this.unknownAttributeCounts.entrySet()) {
+			counts.put(entry.getKey(), entry.getValue().sum());
+		}
+		return counts;
+	}
+	
+	/**
+	 * Resets the unknown attribute counts to zero.
+	 */
+	public void resetUnknownAttributeCounts() {
+		for(LongAdder count : this.unknownAttributeCounts.values()) {
+			count.reset();
+		}
+	}
+}
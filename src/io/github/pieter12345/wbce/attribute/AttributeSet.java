@@ -2,12 +2,13 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
-import io.github.pieter12345.wbce.constantpool.ConstantPoolObject;
-import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
+import io.github.pieter12345.wbce.ReadOption;
 
 public class AttributeSet {
 	
@@ -17,90 +18,107 @@ public class AttributeSet {
 		this.attributes = attributes;
 	}
 	
-	public static AttributeSet fromInputStream(FancyInputStream inStream, ClassConstantPool constPool) throws IOException {
-		int attributeCount = inStream.readTwoByteInt();
+	public static AttributeSet fromByteBuffer(FancyByteBufferReader reader,
+			ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException {
+		int attributeCount = reader.readTwoByteInt();
 		ArrayList<IAttribute> attributes = new ArrayList<IAttribute>(attributeCount);
+		boolean lazy = readOptions.contains(ReadOption.LAZY_ATTRIBUTES);
+		boolean skipNested = readOptions.contains(ReadOption.SKIP_DEBUG)
+				|| readOptions.contains(ReadOption.SKIP_FRAMES);
+		boolean skip = skipNested || readOptions.contains(ReadOption.SKIP_CODE);
 		for(int i = 0; i < attributeCount; i++) {
-			
-			// TODO - Add an IAttribute implementation for each attribute.
-			int attrNameIndex = inStream.readTwoByteInt();
-			ConstantPoolObject constPoolObj = constPool.get(attrNameIndex);
-			if(constPoolObj instanceof ConstantPoolString) {
-				String attributeType = ((ConstantPoolString) constPoolObj).getString();
-				IAttribute attr;
-				switch(attributeType) {
-				case "ConstantValue":
-					attr = ConstantValueAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "Code":
-					attr = CodeAttribute.fromInputStream(attrNameIndex, inStream, constPool);
-					break;
-				case "StackMapTable":
-					attr = StackMapTableAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "Exceptions":
-					attr = ExceptionsAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "InnerClasses":
-					attr = InnerClassesAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "EnclosingMethod":
-					attr = EnclosingMethodAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "Synthetic":
-					attr = SyntheticAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "Signature":
-					attr = SignatureAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "SourceFile":
-					attr = SourceFileAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "SourceDebugExtension":
-					attr = SourceDebugExtensionAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "LineNumberTable":
-					attr = LineNumberTableAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "LocalVariableTable":
-					attr = LocalVariableTableAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "LocalVariableTypeTable":
-					attr = LocalVariableTypeTableAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				case "Deprecated":
-					attr = DeprecatedAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-//				case "RuntimeInvisibleAnnotations":
-//					attr = RuntimeInvisibleAnnotationsAttribute.fromInputStream(attrNameIndex, inStream);
-//					break;
-//				case "AnnotationDefault":
-//					attr = AnnotationDefaultAttribute.fromInputStream(attrNameIndex, inStream);
-//					break;
-				case "BootstrapMethods":
-					attr = BootstrapMethodsAttribute.fromInputStream(attrNameIndex, inStream);
-					break;
-				default:
-					System.out.println("[DEBUG] [" + AttributeSet.class.getSimpleName()
-							+ "] Unimplemented Attribute type found: " + attributeType);
-					attr = UnknownAttribute.fromInputStream(attrNameIndex, inStream);
-				}
-				attributes.add(attr);
+			int attrStart = reader.getPosition();
+			int attrNameIndex = reader.readTwoByteInt();
+			ReadOption skipOption = (skip
+					? constPool.getAttributeSkipOption(attrNameIndex, constPool.getAttributeDecoderRegistry()) : null);
+			if(skipOption != null && readOptions.contains(skipOption)) {
+				
+				// Pass over the attribute by its length without decoding it.
+				reader.skip(reader.readFourByteInt());
+				continue;
+			}
+			if(lazy) {
+				
+				// Store the raw attribute bytes, these are decoded when the attribute is first accessed.
+				int attrInfoLength = reader.readFourByteInt();
+				reader.skip(attrInfoLength);
+				attributes.add(new LazyAttribute(attrNameIndex,
+						reader.getBuffer(), attrStart, reader.getPosition(), constPool, readOptions));
 			} else {
-				throw new RuntimeException("Attribute name index did not point to a ConstantPoolString object.");
+				
+				// Store the decoded attribute together with its raw bytes, which are written as long as the attribute
+				// has not been accessed (and could therefore not have been modified). Code attributes are stored
+				// without their raw bytes when nested attributes might have been skipped, so they are written without
+				// the skipped attributes.
+				IAttribute attr = decodeAttribute(attrNameIndex, reader, constPool, readOptions);
+				if(skipNested && attr instanceof CodeAttribute) {
+					attributes.add(attr);
+				} else {
+					attributes.add(new LazyAttribute(attrNameIndex,
+							reader.getBuffer(), attrStart, reader.getPosition(), constPool, readOptions, attr));
+				}
 			}
 		}
 		return new AttributeSet(attributes);
 	}
 	
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.attributes.size());
+	/**
+	 * Decodes the attribute with the given name index, using the decoder from the {@link AttributeDecoderRegistry} of
+	 * the given constant pool. The reader is expected to be positioned at the attribute length, directly after
+	 * the attribute name index.
+	 * @param attrNameIndex - The constant pool index of the attribute name.
+	 * @param reader - The reader to read the attribute from.
+	 * @param constPool - The constant pool of the class.
+	 * @param readOptions - The options to read nested attributes with.
+	 * @return The decoded attribute.
+	 * @throws IOException If the reader ends before the attribute does.
+	 */
+	public static IAttribute decodeAttribute(int attrNameIndex, FancyByteBufferReader reader,
+			ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException {
+		return constPool.getAttributeDecoder(attrNameIndex, constPool.getAttributeDecoderRegistry())
+				.decode(attrNameIndex, reader, constPool, readOptions);
+	}
+	
+	/**
+	 * Gets the size of the class file representation of this {@link AttributeSet}.
+	 * @return The size in bytes.
+	 */
+	public int getByteSize() {
+		int size = 2;
 		for(int i = 0; i < this.attributes.size(); i++) {
-			outStream.write(this.attributes.get(i).toBytes());
+			size += this.attributes.get(i).getByteSize();
 		}
-		return outStream.toByteArray();
+		return size;
+	}
+	
+	/**
+	 * Writes the class file representation of this {@link AttributeSet}.
+	 * @param writer - The writer to write to, which must have {@link #getByteSize()} bytes left.
+	 */
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attributes.size());
+		for(int i = 0; i < this.attributes.size(); i++) {
+			this.attributes.get(i).writeTo(writer);
+		}
+	}
+	
+	/**
+	 * Replaces every constant pool index in the attributes in this {@link AttributeSet} by the index that the given
+	 * remapper maps it to. This decodes all attributes, so they are encoded instead of copied when written.
+	 * @param remapper - The function mapping current constant pool indices to new constant pool indices.
+	 * @param constPool - The constant pool that the current indices point into.
+	 * @see IAttribute#remapConstPoolIndices(IntUnaryOperator, ClassConstantPool)
+	 */
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		for(int i = 0; i < this.attributes.size(); i++) {
+			this.getAttribute(i).remapConstPoolIndices(remapper, constPool);
+		}
+	}
+	
+	public byte[] toBytes() {
+		FancyByteArrayWriter writer = new FancyByteArrayWriter(this.getByteSize());
+		this.writeTo(writer);
+		return writer.toByteArray();
 	}
 	
 	public int size() {
@@ -108,11 +126,42 @@ public class AttributeSet {
 	}
 	
 	public IAttribute getAttribute(int index) {
-		return this.attributes.get(index);
+		IAttribute attr = this.attributes.get(index);
+		if(attr instanceof LazyAttribute) {
+			attr = ((LazyAttribute) attr).decode();
+			this.attributes.set(index, attr);
+		}
+		return attr;
 	}
 	
 	public IAttribute[] getAttributes() {
-		return this.attributes.toArray(new IAttribute[0]);
+		IAttribute[] attributes = new IAttribute[this.attributes.size()];
+		for(int i = 0; i < attributes.length; i++) {
+			attributes[i] = this.getAttribute(i);
+		}
+		return attributes;
+	}
+	
+	/**
+	 * Checks whether the attribute at the given index has been decoded.
+	 * Attributes are only kept undecoded when they are read with {@link ReadOption#LAZY_ATTRIBUTES}.
+	 * @param index - The index of the attribute.
+	 * @return {@code true} if the attribute has been decoded, {@code false} otherwise.
+	 */
+	public boolean isDecoded(int index) {
+		IAttribute attr = this.attributes.get(index);
+		return !(attr instanceof LazyAttribute) || ((LazyAttribute) attr).isDecoded();
+	}
+	
+	/**
+	 * Checks whether the attribute at the given index is written by copying its raw bytes, which is the case for
+	 * read attributes that have not been accessed or replaced. Accessed attributes are encoded when written, since
+	 * they might have been modified.
+	 * @param index - The index of the attribute.
+	 * @return {@code true} if the raw bytes of the attribute are written, {@code false} otherwise.
+	 */
+	public boolean isRaw(int index) {
+		return this.attributes.get(index) instanceof LazyAttribute;
 	}
 	
 	public void setAttribute(int index, IAttribute classAttribute) {
@@ -124,7 +173,8 @@ public class AttributeSet {
 	}
 	
 	public IAttribute removeAttribute(int index) {
-		return this.attributes.remove(index);
+		IAttribute attr = this.attributes.remove(index);
+		return (attr instanceof LazyAttribute ? ((LazyAttribute) attr).decode() : attr);
 	}
 	
 	public boolean removeAttribute(IAttribute classAttribute) {
@@ -134,7 +184,7 @@ public class AttributeSet {
 	public String toString(ClassConstantPool constPool) {
 		String attributeStr = "AttributeSet: {";
 		for(int i = 0; i < this.attributes.size(); i++) {
-			IAttribute attribute = this.attributes.get(i);
+			IAttribute attribute = this.getAttribute(i);
 			attributeStr += i + ": " + attribute.toString(constPool) + " ";
 		}
 		return attributeStr.trim() + "}";
@@ -2,10 +2,11 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class BootstrapMethodsAttribute implements IAttribute {
 	
@@ -18,33 +19,41 @@ public class BootstrapMethodsAttribute implements IAttribute {
 		this.bootstrapMethods = bootstrapMethods;
 	}
 	
-	public static BootstrapMethodsAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int bootstrapMethodCount = inStream.readTwoByteInt();
+	public static BootstrapMethodsAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int bootstrapMethodCount = reader.readTwoByteInt();
 		ArrayList<BootstrapMethod> bootstrapMethods = new ArrayList<BootstrapMethod>(bootstrapMethodCount);
 		for(int i = 0; i < bootstrapMethodCount; i++) {
-			bootstrapMethods.add(BootstrapMethod.fromInputStream(inStream));
+			bootstrapMethods.add(BootstrapMethod.fromByteBuffer(reader));
 		}
 		return new BootstrapMethodsAttribute(attrNameIndex, bootstrapMethods);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.bootstrapMethods.size());
+	public int getByteSize() {
+		int size = 8;
 		for(int i = 0; i < this.bootstrapMethods.size(); i++) {
-			outStream.write(this.bootstrapMethods.get(i).toBytes());
+			size += this.bootstrapMethods.get(i).getByteSize();
+		}
+		return size;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.bootstrapMethods.size());
+		for(int i = 0; i < this.bootstrapMethods.size(); i++) {
+			this.bootstrapMethods.get(i).writeTo(writer);
+		}
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		for(int i = 0; i < this.bootstrapMethods.size(); i++) {
+			this.bootstrapMethods.get(i).remapConstPoolIndices(remapper);
 		}
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
 	}
 	
 	public BootstrapMethod getBootstrapMethod(int index) {
@@ -86,18 +95,24 @@ public class BootstrapMethodsAttribute implements IAttribute {
 			this.bootstrapArgs = bootstrapArgs;
 		}
 		
-		public static BootstrapMethod fromInputStream(FancyInputStream inStream) throws IOException {
-			int methodRefIndex = inStream.readTwoByteInt();
-			BootstrapArguments bootstrapArgs = BootstrapArguments.fromInputStream(inStream);
+		public static BootstrapMethod fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int methodRefIndex = reader.readTwoByteInt();
+			BootstrapArguments bootstrapArgs = BootstrapArguments.fromByteBuffer(reader);
 			return new BootstrapMethod(methodRefIndex, bootstrapArgs);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.methodRefIndex);
-			outStream.write(this.bootstrapArgs.toBytes());
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 2 + this.bootstrapArgs.getByteSize();
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.methodRefIndex);
+			this.bootstrapArgs.writeTo(writer);
+		}
+		
+		public void remapConstPoolIndices(IntUnaryOperator remapper) {
+			this.methodRefIndex = remapper.applyAsInt(this.methodRefIndex);
+			this.bootstrapArgs.remapConstPoolIndices(remapper);
 		}
 		
 		public int getMethodRefIndex() {
@@ -133,25 +148,30 @@ public class BootstrapMethodsAttribute implements IAttribute {
 			this.bootstrapArgIndices = bootstrapArgIndices;
 		}
 		
-		public static BootstrapArguments fromInputStream(FancyInputStream inStream) throws IOException {
-			int bootstrapArgSize = inStream.readTwoByteInt();
+		public static BootstrapArguments fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int bootstrapArgSize = reader.readTwoByteInt();
 			ArrayList<Integer> bootstrapArgIndices = new ArrayList<Integer>(bootstrapArgSize);
 			for(int i = 0; i < bootstrapArgSize; i++) {
-				bootstrapArgIndices.add(inStream.readTwoByteInt());
+				bootstrapArgIndices.add(reader.readTwoByteInt());
 			}
 			return new BootstrapArguments(bootstrapArgIndices);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.bootstrapArgIndices.size());
+		public int getByteSize() {
+			return 2 + 2 * this.bootstrapArgIndices.size();
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.bootstrapArgIndices.size());
 			for(int i = 0; i < this.bootstrapArgIndices.size(); i++) {
-				outStream.writeTwoByteInteger(this.bootstrapArgIndices.get(i));
+				writer.writeTwoByteInteger(this.bootstrapArgIndices.get(i));
 			}
-			return outStream.toByteArray();
 		}
 
+		public void remapConstPoolIndices(IntUnaryOperator remapper) {
+			this.bootstrapArgIndices.replaceAll((index) -> remapper.applyAsInt(index));
+		}
+		
 		public String toString(ClassConstantPool constPool) {
 			String bootstrapArgsStr = "";
 			for(int i = 0; i < this.bootstrapArgIndices.size(); i++) {
@@ -2,10 +2,16 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
 
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.ByteCodeInstruction;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.InstructionTable;
+import io.github.pieter12345.wbce.ReadOption;
+import io.github.pieter12345.wbce.ByteCodeInstruction.ByteCodeInstructionPayload;
 
 public class CodeAttribute implements IAttribute {
 	
@@ -27,43 +33,68 @@ public class CodeAttribute implements IAttribute {
 		this.attributes = attributes;
 	}
 	
-	public static CodeAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream, ClassConstantPool constPool) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int maxStack = inStream.readTwoByteInt();
-		int maxLocals = inStream.readTwoByteInt();
+	public static CodeAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader,
+			ClassConstantPool constPool, Set<ReadOption> readOptions) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int maxStack = reader.readTwoByteInt();
+		int maxLocals = reader.readTwoByteInt();
 		
-		int codeLength = inStream.readFourByteInt();
-		byte[] codeBytes = new byte[codeLength];
-		int readCount = inStream.read(codeBytes);
-		if(readCount != codeBytes.length) {
-			throw new IOException("Could not read enough bytes.");
-		}
+		int codeLength = reader.readFourByteInt();
+		byte[] codeBytes = reader.readBytes(codeLength);
 		
-		ExceptionTable exceptionTable = ExceptionTable.fromInputStream(inStream);
-		AttributeSet attributes = AttributeSet.fromInputStream(inStream, constPool);
+		ExceptionTable exceptionTable = ExceptionTable.fromByteBuffer(reader);
+		AttributeSet attributes = AttributeSet.fromByteBuffer(reader, constPool, readOptions);
 		
 		return new CodeAttribute(attrNameIndex, maxStack, maxLocals, codeBytes, exceptionTable, attributes);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.maxStack);
-		outStream.writeTwoByteInteger(this.maxLocals);
-		outStream.writeFourByteInteger(this.codeBytes.length);
-		outStream.write(this.codeBytes);
-		outStream.write(this.exceptionTable.toBytes());
-		outStream.write(this.attributes.toBytes());
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
+	public int getByteSize() {
+		return 14 + this.codeBytes.length + this.exceptionTable.getByteSize() + this.attributes.getByteSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.maxStack);
+		writer.writeTwoByteInteger(this.maxLocals);
+		writer.writeFourByteInteger(this.codeBytes.length);
+		writer.write(this.codeBytes);
+		this.exceptionTable.writeTo(writer);
+		this.attributes.writeTo(writer);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		this.exceptionTable.remapConstPoolIndices(remapper);
+		this.attributes.remapConstPoolIndices(remapper, constPool);
+		
+		// Remap the constant pool index operands of the instructions in place.
+		InstructionTable instructions = InstructionTable.fromCodeBytes(this.codeBytes);
+		for(int i = 0; i < instructions.size(); i++) {
+			ByteCodeInstruction instr = instructions.getInstruction(i);
+			ByteCodeInstructionPayload[] payloadTypes = instr.getPayloadTypes();
+			int argOffset = instructions.getOffset(i) + 1;
+			for(int j = 0; j < payloadTypes.length; j++) {
+				if(payloadTypes[j].isConstPoolIndex()) {
+					int index = remapper.applyAsInt(instructions.getArg(i, j));
+					if(payloadTypes[j] == ByteCodeInstructionPayload.CONSTPOOL_INDEX_BYTE) {
+						if(index > 0xFF) {
+							throw new IllegalStateException("Constant pool index " + index + " does not fit in the"
+									+ " operand of instruction " + instr.getInstructionName() + " at offset "
+									+ instructions.getOffset(i) + ".");
+						}
+						this.codeBytes[argOffset] = (byte) index;
+					} else {
+						this.codeBytes[argOffset] = (byte) (index >>> 8);
+						this.codeBytes[argOffset + 1] = (byte) index;
+					}
+				}
+				argOffset += payloadTypes[j].getByteSize();
+			}
+		}
 	}
 	
 	public int getMaxStack() {
@@ -122,23 +153,30 @@ public class CodeAttribute implements IAttribute {
 			this.exceptionTableEntries = exceptionTableEntries;
 		}
 		
-		public static ExceptionTable fromInputStream(FancyInputStream inStream) throws IOException {
-			int exceptionTableSize = inStream.readTwoByteInt();
+		public static ExceptionTable fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int exceptionTableSize = reader.readTwoByteInt();
 			ArrayList<ExceptionTableEntry> exceptionTableEntries = new ArrayList<ExceptionTableEntry>(exceptionTableSize);
 			for(int i = 0; i < exceptionTableSize; i++) {
-				exceptionTableEntries.add(ExceptionTableEntry.fromInputStream(inStream));
+				exceptionTableEntries.add(ExceptionTableEntry.fromByteBuffer(reader));
 			}
 			return new ExceptionTable(exceptionTableEntries);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.exceptionTableEntries.size());
+		public int getByteSize() {
+			return 2 + 8 * this.exceptionTableEntries.size();
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.exceptionTableEntries.size());
+			for(int i = 0; i < this.exceptionTableEntries.size(); i++) {
+				this.exceptionTableEntries.get(i).writeTo(writer);
+			}
+		}
+		
+		public void remapConstPoolIndices(IntUnaryOperator remapper) {
 			for(int i = 0; i < this.exceptionTableEntries.size(); i++) {
-				outStream.write(this.exceptionTableEntries.get(i).toBytes());
+				this.exceptionTableEntries.get(i).remapConstPoolIndices(remapper);
 			}
-			return outStream.toByteArray();
 		}
 		
 		public String toString(ClassConstantPool constPool) {
@@ -175,22 +213,27 @@ public class CodeAttribute implements IAttribute {
 			this.catchTypeIndex = catchTypeIndex;
 		}
 		
-		public static ExceptionTableEntry fromInputStream(FancyInputStream inStream) throws IOException {
-			int startPc = inStream.readTwoByteInt();
-			int endPc = inStream.readTwoByteInt();
-			int handlerPc = inStream.readTwoByteInt();
-			int catchTypeIndex = inStream.readTwoByteInt();
+		public static ExceptionTableEntry fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int startPc = reader.readTwoByteInt();
+			int endPc = reader.readTwoByteInt();
+			int handlerPc = reader.readTwoByteInt();
+			int catchTypeIndex = reader.readTwoByteInt();
 			return new ExceptionTableEntry(startPc, endPc, handlerPc, catchTypeIndex);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.startPc);
-			outStream.writeTwoByteInteger(this.endPc);
-			outStream.writeTwoByteInteger(this.handlerPc);
-			outStream.writeTwoByteInteger(this.catchTypeIndex);
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 8;
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.startPc);
+			writer.writeTwoByteInteger(this.endPc);
+			writer.writeTwoByteInteger(this.handlerPc);
+			writer.writeTwoByteInteger(this.catchTypeIndex);
+		}
+		
+		public void remapConstPoolIndices(IntUnaryOperator remapper) {
+			this.catchTypeIndex = remapper.applyAsInt(this.catchTypeIndex);
 		}
 		
 		public int getStartPc() {
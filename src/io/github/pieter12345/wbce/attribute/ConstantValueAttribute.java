@@ -1,10 +1,11 @@
 package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class ConstantValueAttribute implements IAttribute {
 	
@@ -17,26 +18,28 @@ public class ConstantValueAttribute implements IAttribute {
 		this.valueIndex = valueIndex;
 	}
 	
-	public static ConstantValueAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int valueIndex = inStream.readTwoByteInt();
+	public static ConstantValueAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int valueIndex = reader.readTwoByteInt();
 		return new ConstantValueAttribute(attrNameIndex, valueIndex);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.valueIndex);
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
+	public int getByteSize() {
+		return 8;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.valueIndex);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		this.valueIndex = remapper.applyAsInt(this.valueIndex);
 	}
 	
 	public int getValueIndex() {
@@ -1,10 +1,11 @@
 package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class DeprecatedAttribute implements IAttribute {
 	
@@ -15,18 +16,25 @@ public class DeprecatedAttribute implements IAttribute {
 		this.attrNameIndex = attrNameIndex;
 	}
 	
-	public static DeprecatedAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength (which is always 0).
+	public static DeprecatedAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength (which is always 0).
 		return new DeprecatedAttribute(attrNameIndex);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.attrNameIndex);
-		outStream.writeFourByteInteger(0); // attrInfoLength (which is always 0).
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 6;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(0); // attrInfoLength (which is always 0).
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
 	}
 	
 	@Override
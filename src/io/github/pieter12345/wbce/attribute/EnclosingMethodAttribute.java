@@ -1,10 +1,11 @@
 package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class EnclosingMethodAttribute implements IAttribute {
 	
@@ -19,28 +20,31 @@ public class EnclosingMethodAttribute implements IAttribute {
 		this.methodIndex = methodIndex;
 	}
 	
-	public static EnclosingMethodAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int classIndex = inStream.readTwoByteInt();
-		int methodIndex = inStream.readTwoByteInt();
+	public static EnclosingMethodAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int classIndex = reader.readTwoByteInt();
+		int methodIndex = reader.readTwoByteInt();
 		return new EnclosingMethodAttribute(attrNameIndex, classIndex, methodIndex);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.classIndex);
-		outStream.writeTwoByteInteger(this.methodIndex);
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
+	public int getByteSize() {
+		return 10;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.classIndex);
+		writer.writeTwoByteInteger(this.methodIndex);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		this.classIndex = remapper.applyAsInt(this.classIndex);
+		this.methodIndex = remapper.applyAsInt(this.methodIndex);
 	}
 	
 	public int getClassIndex() {
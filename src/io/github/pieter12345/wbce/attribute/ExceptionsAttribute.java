@@ -2,10 +2,11 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class ExceptionsAttribute implements IAttribute {
 	
@@ -18,33 +19,37 @@ public class ExceptionsAttribute implements IAttribute {
 		this.exceptionIndices = exceptionIndices;
 	}
 	
-	public static ExceptionsAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int exceptionIndexCount = inStream.readTwoByteInt();
+	public static ExceptionsAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int exceptionIndexCount = reader.readTwoByteInt();
 		ArrayList<ExceptionIndex> exceptionIndices = new ArrayList<ExceptionIndex>(exceptionIndexCount);
 		for(int i = 0; i < exceptionIndexCount; i++) {
-			exceptionIndices.add(ExceptionIndex.fromInputStream(inStream));
+			exceptionIndices.add(ExceptionIndex.fromByteBuffer(reader));
 		}
 		return new ExceptionsAttribute(attrNameIndex, exceptionIndices);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.exceptionIndices.size());
+	public int getByteSize() {
+		return 8 + 2 * this.exceptionIndices.size();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.exceptionIndices.size());
 		for(int i = 0; i < this.exceptionIndices.size(); i++) {
-			outStream.write(this.exceptionIndices.get(i).toBytes());
+			this.exceptionIndices.get(i).writeTo(writer);
+		}
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		for(int i = 0; i < this.exceptionIndices.size(); i++) {
+			this.exceptionIndices.get(i).remapConstPoolIndices(remapper);
 		}
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
 	}
 	
 	public ExceptionIndex getExceptionIndex(int index) {
@@ -85,16 +90,21 @@ public class ExceptionsAttribute implements IAttribute {
 			this.exceptionNameIndex = exceptionNameIndex;
 		}
 		
-		public static ExceptionIndex fromInputStream(FancyInputStream inStream) throws IOException {
-			int exceptionNameIndex = inStream.readTwoByteInt();
+		public static ExceptionIndex fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int exceptionNameIndex = reader.readTwoByteInt();
 			return new ExceptionIndex(exceptionNameIndex);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.exceptionNameIndex);
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 2;
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.exceptionNameIndex);
+		}
+		
+		public void remapConstPoolIndices(IntUnaryOperator remapper) {
+			this.exceptionNameIndex = remapper.applyAsInt(this.exceptionNameIndex);
 		}
 		
 		public int getExceptionNameIndex() {
@@ -1,8 +1,39 @@
 package io.github.pieter12345.wbce.attribute;
 
+import java.util.function.IntUnaryOperator;
+
 import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
 
 public interface IAttribute {
-	public byte[] toBytes();
+	
+	/**
+	 * Gets the size of this attribute in the class file format, including the attribute name index and length.
+	 * @return The size in bytes.
+	 */
+	public int getByteSize();
+	
+	/**
+	 * Writes this attribute in the class file format, including the attribute name index and length.
+	 * @param writer - The writer to write to, which must have {@link #getByteSize()} bytes left.
+	 */
+	public void writeTo(FancyByteArrayWriter writer);
+	
+	public default byte[] toBytes() {
+		FancyByteArrayWriter writer = new FancyByteArrayWriter(this.getByteSize());
+		this.writeTo(writer);
+		return writer.toByteArray();
+	}
+	
+	/**
+	 * Replaces every constant pool index in this attribute, including the attribute name index, by the index that
+	 * the given remapper maps it to. Optional indices that are absent are passed as 0 as well.
+	 * @param remapper - The function mapping current constant pool indices to new constant pool indices.
+	 * @param constPool - The constant pool that the current indices point into.
+	 * @throws UnsupportedOperationException If the layout of this attribute is not known.
+	 * @throws IllegalStateException If a remapped index does not fit in the attribute.
+	 */
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool);
+	
 	public String toString(ClassConstantPool constPool);
 }
@@ -2,10 +2,11 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class InnerClassesAttribute implements IAttribute {
 	
@@ -18,33 +19,37 @@ public class InnerClassesAttribute implements IAttribute {
 		this.innerClasses = innerClasses;
 	}
 	
-	public static InnerClassesAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int innerClassCount = inStream.readTwoByteInt();
+	public static InnerClassesAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int innerClassCount = reader.readTwoByteInt();
 		ArrayList<InnerClass> innerClasses = new ArrayList<InnerClass>(innerClassCount);
 		for(int i = 0; i < innerClassCount; i++) {
-			innerClasses.add(InnerClass.fromInputStream(inStream));
+			innerClasses.add(InnerClass.fromByteBuffer(reader));
 		}
 		return new InnerClassesAttribute(attrNameIndex, innerClasses);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.innerClasses.size());
+	public int getByteSize() {
+		return 8 + 8 * this.innerClasses.size();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.innerClasses.size());
 		for(int i = 0; i < this.innerClasses.size(); i++) {
-			outStream.write(this.innerClasses.get(i).toBytes());
+			this.innerClasses.get(i).writeTo(writer);
+		}
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		for(int i = 0; i < this.innerClasses.size(); i++) {
+			this.innerClasses.get(i).remapConstPoolIndices(remapper);
 		}
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
 	}
 	
 	public InnerClass getInnerClass(int index) {
@@ -91,22 +96,29 @@ public class InnerClassesAttribute implements IAttribute {
 			this.innerClassAccessFlags = innerClassAccessFlags;
 		}
 		
-		public static InnerClass fromInputStream(FancyInputStream inStream) throws IOException {
-			int innerClassInfoIndex = inStream.readTwoByteInt();
-			int outerClassInfoIndex = inStream.readTwoByteInt();
-			int innerNameIndex = inStream.readTwoByteInt();
-			int innerClassAccessFlags = inStream.readTwoByteInt();
+		public static InnerClass fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int innerClassInfoIndex = reader.readTwoByteInt();
+			int outerClassInfoIndex = reader.readTwoByteInt();
+			int innerNameIndex = reader.readTwoByteInt();
+			int innerClassAccessFlags = reader.readTwoByteInt();
 			return new InnerClass(innerClassInfoIndex, outerClassInfoIndex, innerNameIndex, innerClassAccessFlags);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.innerClassInfoIndex);
-			outStream.writeTwoByteInteger(this.outerClassInfoIndex);
-			outStream.writeTwoByteInteger(this.innerNameIndex);
-			outStream.writeTwoByteInteger(this.innerClassAccessFlags);
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 8;
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.innerClassInfoIndex);
+			writer.writeTwoByteInteger(this.outerClassInfoIndex);
+			writer.writeTwoByteInteger(this.innerNameIndex);
+			writer.writeTwoByteInteger(this.innerClassAccessFlags);
+		}
+		
+		public void remapConstPoolIndices(IntUnaryOperator remapper) {
+			this.innerClassInfoIndex = remapper.applyAsInt(this.innerClassInfoIndex);
+			this.outerClassInfoIndex = remapper.applyAsInt(this.outerClassInfoIndex);
+			this.innerNameIndex = remapper.applyAsInt(this.innerNameIndex);
 		}
 		
 		public int getInnerClassInfoIndex() {
@@ -0,0 +1,100 @@
+package io.github.pieter12345.wbce.attribute;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Set;
+import java.util.function.IntUnaryOperator;
+
+import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
+import io.github.pieter12345.wbce.ReadOption;
+
+/**
+ * Represents an attribute that has not been accessed yet. The raw attribute bytes are kept as a range in the buffer
+ * the class file was read from, so this keeps that buffer reachable until the attribute is accessed or removed.
+ * {@link AttributeSet} replaces this by the decoded attribute the first time it is accessed, after which the decoded
+ * attribute may be modified and is written by encoding it. Until then, the raw bytes are written unchanged.
+ * The decoded attribute is either created on access, or given on construction when attributes are decoded eagerly.
+ * @author P.J.S. Kools
+ */
+class LazyAttribute implements IAttribute {
+	
+	// Variables & Constants.
+	private final int attrNameIndex;
+	private final ByteBuffer buffer;
+	private final int start; // Absolute offset of the attribute name index in the buffer.
+	private final int end; // Absolute offset of the first byte after the attribute in the buffer.
+	private final ClassConstantPool constPool;
+	private final Set<ReadOption> readOptions;
+	private final IAttribute decodedAttr; // The eagerly decoded attribute, or null.
+	
+	LazyAttribute(int attrNameIndex, ByteBuffer buffer, int start, int end,
+			ClassConstantPool constPool, Set<ReadOption> readOptions) {
+		this(attrNameIndex, buffer, start, end, constPool, readOptions, null);
+	}
+	
+	LazyAttribute(int attrNameIndex, ByteBuffer buffer, int start, int end,
+			ClassConstantPool constPool, Set<ReadOption> readOptions, IAttribute decodedAttr) {
+		this.attrNameIndex = attrNameIndex;
+		this.buffer = buffer;
+		this.start = start;
+		this.end = end;
+		this.constPool = constPool;
+		this.readOptions = readOptions;
+		this.decodedAttr = decodedAttr;
+	}
+	
+	/**
+	 * Decodes this attribute, or returns the eagerly decoded attribute if it was given on construction.
+	 * @return The decoded attribute.
+	 * @throws UncheckedIOException If the raw attribute bytes are incomplete.
+	 */
+	IAttribute decode() {
+		if(this.decodedAttr != null) {
+			return this.decodedAttr;
+		}
+		FancyByteBufferReader reader = new FancyByteBufferReader(this.buffer, this.start + 2, this.end);
+		try {
+			return AttributeSet.decodeAttribute(this.attrNameIndex, reader, this.constPool, this.readOptions);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to decode lazily read attribute.", e);
+		}
+	}
+	
+	int getNameIndex() {
+		return this.attrNameIndex;
+	}
+	
+	boolean isDecoded() {
+		return this.decodedAttr != null;
+	}
+	
+	@Override
+	public int getByteSize() {
+		return this.end - this.start;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		
+		// Write the raw bytes back unchanged.
+		writer.write(this.buffer, this.start, this.end - this.start);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		
+		// The raw bytes cannot be changed, so the attribute has to be decoded and replaced first.
+		throw new UnsupportedOperationException("Cannot remap the constant pool indices of an undecoded attribute.");
+	}
+	
+	@Override
+	public String toString(ClassConstantPool constPool) {
+		return "LazyAttribute: {" + (constPool != null && constPool.size() >= this.attrNameIndex ?
+				constPool.get(this.attrNameIndex).val(constPool) : "~UNKNOWN_ATTR_NAME")
+				+ " (size " + (this.end - this.start - 6) + ")}";
+	}
+	
+}
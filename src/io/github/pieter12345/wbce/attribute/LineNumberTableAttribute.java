@@ -2,10 +2,11 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class LineNumberTableAttribute implements IAttribute {
 	
@@ -18,33 +19,34 @@ public class LineNumberTableAttribute implements IAttribute {
 		this.lineNumerEntries = lineNumerEntries;
 	}
 	
-	public static LineNumberTableAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int lineNumberEntryCount = inStream.readTwoByteInt();
+	public static LineNumberTableAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int lineNumberEntryCount = reader.readTwoByteInt();
 		ArrayList<LineNumberEntry> lineNumberTable = new ArrayList<LineNumberEntry>(lineNumberEntryCount);
 		for(int i = 0; i < lineNumberEntryCount; i++) {
-			lineNumberTable.add(LineNumberEntry.fromInputStream(inStream));
+			lineNumberTable.add(LineNumberEntry.fromByteBuffer(reader));
 		}
 		return new LineNumberTableAttribute(attrNameIndex, lineNumberTable);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.lineNumerEntries.size());
+	public int getByteSize() {
+		return 8 + 4 * this.lineNumerEntries.size();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.lineNumerEntries.size());
 		for(int i = 0; i < this.lineNumerEntries.size(); i++) {
-			outStream.write(this.lineNumerEntries.get(i).toBytes());
+			this.lineNumerEntries.get(i).writeTo(writer);
 		}
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
 	}
 	
 	public LineNumberEntry getLineNumberEntry(int index) {
@@ -86,18 +88,19 @@ public class LineNumberTableAttribute implements IAttribute {
 			this.lineNumber = lineNumber;
 		}
 		
-		public static LineNumberEntry fromInputStream(FancyInputStream inStream) throws IOException {
-			int start_pc = inStream.readTwoByteInt();
-			int lineNumber = inStream.readTwoByteInt();
+		public static LineNumberEntry fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int start_pc = reader.readTwoByteInt();
+			int lineNumber = reader.readTwoByteInt();
 			return new LineNumberEntry(start_pc, lineNumber);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.start_pc);
-			outStream.writeTwoByteInteger(this.lineNumber);
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 4;
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.start_pc);
+			writer.writeTwoByteInteger(this.lineNumber);
 		}
 		
 		public int getStartPc() {
@@ -2,10 +2,11 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
 
 public class LocalVariableTableAttribute implements IAttribute {
@@ -19,35 +20,43 @@ public class LocalVariableTableAttribute implements IAttribute {
 		this.localVariableTable = localVariableTable;
 	}
 	
-	public static LocalVariableTableAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int localVariableCount = inStream.readTwoByteInt();
+	public static LocalVariableTableAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int localVariableCount = reader.readTwoByteInt();
 		ArrayList<LocalVariable> localVariableTable = new ArrayList<LocalVariable>(localVariableCount);
 		for(int i = 0; i < localVariableCount; i++) {
-			localVariableTable.add(LocalVariable.fromInputStream(inStream));
+			localVariableTable.add(LocalVariable.fromByteBuffer(reader));
 		}
 		return new LocalVariableTableAttribute(attrNameIndex, localVariableTable);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.localVariableTable.size());
+	public int getByteSize() {
+		return 8 + 10 * this.localVariableTable.size();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.localVariableTable.size());
 		for(int i = 0; i < this.localVariableTable.size(); i++) {
-			outStream.write(this.localVariableTable.get(i).toBytes());
+			this.localVariableTable.get(i).writeTo(writer);
+		}
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		for(int i = 0; i < this.localVariableTable.size(); i++) {
+			this.localVariableTable.get(i).remapConstPoolIndices(remapper);
 		}
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
 	}
 	
+	public int size() {
+		return this.localVariableTable.size();
+	}
+
 	public LocalVariable getLocalVariable(int index) {
 		return this.localVariableTable.get(index);
 	}
@@ -94,24 +103,30 @@ public class LocalVariableTableAttribute implements IAttribute {
 			this.variableIndex = variableIndex;
 		}
 		
-		public static LocalVariable fromInputStream(FancyInputStream inStream) throws IOException {
-			int start_pc = inStream.readTwoByteInt();
-			int pc_length = inStream.readTwoByteInt();
-			int nameIndex = inStream.readTwoByteInt();
-			int descIndex = inStream.readTwoByteInt();
-			int variableIndex = inStream.readTwoByteInt();
+		public static LocalVariable fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int start_pc = reader.readTwoByteInt();
+			int pc_length = reader.readTwoByteInt();
+			int nameIndex = reader.readTwoByteInt();
+			int descIndex = reader.readTwoByteInt();
+			int variableIndex = reader.readTwoByteInt();
 			return new LocalVariable(start_pc, pc_length, nameIndex, descIndex, variableIndex);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.start_pc);
-			outStream.writeTwoByteInteger(this.pc_length);
-			outStream.writeTwoByteInteger(this.nameIndex);
-			outStream.writeTwoByteInteger(this.descIndex);
-			outStream.writeTwoByteInteger(this.variableIndex);
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 10;
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.start_pc);
+			writer.writeTwoByteInteger(this.pc_length);
+			writer.writeTwoByteInteger(this.nameIndex);
+			writer.writeTwoByteInteger(this.descIndex);
+			writer.writeTwoByteInteger(this.variableIndex);
+		}
+		
+		public void remapConstPoolIndices(IntUnaryOperator remapper) {
+			this.nameIndex = remapper.applyAsInt(this.nameIndex);
+			this.descIndex = remapper.applyAsInt(this.descIndex);
 		}
 		
 		public int getStartPc() {
@@ -2,12 +2,13 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.function.IntUnaryOperator;
 
 import com.sun.org.apache.bcel.internal.classfile.LocalVariable;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class LocalVariableTypeTableAttribute implements IAttribute {
 	
@@ -20,33 +21,37 @@ public class LocalVariableTypeTableAttribute implements IAttribute {
 		this.localVariableTypeTable = localVariableTypeTable;
 	}
 	
-	public static LocalVariableTypeTableAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int localVariableTypeCount = inStream.readTwoByteInt();
+	public static LocalVariableTypeTableAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int localVariableTypeCount = reader.readTwoByteInt();
 		ArrayList<LocalVariableType> localVariableTypeTable = new ArrayList<LocalVariableType>(localVariableTypeCount);
 		for(int i = 0; i < localVariableTypeCount; i++) {
-			localVariableTypeTable.add(LocalVariableType.fromInputStream(inStream));
+			localVariableTypeTable.add(LocalVariableType.fromByteBuffer(reader));
 		}
 		return new LocalVariableTypeTableAttribute(attrNameIndex, localVariableTypeTable);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.localVariableTypeTable.size());
+	public int getByteSize() {
+		return 8 + 10 * this.localVariableTypeTable.size();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.localVariableTypeTable.size());
 		for(int i = 0; i < this.localVariableTypeTable.size(); i++) {
-			outStream.write(this.localVariableTypeTable.get(i).toBytes());
+			this.localVariableTypeTable.get(i).writeTo(writer);
+		}
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		for(int i = 0; i < this.localVariableTypeTable.size(); i++) {
+			this.localVariableTypeTable.get(i).remapConstPoolIndices(remapper);
 		}
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
 	}
 	
 	public LocalVariableType getLocalVariableType(int index) {
@@ -95,24 +100,30 @@ public class LocalVariableTypeTableAttribute implements IAttribute {
 			this.variableIndex = variableIndex;
 		}
 		
-		public static LocalVariableType fromInputStream(FancyInputStream inStream) throws IOException {
-			int start_pc = inStream.readTwoByteInt();
-			int pc_length = inStream.readTwoByteInt();
-			int nameIndex = inStream.readTwoByteInt();
-			int signatureIndex = inStream.readTwoByteInt();
-			int variableIndex = inStream.readTwoByteInt();
+		public static LocalVariableType fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int start_pc = reader.readTwoByteInt();
+			int pc_length = reader.readTwoByteInt();
+			int nameIndex = reader.readTwoByteInt();
+			int signatureIndex = reader.readTwoByteInt();
+			int variableIndex = reader.readTwoByteInt();
 			return new LocalVariableType(start_pc, pc_length, nameIndex, signatureIndex, variableIndex);
 		}
 		
-		public byte[] toBytes() {
-			@SuppressWarnings("resource")
-			FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-			outStream.writeTwoByteInteger(this.start_pc);
-			outStream.writeTwoByteInteger(this.pc_length);
-			outStream.writeTwoByteInteger(this.nameIndex);
-			outStream.writeTwoByteInteger(this.signatureIndex);
-			outStream.writeTwoByteInteger(this.variableIndex);
-			return outStream.toByteArray();
+		public int getByteSize() {
+			return 10;
+		}
+		
+		public void writeTo(FancyByteArrayWriter writer) {
+			writer.writeTwoByteInteger(this.start_pc);
+			writer.writeTwoByteInteger(this.pc_length);
+			writer.writeTwoByteInteger(this.nameIndex);
+			writer.writeTwoByteInteger(this.signatureIndex);
+			writer.writeTwoByteInteger(this.variableIndex);
+		}
+		
+		public void remapConstPoolIndices(IntUnaryOperator remapper) {
+			this.nameIndex = remapper.applyAsInt(this.nameIndex);
+			this.signatureIndex = remapper.applyAsInt(this.signatureIndex);
 		}
 		
 		public int getStartPc() {
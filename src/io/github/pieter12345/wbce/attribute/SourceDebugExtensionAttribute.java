@@ -2,10 +2,11 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 
 public class SourceDebugExtensionAttribute implements IAttribute {
 	
@@ -18,24 +19,27 @@ public class SourceDebugExtensionAttribute implements IAttribute {
 		this.strBytes = strBytes;
 	}
 	
-	public static SourceDebugExtensionAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		int attrInfoLength = inStream.readFourByteInt();
-		byte[] strBytes = new byte[attrInfoLength];
-		int readCount = inStream.read(strBytes);
-		if(readCount != strBytes.length) {
-			throw new IOException("Could not read enough bytes.");
-		}
+	public static SourceDebugExtensionAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		int attrInfoLength = reader.readFourByteInt();
+		byte[] strBytes = reader.readBytes(attrInfoLength);
 		return new SourceDebugExtensionAttribute(attrNameIndex, strBytes);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.attrNameIndex);
-		outStream.writeFourByteInteger(this.strBytes.length);
-		outStream.write(this.strBytes);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 6 + this.strBytes.length;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.strBytes.length);
+		writer.write(this.strBytes);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
 	}
 	
 	public byte[] getStrBytes() {
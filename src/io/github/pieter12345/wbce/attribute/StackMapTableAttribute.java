@@ -2,10 +2,11 @@ package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.function.IntUnaryOperator;
 
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
 
 public class StackMapTableAttribute implements IAttribute {
 	
@@ -18,33 +19,41 @@ public class StackMapTableAttribute implements IAttribute {
 		this.frames = frames;
 	}
 	
-	public static StackMapTableAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		inStream.readFourByteInt(); // attrInfoLength.
-		int frameCount = inStream.readTwoByteInt();
+	public static StackMapTableAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		reader.readFourByteInt(); // attrInfoLength.
+		int frameCount = reader.readTwoByteInt();
 		ArrayList<StackMapFrame> frames = new ArrayList<StackMapFrame>(frameCount);
 		for(int i = 0; i < frameCount; i++) {
-			frames.add(StackMapFrame.fromInputStream(inStream));
+			frames.add(StackMapFrame.fromByteBuffer(reader));
 		}
 		return new StackMapTableAttribute(attrNameIndex, frames);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.frames.size());
+	public int getByteSize() {
+		int size = 8;
 		for(int i = 0; i < this.frames.size(); i++) {
-			outStream.write(this.frames.get(i).toBytes());
+			size += this.frames.get(i).getByteSize();
+		}
+		return size;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.getByteSize() - 6);
+		writer.writeTwoByteInteger(this.frames.size());
+		for(int i = 0; i < this.frames.size(); i++) {
+			this.frames.get(i).writeTo(writer);
+		}
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+		for(int i = 0; i < this.frames.size(); i++) {
+			this.frames.get(i).remapConstPoolIndices(remapper);
 		}
-		byte[] outStreamBytes = outStream.toByteArray();
-		
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream2 = new FancyByteArrayOutputStream();
-		outStream2.writeTwoByteInteger(this.attrNameIndex);
-		outStream2.writeFourByteInteger(outStreamBytes.length);
-		outStream2.write(outStreamBytes);
-		
-		return outStream2.toByteArray();
 	}
 	
 	public StackMapFrame getStackMapFrame(int index) {
@@ -78,22 +87,22 @@ public class StackMapTableAttribute implements IAttribute {
 	
 	public static abstract interface StackMapFrame {
 		
-		public static StackMapFrame fromInputStream(FancyInputStream inStream) throws IOException {
-			int frameType = inStream.readUnsignedByte(); // In range of [0-255].
+		public static StackMapFrame fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+			int frameType = reader.readUnsignedByte(); // In range of [0-255].
 			if(frameType >= 0 && frameType <= 63) {
-				return SameFrame.fromInputStream(frameType, inStream);
+				return SameFrame.fromByteBuffer(frameType, reader);
 			} else if(frameType >= 64 && frameType <= 127) {
-				return SameLocals1StackItemFrame.fromInputStream(frameType, inStream);
+				return SameLocals1StackItemFrame.fromByteBuffer(frameType, reader);
 			} else if(frameType == 247) {
-				return SameLocals1StackItemFrameExtended.fromInputStream(frameType, inStream);
+				return SameLocals1StackItemFrameExtended.fromByteBuffer(frameType, reader);
 			} else if(frameType >= 248 && frameType <= 250) {
-				return ChopFrame.fromInputStream(frameType, inStream);
+				return ChopFrame.fromByteBuffer(frameType, reader);
 			} else if(frameType == 251) {
-				return SameFrameExtended.fromInputStream(frameType, inStream);
+				return SameFrameExtended.fromByteBuffer(frameType, reader);
 			} else if(frameType >= 252 && frameType <= 254) {
-				return AppendFrame.fromInputStream(frameType, inStream);
+				return AppendFrame.fromByteBuffer(frameType, reader);
 			} else if(frameType == 255) {
-				return FullFrame.fromInputStream(frameType, inStream);
+				return FullFrame.fromByteBuffer(frameType, reader);
 			}
 			System.out.println("[DEBUG] [" + StackMapTableAttribute.class.getSimpleName() + "]"
 					+ " Found invalid/unimplemented stack frame type: " + frameType);
@@ -102,7 +111,17 @@ public class StackMapTableAttribute implements IAttribute {
 		
 		public int getFrameType();
 		
-		public byte[] toBytes();
+		public int getByteSize();
+		
+		public void writeTo(FancyByteArrayWriter writer);
+		
+		/**
+		 * Replaces the constant pool indices in the verification type infos of this frame by the indices that the
+		 * given remapper maps them to. Does nothing for frames without verification type infos.
+		 * @param remapper - The function mapping current constant pool indices to new constant pool indices.
+		 */
+		public default void remapConstPoolIndices(IntUnaryOperator remapper) {
+		}
 		
 		public String toString(ClassConstantPool constPool);
 		
@@ -115,16 +134,18 @@ public class StackMapTableAttribute implements IAttribute {
 				this.frameType = frameType;
 			}
 			
-			public static SameFrame fromInputStream(int frameType, FancyInputStream inStream) throws IOException {
+			public static SameFrame fromByteBuffer(int frameType, FancyByteBufferReader reader) throws IOException {
 				return new SameFrame(frameType);
 			}
 			
 			@Override
-			public byte[] toBytes() {
-				@SuppressWarnings("resource")
-				FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-				outStream.writeUnsignedByte(this.frameType);
-				return outStream.toByteArray();
+			public int getByteSize() {
+				return 1;
+			}
+			
+			@Override
+			public void writeTo(FancyByteArrayWriter writer) {
+				writer.writeUnsignedByte(this.frameType);
 			}
 			
 			@Override
@@ -149,18 +170,20 @@ public class StackMapTableAttribute implements IAttribute {
 				this.offsetDelta = offsetDelta;
 			}
 			
-			public static SameFrameExtended fromInputStream(int frameType, FancyInputStream inStream) throws IOException {
-				int offsetDelta = inStream.readTwoByteInt();
+			public static SameFrameExtended fromByteBuffer(int frameType, FancyByteBufferReader reader) throws IOException {
+				int offsetDelta = reader.readTwoByteInt();
 				return new SameFrameExtended(frameType, offsetDelta);
 			}
 			
 			@Override
-			public byte[] toBytes() {
-				@SuppressWarnings("resource")
-				FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-				outStream.writeUnsignedByte(this.frameType);
-				outStream.writeTwoByteInteger(this.offsetDelta);
-				return outStream.toByteArray();
+			public int getByteSize() {
+				return 3;
+			}
+			
+			@Override
+			public void writeTo(FancyByteArrayWriter writer) {
+				writer.writeUnsignedByte(this.frameType);
+				writer.writeTwoByteInteger(this.offsetDelta);
 			}
 			
 			@Override
@@ -190,18 +213,20 @@ public class StackMapTableAttribute implements IAttribute {
 				this.offsetDelta = offsetDelta;
 			}
 			
-			public static ChopFrame fromInputStream(int frameType, FancyInputStream inStream) throws IOException {
-				int offsetDelta = inStream.readTwoByteInt();
+			public static ChopFrame fromByteBuffer(int frameType, FancyByteBufferReader reader) throws IOException {
+				int offsetDelta = reader.readTwoByteInt();
 				return new ChopFrame(frameType, offsetDelta);
 			}
 			
 			@Override
-			public byte[] toBytes() {
-				@SuppressWarnings("resource")
-				FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-				outStream.writeUnsignedByte(this.frameType);
-				outStream.writeTwoByteInteger(this.offsetDelta);
-				return outStream.toByteArray();
+			public int getByteSize() {
+				return 3;
+			}
+			
+			@Override
+			public void writeTo(FancyByteArrayWriter writer) {
+				writer.writeUnsignedByte(this.frameType);
+				writer.writeTwoByteInteger(this.offsetDelta);
 			}
 			
 			@Override
@@ -231,18 +256,25 @@ public class StackMapTableAttribute implements IAttribute {
 				this.veriTypeInfo = veriTypeInfo;
 			}
 			
-			public static SameLocals1StackItemFrame fromInputStream(int frameType, FancyInputStream inStream) throws IOException {
-				VerificationTypeInfo veriTypeInfo = VerificationTypeInfo.fromInputStream(inStream);
+			public static SameLocals1StackItemFrame fromByteBuffer(int frameType, FancyByteBufferReader reader) throws IOException {
+				VerificationTypeInfo veriTypeInfo = VerificationTypeInfo.fromByteBuffer(reader);
 				return new SameLocals1StackItemFrame(frameType, veriTypeInfo);
 			}
 			
 			@Override
-			public byte[] toBytes() {
-				@SuppressWarnings("resource")
-				FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-				outStream.writeUnsignedByte(this.frameType);
-				outStream.write(this.veriTypeInfo.toBytes());
-				return outStream.toByteArray();
+			public int getByteSize() {
+				return 1 + this.veriTypeInfo.getByteSize();
+			}
+			
+			@Override
+			public void writeTo(FancyByteArrayWriter writer) {
+				writer.writeUnsignedByte(this.frameType);
+				this.veriTypeInfo.writeTo(writer);
+			}
+			
+			@Override
+			public void remapConstPoolIndices(IntUnaryOperator remapper) {
+				this.veriTypeInfo.remapConstPoolIndices(remapper);
 			}
 			
 			@Override
@@ -271,20 +303,27 @@ public class StackMapTableAttribute implements IAttribute {
 				this.veriTypeInfo = veriTypeInfo;
 			}
 			
-			public static SameLocals1StackItemFrameExtended fromInputStream(int frameType, FancyInputStream inStream) throws IOException {
-				int offsetDelta = inStream.readTwoByteInt();
-				VerificationTypeInfo veriTypeInfo = VerificationTypeInfo.fromInputStream(inStream);
+			public static SameLocals1StackItemFrameExtended fromByteBuffer(int frameType, FancyByteBufferReader reader) throws IOException {
+				int offsetDelta = reader.readTwoByteInt();
+				VerificationTypeInfo veriTypeInfo = VerificationTypeInfo.fromByteBuffer(reader);
 				return new SameLocals1StackItemFrameExtended(frameType, offsetDelta, veriTypeInfo);
 			}
 			
 			@Override
-			public byte[] toBytes() {
-				@SuppressWarnings("resource")
-				FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-				outStream.writeUnsignedByte(this.frameType);
-				outStream.writeTwoByteInteger(this.offsetDelta);
-				outStream.write(this.veriTypeInfo.toBytes());
-				return outStream.toByteArray();
+			public int getByteSize() {
+				return 3 + this.veriTypeInfo.getByteSize();
+			}
+			
+			@Override
+			public void writeTo(FancyByteArrayWriter writer) {
+				writer.writeUnsignedByte(this.frameType);
+				writer.writeTwoByteInteger(this.offsetDelta);
+				this.veriTypeInfo.writeTo(writer);
+			}
+			
+			@Override
+			public void remapConstPoolIndices(IntUnaryOperator remapper) {
+				this.veriTypeInfo.remapConstPoolIndices(remapper);
 			}
 			
 			@Override
@@ -314,25 +353,34 @@ public class StackMapTableAttribute implements IAttribute {
 				this.veriTypeInfoArray = veriTypeInfoArray;
 			}
 			
-			public static AppendFrame fromInputStream(int frameType, FancyInputStream inStream) throws IOException {
-				int offsetDelta = inStream.readTwoByteInt();
+			public static AppendFrame fromByteBuffer(int frameType, FancyByteBufferReader reader) throws IOException {
+				int offsetDelta = reader.readTwoByteInt();
 				VerificationTypeInfo[] veriTypeInfoArray = new VerificationTypeInfo[frameType - 251];
 				for(int i = 0; i < veriTypeInfoArray.length; i++) {
-					veriTypeInfoArray[i] = VerificationTypeInfo.fromInputStream(inStream);
+					veriTypeInfoArray[i] = VerificationTypeInfo.fromByteBuffer(reader);
 				}
 				return new AppendFrame(frameType, offsetDelta, veriTypeInfoArray);
 			}
 			
 			@Override
-			public byte[] toBytes() {
-				@SuppressWarnings("resource")
-				FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-				outStream.writeUnsignedByte(this.frameType);
-				outStream.writeTwoByteInteger(this.offsetDelta);
+			public int getByteSize() {
+				return 3 + VerificationTypeInfo.getByteSize(this.veriTypeInfoArray);
+			}
+			
+			@Override
+			public void writeTo(FancyByteArrayWriter writer) {
+				writer.writeUnsignedByte(this.frameType);
+				writer.writeTwoByteInteger(this.offsetDelta);
+				for(int i = 0; i < this.veriTypeInfoArray.length; i++) {
+					this.veriTypeInfoArray[i].writeTo(writer);
+				}
+			}
+			
+			@Override
+			public void remapConstPoolIndices(IntUnaryOperator remapper) {
 				for(int i = 0; i < this.veriTypeInfoArray.length; i++) {
-					outStream.write(this.veriTypeInfoArray[i].toBytes());
+					this.veriTypeInfoArray[i].remapConstPoolIndices(remapper);
 				}
-				return outStream.toByteArray();
 			}
 			
 			@Override
@@ -368,36 +416,49 @@ public class StackMapTableAttribute implements IAttribute {
 				this.veriTypeInfoStackArray = veriTypeInfoStackArray;
 			}
 			
-			public static FullFrame fromInputStream(int frameType, FancyInputStream inStream) throws IOException {
-				int offsetDelta = inStream.readTwoByteInt();
-				int veriTypeInfoLocalsCount = inStream.readTwoByteInt();
+			public static FullFrame fromByteBuffer(int frameType, FancyByteBufferReader reader) throws IOException {
+				int offsetDelta = reader.readTwoByteInt();
+				int veriTypeInfoLocalsCount = reader.readTwoByteInt();
 				VerificationTypeInfo[] veriTypeInfoLocalsArray = new VerificationTypeInfo[veriTypeInfoLocalsCount];
 				for(int i = 0; i < veriTypeInfoLocalsArray.length; i++) {
-					veriTypeInfoLocalsArray[i] = VerificationTypeInfo.fromInputStream(inStream);
+					veriTypeInfoLocalsArray[i] = VerificationTypeInfo.fromByteBuffer(reader);
 				}
-				int veriTypeInfoStackCount = inStream.readTwoByteInt();
+				int veriTypeInfoStackCount = reader.readTwoByteInt();
 				VerificationTypeInfo[] veriTypeInfoStackArray = new VerificationTypeInfo[veriTypeInfoStackCount];
 				for(int i = 0; i < veriTypeInfoStackArray.length; i++) {
-					veriTypeInfoStackArray[i] = VerificationTypeInfo.fromInputStream(inStream);
+					veriTypeInfoStackArray[i] = VerificationTypeInfo.fromByteBuffer(reader);
 				}
 				return new FullFrame(frameType, offsetDelta, veriTypeInfoLocalsArray, veriTypeInfoStackArray);
 			}
 			
 			@Override
-			public byte[] toBytes() {
-				@SuppressWarnings("resource")
-				FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-				outStream.writeUnsignedByte(this.frameType);
-				outStream.writeTwoByteInteger(this.offsetDelta);
-				outStream.writeTwoByteInteger(this.veriTypeInfoLocalsArray.length);
+			public int getByteSize() {
+				return 7 + VerificationTypeInfo.getByteSize(this.veriTypeInfoLocalsArray)
+						+ VerificationTypeInfo.getByteSize(this.veriTypeInfoStackArray);
+			}
+			
+			@Override
+			public void writeTo(FancyByteArrayWriter writer) {
+				writer.writeUnsignedByte(this.frameType);
+				writer.writeTwoByteInteger(this.offsetDelta);
+				writer.writeTwoByteInteger(this.veriTypeInfoLocalsArray.length);
 				for(int i = 0; i < this.veriTypeInfoLocalsArray.length; i++) {
-					outStream.write(this.veriTypeInfoLocalsArray[i].toBytes());
+					this.veriTypeInfoLocalsArray[i].writeTo(writer);
 				}
-				outStream.writeTwoByteInteger(this.veriTypeInfoStackArray.length);
+				writer.writeTwoByteInteger(this.veriTypeInfoStackArray.length);
 				for(int i = 0; i < this.veriTypeInfoStackArray.length; i++) {
-					outStream.write(this.veriTypeInfoStackArray[i].toBytes());
+					this.veriTypeInfoStackArray[i].writeTo(writer);
+				}
+			}
+			
+			@Override
+			public void remapConstPoolIndices(IntUnaryOperator remapper) {
+				for(int i = 0; i < this.veriTypeInfoLocalsArray.length; i++) {
+					this.veriTypeInfoLocalsArray[i].remapConstPoolIndices(remapper);
+				}
+				for(int i = 0; i < this.veriTypeInfoStackArray.length; i++) {
+					this.veriTypeInfoStackArray[i].remapConstPoolIndices(remapper);
 				}
-				return outStream.toByteArray();
 			}
 			
 			@Override
@@ -476,27 +537,52 @@ public class StackMapTableAttribute implements IAttribute {
 				this.extraData = extraData;
 			}
 			
-			public static VerificationTypeInfo fromInputStream(FancyInputStream inStream) throws IOException {
-				byte tag = (byte) inStream.readUnsignedByte();
+			public static VerificationTypeInfo fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+				byte tag = (byte) reader.readUnsignedByte();
 				VerificationTypeInfoType veriTypeInfo = VerificationTypeInfoType.forTag(tag);
 				if(veriTypeInfo == null) {
 					throw new RuntimeException("IVariableInfo in a StackMapAttribute had an invalid tag: " + tag);
 				}
 				Integer extraData = null;
 				if(veriTypeInfo.hasExtraData()) {
-					extraData = inStream.readTwoByteInt();
+					extraData = reader.readTwoByteInt();
 				}
 				return new VerificationTypeInfo(tag, extraData);
 			}
 			
-			public byte[] toBytes() {
-				@SuppressWarnings("resource")
-				FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-				outStream.writeUnsignedByte(this.tag);
+			public int getByteSize() {
+				return (this.extraData != null ? 3 : 1);
+			}
+			
+			/**
+			 * Gets the total size of the given verification type infos.
+			 * @param veriTypeInfoArray - The verification type infos.
+			 * @return The size in bytes.
+			 */
+			public static int getByteSize(VerificationTypeInfo[] veriTypeInfoArray) {
+				int size = 0;
+				for(int i = 0; i < veriTypeInfoArray.length; i++) {
+					size += veriTypeInfoArray[i].getByteSize();
+				}
+				return size;
+			}
+			
+			public void writeTo(FancyByteArrayWriter writer) {
+				writer.writeUnsignedByte(this.tag);
 				if(this.extraData != null) {
-					outStream.writeTwoByteInteger(this.extraData);
+					writer.writeTwoByteInteger(this.extraData);
+				}
+			}
+			
+			/**
+			 * Replaces the class constant pool index of an object variable info by the index that the given remapper
+			 * maps it to. The extra data of other verification type infos is not a constant pool index.
+			 * @param remapper - The function mapping current constant pool indices to new constant pool indices.
+			 */
+			public void remapConstPoolIndices(IntUnaryOperator remapper) {
+				if(this.tag == VerificationTypeInfoType.OBJECT_VARIABLE_INFO.getTag()) {
+					this.extraData = remapper.applyAsInt(this.extraData);
 				}
-				return outStream.toByteArray();
 			}
 			
 			public byte getTag() {
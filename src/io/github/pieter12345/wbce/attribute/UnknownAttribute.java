@@ -1,10 +1,13 @@
 package io.github.pieter12345.wbce.attribute;
 
 import java.io.IOException;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolObject;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
 
 public class UnknownAttribute implements IAttribute {
 	
@@ -17,13 +20,9 @@ public class UnknownAttribute implements IAttribute {
 		this.attrInfoBytes = attrInfoBytes;
 	}
 	
-	public static UnknownAttribute fromInputStream(int attrNameIndex, FancyInputStream inStream) throws IOException {
-		int attrInfoLength = inStream.readFourByteInt();
-		byte[] attrInfoBytes = new byte[attrInfoLength];
-		int readCount = inStream.read(attrInfoBytes);
-		if(readCount != attrInfoBytes.length) {
-			throw new IOException("Could not read enough bytes.");
-		}
+	public static UnknownAttribute fromByteBuffer(int attrNameIndex, FancyByteBufferReader reader) throws IOException {
+		int attrInfoLength = reader.readFourByteInt();
+		byte[] attrInfoBytes = reader.readBytes(attrInfoLength);
 		return new UnknownAttribute(attrNameIndex, attrInfoBytes);
 	}
 	
@@ -44,13 +43,279 @@ public class UnknownAttribute implements IAttribute {
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.writeTwoByteInteger(this.attrNameIndex);
-		outStream.writeFourByteInteger(this.attrInfoBytes.length);
-		outStream.write(this.attrInfoBytes);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 6 + this.attrInfoBytes.length;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeTwoByteInteger(this.attrNameIndex);
+		writer.writeFourByteInteger(this.attrInfoBytes.length);
+		writer.write(this.attrInfoBytes);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The constant pool indices in the attribute bytes can only be remapped for attributes with a known layout, being
+	 * the annotation attributes, MethodParameters, NestHost, NestMembers, PermittedSubclasses, Signature, Record
+	 * (including the attributes of its components), Module, ModulePackages, ModuleMainClass and the JDK-specific
+	 * ModuleTarget, ModuleHashes and ModuleResolution attributes.
+	 */
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper, ClassConstantPool constPool) {
+		String attrName = getAttributeName(this.attrNameIndex, constPool);
+		byte[] bytes = this.attrInfoBytes;
+		int pos;
+		try {
+			pos = remapAttributeInfo(attrName, bytes, 0, remapper, constPool);
+		} catch (ArrayIndexOutOfBoundsException e) {
+			throw new IllegalStateException("Attribute " + attrName + " ends before its content does.", e);
+		}
+		if(pos != bytes.length) {
+			throw new IllegalStateException("Attribute " + attrName + " has "
+					+ (bytes.length - pos) + " bytes after its content.");
+		}
+		this.attrNameIndex = remapper.applyAsInt(this.attrNameIndex);
+	}
+	
+	private static String getAttributeName(int attrNameIndex, ClassConstantPool constPool) {
+		ConstantPoolObject constPoolObj = constPool.get(attrNameIndex);
+		return (constPoolObj instanceof ConstantPoolString ? ((ConstantPoolString) constPoolObj).getString() : null);
+	}
+	
+	/**
+	 * Remaps the constant pool indices in the info bytes of an attribute with the given name.
+	 * @param attrName - The attribute name, or null if the name index does not point to a string.
+	 * @param bytes - The bytes containing the attribute info.
+	 * @param pos - The position of the attribute info in the bytes.
+	 * @param remapper - The function mapping a current constant pool index to its new index.
+	 * @param constPool - The constant pool the indices currently point into.
+	 * @return The position directly after the attribute info.
+	 * @throws UnsupportedOperationException If the layout of the attribute is unknown.
+	 * @throws IllegalStateException If a nested attribute does not match its length.
+	 */
+	private static int remapAttributeInfo(String attrName, byte[] bytes, int pos,
+			IntUnaryOperator remapper, ClassConstantPool constPool) {
+		switch(attrName == null ? "" : attrName) {
+			case "RuntimeVisibleAnnotations":
+			case "RuntimeInvisibleAnnotations": {
+				return remapAnnotations(bytes, pos, remapper);
+			}
+			case "RuntimeVisibleParameterAnnotations":
+			case "RuntimeInvisibleParameterAnnotations": {
+				int paramCount = bytes[pos++] & 0xFF;
+				for(int i = 0; i < paramCount; i++) {
+					pos = remapAnnotations(bytes, pos, remapper);
+				}
+				return pos;
+			}
+			case "RuntimeVisibleTypeAnnotations":
+			case "RuntimeInvisibleTypeAnnotations": {
+				int annotationCount = readTwoByteInt(bytes, pos);
+				pos += 2;
+				for(int i = 0; i < annotationCount; i++) {
+					pos = skipTypeAnnotationTarget(bytes, pos);
+					pos = remapAnnotation(bytes, pos, remapper);
+				}
+				return pos;
+			}
+			case "AnnotationDefault": {
+				return remapElementValue(bytes, pos, remapper);
+			}
+			case "MethodParameters": {
+				int paramCount = bytes[pos++] & 0xFF;
+				for(int i = 0; i < paramCount; i++) {
+					pos = remapIndex(bytes, pos, remapper) + 2; // name_index, access_flags.
+				}
+				return pos;
+			}
+			case "NestHost":
+			case "Signature":
+			case "ModuleMainClass":
+			case "ModuleTarget": {
+				return remapIndex(bytes, pos, remapper);
+			}
+			case "NestMembers":
+			case "PermittedSubclasses":
+			case "ModulePackages": {
+				return remapIndices(bytes, pos, remapper);
+			}
+			case "ModuleResolution": {
+				return pos + 2; // resolution_flags.
+			}
+			case "Record": {
+				int componentCount = readTwoByteInt(bytes, pos);
+				pos += 2;
+				for(int i = 0; i < componentCount; i++) {
+					pos = remapIndex(bytes, pos, remapper); // name_index.
+					pos = remapIndex(bytes, pos, remapper); // descriptor_index.
+					int attrCount = readTwoByteInt(bytes, pos);
+					pos += 2;
+					for(int j = 0; j < attrCount; j++) {
+						
+						// Look up the nested attribute name before its index is remapped.
+						String nestedAttrName = getAttributeName(readTwoByteInt(bytes, pos), constPool);
+						pos = remapIndex(bytes, pos, remapper);
+						int length = ((bytes[pos] & 0xFF) << 24) | ((bytes[pos + 1] & 0xFF) << 16)
+								| ((bytes[pos + 2] & 0xFF) << 8) | (bytes[pos + 3] & 0xFF);
+						pos += 4;
+						int end = pos + length;
+						pos = remapAttributeInfo(nestedAttrName, bytes, pos, remapper, constPool);
+						if(length < 0 || pos != end) {
+							throw new IllegalStateException("Record component attribute " + nestedAttrName
+									+ " does not match its length of " + length + " bytes.");
+						}
+					}
+				}
+				return pos;
+			}
+			case "Module": {
+				pos = remapIndex(bytes, pos, remapper); // module_name_index.
+				pos += 2; // module_flags.
+				pos = remapIndex(bytes, pos, remapper); // module_version_index.
+				
+				// Requires.
+				int requiresCount = readTwoByteInt(bytes, pos);
+				pos += 2;
+				for(int i = 0; i < requiresCount; i++) {
+					pos = remapIndex(bytes, pos, remapper) + 2; // requires_index, requires_flags.
+					pos = remapIndex(bytes, pos, remapper); // requires_version_index.
+				}
+				
+				// Exports and opens.
+				for(int k = 0; k < 2; k++) {
+					int count = readTwoByteInt(bytes, pos);
+					pos += 2;
+					for(int i = 0; i < count; i++) {
+						pos = remapIndex(bytes, pos, remapper) + 2; // exports/opens_index, exports/opens_flags.
+						pos = remapIndices(bytes, pos, remapper); // exports/opens_to_index.
+					}
+				}
+				
+				// Uses.
+				pos = remapIndices(bytes, pos, remapper);
+				
+				// Provides.
+				int providesCount = readTwoByteInt(bytes, pos);
+				pos += 2;
+				for(int i = 0; i < providesCount; i++) {
+					pos = remapIndex(bytes, pos, remapper); // provides_index.
+					pos = remapIndices(bytes, pos, remapper); // provides_with_index.
+				}
+				return pos;
+			}
+			case "ModuleHashes": {
+				pos = remapIndex(bytes, pos, remapper); // algorithm_index.
+				int hashCount = readTwoByteInt(bytes, pos);
+				pos += 2;
+				for(int i = 0; i < hashCount; i++) {
+					pos = remapIndex(bytes, pos, remapper); // module_name_index.
+					pos += 2 + readTwoByteInt(bytes, pos); // hash_length, hash.
+				}
+				return pos;
+			}
+			default: {
+				throw new UnsupportedOperationException(
+						"Cannot remap the constant pool indices of unknown attribute: " + attrName);
+			}
+		}
+	}
+	
+	private static int readTwoByteInt(byte[] bytes, int pos) {
+		return ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+	}
+	
+	private static int remapIndex(byte[] bytes, int pos, IntUnaryOperator remapper) {
+		int index = remapper.applyAsInt(readTwoByteInt(bytes, pos));
+		bytes[pos] = (byte) (index >>> 8);
+		bytes[pos + 1] = (byte) index;
+		return pos + 2;
+	}
+	
+	private static int remapIndices(byte[] bytes, int pos, IntUnaryOperator remapper) {
+		int count = readTwoByteInt(bytes, pos);
+		pos += 2;
+		for(int i = 0; i < count; i++) {
+			pos = remapIndex(bytes, pos, remapper);
+		}
+		return pos;
+	}
+	
+	private static int remapAnnotations(byte[] bytes, int pos, IntUnaryOperator remapper) {
+		int annotationCount = readTwoByteInt(bytes, pos);
+		pos += 2;
+		for(int i = 0; i < annotationCount; i++) {
+			pos = remapAnnotation(bytes, pos, remapper);
+		}
+		return pos;
+	}
+	
+	private static int remapAnnotation(byte[] bytes, int pos, IntUnaryOperator remapper) {
+		pos = remapIndex(bytes, pos, remapper); // type_index.
+		int pairCount = readTwoByteInt(bytes, pos);
+		pos += 2;
+		for(int i = 0; i < pairCount; i++) {
+			pos = remapIndex(bytes, pos, remapper); // element_name_index.
+			pos = remapElementValue(bytes, pos, remapper);
+		}
+		return pos;
+	}
+	
+	private static int remapElementValue(byte[] bytes, int pos, IntUnaryOperator remapper) {
+		char tag = (char) bytes[pos++];
+		switch(tag) {
+			case 'B': case 'C': case 'D': case 'F': case 'I': case 'J': case 'S': case 'Z': case 's': case 'c': {
+				return remapIndex(bytes, pos, remapper); // const_value_index or class_info_index.
+			}
+			case 'e': {
+				pos = remapIndex(bytes, pos, remapper); // type_name_index.
+				return remapIndex(bytes, pos, remapper); // const_name_index.
+			}
+			case '@': {
+				return remapAnnotation(bytes, pos, remapper);
+			}
+			case '[': {
+				int valueCount = readTwoByteInt(bytes, pos);
+				pos += 2;
+				for(int i = 0; i < valueCount; i++) {
+					pos = remapElementValue(bytes, pos, remapper);
+				}
+				return pos;
+			}
+			default: {
+				throw new IllegalStateException("Invalid annotation element value tag: " + tag);
+			}
+		}
+	}
+	
+	private static int skipTypeAnnotationTarget(byte[] bytes, int pos) {
+		int targetType = bytes[pos++] & 0xFF;
+		switch(targetType) {
+			case 0x00: case 0x01: case 0x16: { // type_parameter_target, formal_parameter_target.
+				pos += 1;
+				break;
+			}
+			case 0x10: case 0x11: case 0x12: case 0x17: // supertype_target, type_parameter_bound_target, throws_target.
+			case 0x42: case 0x43: case 0x44: case 0x45: case 0x46: { // catch_target, offset_target.
+				pos += 2;
+				break;
+			}
+			case 0x13: case 0x14: case 0x15: { // empty_target.
+				break;
+			}
+			case 0x40: case 0x41: { // localvar_target.
+				pos += 2 + 6 * readTwoByteInt(bytes, pos);
+				break;
+			}
+			case 0x47: case 0x48: case 0x49: case 0x4A: case 0x4B: { // type_argument_target.
+				pos += 3;
+				break;
+			}
+			default: {
+				throw new IllegalStateException("Invalid type annotation target type: " + targetType);
+			}
+		}
+		return pos + 1 + 2 * (bytes[pos] & 0xFF); // type_path.
 	}
 	
 	@Override
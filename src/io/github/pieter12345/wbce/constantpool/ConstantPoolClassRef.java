@@ -1,9 +1,10 @@
 package io.github.pieter12345.wbce.constantpool;
 
 import java.io.IOException;
+import java.util.function.IntUnaryOperator;
 
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 
@@ -22,17 +23,24 @@ public class ConstantPoolClassRef implements ConstantPoolObject {
 		return ConstantPoolType.CLASS_REF;
 	}
 	
-	public static ConstantPoolObject fromInputStream(FancyInputStream inStream) throws IOException {
-		return new ConstantPoolClassRef(inStream.readTwoByteInt());
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return new ConstantPoolClassRef(reader.readTwoByteInt());
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.write(this.getType().getTagByte());
-		outStream.writeTwoByteInteger(this.index);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 1 + this.getType().getDataSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeTwoByteInteger(this.index);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper) {
+		this.index = remapper.applyAsInt(this.index);
 	}
 	
 	public int getIndex() {
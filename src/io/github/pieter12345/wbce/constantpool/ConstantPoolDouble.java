@@ -3,8 +3,8 @@ package io.github.pieter12345.wbce.constantpool;
 import java.io.IOException;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 
 public class ConstantPoolDouble implements ConstantPoolObject {
@@ -22,17 +22,19 @@ public class ConstantPoolDouble implements ConstantPoolObject {
 		return ConstantPoolType.DOUBLE;
 	}
 	
-	public static ConstantPoolObject fromInputStream(FancyInputStream inStream) throws IOException {
-		return new ConstantPoolDouble(inStream.readDouble());
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return new ConstantPoolDouble(reader.readDouble());
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.write(this.getType().getTagByte());
-		outStream.writeDouble(this.value);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 1 + this.getType().getDataSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeDouble(this.value);
 	}
 	
 	public double getValue() {
@@ -3,8 +3,8 @@ package io.github.pieter12345.wbce.constantpool;
 import java.io.IOException;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 
 public class ConstantPoolFloat implements ConstantPoolObject {
@@ -22,17 +22,19 @@ public class ConstantPoolFloat implements ConstantPoolObject {
 		return ConstantPoolType.FLOAT;
 	}
 	
-	public static ConstantPoolObject fromInputStream(FancyInputStream inStream) throws IOException {
-		return new ConstantPoolFloat(inStream.readFloat());
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return new ConstantPoolFloat(reader.readFloat());
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.write(this.getType().getTagByte());
-		outStream.writeFloat(this.value);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 1 + this.getType().getDataSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeFloat(this.value);
 	}
 	
 	public float getValue() {
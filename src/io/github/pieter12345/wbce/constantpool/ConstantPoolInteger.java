@@ -3,8 +3,8 @@ package io.github.pieter12345.wbce.constantpool;
 import java.io.IOException;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 
 public class ConstantPoolInteger implements ConstantPoolObject {
@@ -22,17 +22,19 @@ public class ConstantPoolInteger implements ConstantPoolObject {
 		return ConstantPoolType.INTEGER;
 	}
 	
-	public static ConstantPoolObject fromInputStream(FancyInputStream inStream) throws IOException {
-		return new ConstantPoolInteger(inStream.readFourByteInt());
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return new ConstantPoolInteger(reader.readFourByteInt());
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.write(this.getType().getTagByte());
-		outStream.writeFourByteInteger(this.value);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 1 + this.getType().getDataSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeFourByteInteger(this.value);
 	}
 	
 	public int getValue() {
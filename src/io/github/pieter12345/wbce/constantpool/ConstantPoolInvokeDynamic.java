@@ -1,10 +1,11 @@
 package io.github.pieter12345.wbce.constantpool;
 
 import java.io.IOException;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 
 public class ConstantPoolInvokeDynamic implements ConstantPoolObject {
@@ -24,18 +25,25 @@ public class ConstantPoolInvokeDynamic implements ConstantPoolObject {
 		return ConstantPoolType.INVOKEDYNAMIC;
 	}
 	
-	public static ConstantPoolObject fromInputStream(FancyInputStream inStream) throws IOException {
-		return new ConstantPoolInvokeDynamic(inStream.readTwoByteInt(), inStream.readTwoByteInt());
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return new ConstantPoolInvokeDynamic(reader.readTwoByteInt(), reader.readTwoByteInt());
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.write(this.getType().getTagByte());
-		outStream.writeTwoByteInteger(this.bootstrapMethodAttrIndex);
-		outStream.writeTwoByteInteger(this.nameAndTypeDescIndex);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 1 + this.getType().getDataSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeTwoByteInteger(this.bootstrapMethodAttrIndex);
+		writer.writeTwoByteInteger(this.nameAndTypeDescIndex);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper) {
+		this.nameAndTypeDescIndex = remapper.applyAsInt(this.nameAndTypeDescIndex);
 	}
 	
 	public int getBootstrapMethodAttrIndex() {
@@ -1,10 +1,11 @@
 package io.github.pieter12345.wbce.constantpool;
 
 import java.io.IOException;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 
 public class ConstantPoolMethodHandle implements ConstantPoolObject {
@@ -24,18 +25,25 @@ public class ConstantPoolMethodHandle implements ConstantPoolObject {
 		return ConstantPoolType.METHOD_HANDLE;
 	}
 	
-	public static ConstantPoolObject fromInputStream(FancyInputStream inStream) throws IOException {
-		return new ConstantPoolMethodHandle(inStream.readByte(), inStream.readTwoByteInt());
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return new ConstantPoolMethodHandle(reader.readByte(), reader.readTwoByteInt());
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.write(this.getType().getTagByte());
-		outStream.write(this.refKind);
-		outStream.writeTwoByteInteger(this.refIndex);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 1 + this.getType().getDataSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeByte(this.refKind);
+		writer.writeTwoByteInteger(this.refIndex);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper) {
+		this.refIndex = remapper.applyAsInt(this.refIndex);
 	}
 	
 	public byte getRefKind() {
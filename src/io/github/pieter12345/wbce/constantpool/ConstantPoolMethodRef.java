@@ -1,10 +1,11 @@
 package io.github.pieter12345.wbce.constantpool;
 
 import java.io.IOException;
+import java.util.function.IntUnaryOperator;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 
 public class ConstantPoolMethodRef implements ConstantPoolObject {
@@ -24,18 +25,26 @@ public class ConstantPoolMethodRef implements ConstantPoolObject {
 		return ConstantPoolType.METHOD_REF;
 	}
 	
-	public static ConstantPoolObject fromInputStream(FancyInputStream inStream) throws IOException {
-		return new ConstantPoolMethodRef(inStream.readTwoByteInt(), inStream.readTwoByteInt());
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return new ConstantPoolMethodRef(reader.readTwoByteInt(), reader.readTwoByteInt());
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.write(this.getType().getTagByte());
-		outStream.writeTwoByteInteger(this.classIndex);
-		outStream.writeTwoByteInteger(this.nameAndTypeIndex);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 1 + this.getType().getDataSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeTwoByteInteger(this.classIndex);
+		writer.writeTwoByteInteger(this.nameAndTypeIndex);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper) {
+		this.classIndex = remapper.applyAsInt(this.classIndex);
+		this.nameAndTypeIndex = remapper.applyAsInt(this.nameAndTypeIndex);
 	}
 	
 	public int getClassIndex() {
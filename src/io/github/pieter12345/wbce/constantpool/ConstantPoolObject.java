@@ -1,11 +1,40 @@
 package io.github.pieter12345.wbce.constantpool;
 
+import java.util.function.IntUnaryOperator;
+
 import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
 
 public interface ConstantPoolObject {
 	public ConstantPoolType getType();
-	public byte[] toBytes();
+	
+	/**
+	 * Gets the size of this object in the class file format, including the tag byte.
+	 * @return The size in bytes.
+	 */
+	public int getByteSize();
+	
+	/**
+	 * Writes this object in the class file format, including the tag byte.
+	 * @param writer - The writer to write to, which must have {@link #getByteSize()} bytes left.
+	 */
+	public void writeTo(FancyByteArrayWriter writer);
+	
+	public default byte[] toBytes() {
+		FancyByteArrayWriter writer = new FancyByteArrayWriter(this.getByteSize());
+		this.writeTo(writer);
+		return writer.toByteArray();
+	}
+	
+	/**
+	 * Replaces every constant pool index that this object refers to by the index that the given remapper maps it to.
+	 * Objects that do not refer to other constant pool objects are left unchanged.
+	 * @param remapper - The function mapping current constant pool indices to new constant pool indices.
+	 */
+	public default void remapConstPoolIndices(IntUnaryOperator remapper) {
+	}
+	
 	public String val(ClassConstantPool constPool);
 	public String simpleVal(ClassConstantPool constPool);
 }
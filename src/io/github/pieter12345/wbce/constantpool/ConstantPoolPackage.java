@@ -0,0 +1,66 @@
+package io.github.pieter12345.wbce.constantpool;
+
+import java.io.IOException;
+import java.util.function.IntUnaryOperator;
+
+import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
+import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
+
+public class ConstantPoolPackage implements ConstantPoolObject {
+	
+	// Variables & Constants.
+	private int nameIndex;
+	
+	// Constructor.
+	public ConstantPoolPackage(int index) {
+		this.nameIndex = index;
+	}
+	
+	@Override
+	public ConstantPoolType getType() {
+		return ConstantPoolType.PACKAGE;
+	}
+	
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		return new ConstantPoolPackage(reader.readTwoByteInt());
+	}
+	
+	@Override
+	public int getByteSize() {
+		return 1 + this.getType().getDataSize();
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeTwoByteInteger(this.nameIndex);
+	}
+	
+	@Override
+	public void remapConstPoolIndices(IntUnaryOperator remapper) {
+		this.nameIndex = remapper.applyAsInt(this.nameIndex);
+	}
+	
+	public int getIndex() {
+		return this.nameIndex;
+	}
+	
+	public void setIndex(int index) {
+		this.nameIndex = index;
+	}
+	
+	@Override
+	public String val(ClassConstantPool constPool) {
+		return "Package name index: " + this.nameIndex + "->"
+				+ (constPool != null && constPool.size() >= this.nameIndex ?
+						constPool.get(this.nameIndex).val(constPool) : "~UNKNOWN VALUE");
+	}
+	
+	@Override
+	public String simpleVal(ClassConstantPool constPool) {
+		return (constPool != null && constPool.size() >= this.nameIndex ?
+				constPool.get(this.nameIndex).simpleVal(constPool) : "~UNKNOWN_VALUE");
+	}
+}
@@ -1,24 +1,35 @@
 package io.github.pieter12345.wbce.constantpool;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 
 import io.github.pieter12345.wbce.ClassConstantPool;
-import io.github.pieter12345.wbce.FancyByteArrayOutputStream;
-import io.github.pieter12345.wbce.FancyInputStream;
+import io.github.pieter12345.wbce.FancyByteArrayWriter;
+import io.github.pieter12345.wbce.FancyByteBufferReader;
 import io.github.pieter12345.wbce.ClassConstantPool.ConstantPoolType;
+import io.github.pieter12345.wbce.utils.ModifiedUTF8;
 
 public class ConstantPoolString implements ConstantPoolObject {
 	
 	// Variables & Constants.
 	private byte[] strBytes;
+	private String str; // Lazily decoded from strBytes.
 	
 	// Constructor.
 	public ConstantPoolString(byte[] strBytes) {
 		this.strBytes = strBytes;
 	}
 	public ConstantPoolString(String str) {
-		this.strBytes = str.getBytes(StandardCharsets.UTF_8);
+		this.strBytes = ModifiedUTF8.encode(str);
+	}
+	
+	/**
+	 * Creates a new {@link ConstantPoolString} with an already decoded value.
+	 * @param strBytes - The modified UTF-8 bytes.
+	 * @param str - The string value of the given bytes.
+	 */
+	public ConstantPoolString(byte[] strBytes, String str) {
+		this.strBytes = strBytes;
+		this.str = str;
 	}
 	
 	@Override
@@ -26,32 +37,49 @@ public class ConstantPoolString implements ConstantPoolObject {
 		return ConstantPoolType.STRING;
 	}
 	
-	public static ConstantPoolObject fromInputStream(FancyInputStream inStream) throws IOException {
-		int strSize = inStream.readTwoByteInt();
-		byte[] strBytes = new byte[strSize];
-		inStream.read(strBytes, 0, strSize);
+	public static ConstantPoolObject fromByteBuffer(FancyByteBufferReader reader) throws IOException {
+		int strSize = reader.readTwoByteInt();
+		byte[] strBytes = reader.readBytes(strSize);
 		return new ConstantPoolString(strBytes);
 	}
 	
 	@Override
-	public byte[] toBytes() {
-		@SuppressWarnings("resource")
-		FancyByteArrayOutputStream outStream = new FancyByteArrayOutputStream();
-		outStream.write(this.getType().getTagByte());
-		outStream.writeTwoByteInteger(this.strBytes.length);
-		outStream.write(this.strBytes);
-		return outStream.toByteArray();
+	public int getByteSize() {
+		return 3 + this.strBytes.length;
+	}
+	
+	@Override
+	public void writeTo(FancyByteArrayWriter writer) {
+		writer.writeByte(this.getType().getTagByte());
+		writer.writeTwoByteInteger(this.strBytes.length);
+		writer.write(this.strBytes);
 	}
 	
+	/**
+	 * Gets the string value, decoded from the modified UTF-8 bytes. The decoded value is cached.
+	 * @return The string value.
+	 */
 	public String getString() {
-		return new String(this.strBytes, StandardCharsets.UTF_8);
+		String str = this.str;
+		if(str == null) {
+			str = ModifiedUTF8.decode(this.strBytes);
+			this.str = str;
+		}
+		return str;
+	}
+	
+	/**
+	 * Gets the modified UTF-8 bytes. These bytes might be shared with other objects through a
+	 * {@link io.github.pieter12345.wbce.SymbolTable SymbolTable}, so they should not be modified.
+	 * Use {@link #setString(byte[])} to change the value instead.
+	 * @return The modified UTF-8 bytes.
+	 */
+	public byte[] getBytes() {
+		return this.strBytes;
 	}
 	
 	public void setString(String str) {
-		if(str.length() > 65535) {
-			throw new RuntimeException("Max string size is 65535. Found string of size: " + str.length());
-		}
-		this.strBytes = str.getBytes(StandardCharsets.UTF_8);
+		this.setString(ModifiedUTF8.encode(str));
 	}
 	
 	public void setString(byte[] strBytes) {
@@ -59,11 +87,12 @@ public class ConstantPoolString implements ConstantPoolObject {
 			throw new RuntimeException("Max string size is 65535. Found string of size: " + strBytes.length);
 		}
 		this.strBytes = strBytes;
+		this.str = null;
 	}
 	
 	@Override
 	public String val(ClassConstantPool constPool) {
-		return new String(this.strBytes, StandardCharsets.UTF_8);
+		return this.getString();
 	}
 	
 	@Override
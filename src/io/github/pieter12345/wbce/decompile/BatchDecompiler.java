@@ -0,0 +1,404 @@
+package io.github.pieter12345.wbce.decompile;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.github.pieter12345.wbce.ClassFile;
+import io.github.pieter12345.wbce.ReadOption;
+import io.github.pieter12345.wbce.attribute.AttributeDecoderRegistry;
+import io.github.pieter12345.wbce.jar.MappedJarFile;
+
+/**
+ * Decompiles all classes in a jar file or directory through a pipeline with a read, parse, decompile and write stage.
+ * Every stage runs on its own executor. The amount of classes in the pipeline is bounded, so reading blocks when the
+ * later stages cannot keep up. Classes are written in the sorted order of their file names and failures are
+ * collected per class without stopping the other classes.
+ * @author P.J.S. Kools
+ */
+public class BatchDecompiler {
+	
+	// Variables & Constants.
+	private final int readThreadCount;
+	private final int parseThreadCount;
+	private final int decompileThreadCount;
+	private final int maxPendingClasses;
+	private MethodDecompileCache methodCache = null;
+	private AttributeDecoderRegistry attrDecoderRegistry = null;
+	
+	/**
+	 * Creates a new {@link BatchDecompiler} that uses all available processors.
+	 */
+	public BatchDecompiler() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Creates a new {@link BatchDecompiler} that decompiles using the given amount of threads.
+	 * @param threadCount - The amount of decompile threads.
+	 */
+	public BatchDecompiler(int threadCount) {
+		this(1, Math.max(threadCount / 2, 1), threadCount, threadCount * 4);
+	}
+	
+	/**
+	 * Creates a new {@link BatchDecompiler}.
+	 * @param readThreadCount - The amount of threads reading class files.
+	 * @param parseThreadCount - The amount of threads parsing class files.
+	 * @param decompileThreadCount - The amount of threads decompiling classes.
+	 * @param maxPendingClasses - The maximum amount of classes that have been read, but not yet written.
+	 */
+	public BatchDecompiler(int readThreadCount, int parseThreadCount, int decompileThreadCount, int maxPendingClasses) {
+		if(readThreadCount < 1 || parseThreadCount < 1 || decompileThreadCount < 1 || maxPendingClasses < 1) {
+			throw new IllegalArgumentException("Thread counts and the maximum amount of pending classes must be positive.");
+		}
+		this.readThreadCount = readThreadCount;
+		this.parseThreadCount = parseThreadCount;
+		this.decompileThreadCount = decompileThreadCount;
+		this.maxPendingClasses = maxPendingClasses;
+	}
+	
+	/**
+	 * Gets the cache that decompiled methods are stored in and taken from.
+	 * @return The method cache, or null if all methods are decompiled.
+	 */
+	public MethodDecompileCache getMethodCache() {
+		return this.methodCache;
+	}
+	
+	/**
+	 * Sets the cache that decompiled methods are stored in and taken from. Using the same cache with a persistent
+	 * directory for every build of an artifact means that only the methods that changed are decompiled again.
+	 * @param methodCache - The method cache, or null to decompile all methods.
+	 */
+	public void setMethodCache(MethodDecompileCache methodCache) {
+		this.methodCache = methodCache;
+	}
+	
+	/**
+	 * Gets the registry that attributes of the parsed class files are decoded with.
+	 * @return The registry, or null if the default registry is used.
+	 */
+	public AttributeDecoderRegistry getAttributeDecoderRegistry() {
+		return this.attrDecoderRegistry;
+	}
+	
+	/**
+	 * Sets the registry that attributes of the parsed class files are decoded with.
+	 * @param attrDecoderRegistry - The registry, or null to use the default registry.
+	 */
+	public void setAttributeDecoderRegistry(AttributeDecoderRegistry attrDecoderRegistry) {
+		this.attrDecoderRegistry = attrDecoderRegistry;
+	}
+	
+	/**
+	 * Decompiles all class files in the given jar file or directory. For every class file "path/Name.class",
+	 * the decompiled source is written to "path/Name.java" in the given output directory.
+	 * @param input - The jar file or directory to read the class files from.
+	 * @param outputDir - The directory to write the decompiled classes to.
+	 * @return The result, containing the failures of classes that could not be decompiled.
+	 * @throws IOException If the input could not be listed.
+	 * @throws InterruptedException If the current thread was interrupted while waiting for the pipeline.
+	 */
+	public BatchResult decompile(File input, File outputDir) throws IOException, InterruptedException {
+		MappedJarFile jarFile = (input.isDirectory() ? null : new MappedJarFile(input));
+		ExecutorService readExecutor = null;
+		ExecutorService parseExecutor = null;
+		ExecutorService decompileExecutor = null;
+		ExecutorService writeExecutor = null;
+		try {
+			
+			// List the class files, sorted to get a deterministic output order.
+			List<String> classFileNames = new ArrayList<String>();
+			if(jarFile == null) {
+				listClassFiles(input, "", classFileNames);
+			} else {
+				for(MappedJarFile.Entry entry : jarFile.getEntries()) {
+					if(!entry.isDirectory() && entry.getName().endsWith(".class")) {
+						classFileNames.add(entry.getName());
+					}
+				}
+			}
+			Collections.sort(classFileNames);
+			
+			// Create the stage executors.
+			readExecutor = Executors.newFixedThreadPool(this.readThreadCount, new StageThreadFactory(Stage.READ));
+			parseExecutor = Executors.newFixedThreadPool(this.parseThreadCount, new StageThreadFactory(Stage.PARSE));
+			decompileExecutor = Executors.newFixedThreadPool(
+					this.decompileThreadCount, new StageThreadFactory(Stage.DECOMPILE));
+			writeExecutor = Executors.newSingleThreadExecutor(new StageThreadFactory(Stage.WRITE));
+			
+			// Start the writer, which writes the classes in the order in which they were submitted.
+			final int classCount = classFileNames.size();
+			final BlockingQueue<CompletableFuture<ClassTask>> pending =
+					new ArrayBlockingQueue<CompletableFuture<ClassTask>>(this.maxPendingClasses);
+			Future<BatchResult> writeFuture = writeExecutor.submit(() -> {
+				List<ClassFailure> failures = new ArrayList<ClassFailure>();
+				for(int i = 0; i < classCount; i++) {
+					ClassTask task = pending.take().join();
+					task.write(outputDir);
+					if(task.failure != null) {
+						failures.add(task.failure);
+					}
+				}
+				return new BatchResult(classCount, failures);
+			});
+			
+			// Submit the classes, blocking while the pipeline is full.
+			// Stop submitting when the writer has stopped, so that a write stage failure is thrown instead of waiting
+			// forever for the writer to take the next class.
+			final MappedJarFile source = jarFile;
+			final MethodDecompileCache cache = this.methodCache;
+			final AttributeDecoderRegistry registry = this.attrDecoderRegistry;
+			for(String classFileName : classFileNames) {
+				ClassTask task = new ClassTask(classFileName);
+				CompletableFuture<ClassTask> future = CompletableFuture.supplyAsync(
+						() -> task.read(input, source), readExecutor)
+						.thenApplyAsync((t) -> t.parse(registry), parseExecutor)
+						.thenApplyAsync((t) -> t.decompile(cache), decompileExecutor);
+				boolean submitted = false;
+				while(!submitted && !writeFuture.isDone()) {
+					submitted = pending.offer(future, 100, TimeUnit.MILLISECONDS);
+				}
+				if(!submitted) {
+					future.cancel(false);
+					break;
+				}
+			}
+			
+			// Wait for the writer to finish.
+			try {
+				return writeFuture.get();
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Unexpected exception in the write stage.", e.getCause());
+			}
+		} finally {
+			if(readExecutor != null) {
+				readExecutor.shutdownNow();
+				parseExecutor.shutdownNow();
+				decompileExecutor.shutdownNow();
+				writeExecutor.shutdownNow();
+			}
+			if(jarFile != null) {
+				jarFile.close();
+			}
+		}
+	}
+	
+	private static void listClassFiles(File dir, String path, List<String> classFileNames) throws IOException {
+		File[] files = dir.listFiles();
+		if(files == null) {
+			throw new IOException("Unable to list the files in directory: " + dir.getAbsolutePath());
+		}
+		for(File file : files) {
+			if(file.isDirectory()) {
+				listClassFiles(file, path + file.getName() + "/", classFileNames);
+			} else if(file.getName().endsWith(".class")) {
+				classFileNames.add(path + file.getName());
+			}
+		}
+	}
+	
+	/**
+	 * Represents a single class passing through the pipeline. Every stage does nothing when an earlier stage failed.
+	 */
+	private static class ClassTask {
+		
+		private final String classFileName;
+		private byte[] bytes;
+		private ClassFile classFile;
+		private String decompStr;
+		private ClassFailure failure;
+		
+		private ClassTask(String classFileName) {
+			this.classFileName = classFileName;
+		}
+		
+		private ClassTask read(File input, MappedJarFile jarFile) {
+			try {
+				if(jarFile == null) {
+					this.bytes = Files.readAllBytes(new File(input, this.classFileName).toPath());
+				} else {
+					this.bytes = jarFile.readBytes(jarFile.getEntry(this.classFileName));
+				}
+			} catch (Throwable e) {
+				this.fail(Stage.READ, e);
+			}
+			return this;
+		}
+		
+		private ClassTask parse(AttributeDecoderRegistry attrDecoderRegistry) {
+			if(this.failure == null) {
+				try {
+					this.classFile = ClassFile.read(
+							this.bytes, EnumSet.noneOf(ReadOption.class), null, attrDecoderRegistry);
+				} catch (Throwable e) {
+					this.fail(Stage.PARSE, e);
+				}
+				this.bytes = null;
+			}
+			return this;
+		}
+		
+		private ClassTask decompile(MethodDecompileCache methodCache) {
+			if(this.failure == null) {
+				try {
+					
+					// Classes are already decompiled in parallel, so decompile the methods in this stage thread.
+					this.decompStr = new Decompiler(this.classFile, null, methodCache).decompile();
+				} catch (Throwable e) {
+					this.fail(Stage.DECOMPILE, e);
+				}
+				this.classFile = null;
+			}
+			return this;
+		}
+		
+		private void write(File outputDir) {
+			if(this.failure == null) {
+				try {
+					File outputFile = new File(outputDir, this.classFileName.substring(
+							0, this.classFileName.length() - ".class".length()) + ".java");
+					if(!outputFile.getCanonicalPath().startsWith(outputDir.getCanonicalPath() + File.separator)) {
+						throw new IOException("Class file path points outside of the output directory: "
+								+ this.classFileName);
+					}
+					File parentDir = outputFile.getParentFile();
+					if(!parentDir.isDirectory() && !parentDir.mkdirs()) {
+						throw new IOException("Unable to create directory: " + parentDir.getAbsolutePath());
+					}
+					try(FileOutputStream outStream = new FileOutputStream(outputFile)) {
+						outStream.write(this.decompStr.getBytes(StandardCharsets.UTF_8));
+					}
+				} catch (Throwable e) {
+					this.fail(Stage.WRITE, e);
+				}
+				this.decompStr = null;
+			}
+		}
+		
+		private void fail(Stage stage, Throwable e) {
+			this.failure = new ClassFailure(this.classFileName, stage, e);
+		}
+	}
+	
+	private static class StageThreadFactory implements ThreadFactory {
+		
+		private final Stage stage;
+		private final AtomicInteger threadCount = new AtomicInteger();
+		
+		private StageThreadFactory(Stage stage) {
+			this.stage = stage;
+		}
+		
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, BatchDecompiler.class.getSimpleName() + "-"
+					+ this.stage.name().toLowerCase() + "-" + this.threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+	
+	/**
+	 * Stage enum.
+	 * Contains the stages of the pipeline.
+	 */
+	public static enum Stage {
+		READ,
+		PARSE,
+		DECOMPILE,
+		WRITE;
+	}
+	
+	/**
+	 * Represents a class that could not be decompiled.
+	 */
+	public static class ClassFailure {
+		
+		private final String classFileName;
+		private final Stage stage;
+		private final Throwable exception;
+		
+		private ClassFailure(String classFileName, Stage stage, Throwable exception) {
+			this.classFileName = classFileName;
+			this.stage = stage;
+			this.exception = exception;
+		}
+		
+		/**
+		 * Gets the path of the class file relative to the input jar file or directory.
+		 * @return The class file path.
+		 */
+		public String getClassFileName() {
+			return this.classFileName;
+		}
+		
+		/**
+		 * Gets the stage in which the class failed.
+		 * @return The failed stage.
+		 */
+		public Stage getStage() {
+			return this.stage;
+		}
+		
+		/**
+		 * Gets the exception that caused the failure.
+		 * @return The exception.
+		 */
+		public Throwable getException() {
+			return this.exception;
+		}
+		
+		@Override
+		public String toString() {
+			return this.classFileName + " (" + this.stage + "): " + this.exception;
+		}
+	}
+	
+	/**
+	 * Represents the result of a batch decompilation.
+	 */
+	public static class BatchResult {
+		
+		private final int classCount;
+		private final List<ClassFailure> failures;
+		
+		private BatchResult(int classCount, List<ClassFailure> failures) {
+			this.classCount = classCount;
+			this.failures = Collections.unmodifiableList(failures);
+		}
+		
+		/**
+		 * Gets the amount of class files that were found.
+		 * @return The class count.
+		 */
+		public int getClassCount() {
+			return this.classCount;
+		}
+		
+		/**
+		 * Gets the classes that could not be decompiled, in output order.
+		 * @return The failures.
+		 */
+		public List<ClassFailure> getFailures() {
+			return this.failures;
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package io.github.pieter12345.wbce.decompile;
+
+import java.util.Arrays;
+
+import io.github.pieter12345.wbce.ByteCodeInstruction;
+import io.github.pieter12345.wbce.InstructionTable;
+
+/**
+ * Maps the byte offsets in the code of a method to the indices of the instructions starting at those offsets.
+ * The map is a dense array with an entry for every byte of the code, so every lookup takes constant time.
+ * @author P.J.S. Kools
+ */
+public class ByteCodeOffsetIndex {
+	
+	// Variables & Constants.
+	private final InstructionTable instructions;
+	private final int[] instrIndices;
+	
+	/**
+	 * Creates a new {@link ByteCodeOffsetIndex}.
+	 * @param instructions - The instructions of the method.
+	 */
+	public ByteCodeOffsetIndex(InstructionTable instructions) {
+		this.instructions = instructions;
+		this.instrIndices = new int[instructions.getCodeLength()];
+		Arrays.fill(this.instrIndices, -1);
+		for(int i = 0; i < instructions.size(); i++) {
+			this.instrIndices[instructions.getOffset(i)] = i;
+		}
+	}
+	
+	/**
+	 * Gets the index of the instruction starting at the given byte offset.
+	 * @param offset - The byte offset.
+	 * @return The instruction index or -1 if no instruction starts at the given offset.
+	 */
+	public int getInstrIndex(int offset) {
+		return (offset >= 0 && offset < this.instrIndices.length ? this.instrIndices[offset] : -1);
+	}
+	
+	/**
+	 * Gets the index of the instruction that the given branch instruction jumps to.
+	 * @param branchInstrIndex - The instruction index of the branch instruction.
+	 * @return The instruction index.
+	 * @throws DecompileException If the branch target is outside of the code or in the middle of an instruction.
+	 */
+	public int getBranchTargetIndex(int branchInstrIndex) throws DecompileException {
+		int branchOffset = this.instructions.getSignedArg(branchInstrIndex, 0);
+		int absoluteIndex = this.instructions.getOffset(branchInstrIndex) + branchOffset;
+		int instrIndex = this.getInstrIndex(absoluteIndex);
+		if(instrIndex != -1) {
+			return instrIndex;
+		}
+		String instrName = this.instructions.getInstruction(branchInstrIndex).getInstructionName();
+		if(absoluteIndex < 0 || absoluteIndex >= this.instrIndices.length) {
+			throw new DecompileException("Branch instruction " + instrName + "(instruction index #"
+					+ branchInstrIndex + ") pointed outside of the code."
+					+ " Relative: " + branchOffset + " / Absolute: " + absoluteIndex + " / Code length: "
+					+ this.instrIndices.length);
+		}
+		
+		// Find the instruction containing the target offset.
+		int containingOffset = absoluteIndex;
+		while(this.instrIndices[containingOffset] == -1) {
+			containingOffset--;
+		}
+		int containingInstrIndex = this.instrIndices[containingOffset];
+		ByteCodeInstruction containingInstr = this.instructions.getInstruction(containingInstrIndex);
+		throw new DecompileException("Branch instruction " + instrName + "(instruction index #"
+				+ branchInstrIndex + ") pointed into the middle of instruction "
+				+ containingInstr.getInstructionName() + "(instruction index #"
+				+ containingInstrIndex + ", offset " + containingOffset + ")."
+				+ " Relative: " + branchOffset + " / Absolute: " + absoluteIndex);
+	}
+	
+}
@@ -1,12 +1,12 @@
 package io.github.pieter12345.wbce.decompile;
 
-import java.util.ArrayList;
 import java.util.EmptyStackException;
 import java.util.Map;
 import java.util.Stack;
 
 import io.github.pieter12345.wbce.ByteCodeInstruction;
 import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.InstructionTable;
 import io.github.pieter12345.wbce.ClassMethods.ClassMethod;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolDouble;
 import io.github.pieter12345.wbce.constantpool.ConstantPoolFloat;
@@ -23,32 +23,36 @@ public class CodeBlock {
 	private ClassMethod method;
 	private String[] methodArgTypes;
 	private ClassConstantPool constPool;
-	private ArrayList<ByteCodeEntry> byteCodeEntries;
+	private InstructionTable instructions;
+	private ByteCodeOffsetIndex offsetIndex;
 	private Map<Integer, CodeLabel> labelMap;
 	private CodeLabel label;
 	private CodeLabel[] branchLabels;
 	private ExceptionHandler[] exHandlers;
-	private ByteCodeEntry[] codeEntries;
+	private int startInstrIndex;
+	private int endInstrIndex;
 	private Stack<CodeStackObject> initialStack;
 	private LocalVariableGen localVarMap;
 	
 	public CodeBlock(String className, ClassMethod parentMethod, String[] methodArgTypes, ClassConstantPool constPool,
-			ArrayList<ByteCodeEntry> byteCodeEntries, Map<Integer, CodeLabel> labelMap, CodeLabel label,
-			CodeLabel[] branchLabels, ExceptionHandler[] exHandlers, ByteCodeEntry[] codeEntries,
-			Stack<CodeStackObject> initialStack, LocalVariableGen localVarMap) {
-		if(codeEntries.length == 0) {
-			throw new RuntimeException("codeEntries must not be empty.");
+			InstructionTable instructions, ByteCodeOffsetIndex offsetIndex, Map<Integer, CodeLabel> labelMap,
+			CodeLabel label, CodeLabel[] branchLabels, ExceptionHandler[] exHandlers, int startInstrIndex,
+			int endInstrIndex, Stack<CodeStackObject> initialStack, LocalVariableGen localVarMap) {
+		if(endInstrIndex <= startInstrIndex) {
+			throw new RuntimeException("The code must not be empty.");
 		}
 		this.className = className;
 		this.method = parentMethod;
 		this.methodArgTypes = methodArgTypes;
 		this.constPool = constPool;
-		this.byteCodeEntries = byteCodeEntries;
+		this.instructions = instructions;
+		this.offsetIndex = offsetIndex;
 		this.labelMap = labelMap;
 		this.label = label;
 		this.branchLabels = branchLabels;
 		this.exHandlers = exHandlers;
-		this.codeEntries = codeEntries;
+		this.startInstrIndex = startInstrIndex;
+		this.endInstrIndex = endInstrIndex;
 		this.initialStack = initialStack;
 		this.localVarMap = localVarMap;
 	}
@@ -57,8 +61,20 @@ public class CodeBlock {
 		return this.label;
 	}
 	
-	public ByteCodeEntry[] getCode() {
-		return this.codeEntries;
+	/**
+	 * Gets the instruction index of the first instruction in this code block.
+	 * @return The start instruction index (inclusive).
+	 */
+	public int getStartInstrIndex() {
+		return this.startInstrIndex;
+	}
+	
+	/**
+	 * Gets the instruction index after the last instruction in this code block.
+	 * @return The end instruction index (exclusive).
+	 */
+	public int getEndInstrIndex() {
+		return this.endInstrIndex;
 	}
 	
 	public CodeLabel[] getBranchLabels() {
@@ -70,12 +86,12 @@ public class CodeBlock {
 	}
 	
 	@SuppressWarnings("unchecked")
-	public String toDecompiledCodeString() {
+	public String toDecompiledCodeString() throws DecompileException {
 		
 		// Replace instructions with string representations.
 		Stack<CodeStackObject> stack = (this.initialStack != null ? (Stack<CodeStackObject>) this.initialStack.clone() : new Stack<CodeStackObject>());
 
-		String[] codeStrArray = new String[this.codeEntries.length];
+		String[] codeStrArray = new String[this.endInstrIndex - this.startInstrIndex];
 		for(int i = 0; i < codeStrArray.length; i++) {
 			codeStrArray[i] = null; // Initialize.
 		}
@@ -83,13 +99,11 @@ public class CodeBlock {
 		int objRefVarNum = 0; // Used for naming object references.
 		
 		try {
-			for(int i = 0; i < this.codeEntries.length; i++) {
+			for(int i = 0; i < codeStrArray.length; i++) {
 				Stack<CodeStackObject> stackClone = (Stack<CodeStackObject>) stack.clone();
 				try {
-					ByteCodeEntry instrEntry = this.codeEntries[i];
-					ByteCodeInstruction instr = instrEntry.getInstruction();
-					int[] signedInstrArgs = instrEntry.getSignedInstructionArgs();
-					int[] unsignedInstrArgs = instrEntry.getUnsignedInstructionArgs();
+					int instrTableIndex = this.startInstrIndex + i;
+					ByteCodeInstruction instr = this.instructions.getInstruction(instrTableIndex);
 					
 //					// TODO - Remove debug.
 //					// Print all bytecode instructions with their arguments.
@@ -117,11 +131,11 @@ public class CodeBlock {
 					case fconst_2: stack.push(new CodeStackConstValue(i, (float) 2)); break;
 					case dconst_0: stack.push(new CodeStackConstValue(i, (double) 0)); break;
 					case dconst_1: stack.push(new CodeStackConstValue(i, (double) 1)); break;
-					case bipush: stack.push(new CodeStackConstValue(i, (int) signedInstrArgs[0])); break;
-					case sipush: stack.push(new CodeStackConstValue(i, (int) signedInstrArgs[0])); break;
+					case bipush: stack.push(new CodeStackConstValue(i, (int) this.instructions.getSignedArg(instrTableIndex, 0))); break;
+					case sipush: stack.push(new CodeStackConstValue(i, (int) this.instructions.getSignedArg(instrTableIndex, 0))); break;
 					case ldc:
 					case ldc_w: { // Push String, float, int, Class, MethodType or MethodHandle.
-						ConstantPoolObject constPoolObj = this.constPool.get(unsignedInstrArgs[0]);
+						ConstantPoolObject constPoolObj = this.constPool.get(this.instructions.getArg(instrTableIndex, 0));
 						if(constPoolObj instanceof ConstantPoolStringRef) {
 							stack.push(new CodeStackConstValue(i, constPoolObj.simpleVal(this.constPool))); // Push String.
 						} else if(constPoolObj instanceof ConstantPoolFloat) {
@@ -131,27 +145,27 @@ public class CodeBlock {
 						} else {
 							// Docs state that ldc can also point to "Class", "MethodType" or "MethodHandle".
 							throw new DecompileException(instr.getInstructionName() + " instruction pointed to an "
-									+ "unexpected ConstantPoolObject: " + this.constPool.get(unsignedInstrArgs[0]).getClass().getSimpleName());
+									+ "unexpected ConstantPoolObject: " + this.constPool.get(this.instructions.getArg(instrTableIndex, 0)).getClass().getSimpleName());
 						}
 						break;
 					}
 					case ldc2_w: { // Push long or double.
-						ConstantPoolObject constPoolObj = this.constPool.get(unsignedInstrArgs[0]);
+						ConstantPoolObject constPoolObj = this.constPool.get(this.instructions.getArg(instrTableIndex, 0));
 						if(constPoolObj instanceof ConstantPoolLong) {
 							stack.push(new CodeStackConstValue(i, ((ConstantPoolLong) constPoolObj).getValue())); // Push long.
 						} else if(constPoolObj instanceof ConstantPoolDouble) {
 							stack.push(new CodeStackConstValue(i, ((ConstantPoolDouble) constPoolObj).getValue())); // Push double.
 						} else {
 							throw new DecompileException(instr.getInstructionName() + " instruction pointed to an "
-									+ "unexpected ConstantPoolObject: " + this.constPool.get(unsignedInstrArgs[0]).getClass().getSimpleName());
+									+ "unexpected ConstantPoolObject: " + this.constPool.get(this.instructions.getArg(instrTableIndex, 0)).getClass().getSimpleName());
 						}
 						break;
 					}
-					case iload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(unsignedInstrArgs[0]).getName(), "int")); break;
-					case lload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(unsignedInstrArgs[0]).getName(), "long")); break;
-					case fload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(unsignedInstrArgs[0]).getName(), "float")); break;
-					case dload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(unsignedInstrArgs[0]).getName(), "double")); break;
-					case aload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(unsignedInstrArgs[0]).getName(), this.localVarMap.getVar(unsignedInstrArgs[0]).getReturnType())); break;
+					case iload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(this.instructions.getArg(instrTableIndex, 0)).getName(), "int")); break;
+					case lload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(this.instructions.getArg(instrTableIndex, 0)).getName(), "long")); break;
+					case fload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(this.instructions.getArg(instrTableIndex, 0)).getName(), "float")); break;
+					case dload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(this.instructions.getArg(instrTableIndex, 0)).getName(), "double")); break;
+					case aload: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(this.instructions.getArg(instrTableIndex, 0)).getName(), this.localVarMap.getVar(this.instructions.getArg(instrTableIndex, 0)).getReturnType())); break;
 					case iload_0: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(0, "int").getName(), "int")); break;
 					case iload_1: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(1, "int").getName(), "int")); break;
 					case iload_2: stack.push(new CodeStackVariable(i, this.localVarMap.getVar(2, "int").getName(), "int")); break;
@@ -266,7 +280,7 @@ public class CodeBlock {
 					case dstore:
 					case astore: {
 						CodeStackObject codeObj = stack.pop();
-						codeStrArray[i] = this.localVarMap.getVar(unsignedInstrArgs[0], codeObj.getReturnType()).getName() + " = " + codeObj.getDecompStr() + ";";
+						codeStrArray[i] = this.localVarMap.getVar(this.instructions.getArg(instrTableIndex, 0), codeObj.getReturnType()).getName() + " = " + codeObj.getDecompStr() + ";";
 						break;
 					}
 					case istore_0: codeStrArray[i] = this.localVarMap.getVar(0, "int").getName() + " = " + stack.pop().getDecompStr() + ";"; break;
@@ -328,7 +342,7 @@ public class CodeBlock {
 						// Assign array references to variables if an array reference is duplicated.
 						CodeStackObject obj = stack.peek();
 						if(obj.getReturnType().endsWith("[]") && codeStrArray[obj.getInstructionIndex()] == null) {
-							ByteCodeInstruction objInstr = this.codeEntries[obj.getInstructionIndex()].getInstruction();
+							ByteCodeInstruction objInstr = this.instructions.getInstruction(this.startInstrIndex + obj.getInstructionIndex());
 							if(objInstr == ByteCodeInstruction.newarray
 									|| objInstr == ByteCodeInstruction.anewarray || objInstr == ByteCodeInstruction.multianewarray) {
 								String arrayRef = "obj" + objRefVarNum++;
@@ -443,10 +457,10 @@ public class CodeBlock {
 					case ixor: this.handleMathOperator(i, stack, '^', "int"); break;
 					case lxor: this.handleMathOperator(i, stack, '^', "long"); break;
 					case iinc: {
-						String sign = (signedInstrArgs[1] >= 0 ? "+" : "-");
-						int absVal = (signedInstrArgs[1] >= 0 ? signedInstrArgs[1] : -signedInstrArgs[1]);
-						codeStrArray[i] = this.localVarMap.getVar(unsignedInstrArgs[0]).getName()
-								+ (signedInstrArgs[1] == 1 || signedInstrArgs[1] == -1 ? sign + sign : " " + sign + "= " + absVal) + ";";
+						String sign = (this.instructions.getSignedArg(instrTableIndex, 1) >= 0 ? "+" : "-");
+						int absVal = (this.instructions.getSignedArg(instrTableIndex, 1) >= 0 ? this.instructions.getSignedArg(instrTableIndex, 1) : -this.instructions.getSignedArg(instrTableIndex, 1));
+						codeStrArray[i] = this.localVarMap.getVar(this.instructions.getArg(instrTableIndex, 0)).getName()
+								+ (this.instructions.getSignedArg(instrTableIndex, 1) == 1 || this.instructions.getSignedArg(instrTableIndex, 1) == -1 ? sign + sign : " " + sign + "= " + absVal) + ";";
 						break;
 					}
 					case i2l: stack.push(new CodeStackCode(i, "(long) (" + stack.pop().getDecompStr() + ")", "long")); break;
@@ -483,7 +497,7 @@ public class CodeBlock {
 					case if_icmple: codeStrArray[i] = this.handleIfXInstruction(i, stack, "<=", false); break;
 					case if_acmpeq: codeStrArray[i] = this.handleIfXInstruction(i, stack, "==", false); break;
 					case if_acmpne: codeStrArray[i] = this.handleIfXInstruction(i, stack, "!=", false); break;
-					case _goto: codeStrArray[i] = "goto " + labelMap.get(this.getInstrIndexForBranch(byteCodeEntries, instrEntry)) + ";"; break;
+					case _goto: codeStrArray[i] = "goto " + labelMap.get(this.offsetIndex.getBranchTargetIndex(instrTableIndex)) + ";"; break;
 //					case jsr: throw new DecompileException("Found unsupported instruction: " + instr.getInstructionName());
 //					case ret: throw new DecompileException("Found unsupported instruction: " + instr.getInstructionName());
 //					case tableswitch: throw new DecompileException("Found unsupported instruction: " + instr.getInstructionName());
@@ -494,41 +508,12 @@ public class CodeBlock {
 						
 						// lookupswitch: {<0-3 bytes padding> + (int) numberOfCases + (int) defaultRelJumpto
 						// + BranchStackFrame[numberOfCases]} where BranchStackFrame: {(int) key, (int) relJumpto}.
-						byte[] argsBytes = instrEntry.getRawInstructionArgBytes();
-						int argsBytesIndex = 0;
-						int index = instrEntry.getOffset();
-						int paddingOffset = 3 - (index % 4); // Zero padding. Add zeros if index+1 (next int start) is not a multiple of 4.
-						argsBytesIndex += paddingOffset;
-						
-						int defaultRelJumpto = ((argsBytes[argsBytesIndex] & 0xFF) << 24)
-								| ((argsBytes[argsBytesIndex + 1] & 0xFF) << 16)
-								| ((argsBytes[argsBytesIndex + 2] & 0xFF) << 8)
-								| ((argsBytes[argsBytesIndex + 3] & 0xFF)); // Unsigned int.
-						argsBytesIndex += 4;
-						
-						int numberOfCases = ((argsBytes[argsBytesIndex] & 0xFF) << 24)
-								| ((argsBytes[argsBytesIndex + 1] & 0xFF) << 16)
-								| ((argsBytes[argsBytesIndex + 2] & 0xFF) << 8)
-								| ((argsBytes[argsBytesIndex + 3] & 0xFF)); // Unsigned int.
-						argsBytesIndex += 4;
-						
-//						System.out.println("[DEBUG] lookupswitch padding=" + paddingOffset + " #cases=" + numberOfCases);
-						
+						int defaultRelJumpto = this.instructions.getSwitchDefaultJump(instrTableIndex);
+						int numberOfCases = this.instructions.getSwitchCaseCount(instrTableIndex);
 						String codeStr = "lookupswitch(" + stack.pop().getDecompStr() + "):\n\tdefault: +" + defaultRelJumpto;
 						for(int j = 0; j < numberOfCases; j++) {
-							int caseKey = ((argsBytes[argsBytesIndex] & 0xFF) << 24)
-									| ((argsBytes[argsBytesIndex + 1] & 0xFF) << 16)
-									| ((argsBytes[argsBytesIndex + 2] & 0xFF) << 8)
-									| ((argsBytes[argsBytesIndex + 3] & 0xFF)); // Unsigned int.
-							argsBytesIndex += 4;
-							
-							int caseRelJumpto = ((argsBytes[argsBytesIndex] & 0xFF) << 24)
-									| ((argsBytes[argsBytesIndex + 1] & 0xFF) << 16)
-									| ((argsBytes[argsBytesIndex + 2] & 0xFF) << 8)
-									| ((argsBytes[argsBytesIndex + 3] & 0xFF)); // Unsigned int.
-							argsBytesIndex += 4;
-							
-							codeStr += "\n\t" + caseKey + ": +" + caseRelJumpto;
+							codeStr += "\n\t" + this.instructions.getSwitchCaseKey(instrTableIndex, j)
+									+ ": +" + this.instructions.getSwitchCaseJump(instrTableIndex, j);
 						}
 //						System.out.println("[DEBUG] Adding lookupswitch:\n" + codeStr);
 						codeStrArray[i] = codeStr;
@@ -566,12 +551,12 @@ public class CodeBlock {
 						break;
 					}
 					case getstatic: { // Get static Field value.
-						FieldRefDecoder fieldDecoder = new FieldRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						FieldRefDecoder fieldDecoder = new FieldRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						stack.push(new CodeStackCode(i, "(" + fieldDecoder.getFieldTypeDesc() + ") " + fieldDecoder.getClassName() + "." + fieldDecoder.getFieldName(), fieldDecoder.getFieldTypeDesc()));
 						break;
 					}
 					case putstatic: { // Set static Field value.
-						FieldRefDecoder fieldDecoder = new FieldRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						FieldRefDecoder fieldDecoder = new FieldRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						CodeStackObject valueObj = stack.pop();
 						String valueStr = valueObj.getDecompStr();
 						if(fieldDecoder.getFieldTypeDesc().equals("boolean") && valueObj.getReturnType() != null &&  valueObj.getReturnType().equals("int") && valueObj instanceof CodeStackConstValue) {
@@ -586,14 +571,14 @@ public class CodeBlock {
 						break;
 					}
 					case getfield: { // Get instance Field value.
-						FieldRefDecoder fieldDecoder = new FieldRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						FieldRefDecoder fieldDecoder = new FieldRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						stack.push(new CodeStackCode(i, "(" + fieldDecoder.getFieldTypeDesc() + ") (" + stack.pop().getDecompStr() + ")." + fieldDecoder.getFieldName(), fieldDecoder.getFieldTypeDesc()));
 						break;
 					}
 					case putfield: { // Set instance Field value.
 						CodeStackObject valueObj = stack.pop();
 						String objRefStr = stack.pop().getDecompStr();
-						FieldRefDecoder fieldDecoder = new FieldRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						FieldRefDecoder fieldDecoder = new FieldRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String valueStr = valueObj.getDecompStr();
 						if(fieldDecoder.getFieldTypeDesc().equals("boolean") && valueObj.getReturnType() != null &&  valueObj.getReturnType().equals("int") && valueObj instanceof CodeStackConstValue) {
 							int intVal = (int) ((CodeStackConstValue) valueObj).getValue();
@@ -610,7 +595,7 @@ public class CodeBlock {
 					}
 					case invokevirtual:
 					case invokespecial: {
-						MethodRefDecoder methodDecoder = new MethodRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						MethodRefDecoder methodDecoder = new MethodRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String methodArgs = "";
 						String[] methodArgTypes = methodDecoder.getMethodArgsTypeDesc();
 						for(int argNum = 0; argNum < methodArgTypes.length; argNum++) {
@@ -643,7 +628,7 @@ public class CodeBlock {
 							if(codeStrArray[objRefObj.getInstructionIndex()] != null) {
 								codeStrArray[i] = codeStrArray[objRefObj.getInstructionIndex()] + "(" + methodArgs + ");";
 								codeStrArray[objRefObj.getInstructionIndex()] = null;
-							} else if(this.byteCodeEntries.get(objRefObj.getInstructionIndex()).getInstruction() == ByteCodeInstruction.aload_0) {
+							} else if(this.instructions.getInstruction(objRefObj.getInstructionIndex()) == ByteCodeInstruction.aload_0) {
 								if(!methodArgs.equals("")) {
 									codeStrArray[i] = "this(" + methodArgs + ");";
 									codeStrArray[objRefObj.getInstructionIndex()] = null;
@@ -663,7 +648,7 @@ public class CodeBlock {
 						break;
 					}
 					case invokestatic: {
-						MethodRefDecoder methodDecoder = new MethodRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						MethodRefDecoder methodDecoder = new MethodRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String methodArgs = "";
 						String[] methodArgTypes = methodDecoder.getMethodArgsTypeDesc();
 						for(int argNum = 0; argNum < methodArgTypes.length; argNum++) {
@@ -693,7 +678,7 @@ public class CodeBlock {
 						break;
 					}
 					case invokeinterface: {
-						InterfaceRefDecoder interfaceDecoder = new InterfaceRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						InterfaceRefDecoder interfaceDecoder = new InterfaceRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String methodArgs = "";
 						String[] methodArgTypes = interfaceDecoder.getMethodArgsTypeDesc();
 						for(int argNum = 0; argNum < methodArgTypes.length; argNum++) {
@@ -727,7 +712,7 @@ public class CodeBlock {
 						break;
 					}
 					case invokedynamic: {
-						MethodRefDecoder methodDecoder = new MethodRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						MethodRefDecoder methodDecoder = new MethodRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String methodArgs = "";
 						String[] methodArgTypes = methodDecoder.getMethodArgsTypeDesc();
 						for(int argNum = 0; argNum < methodArgTypes.length; argNum++) {
@@ -757,7 +742,7 @@ public class CodeBlock {
 						break;
 					}
 					case _new: {
-						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String objRef = "obj" + objRefVarNum++;
 						codeStrArray[i] = classDecoder.getClassName() + " " + objRef + " = new " + classDecoder.getClassName();
 						stack.push(new CodeStackCode(i, objRef, classDecoder.getClassName()));
@@ -766,7 +751,7 @@ public class CodeBlock {
 					}
 					case newarray: {
 						String type;
-						switch(unsignedInstrArgs[0]) {
+						switch(this.instructions.getArg(instrTableIndex, 0)) {
 						case 4: type = "boolean"; break;
 						case 5: type = "char"; break;
 						case 6: type = "float"; break;
@@ -776,13 +761,13 @@ public class CodeBlock {
 						case 10: type = "int"; break;
 						case 11: type = "long"; break;
 						default:
-							throw new DecompileException("Unknown primitive type index found in \"newarray\": " + unsignedInstrArgs[0]);
+							throw new DecompileException("Unknown primitive type index found in \"newarray\": " + this.instructions.getArg(instrTableIndex, 0));
 						}
 						stack.push(new CodeStackCode(i, "new " + type + "[" + stack.pop().getDecompStr() + "]", type + "[]"));
 						break;
 					}
 					case anewarray: {
-						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						if(classDecoder.getArrayDim() != 0) {
 							throw new DecompileException("Instruction anewarray was called with a ClassRef that already"
 									+ " had an array dim specified (multianewarray should have been used): " + classDecoder.getClassName());
@@ -812,7 +797,7 @@ public class CodeBlock {
 						break;
 					}
 					case checkcast: {
-						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String className = classDecoder.getClassName();
 						String codeStr = stack.pop().getDecompStr();
 						if(codeStr.indexOf(' ') != -1) {
@@ -822,7 +807,7 @@ public class CodeBlock {
 						break;
 					}
 					case _instanceof: {
-						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String className = classDecoder.getClassName();
 						String codeStr = stack.pop().getDecompStr();
 						if(codeStr.indexOf(' ') != -1) {
@@ -835,7 +820,7 @@ public class CodeBlock {
 	//				case monitorexit: break;
 	//				case wide: break;
 					case multianewarray: {
-						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, unsignedInstrArgs[0]);
+						ClassRefDecoder classDecoder = new ClassRefDecoder(this.constPool, this.instructions.getArg(instrTableIndex, 0));
 						String codeStr = "";
 						for(int j = 0; j < classDecoder.getArrayDim(); j++) {
 							codeStr = "[" + stack.pop().getDecompStr() + "]" + codeStr;
@@ -846,7 +831,7 @@ public class CodeBlock {
 					}
 					case ifnull: codeStrArray[i] = this.handleIfXInstruction(i, stack, "==", null); break;
 					case ifnonnull: codeStrArray[i] = this.handleIfXInstruction(i, stack, "!=", null); break;
-					case goto_w: codeStrArray[i] = "goto " + labelMap.get(this.getInstrIndexForBranch(byteCodeEntries, instrEntry)) + ";"; break;
+					case goto_w: codeStrArray[i] = "goto " + labelMap.get(this.offsetIndex.getBranchTargetIndex(instrTableIndex)) + ";"; break;
 					case jsr_w: throw new DecompileException("Found unsupported instruction: " + instr.getInstructionName());
 					case breakpoint: throw new DecompileException("Found unsupported instruction: " + instr.getInstructionName());
 					case impdep1: throw new DecompileException("Found unsupported instruction: " + instr.getInstructionName());
@@ -868,22 +853,18 @@ public class CodeBlock {
 				}
 			}
 		} catch (Exception e) {
-			e.printStackTrace();
-			
-			// TODO - Remove after debugging.
 			String methodArgsStr = "";
 			for(String methodArgStr : methodArgTypes) {
 				methodArgsStr += (methodArgsStr.isEmpty() ? "" : ", ") + methodArgStr;
 			}
-			System.out.println("[DEBUG] An exception was thrown, terminating the JVM. Class: " + this.className
-					+ ". Method: " + this.constPool.get(this.method.getNameIndex()).simpleVal(this.constPool) + "(" + methodArgsStr + ")");
-			System.exit(0);
+			throw new DecompileException("Failed to decompile code block. Class: " + this.className + ". Method: "
+					+ this.constPool.get(this.method.getNameIndex()).simpleVal(this.constPool) + "(" + methodArgsStr + ")", e);
 		}
 		
 		// Append unused stack objects to see if code was skipped.
 		while(!stack.isEmpty()) {
 			CodeStackObject unhandledObject = stack.pop();
-			if(stack.isEmpty() && this.codeEntries[this.codeEntries.length - 1].getInstruction() == ByteCodeInstruction.athrow) {
+			if(stack.isEmpty() && this.instructions.getInstruction(this.endInstrIndex - 1) == ByteCodeInstruction.athrow) {
 				break; // The remaining object is a thrown Throwable.
 			}
 			int instrIndex = unhandledObject.getInstructionIndex();
@@ -895,29 +876,21 @@ public class CodeBlock {
 		}
 		
 		// Generate the code string to return. This version only returns code, use the above code for label blocks.
-		String ret = "";
+		StringBuilder ret = new StringBuilder();
 		for(int i = 0; i < codeStrArray.length; i++) {
 			
 			// Add the code.
 			if(codeStrArray[i] != null) {
-				ret += "\n/*" + String.format("%3d", codeEntries[i].getInstructionIndex()) + " */ " + codeStrArray[i];
+				if(ret.length() != 0) {
+					ret.append('\n');
+				}
+				ret.append("/*").append(String.format("%3d", this.startInstrIndex + i)).append(" */ ")
+						.append(codeStrArray[i]);
 			}
 			
 		}
-		return (ret.startsWith("\n") ? ret.substring(1) : ret);
-		
-	}
-	
-	private int getInstrIndexForBranch(ArrayList<ByteCodeEntry> byteCodeEntries, ByteCodeEntry branchCodeEntry) {
-		int branchOffset = branchCodeEntry.getSignedInstructionArgs()[0];
-		int absoluteIndex = branchCodeEntry.getOffset() + branchOffset;
+		return ret.toString();
 		
-		for(int i = 0; i < byteCodeEntries.size(); i++) {
-			if(byteCodeEntries.get(i).getOffset() == absoluteIndex) {
-				return i;
-			}
-		}
-		return -1;
 	}
 	
 	/**
@@ -954,8 +927,7 @@ public class CodeBlock {
 		}
 		
 		// Get the branch label.
-		CodeLabel targetLabel = this.labelMap.get(
-				this.getInstrIndexForBranch(this.byteCodeEntries, this.codeEntries[instrIndex]));
+		CodeLabel targetLabel = this.labelMap.get(this.offsetIndex.getBranchTargetIndex(this.startInstrIndex + instrIndex));
 		String targetLabelStr = (targetLabel.getType() == LabelType.BRANCH_LABEL ? "L" : "CATCH_L") + targetLabel.getId();
 		
 		// Handle "if(someBoolean == 0)" and "if(someBoolean != 0)" and create the statement.
@@ -24,6 +24,11 @@ public class CodeLabel {
 		return other instanceof CodeLabel && ((CodeLabel) other).id == this.id && ((CodeLabel) other).type == this.type;
 	}
 	
+	@Override
+	public int hashCode() {
+		return 31 * this.id + this.type.ordinal();
+	}
+	
 	/**
 	 * toString method.
 	 * @return A String representing this CodeLabel.
@@ -0,0 +1,685 @@
+package io.github.pieter12345.wbce.decompile;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents the control flow graph of a method, where the nodes are the {@link CodeBlock}s of the method and the
+ * edges are the branches, bleeds and exception handler entries between them. Nodes are identified by the index of
+ * their code block in the list the graph was created from, where the first code block is the method entry.
+ * On creation, the dominator tree, the post-dominator tree and the natural loops of the method are computed.
+ * Dominators are computed using the Lengauer-Tarjan algorithm and all traversals are iterative, so that the graph
+ * can be created in near-linear time and without deep recursion for very large methods.
+ * @author P.J.S. Kools
+ */
+public class ControlFlowGraph {
+	
+	// Variables & Constants.
+	private static final int[] EMPTY = new int[0];
+	
+	private final List<CodeBlock> codeBlocks;
+	private final int[][] branchSuccessors;
+	private final int[][] exceptionSuccessors;
+	private final int[][] successors;
+	private final int[][] predecessors;
+	private final int[] reversePostOrder;
+	private final DominatorTree dominatorTree;
+	private final DominatorTree postDominatorTree;
+	private final List<NaturalLoop> loops;
+	private final NaturalLoop[] innermostLoops;
+	private final boolean reducible;
+	
+	/**
+	 * Creates a new {@link ControlFlowGraph}.
+	 * @param codeBlocks - The code blocks of the method, ordered by instruction index, starting at the method entry.
+	 * @throws IllegalArgumentException If a code block branches to or is handled by a label that does not belong to
+	 * any of the given code blocks.
+	 */
+	public ControlFlowGraph(List<CodeBlock> codeBlocks) {
+		this.codeBlocks = codeBlocks;
+		int blockCount = codeBlocks.size();
+		
+		// Map the labels and start instruction indices to their code blocks.
+		Map<CodeLabel, Integer> labelBlocks = new HashMap<CodeLabel, Integer>(blockCount * 2);
+		Map<Integer, Integer> startBlocks = new HashMap<Integer, Integer>(blockCount * 2);
+		for(int i = 0; i < blockCount; i++) {
+			labelBlocks.put(codeBlocks.get(i).getLabel(), i);
+			startBlocks.put(codeBlocks.get(i).getStartInstrIndex(), i);
+		}
+		
+		// Create the edges. Duplicate edges, such as a branch to the next code block, are only added once.
+		this.branchSuccessors = new int[blockCount][];
+		this.exceptionSuccessors = new int[blockCount][];
+		this.successors = new int[blockCount][];
+		int[] predecessorCounts = new int[blockCount];
+		int[] marks = new int[blockCount];
+		Arrays.fill(marks, -1);
+		for(int i = 0; i < blockCount; i++) {
+			CodeBlock block = codeBlocks.get(i);
+			CodeLabel[] branchLabels = block.getBranchLabels();
+			int[] branchTargets = new int[branchLabels.length];
+			int branchCount = 0;
+			for(CodeLabel label : branchLabels) {
+				Integer target = labelBlocks.get(label);
+				if(target == null) {
+					throw new IllegalArgumentException("Code block " + block.getLabel()
+							+ " branches to unknown label: " + label);
+				}
+				if(marks[target] != i) {
+					marks[target] = i;
+					branchTargets[branchCount++] = target;
+				}
+			}
+			ExceptionHandler[] exHandlers = block.getExceptionHandlers();
+			int[] handlerTargets = new int[exHandlers.length];
+			int handlerCount = 0;
+			for(ExceptionHandler exHandler : exHandlers) {
+				Integer target = startBlocks.get(exHandler.getHandlerPc());
+				if(target == null) {
+					throw new IllegalArgumentException("Code block " + block.getLabel()
+							+ " has an exception handler at an unknown instruction index: " + exHandler.getHandlerPc());
+				}
+				if(marks[target] != i) {
+					marks[target] = i;
+					handlerTargets[handlerCount++] = target;
+				}
+			}
+			this.branchSuccessors[i] = (branchCount == 0 ? EMPTY : Arrays.copyOf(branchTargets, branchCount));
+			this.exceptionSuccessors[i] = (handlerCount == 0 ? EMPTY : Arrays.copyOf(handlerTargets, handlerCount));
+			int[] blockSuccessors = Arrays.copyOf(this.branchSuccessors[i], branchCount + handlerCount);
+			System.arraycopy(this.exceptionSuccessors[i], 0, blockSuccessors, branchCount, handlerCount);
+			this.successors[i] = blockSuccessors;
+			for(int successor : blockSuccessors) {
+				predecessorCounts[successor]++;
+			}
+		}
+		this.predecessors = reverseEdges(this.successors, predecessorCounts);
+		
+		// Compute the dominator tree, including the exception edges so that exception handlers are reachable.
+		int[] dfsOrder = new int[blockCount];
+		int[] dfsParents = new int[blockCount];
+		int[] dfsLast = new int[blockCount];
+		int reachableCount = blockCount == 0 ? 0 : depthFirstSearch(this.successors, 0, dfsOrder, dfsParents, dfsLast);
+		this.dominatorTree = new DominatorTree(
+				computeImmediateDominators(this.predecessors, dfsOrder, dfsParents, reachableCount), 0);
+		
+		// Get the reverse post-order of the reachable code blocks from the depth-first search.
+		int[] postOrderNumbers = computePostOrderNumbers(dfsOrder, dfsParents, reachableCount);
+		this.reversePostOrder = new int[reachableCount];
+		for(int i = 0; i < reachableCount; i++) {
+			int block = dfsOrder[i];
+			this.reversePostOrder[reachableCount - 1 - postOrderNumbers[block]] = block;
+		}
+		
+		// Compute the post-dominator tree over the branch edges, using a virtual exit node that all code blocks without
+		// branch successors (return and throw) lead to.
+		int exitNode = blockCount;
+		int[] reverseCounts = new int[blockCount + 1];
+		int[][] exitSuccessors = new int[blockCount + 1][];
+		for(int i = 0; i < blockCount; i++) {
+			exitSuccessors[i] = (this.branchSuccessors[i].length == 0
+					? new int[] {exitNode} : this.branchSuccessors[i]);
+			for(int successor : exitSuccessors[i]) {
+				reverseCounts[successor]++;
+			}
+		}
+		exitSuccessors[exitNode] = EMPTY;
+		int[][] reverseSuccessors = reverseEdges(exitSuccessors, reverseCounts);
+		int[] reverseDfsOrder = new int[blockCount + 1];
+		int[] reverseDfsParents = new int[blockCount + 1];
+		int[] reverseDfsLast = new int[blockCount + 1];
+		int reverseReachableCount = depthFirstSearch(
+				reverseSuccessors, exitNode, reverseDfsOrder, reverseDfsParents, reverseDfsLast);
+		this.postDominatorTree = new DominatorTree(computeImmediateDominators(
+				exitSuccessors, reverseDfsOrder, reverseDfsParents, reverseReachableCount), exitNode);
+		
+		// Find the natural loops. An edge is a back edge when its target dominates its source. A retreating edge in
+		// the depth-first search that is not a back edge indicates an irreducible loop.
+		int[] dfsNumbers = new int[blockCount];
+		Arrays.fill(dfsNumbers, -1);
+		for(int i = 0; i < reachableCount; i++) {
+			dfsNumbers[dfsOrder[i]] = i;
+		}
+		Map<Integer, List<Integer>> loopLatches = new HashMap<Integer, List<Integer>>();
+		boolean reducible = true;
+		for(int i = 0; i < reachableCount; i++) {
+			int block = dfsOrder[i];
+			for(int successor : this.successors[block]) {
+				if(this.dominatorTree.dominates(successor, block)) {
+					List<Integer> latches = loopLatches.get(successor);
+					if(latches == null) {
+						latches = new ArrayList<Integer>(1);
+						loopLatches.put(successor, latches);
+					}
+					latches.add(block);
+				} else if(dfsNumbers[successor] <= dfsNumbers[block] && dfsNumbers[block] <= dfsLast[successor]) {
+					reducible = false;
+				}
+			}
+		}
+		this.reducible = reducible;
+		List<NaturalLoop> loops = new ArrayList<NaturalLoop>(loopLatches.size());
+		int[] visitMarks = new int[blockCount];
+		Arrays.fill(visitMarks, -1);
+		int[] bodyBuffer = new int[blockCount];
+		for(int header : this.reversePostOrder) {
+			List<Integer> latchList = loopLatches.get(header);
+			if(latchList == null) {
+				continue;
+			}
+			
+			// Collect the loop body by walking backwards from the latches until the header is reached.
+			int[] latches = new int[latchList.size()];
+			int bodySize = 0;
+			visitMarks[header] = header;
+			bodyBuffer[bodySize++] = header;
+			for(int i = 0; i < latches.length; i++) {
+				latches[i] = latchList.get(i);
+				if(visitMarks[latches[i]] != header) {
+					visitMarks[latches[i]] = header;
+					bodyBuffer[bodySize++] = latches[i];
+				}
+			}
+			for(int i = 1; i < bodySize; i++) {
+				for(int predecessor : this.predecessors[bodyBuffer[i]]) {
+					if(visitMarks[predecessor] != header && dfsNumbers[predecessor] != -1) {
+						visitMarks[predecessor] = header;
+						bodyBuffer[bodySize++] = predecessor;
+					}
+				}
+			}
+			int[] body = Arrays.copyOf(bodyBuffer, bodySize);
+			Arrays.sort(body);
+			Arrays.sort(latches);
+			loops.add(new NaturalLoop(header, latches, body));
+		}
+		
+		// Nest the loops. Natural loops with different headers are either disjoint or nested, so processing them from
+		// large to small assigns every loop the innermost loop that contains its header as parent.
+		this.innermostLoops = new NaturalLoop[blockCount];
+		List<NaturalLoop> sortedLoops = new ArrayList<NaturalLoop>(loops);
+		Collections.sort(sortedLoops, (loop1, loop2) -> loop2.body.length - loop1.body.length);
+		for(NaturalLoop loop : sortedLoops) {
+			loop.parent = this.innermostLoops[loop.header];
+			loop.depth = (loop.parent == null ? 1 : loop.parent.depth + 1);
+			for(int block : loop.body) {
+				this.innermostLoops[block] = loop;
+			}
+		}
+		this.loops = Collections.unmodifiableList(loops);
+	}
+	
+	/**
+	 * Creates the reverse of the given edges.
+	 * @param edges - The edges, as an array of target nodes per source node.
+	 * @param reverseCounts - The amount of edges to each node.
+	 * @return The reverse edges, as an array of source nodes per target node.
+	 */
+	private static int[][] reverseEdges(int[][] edges, int[] reverseCounts) {
+		int[][] reverse = new int[edges.length][];
+		for(int i = 0; i < edges.length; i++) {
+			reverse[i] = (reverseCounts[i] == 0 ? EMPTY : new int[reverseCounts[i]]);
+		}
+		int[] fill = new int[edges.length];
+		for(int i = 0; i < edges.length; i++) {
+			for(int target : edges[i]) {
+				reverse[target][fill[target]++] = i;
+			}
+		}
+		return reverse;
+	}
+	
+	/**
+	 * Performs an iterative depth-first search from the given root node.
+	 * @param successors - The successors per node.
+	 * @param root - The root node.
+	 * @param order - The array to store the visited nodes in, in pre-order.
+	 * @param parents - The array to store the parent of each visited node in the depth-first search tree in.
+	 * The parent of the root node is -1.
+	 * @param last - The array to store the highest pre-order number of the descendants of each visited node in.
+	 * A node u is a descendant of node v when pre(v) <= pre(u) <= last(v).
+	 * @return The amount of visited nodes.
+	 */
+	private static int depthFirstSearch(int[][] successors, int root, int[] order, int[] parents, int[] last) {
+		int nodeCount = successors.length;
+		boolean[] visited = new boolean[nodeCount];
+		int[] stack = new int[nodeCount];
+		int[] edgeIndices = new int[nodeCount];
+		int count = 0;
+		int stackSize = 0;
+		visited[root] = true;
+		parents[root] = -1;
+		order[count++] = root;
+		stack[stackSize++] = root;
+		while(stackSize > 0) {
+			int node = stack[stackSize - 1];
+			if(edgeIndices[node] < successors[node].length) {
+				int successor = successors[node][edgeIndices[node]++];
+				if(!visited[successor]) {
+					visited[successor] = true;
+					parents[successor] = node;
+					order[count++] = successor;
+					stack[stackSize++] = successor;
+				}
+			} else {
+				last[node] = count - 1;
+				stackSize--;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * Computes the post-order number of each node visited by a depth-first search.
+	 * @param order - The visited nodes in pre-order.
+	 * @param parents - The parent of each visited node in the depth-first search tree.
+	 * @param count - The amount of visited nodes.
+	 * @return The post-order numbers, indexed by node.
+	 */
+	private static int[] computePostOrderNumbers(int[] order, int[] parents, int count) {
+		
+		// A node is finished after all of its descendants, so the post-order number is the pre-order number plus the
+		// amount of descendants minus the amount of nodes before it in pre-order that finished after it (ancestors).
+		int[] depths = new int[order.length];
+		int[] descendantCounts = new int[order.length];
+		for(int i = 1; i < count; i++) {
+			depths[order[i]] = depths[parents[order[i]]] + 1;
+		}
+		for(int i = count - 1; i > 0; i--) {
+			descendantCounts[parents[order[i]]] += descendantCounts[order[i]] + 1;
+		}
+		int[] postOrderNumbers = new int[order.length];
+		for(int i = 0; i < count; i++) {
+			postOrderNumbers[order[i]] = i + descendantCounts[order[i]] - depths[order[i]];
+		}
+		return postOrderNumbers;
+	}
+	
+	/**
+	 * Computes the immediate dominators of the nodes visited by a depth-first search, using the Lengauer-Tarjan
+	 * algorithm with path compression.
+	 * @param predecessors - The predecessors per node.
+	 * @param order - The visited nodes in pre-order, starting with the root node.
+	 * @param parents - The parent of each visited node in the depth-first search tree.
+	 * @param count - The amount of visited nodes.
+	 * @return The immediate dominator per node, or -1 for the root node and nodes that were not visited.
+	 */
+	private static int[] computeImmediateDominators(int[][] predecessors, int[] order, int[] parents, int count) {
+		int nodeCount = predecessors.length;
+		int[] idoms = new int[nodeCount];
+		Arrays.fill(idoms, -1);
+		if(count == 0) {
+			return idoms;
+		}
+		int[] semi = new int[nodeCount]; // Semi-dominator as pre-order number, or -1 if the node was not visited.
+		int[] ancestors = new int[nodeCount]; // Ancestor in the link-eval forest or -1.
+		int[] labels = new int[nodeCount]; // Node with the minimal semi-dominator on the compressed path.
+		int[] bucketHeads = new int[nodeCount];
+		int[] bucketNext = new int[nodeCount];
+		int[] compressStack = new int[nodeCount];
+		Arrays.fill(semi, -1);
+		Arrays.fill(ancestors, -1);
+		Arrays.fill(bucketHeads, -1);
+		for(int i = 0; i < count; i++) {
+			semi[order[i]] = i;
+			labels[order[i]] = order[i];
+		}
+		for(int i = count - 1; i > 0; i--) {
+			int node = order[i];
+			
+			// Compute the semi-dominator.
+			for(int predecessor : predecessors[node]) {
+				if(semi[predecessor] != -1) {
+					int evaluated = eval(predecessor, ancestors, labels, semi, compressStack);
+					if(semi[evaluated] < semi[node]) {
+						semi[node] = semi[evaluated];
+					}
+				}
+			}
+			int semiNode = order[semi[node]];
+			bucketNext[node] = bucketHeads[semiNode];
+			bucketHeads[semiNode] = node;
+			
+			// Link the node to its parent and implicitly define the immediate dominators in the parent's bucket.
+			int parent = parents[node];
+			ancestors[node] = parent;
+			for(int bucketNode = bucketHeads[parent]; bucketNode != -1; bucketNode = bucketNext[bucketNode]) {
+				int evaluated = eval(bucketNode, ancestors, labels, semi, compressStack);
+				idoms[bucketNode] = (semi[evaluated] < semi[bucketNode] ? evaluated : parent);
+			}
+			bucketHeads[parent] = -1;
+		}
+		
+		// Explicitly define the immediate dominators that were deferred.
+		for(int i = 1; i < count; i++) {
+			int node = order[i];
+			if(idoms[node] != order[semi[node]]) {
+				idoms[node] = idoms[idoms[node]];
+			}
+		}
+		return idoms;
+	}
+	
+	private static int eval(int node, int[] ancestors, int[] labels, int[] semi, int[] compressStack) {
+		if(ancestors[node] == -1) {
+			return node;
+		}
+		
+		// Compress the path from the node to the root of its tree in the link-eval forest.
+		int stackSize = 0;
+		for(int current = node; ancestors[ancestors[current]] != -1; current = ancestors[current]) {
+			compressStack[stackSize++] = current;
+		}
+		while(stackSize > 0) {
+			int current = compressStack[--stackSize];
+			int ancestor = ancestors[current];
+			if(semi[labels[ancestor]] < semi[labels[current]]) {
+				labels[current] = labels[ancestor];
+			}
+			ancestors[current] = ancestors[ancestor];
+		}
+		return labels[node];
+	}
+	
+	/**
+	 * Gets the code blocks this graph was created from.
+	 * @return The code blocks, indexed by node.
+	 */
+	public List<CodeBlock> getCodeBlocks() {
+		return this.codeBlocks;
+	}
+	
+	/**
+	 * Gets the code block of the given node.
+	 * @param block - The node.
+	 * @return The code block.
+	 */
+	public CodeBlock getCodeBlock(int block) {
+		return this.codeBlocks.get(block);
+	}
+	
+	/**
+	 * Gets the amount of code blocks in this graph.
+	 * @return The amount of code blocks.
+	 */
+	public int size() {
+		return this.codeBlocks.size();
+	}
+	
+	/**
+	 * Gets the code blocks that the given code block can branch or bleed to.
+	 * The returned array must not be modified.
+	 * @param block - The code block.
+	 * @return The branch successors.
+	 */
+	public int[] getBranchSuccessors(int block) {
+		return this.branchSuccessors[block];
+	}
+	
+	/**
+	 * Gets the exception handler code blocks that can catch exceptions thrown in the given code block.
+	 * The returned array must not be modified.
+	 * @param block - The code block.
+	 * @return The exception handler successors.
+	 */
+	public int[] getExceptionSuccessors(int block) {
+		return this.exceptionSuccessors[block];
+	}
+	
+	/**
+	 * Gets the branch successors, followed by the exception handler successors of the given code block.
+	 * The returned array must not be modified.
+	 * @param block - The code block.
+	 * @return The successors.
+	 */
+	public int[] getSuccessors(int block) {
+		return this.successors[block];
+	}
+	
+	/**
+	 * Gets the code blocks that can branch, bleed or throw to the given code block.
+	 * The returned array must not be modified.
+	 * @param block - The code block.
+	 * @return The predecessors, in ascending order.
+	 */
+	public int[] getPredecessors(int block) {
+		return this.predecessors[block];
+	}
+	
+	/**
+	 * Gets the code blocks that are reachable from the method entry, in reverse post-order. In this order, every code
+	 * block comes before its successors, except for successors reached through a back edge.
+	 * The returned array must not be modified.
+	 * @return The reachable code blocks in reverse post-order.
+	 */
+	public int[] getReversePostOrder() {
+		return this.reversePostOrder;
+	}
+	
+	/**
+	 * Checks whether the given code block is reachable from the method entry.
+	 * @param block - The code block.
+	 * @return True if the code block is reachable, false otherwise.
+	 */
+	public boolean isReachable(int block) {
+		return block == 0 || this.dominatorTree.idoms[block] != -1;
+	}
+	
+	/**
+	 * Gets the immediate dominator of the given code block. Exception handler edges are taken into account.
+	 * @param block - The code block.
+	 * @return The immediate dominator, or -1 for the method entry and unreachable code blocks.
+	 */
+	public int getImmediateDominator(int block) {
+		return this.dominatorTree.idoms[block];
+	}
+	
+	/**
+	 * Checks whether every path from the method entry to code block b passes through code block a.
+	 * Every reachable code block dominates itself.
+	 * @param a - The dominating code block.
+	 * @param b - The dominated code block.
+	 * @return True if a dominates b, false otherwise or if either code block is unreachable.
+	 */
+	public boolean dominates(int a, int b) {
+		return this.dominatorTree.dominates(a, b);
+	}
+	
+	/**
+	 * Gets the immediate post-dominator of the given code block. Only branch edges are taken into account, such
+	 * that the immediate post-dominator of a conditional branch is the code block where its paths join again.
+	 * @param block - The code block.
+	 * @return The immediate post-dominator, or -1 if the code block has no post-dominator. This is the case for code
+	 * blocks that return or throw, code blocks from which paths return or throw in different code blocks and code
+	 * blocks that cannot reach a return or throw.
+	 */
+	public int getImmediatePostDominator(int block) {
+		int idom = this.postDominatorTree.idoms[block];
+		return (idom == this.codeBlocks.size() ? -1 : idom);
+	}
+	
+	/**
+	 * Checks whether every path from code block b to a return or throw passes through code block a.
+	 * Only branch edges are taken into account. Every code block that can reach a return or throw post-dominates
+	 * itself.
+	 * @param a - The post-dominating code block.
+	 * @param b - The post-dominated code block.
+	 * @return True if a post-dominates b, false otherwise.
+	 */
+	public boolean postDominates(int a, int b) {
+		return this.postDominatorTree.dominates(a, b);
+	}
+	
+	/**
+	 * Gets the natural loops in this graph. Back edges to the same loop header are merged into a single loop.
+	 * @return The natural loops, ordered by the reverse post-order of their headers, so that outer loops come before
+	 * the loops nested in them.
+	 */
+	public List<NaturalLoop> getLoops() {
+		return this.loops;
+	}
+	
+	/**
+	 * Gets the innermost natural loop containing the given code block.
+	 * @param block - The code block.
+	 * @return The innermost loop, or null if the code block is not part of any loop.
+	 */
+	public NaturalLoop getInnermostLoop(int block) {
+		return this.innermostLoops[block];
+	}
+	
+	/**
+	 * Checks whether this graph is reducible. In a reducible graph, every loop has a single entry (its header), such
+	 * that all loops are natural loops. Irreducible graphs contain loops that are not returned by {@link #getLoops()}.
+	 * Graphs created from Java source code are reducible, but obfuscated bytecode might not be.
+	 * @return True if this graph is reducible, false otherwise.
+	 */
+	public boolean isReducible() {
+		return this.reducible;
+	}
+	
+	/**
+	 * Represents a dominator tree, supporting constant time dominance checks through the pre-order and post-order
+	 * numbers of its nodes.
+	 */
+	private static class DominatorTree {
+		
+		private final int[] idoms;
+		private final int[] preNumbers;
+		private final int[] postNumbers;
+		
+		private DominatorTree(int[] idoms, int root) {
+			this.idoms = idoms;
+			int nodeCount = idoms.length;
+			
+			// Create the children lists.
+			int[] childCounts = new int[nodeCount];
+			for(int i = 0; i < nodeCount; i++) {
+				if(idoms[i] != -1) {
+					childCounts[idoms[i]]++;
+				}
+			}
+			int[][] children = new int[nodeCount][];
+			for(int i = 0; i < nodeCount; i++) {
+				children[i] = (childCounts[i] == 0 ? EMPTY : new int[childCounts[i]]);
+				childCounts[i] = 0;
+			}
+			for(int i = 0; i < nodeCount; i++) {
+				if(idoms[i] != -1) {
+					children[idoms[i]][childCounts[idoms[i]]++] = i;
+				}
+			}
+			
+			// Number the nodes in the tree. Nodes outside of the tree keep number -1.
+			this.preNumbers = new int[nodeCount];
+			this.postNumbers = new int[nodeCount];
+			Arrays.fill(this.preNumbers, -1);
+			Arrays.fill(this.postNumbers, -1);
+			int[] stack = new int[nodeCount];
+			int[] childIndices = new int[nodeCount];
+			int stackSize = 0;
+			int preCount = 0;
+			int postCount = 0;
+			stack[stackSize++] = root;
+			this.preNumbers[root] = preCount++;
+			while(stackSize > 0) {
+				int node = stack[stackSize - 1];
+				if(childIndices[node] < children[node].length) {
+					int child = children[node][childIndices[node]++];
+					this.preNumbers[child] = preCount++;
+					stack[stackSize++] = child;
+				} else {
+					this.postNumbers[node] = postCount++;
+					stackSize--;
+				}
+			}
+		}
+		
+		private boolean dominates(int a, int b) {
+			return this.preNumbers[a] != -1 && this.preNumbers[b] != -1
+					&& this.preNumbers[a] <= this.preNumbers[b] && this.postNumbers[a] >= this.postNumbers[b];
+		}
+	}
+	
+	/**
+	 * Represents a natural loop: a header code block that dominates the latch code blocks branching back to it,
+	 * together with all code blocks that can reach a latch without passing through the header.
+	 */
+	public static class NaturalLoop {
+		
+		// Variables & Constants.
+		private final int header;
+		private final int[] latches;
+		private final int[] body;
+		private NaturalLoop parent = null;
+		private int depth;
+		
+		private NaturalLoop(int header, int[] latches, int[] body) {
+			this.header = header;
+			this.latches = latches;
+			this.body = body;
+		}
+		
+		/**
+		 * Gets the header of this loop. This is the only code block through which the loop can be entered.
+		 * @return The header code block.
+		 */
+		public int getHeader() {
+			return this.header;
+		}
+		
+		/**
+		 * Gets the code blocks that branch back to the header.
+		 * The returned array must not be modified.
+		 * @return The latch code blocks, in ascending order.
+		 */
+		public int[] getLatches() {
+			return this.latches;
+		}
+		
+		/**
+		 * Gets the code blocks in this loop, including the header, the latches and the blocks of nested loops.
+		 * The returned array must not be modified.
+		 * @return The code blocks, in ascending order.
+		 */
+		public int[] getBlocks() {
+			return this.body;
+		}
+		
+		/**
+		 * Checks whether the given code block is part of this loop.
+		 * @param block - The code block.
+		 * @return True if the code block is part of this loop, false otherwise.
+		 */
+		public boolean contains(int block) {
+			return Arrays.binarySearch(this.body, block) >= 0;
+		}
+		
+		/**
+		 * Gets the innermost loop containing this loop.
+		 * @return The parent loop, or null if this loop is not nested in another loop.
+		 */
+		public NaturalLoop getParent() {
+			return this.parent;
+		}
+		
+		/**
+		 * Gets the nesting depth of this loop.
+		 * @return 1 for outermost loops, 2 for loops directly nested in them, etc.
+		 */
+		public int getDepth() {
+			return this.depth;
+		}
+		
+		@Override
+		public String toString() {
+			return NaturalLoop.class.getSimpleName() + "{header=" + this.header
+					+ ", latches=" + Arrays.toString(this.latches) + ", blocks=" + Arrays.toString(this.body)
+					+ ", depth=" + this.depth + "}";
+		}
+	}
+}
@@ -1,14 +1,24 @@
 package io.github.pieter12345.wbce.decompile;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import io.github.pieter12345.wbce.ByteCodeInstruction;
 import io.github.pieter12345.wbce.ClassConstantPool;
 import io.github.pieter12345.wbce.ClassFile;
+import io.github.pieter12345.wbce.InstructionTable;
 import io.github.pieter12345.wbce.ClassFields.ClassField;
 import io.github.pieter12345.wbce.ClassInterfaces.ClassInterface;
 import io.github.pieter12345.wbce.ClassMethods.ClassMethod;
@@ -20,22 +30,93 @@ public class Decompiler {
 	
 	// Variables & Constants.
 	private final ClassFile classFile;
+	private final ForkJoinPool methodPool;
+	private final MethodDecompileCache methodCache;
 	
-	
+	/**
+	 * Creates a new {@link Decompiler} that decompiles methods concurrently on the common {@link ForkJoinPool}.
+	 * @param classFile - The class to decompile.
+	 */
 	public Decompiler(ClassFile classFile) {
+		this(classFile, ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * Creates a new {@link Decompiler}.
+	 * @param classFile - The class to decompile.
+	 * @param methodPool - The pool to decompile methods concurrently on, or null to decompile them in the
+	 * calling thread.
+	 */
+	public Decompiler(ClassFile classFile, ForkJoinPool methodPool) {
+		this(classFile, methodPool, null);
+	}
+	
+	/**
+	 * Creates a new {@link Decompiler}.
+	 * @param classFile - The class to decompile.
+	 * @param methodPool - The pool to decompile methods concurrently on, or null to decompile them in the
+	 * calling thread.
+	 * @param methodCache - The cache to get and store decompiled methods in, or null to decompile all methods.
+	 */
+	public Decompiler(ClassFile classFile, ForkJoinPool methodPool, MethodDecompileCache methodCache) {
 		this.classFile = classFile;
+		this.methodPool = methodPool;
+		this.methodCache = methodCache;
 	}
 	
+	/**
+	 * Decompiles the class and writes the result to the given file.
+	 * The file is deleted again if the class could not be decompiled.
+	 * @param outputFile - The file to write the decompiled class to.
+	 * @throws DecompileException If the class could not be decompiled.
+	 * @throws IOException If an I/O error occurs while writing the file.
+	 */
 	public void decompile(File outputFile) throws DecompileException, IOException {
-		
-		// Initialize the decompile string.
-		String decompStr = "";
-		String indentation = ""; // For TAB's.
+		if(outputFile.isDirectory()) {
+			throw new IOException("Cannot create file because a directory with the same name exists at: " + outputFile.getAbsolutePath());
+		}
+		boolean success = false;
+		try(Writer writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8))) {
+			this.decompile(writer);
+			success = true;
+		} finally {
+			if(!success) {
+				outputFile.delete();
+			}
+		}
+	}
+	
+	/**
+	 * Decompiles the class.
+	 * @return The decompiled class source code.
+	 * @throws DecompileException If the class could not be decompiled.
+	 */
+	public String decompile() throws DecompileException {
+		StringBuilder str = new StringBuilder();
+		try {
+			this.decompile(str);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Only thrown by the method cache, since a StringBuilder never throws.
+		}
+		return str.toString();
+	}
+	
+	/**
+	 * Decompiles the class, writing the source code to the given {@link Appendable} while decompiling.
+	 * When an exception is thrown, part of the source code might have been written.
+	 * @param out - The {@link Appendable} to write the decompiled class source code to.
+	 * @throws DecompileException If the class could not be decompiled.
+	 * @throws IOException If the given {@link Appendable} throws an {@link IOException}, or if an I/O error occurs
+	 * in the method cache.
+	 */
+	public void decompile(Appendable out) throws DecompileException, IOException {
+		SourceWriter writer = new SourceWriter(out);
 		
 		// Add the package if the class is in a package.
 		String packageStr = this.getPackage();
 		if(packageStr != null) {
-			decompStr += "package " + packageStr + ";\n\n";
+			writer.append("package ").append(packageStr).append(";\n\n");
 		}
 		
 		// Create the "public abstract class ThisClass extends A implements B, C, D { ...".
@@ -83,32 +164,19 @@ public class Decompiler {
 			}
 		}
 		
-		decompStr += indentation + accessFlagStr + className + extendsStr + implementsStr + " {\n";
-		indentation += "\t";
-		decompStr += indentation + "\n";
+		writer.append(accessFlagStr + className + extendsStr + implementsStr).append(" {\n");
+		writer.indent();
+		writer.append('\n');
 		
 		// Create class fields. // TODO - Perhaps add simple assigns in the "static {this.i = 5;}" to the field declarations "private int i = 5;".
-		String fieldsStr = this.getClassFields();
-		if(fieldsStr != null) {
-			decompStr += indentation + fieldsStr.replaceAll("\n", "\n" + indentation) + "\n";
-		}
+		this.writeClassFields(writer);
 		
 		// Create class methods.
-		String methodssStr = this.getClassMethods();
-		if(methodssStr != null) {
-			decompStr += indentation + methodssStr.replaceAll("\n", "\n" + indentation) + "\n";
-		}
+		this.writeClassMethods(writer);
 		
 		// Add the class-closing "}".
-		decompStr += "}";
-		
-		// Write the result to file.
-		if(outputFile.isDirectory()) {
-			throw new IOException("Cannot create file because a directory with the same name exists at: " + outputFile.getAbsolutePath());
-		}
-		FileOutputStream outStream = new FileOutputStream(outputFile);
-		outStream.write(decompStr.getBytes(StandardCharsets.UTF_8));
-		outStream.close();
+		writer.unindent();
+		writer.append('}');
 	}
 	
 	/**
@@ -144,18 +212,20 @@ public class Decompiler {
 	}
 	
 	/**
-	 * getClassFields method.
-	 * @return All fields in format:<br>accessFlags fieldType fieldName;<br>accessFlags2 fieldType2 fieldName2;<br>etc. suffixed with a newline.<br>
-	 * Returns null if the class does not contain any fields. This is valid java code when placed in the class scope.
+	 * writeClassFields method.
+	 * Writes all fields in format:<br>accessFlags fieldType fieldName;<br>accessFlags2 fieldType2 fieldName2;<br>etc. suffixed with
+	 * an empty line.<br>
+	 * Writes nothing if the class does not contain any fields. This is valid java code when placed in the class scope.
+	 * @param writer - The writer to write the fields to.
 	 * @throws DecompileException
+	 * @throws IOException
 	 */
-	private String getClassFields() throws DecompileException {
+	private void writeClassFields(SourceWriter writer) throws DecompileException, IOException {
 		ClassConstantPool constPool = this.classFile.getConstantPool();
 		ClassField[] fields = this.classFile.getFields().getFields();
 		if(fields.length == 0) {
-			return null;
+			return;
 		}
-		String fieldsStr = "";
 		for(ClassField field : fields) {
 			
 			// Get the access flags.
@@ -214,33 +284,81 @@ public class Decompiler {
 			}
 			
 			// Add the line.
-			fieldsStr += fieldAccessFlagStr + " " + fieldDesc + " " + fieldName + ";\n";
+			writer.append(fieldAccessFlagStr + " " + fieldDesc + " " + fieldName).append(";\n");
 			
 		}
-		return fieldsStr;
+		writer.append('\n');
 	}
 	
 	/**
-	 * getClassMethods method.
-	 * @return All methods in valid java code or bytecode, depending on how much could be decompiled.
-	 * Returns null if the class does not contain any methods.
+	 * writeClassMethods method.
+	 * Writes all methods in valid java code or bytecode, depending on how much could be decompiled, each preceded by
+	 * an empty line and suffixed with an empty line. Writes nothing if the class does not contain any methods.
+	 * @param writer - The writer to write the methods to.
 	 * @throws DecompileException
+	 * @throws IOException
 	 */
-	private String getClassMethods() throws DecompileException {
+	private void writeClassMethods(SourceWriter writer) throws DecompileException, IOException {
 		// Create class methods.
 		ClassConstantPool constPool = this.classFile.getConstantPool();
 		ClassMethod[] methods = this.classFile.getMethods().getMethods();
 		if(methods.length == 0) {
-			return null;
+			return;
+		}
+		String className = this.getClassName();
+		
+		// Decompile the methods directly into the writer if there is no pool or only one method.
+		if(this.methodPool == null || methods.length == 1) {
+			for(ClassMethod method : methods) {
+				writer.append('\n');
+				if(this.methodCache != null) {
+					writer.append(this.methodCache.decompile(className, method, constPool));
+				} else {
+					new MethodDecompiler(className, method, constPool).decompile(writer);
+				}
+			}
+			writer.append('\n');
+			return;
 		}
-		String methodsStr = "";
+		
+		// Decompile the methods concurrently. The constant pool is only read, so it can be shared.
+		List<ForkJoinTask<String>> tasks = new ArrayList<ForkJoinTask<String>>(methods.length);
 		for(ClassMethod method : methods) {
-			
-			// Decompile the method.
-			MethodDecompiler methodDecomp = new MethodDecompiler(this.getClassName(), method, constPool);
-			String methodStr = methodDecomp.decompile();
-			methodsStr += "\n" + methodStr;
-			
+			if(this.methodCache != null) {
+				tasks.add(this.methodPool.submit(() -> this.methodCache.decompile(className, method, constPool)));
+			} else {
+				MethodDecompiler methodDecomp = new MethodDecompiler(className, method, constPool);
+				tasks.add(this.methodPool.submit(() -> methodDecomp.decompile()));
+			}
+		}
+		
+		// Write the results in declaration order as they become available.
+		try {
+			for(ForkJoinTask<String> task : tasks) {
+				writer.append('\n').append(task.get());
+			}
+		} catch (ExecutionException e) {
+			for(ForkJoinTask<String> task : tasks) {
+				task.cancel(false);
+			}
+			if(e.getCause() instanceof DecompileException) {
+				throw (DecompileException) e.getCause();
+			}
+			if(e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new DecompileException("Unexpected exception while decompiling a method.", e.getCause());
+		} catch (InterruptedException e) {
+			for(ForkJoinTask<String> task : tasks) {
+				task.cancel(false);
+			}
+			Thread.currentThread().interrupt();
+			throw new DecompileException("Interrupted while decompiling methods.", e);
+		}
+		writer.append('\n');
+		
+//		for(ClassMethod method : methods) {
+//			
 //			// DEBUG
 //			for(IAttribute attr : method.getAttributes().getAttributes()) {
 //				System.out.println(attr.getClass().getSimpleName());
@@ -402,16 +520,14 @@ public class Decompiler {
 //				// Catch and rethrow this so the name of the failing method will be displayed.
 //				throw new DecompileException("Failed to decompile method: " + methodName + methodDesc, e);
 //			}
-		}
-		return methodsStr;
+//		}
 	}
 	
-	private void performStackModification(Stack<Object> stack, ByteCodeEntry instrEntry) throws DecompileException {
+	private void performStackModification(
+			Stack<Object> stack, InstructionTable instructions, int instrIndex) throws DecompileException {
 		ClassConstantPool constPool = this.classFile.getConstantPool();
 		
-		ByteCodeInstruction instr = instrEntry.getInstruction();
-		int[] signedInstrArgs = instrEntry.getSignedInstructionArgs();
-		int[] unsignedInstrArgs = instrEntry.getUnsignedInstructionArgs();
+		ByteCodeInstruction instr = instructions.getInstruction(instrIndex);
 		
 		switch(instr) {
 		case nop: break;
@@ -430,16 +546,16 @@ public class Decompiler {
 		case fconst_2: stack.push((float) 2); break;
 		case dconst_0: stack.push((double) 0); break;
 		case dconst_1: stack.push((double) 1); break;
-		case bipush: stack.push((int) signedInstrArgs[0]); break;
-		case sipush: stack.push((int) signedInstrArgs[0]); break;
-		case ldc: stack.push(constPool.get(unsignedInstrArgs[0])); break; // Push String, int or float.
-		case ldc_w: stack.push(constPool.get(unsignedInstrArgs[0])); break; // Push String, int or float.
-		case ldc2_w: stack.push(constPool.get(unsignedInstrArgs[0])); break; // Push double or long.
-		case iload: stack.push(new LocalVariableRef(unsignedInstrArgs[0], LocalVariableRef.LocalVariableType.INT)); break;
-		case lload: stack.push(new LocalVariableRef(unsignedInstrArgs[0], LocalVariableRef.LocalVariableType.LONG)); break;
-		case fload: stack.push(new LocalVariableRef(unsignedInstrArgs[0], LocalVariableRef.LocalVariableType.FLOAT)); break;
-		case dload: stack.push(new LocalVariableRef(unsignedInstrArgs[0], LocalVariableRef.LocalVariableType.DOUBLE)); break;
-		case aload: stack.push(new LocalVariableRef(unsignedInstrArgs[0], LocalVariableRef.LocalVariableType.OBJECT_REF)); break;
+		case bipush: stack.push((int) instructions.getSignedArg(instrIndex, 0)); break;
+		case sipush: stack.push((int) instructions.getSignedArg(instrIndex, 0)); break;
+		case ldc: stack.push(constPool.get(instructions.getArg(instrIndex, 0))); break; // Push String, int or float.
+		case ldc_w: stack.push(constPool.get(instructions.getArg(instrIndex, 0))); break; // Push String, int or float.
+		case ldc2_w: stack.push(constPool.get(instructions.getArg(instrIndex, 0))); break; // Push double or long.
+		case iload: stack.push(new LocalVariableRef(instructions.getArg(instrIndex, 0), LocalVariableRef.LocalVariableType.INT)); break;
+		case lload: stack.push(new LocalVariableRef(instructions.getArg(instrIndex, 0), LocalVariableRef.LocalVariableType.LONG)); break;
+		case fload: stack.push(new LocalVariableRef(instructions.getArg(instrIndex, 0), LocalVariableRef.LocalVariableType.FLOAT)); break;
+		case dload: stack.push(new LocalVariableRef(instructions.getArg(instrIndex, 0), LocalVariableRef.LocalVariableType.DOUBLE)); break;
+		case aload: stack.push(new LocalVariableRef(instructions.getArg(instrIndex, 0), LocalVariableRef.LocalVariableType.OBJECT_REF)); break;
 		case iload_0: stack.push(new LocalVariableRef(0, LocalVariableRef.LocalVariableType.INT)); break;
 		case iload_1: stack.push(new LocalVariableRef(1, LocalVariableRef.LocalVariableType.INT)); break;
 		case iload_2: stack.push(new LocalVariableRef(2, LocalVariableRef.LocalVariableType.INT)); break;
@@ -592,7 +708,7 @@ public class Decompiler {
 		case dreturn: break;
 		case areturn: break;
 		case _return: break;
-		case getstatic: stack.push(constPool.get(unsignedInstrArgs[0])); break; // Push Field ref.
+		case getstatic: stack.push(constPool.get(instructions.getArg(instrIndex, 0))); break; // Push Field ref.
 		case putstatic: break;
 		case getfield: break;
 		case putfield: break;
@@ -0,0 +1,258 @@
+package io.github.pieter12345.wbce.decompile;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.ClassMethods.ClassMethod;
+
+/**
+ * Caches the output of {@link MethodDecompiler} by {@link MethodFingerprint}, so that methods whose bytecode did not
+ * change are not decompiled again. Results are kept in memory up to a maximum total amount of characters, where the
+ * least recently used results are evicted first. Optionally, results are also persisted to a directory, so that they
+ * can be used by later runs. Only methods that were decompiled successfully are cached.
+ * This class is thread-safe.
+ * @author P.J.S. Kools
+ */
+public class MethodDecompileCache {
+	
+	// Variables & Constants.
+	public static final long DEFAULT_MAX_CHARACTERS = 16 * 1024 * 1024;
+	private static final String FILE_EXTENSION = ".txt";
+	
+	private final long maxCharacters;
+	private final File directory;
+	private final LinkedHashMap<MethodFingerprint, String> results =
+			new LinkedHashMap<MethodFingerprint, String>(16, 0.75f, true);
+	private long characterCount = 0;
+	
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder diskHitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder uncacheableCount = new LongAdder();
+	
+	/**
+	 * Creates a new in-memory {@link MethodDecompileCache} holding up to {@link #DEFAULT_MAX_CHARACTERS} characters.
+	 */
+	public MethodDecompileCache() {
+		this(DEFAULT_MAX_CHARACTERS, null);
+	}
+	
+	/**
+	 * Creates a new {@link MethodDecompileCache}.
+	 * @param maxCharacters - The maximum total amount of characters of the results kept in memory.
+	 * @param directory - The directory to persist results to and load results from, or null to only cache results
+	 * in memory. The directory is created when the first result is persisted.
+	 */
+	public MethodDecompileCache(long maxCharacters, File directory) {
+		if(maxCharacters < 0) {
+			throw new IllegalArgumentException("The maximum amount of characters cannot be negative: " + maxCharacters);
+		}
+		this.maxCharacters = maxCharacters;
+		this.directory = directory;
+	}
+	
+	/**
+	 * Decompiles the given method, or gets the result of decompiling an equal method from this cache.
+	 * @param className - The name of the class containing the method.
+	 * @param method - The method to decompile.
+	 * @param constPool - The constant pool of the class containing the method.
+	 * @return The decompiled method, suffixed with a newline.
+	 * @throws DecompileException If the method could not be decompiled.
+	 * @throws IOException If an I/O error occurs while loading or persisting the result.
+	 * @see MethodDecompiler#decompile()
+	 */
+	public String decompile(String className,
+			ClassMethod method, ClassConstantPool constPool) throws DecompileException, IOException {
+		MethodFingerprint fingerprint = MethodFingerprint.compute(className, method, constPool);
+		if(fingerprint == null) {
+			this.uncacheableCount.increment();
+			return new MethodDecompiler(className, method, constPool).decompile();
+		}
+		String result = this.get(fingerprint);
+		if(result == null) {
+			this.missCount.increment();
+			result = new MethodDecompiler(className, method, constPool).decompile();
+			this.put(fingerprint, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Gets the result with the given fingerprint, loading it from the directory if it is not in memory.
+	 * @param fingerprint - The fingerprint of the method.
+	 * @return The decompiled method, or null if this cache does not contain a result with the given fingerprint.
+	 * @throws IOException If an I/O error occurs while loading the result.
+	 */
+	public String get(MethodFingerprint fingerprint) throws IOException {
+		String result;
+		synchronized(this.results) {
+			result = this.results.get(fingerprint);
+		}
+		if(result != null) {
+			this.hitCount.increment();
+			return result;
+		}
+		if(this.directory != null) {
+			try {
+				result = new String(Files.readAllBytes(this.getFile(fingerprint).toPath()), StandardCharsets.UTF_8);
+			} catch (NoSuchFileException e) {
+				return null;
+			}
+			this.diskHitCount.increment();
+			this.putInMemory(fingerprint, result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Stores the given result in memory and, if this cache has a directory, persists it.
+	 * @param fingerprint - The fingerprint of the method.
+	 * @param result - The decompiled method.
+	 * @throws IOException If an I/O error occurs while persisting the result.
+	 */
+	public void put(MethodFingerprint fingerprint, String result) throws IOException {
+		this.putInMemory(fingerprint, result);
+		if(this.directory != null) {
+			
+			// Write to a temporary file first, so that concurrent readers never see a partially written result.
+			File file = this.getFile(fingerprint);
+			File parentDir = file.getParentFile();
+			if(!parentDir.isDirectory() && !parentDir.mkdirs() && !parentDir.isDirectory()) {
+				throw new IOException("Unable to create directory: " + parentDir.getAbsolutePath());
+			}
+			Path tempFile = Files.createTempFile(parentDir.toPath(), file.getName(), ".tmp");
+			try {
+				Files.write(tempFile, result.getBytes(StandardCharsets.UTF_8));
+				try {
+					Files.move(tempFile, file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+		}
+	}
+	
+	private void putInMemory(MethodFingerprint fingerprint, String result) {
+		synchronized(this.results) {
+			String oldResult = this.results.put(fingerprint, result);
+			this.characterCount += result.length() - (oldResult != null ? oldResult.length() : 0);
+			
+			// Evict the least recently used results.
+			Iterator<String> it = this.results.values().iterator();
+			while(this.characterCount > this.maxCharacters && it.hasNext()) {
+				this.characterCount -= it.next().length();
+				it.remove();
+			}
+		}
+	}
+	
+	private File getFile(MethodFingerprint fingerprint) {
+		String hex = fingerprint.toHexString();
+		return new File(new File(this.directory, hex.substring(0, 2)), hex + FILE_EXTENSION);
+	}
+	
+	/**
+	 * Removes all results from memory. Persisted results are not removed.
+	 */
+	public void clear() {
+		synchronized(this.results) {
+			this.results.clear();
+			this.characterCount = 0;
+		}
+	}
+	
+	/**
+	 * Gets the amount of results in memory.
+	 * @return The amount of results.
+	 */
+	public int size() {
+		synchronized(this.results) {
+			return this.results.size();
+		}
+	}
+	
+	/**
+	 * Gets the total amount of characters of the results in memory.
+	 * @return The amount of characters.
+	 */
+	public long getCharacterCount() {
+		synchronized(this.results) {
+			return this.characterCount;
+		}
+	}
+	
+	public long getMaxCharacters() {
+		return this.maxCharacters;
+	}
+	
+	/**
+	 * Gets the directory that results are persisted to.
+	 * @return The directory, or null if results are only cached in memory.
+	 */
+	public File getDirectory() {
+		return this.directory;
+	}
+	
+	/**
+	 * Gets the amount of results that were found in memory.
+	 * @return The amount of memory hits.
+	 */
+	public long getHitCount() {
+		return this.hitCount.sum();
+	}
+	
+	/**
+	 * Gets the amount of results that were not in memory, but were loaded from the directory.
+	 * @return The amount of disk hits.
+	 */
+	public long getDiskHitCount() {
+		return this.diskHitCount.sum();
+	}
+	
+	/**
+	 * Gets the amount of methods that were decompiled through {@link #decompile(String, ClassMethod,
+	 * ClassConstantPool)} because their result was not in this cache.
+	 * @return The amount of misses.
+	 */
+	public long getMissCount() {
+		return this.missCount.sum();
+	}
+	
+	/**
+	 * Gets the amount of methods that were decompiled without using this cache, because no
+	 * {@link MethodFingerprint} could be computed for them.
+	 * @return The amount of uncacheable methods.
+	 */
+	public long getUncacheableCount() {
+		return this.uncacheableCount.sum();
+	}
+	
+	/**
+	 * Resets the hit, disk hit, miss and uncacheable counts to zero.
+	 */
+	public void resetStatistics() {
+		this.hitCount.reset();
+		this.diskHitCount.reset();
+		this.missCount.reset();
+		this.uncacheableCount.reset();
+	}
+	
+	@Override
+	public String toString() {
+		return MethodDecompileCache.class.getSimpleName() + ": {size=" + this.size() + ", characters="
+				+ this.getCharacterCount() + ", hits=" + this.getHitCount() + ", disk_hits=" + this.getDiskHitCount()
+				+ ", misses=" + this.getMissCount() + ", uncacheable=" + this.getUncacheableCount() + "}";
+	}
+}
@@ -1,5 +1,7 @@
 package io.github.pieter12345.wbce.decompile;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -15,8 +17,8 @@ import java.util.regex.Pattern;
 
 import io.github.pieter12345.wbce.ByteCodeInstruction;
 import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.InstructionTable;
 import io.github.pieter12345.wbce.MethodAccessFlag;
-import io.github.pieter12345.wbce.ByteCodeInstruction.ByteCodeInstructionPayload;
 import io.github.pieter12345.wbce.ClassMethods.ClassMethod;
 import io.github.pieter12345.wbce.attribute.CodeAttribute;
 import io.github.pieter12345.wbce.attribute.IAttribute;
@@ -37,6 +39,8 @@ public class MethodDecompiler {
 	private final ClassConstantPool constPool;
 	private final String className;
 	private final boolean isStatic; // Used to determine if aload_0 loads "arg0" or "this".
+	private List<CodeBlock> codeBlocks = null; // The code blocks of the last decompilation, or null.
+	private ControlFlowGraph controlFlowGraph = null; // Created from the code blocks on first use.
 	
 	public MethodDecompiler(String className, ClassMethod method, ClassConstantPool constPool) {
 		this.method = method;
@@ -45,7 +49,29 @@ public class MethodDecompiler {
 		this.isStatic = method.getAccessFlags().getFlags().contains(MethodAccessFlag.STATIC);
 	}
 	
+	/**
+	 * Decompiles the method.
+	 * @return The decompiled method, suffixed with a newline.
+	 * @throws DecompileException If the method could not be decompiled.
+	 */
 	public String decompile() throws DecompileException {
+		StringBuilder str = new StringBuilder();
+		try {
+			this.decompile(new SourceWriter(str));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // Never thrown by a StringBuilder.
+		}
+		return str.toString();
+	}
+	
+	/**
+	 * Decompiles the method, writing it to the given writer while decompiling.
+	 * When an exception is thrown, part of the method might have been written.
+	 * @param writer - The writer to write the decompiled method to, followed by a newline.
+	 * @throws DecompileException If the method could not be decompiled.
+	 * @throws IOException If the writer throws an {@link IOException}.
+	 */
+	public void decompile(SourceWriter writer) throws DecompileException, IOException {
 		
 		// Get the access flags.
 		String methodAccessFlagStr = this.method.getAccessFlags().toCodeString();
@@ -196,15 +222,11 @@ public class MethodDecompiler {
 				methodArgsStr += (methodArgsStr.isEmpty() ? "" : ", ") + methodArgStr + " " + argName;
 			}
 			
-			// Get the method code.
-			String methodCode = " " + this.getStringFromBytecode(
-					codeAttr, localVarTableAttr, methodArgTypes.toArray(new String[0]));
-				
 			// DEBUG - Print all attributes per method.
 //			System.out.println(methodName);
 //			System.out.println(method.getAttributes().toString(constPool) + "\n");
 			
-			// Format the method and return the result.
+			// Format the method header.
 			String methodStr;
 			if(methodName.equals("<init>")) { // Constructor.
 				methodStr = methodAccessFlagStr + " " + this.className + "(" + methodArgsStr + ")";
@@ -213,8 +235,11 @@ public class MethodDecompiler {
 			} else { // Normal method.
 				methodStr = methodAccessFlagStr + " " + returnType + " " + methodName + "(" + methodArgsStr + ")";
 			}
-			methodStr += methodCode;
-			return methodStr.trim() + "\n";
+			
+			// Write the method header and code.
+			writer.append(methodStr.trim()).append(' ');
+			this.writeCodeFromBytecode(writer, codeAttr, localVarTableAttr, methodArgTypes.toArray(new String[0]));
+			writer.append('\n');
 			
 		} catch (DecompileException e) {
 			// Catch and rethrow this so the name of the failing method will be displayed.
@@ -222,49 +247,40 @@ public class MethodDecompiler {
 		}
 	}
 	
-	private String getStringFromBytecode(CodeAttribute codeAttr,
-			LocalVariableTableAttribute localVarTableAttr, String[] methodArgTypes) throws DecompileException {
-		byte[] opCodeBytes = codeAttr.getCodeBytes();
-		
-		// Convert the byte code to a list of instructions with their arguments and offset.
-		ArrayList<ByteCodeEntry> byteCodeEntries = new ArrayList<ByteCodeEntry>();
-		for(int index = 0; index < opCodeBytes.length; index++) {
-			ByteCodeInstruction instr = ByteCodeInstruction.forOpCode(opCodeBytes[index]);
-			if(instr == null) {
-				throw new DecompileException("Unknown bytecode instruction ID found: " + opCodeBytes[index]);
-			}
-			int payload = instr.getPayload();
-			if(instr == ByteCodeInstruction.lookupswitch) {
-				
-//				// TODO - Remove debug.
-//				System.out.println("[DEBUG] Printing opcode bytes after lookupswitch:");
-//				for(int i = index; i < opCodeBytes.length; i++) {
-//					System.out.println(opCodeBytes[i] & 0xFF);
-//				}
-				
-				// Calculate lookupswitch payload.
-				// lookupswitch: {<0-3 bytes padding> + (int) numberOfCases + (int) defaultRelJumpto
-				// + BranchStackFrame[numberOfCases]} where BranchStackFrame: {(int) key, (int) relJumpto}.
-				int paddingOffset = 3 - (index % 4); // Zero padding. Add zeros if index+1 (next int start) is not a multiple of 4.
-				int numberOfCases = ((opCodeBytes[index + paddingOffset + 5] & 0xFF) << 24)
-						| ((opCodeBytes[index + paddingOffset + 6] & 0xFF) << 16)
-						| ((opCodeBytes[index + paddingOffset + 7] & 0xFF) << 8)
-						| ((opCodeBytes[index + paddingOffset + 8] & 0xFF)); // Unsigned int.
-				payload = paddingOffset + (2 + numberOfCases * 2) * ByteCodeInstructionPayload.INT.getByteSize();
-				
-				// TODO - Remove debug.
-//				System.out.println("[DEBUG] lookupswitch payload: " + payload + " for " + numberOfCases + " cases.");
+	/**
+	 * Gets the control flow graph of this method, including its dominator trees and natural loops.
+	 * The graph is created on first use from the code blocks of the last decompilation of this method.
+	 * @return The control flow graph, or null if the method has not been decompiled from bytecode.
+	 * @throws DecompileException If a code block branches to a label or handler outside of the method.
+	 */
+	public ControlFlowGraph getControlFlowGraph() throws DecompileException {
+		if(this.controlFlowGraph == null && this.codeBlocks != null) {
+			try {
+				this.controlFlowGraph = new ControlFlowGraph(this.codeBlocks);
+			} catch (IllegalArgumentException e) {
+				throw new DecompileException(e.getMessage(), e);
 			}
-			if(payload == -1) {
-				throw new DecompileException("ByteCodeInstruction \"" + instr + "\" has an unknown payload size.");
+		}
+		return this.controlFlowGraph;
+	}
+	
+	private void writeCodeFromBytecode(SourceWriter writer, CodeAttribute codeAttr,
+			LocalVariableTableAttribute localVarTableAttr, String[] methodArgTypes) throws DecompileException, IOException {
+		
+		// Decode the byte code to a table of instructions with their arguments and offset.
+		InstructionTable instructions;
+		try {
+			instructions = InstructionTable.fromCodeBytes(codeAttr.getCodeBytes());
+		} catch (IllegalArgumentException e) {
+			throw new DecompileException(e.getMessage(), e);
+		}
+		for(int i = 0; i < instructions.size(); i++) {
+			ByteCodeInstruction instr = instructions.getInstruction(i);
+			if(instr == ByteCodeInstruction.tableswitch || instr == ByteCodeInstruction.wide) {
+				throw new DecompileException("Found unsupported instruction: " + instr.getInstructionName());
 			}
-			byte[] instrPayloadBytes = new byte[payload];
-			System.arraycopy(opCodeBytes, index + 1, instrPayloadBytes, 0, instrPayloadBytes.length);
-			
-			byteCodeEntries.add(new ByteCodeEntry(index, byteCodeEntries.size(), instr, instrPayloadBytes));
-			
-			index += instrPayloadBytes.length;
 		}
+		ByteCodeOffsetIndex offsetIndex = new ByteCodeOffsetIndex(instructions);
 		
 		// Initialize the code block bounds. This will contain the start/end/handle of Exceptions and
 		// any place a branch instruction points at.
@@ -275,11 +291,11 @@ public class MethodDecompiler {
 			}
 		});
 		codeBlockBoundsSet.add(new CodeBlockBounds(0, BoundsType.METHOD_START, -1));
-		codeBlockBoundsSet.add(new CodeBlockBounds(byteCodeEntries.size(), BoundsType.METHOD_END, -1));
+		codeBlockBoundsSet.add(new CodeBlockBounds(instructions.size(), BoundsType.METHOD_END, -1));
 		
 		// Get the ExceptionTable data.
 		List<ExceptionHandler> exceptionHandlers =
-				this.getExceptionHandlers(codeAttr.getExceptionTable(), byteCodeEntries);
+				this.getExceptionHandlers(codeAttr.getExceptionTable(), offsetIndex);
 		
 		// Add the exception handler start/end/handler indices to the bounds list.
 		for(ExceptionHandler exHandler : exceptionHandlers) {
@@ -289,31 +305,15 @@ public class MethodDecompiler {
 		}
 		
 		// Get the branch instruction target instruction indices.
-		for(int i = 0; i < byteCodeEntries.size(); i++) {
-			ByteCodeEntry codeEntry = byteCodeEntries.get(i);
-			ByteCodeInstruction instr = codeEntry.getInstruction();
-			int[] signedInstrArgs = codeEntry.getSignedInstructionArgs();
+		for(int i = 0; i < instructions.size(); i++) {
+			ByteCodeInstruction instr = instructions.getInstruction(i);
 			if(instr.isBranchInstruction()) {
-				if(signedInstrArgs.length != 1) {
+				if(instr.getPayloadTypes().length != 1) {
 					throw new DecompileException("Expecting branch instruction " + instr.getInstructionName()
-							+ " to have argument size 1. Size was: " + codeEntry.getSignedInstructionArgs().length);
+							+ " to have argument size 1. Size was: " + instr.getPayloadTypes().length);
 				}
-				int branchOffset = signedInstrArgs[0];
-				int absoluteIndex = codeEntry.getOffset() + branchOffset;
-				
 				codeBlockBoundsSet.add(new CodeBlockBounds(i + 1, BoundsType.BRANCH, i)); // Cut after the branch instruction.
-				
-				searchLoop: {
-					for(int j = 0; j < byteCodeEntries.size(); j++) {
-						if(byteCodeEntries.get(j).getOffset() == absoluteIndex) {
-							codeBlockBoundsSet.add(new CodeBlockBounds(j, BoundsType.BRANCH, i));
-							break searchLoop;
-						}
-					}
-					throw new DecompileException("Branch instruction " + instr.getInstructionName()
-							+ "(instruction index #" + i + ") pointed to an unexisting bytecode instruction index."
-							+ " Relative: " + branchOffset + " / Absolute: " + absoluteIndex);
-				}
+				codeBlockBoundsSet.add(new CodeBlockBounds(offsetIndex.getBranchTargetIndex(i), BoundsType.BRANCH, i));
 			}
 		}
 		
@@ -321,7 +321,7 @@ public class MethodDecompiler {
 		HashMap<Integer, CodeLabel> labelMap = new HashMap<Integer, CodeLabel>();
 		int labelCount = 1;
 		for(CodeBlockBounds bounds : codeBlockBoundsSet) {
-			if(!labelMap.containsKey(bounds.getInstrIndex()) && bounds.getInstrIndex() < byteCodeEntries.size()) {
+			if(!labelMap.containsKey(bounds.getInstrIndex()) && bounds.getInstrIndex() < instructions.size()) {
 				LabelType type = (bounds.getType() == BoundsType.HANDLER_PC
 						? LabelType.CATCH_LABEL : LabelType.BRANCH_LABEL);
 				labelMap.put(bounds.getInstrIndex(), new CodeLabel(labelCount++, type));
@@ -329,12 +329,10 @@ public class MethodDecompiler {
 		}
 		
 		// Verify that there are no Xreturn or athrow instructions in the middle of code blocks (detect unreachable code).
-		for(int i = 0; i < byteCodeEntries.size() - 1; i++) {
-			ByteCodeEntry codeEntry = byteCodeEntries.get(i);
-			ByteCodeInstruction instr = codeEntry.getInstruction();
-			if((instr.isReturn() || instr == ByteCodeInstruction.athrow)
-					&& !labelMap.containsKey(codeEntry.getInstructionIndex() + 1)) {
-				throw new DecompileException("Found unreachable code at instruction index: " + codeEntry.getInstructionIndex());
+		for(int i = 0; i < instructions.size() - 1; i++) {
+			ByteCodeInstruction instr = instructions.getInstruction(i);
+			if((instr.isReturn() || instr == ByteCodeInstruction.athrow) && !labelMap.containsKey(i + 1)) {
+				throw new DecompileException("Found unreachable code at instruction index: " + i);
 			}
 		}
 		
@@ -343,7 +341,7 @@ public class MethodDecompiler {
 			int handlerPc = exHandler.getHandlerPc();
 			
 			// Verify that code bleeds do not access catch blocks.
-			ByteCodeInstruction prevBlockLastInstr = byteCodeEntries.get(handlerPc - 1).getInstruction();
+			ByteCodeInstruction prevBlockLastInstr = instructions.getInstruction(handlerPc - 1);
 			if(prevBlockLastInstr != ByteCodeInstruction._goto
 					&& prevBlockLastInstr != ByteCodeInstruction.athrow && !prevBlockLastInstr.isReturn()) {
 				throw new DecompileException("Detected code bleed to an exception handler (handler_pc)."
@@ -357,7 +355,7 @@ public class MethodDecompiler {
 				if(bounds.getInstrIndex() == handlerPc && bounds.getCause() != -1) {
 					throw new DecompileException("Detected code branch to an exception handler (handler_pc)."
 							+ " The branch instruction was: "
-							+ byteCodeEntries.get(bounds.getInstrIndex()).getInstruction().getInstructionName()
+							+ instructions.getInstruction(bounds.getInstrIndex()).getInstructionName()
 							+ " At instruction index: " + bounds.getInstrIndex()
 							+ " To catch block at instruction index: " + handlerPc);
 				} else if(bounds.getInstrIndex() == handlerPc) {
@@ -406,10 +404,9 @@ public class MethodDecompiler {
 				continue; // Skip double bounds on the same index.
 			}
 			
-			// Get a list of code entries.
-			ByteCodeEntry[] entries = byteCodeEntries.subList(
-					codeBlockBoundsArray[i].getInstrIndex(), codeBlockBoundsArray[i + 1].getInstrIndex())
-					.toArray(new ByteCodeEntry[0]);
+			// Get the instruction index range of the code.
+			int startInstrIndex = codeBlockBoundsArray[i].getInstrIndex();
+			int endInstrIndex = codeBlockBoundsArray[i + 1].getInstrIndex();
 			
 			// Get the ExceptionHandlers containing this code (Some might never be a handler since earlier handlers catch them already).
 			ArrayList<ExceptionHandler> exHandlerList = new ArrayList<ExceptionHandler>();
@@ -422,17 +419,17 @@ public class MethodDecompiler {
 			
 			// Get the labels this code block can branch to (not throw).
 			ArrayList<CodeLabel> branchLabels = new ArrayList<CodeLabel>();
-			ByteCodeEntry lastCodeEntry = entries[entries.length - 1];
-			if(lastCodeEntry.getInstruction().isBranchInstruction()) {
-				int branchTargetIndex = this.getInstrIndexForBranch(byteCodeEntries, lastCodeEntry);
+			int lastInstrIndex = endInstrIndex - 1;
+			ByteCodeInstruction lastInstr = instructions.getInstruction(lastInstrIndex);
+			if(lastInstr.isBranchInstruction()) {
+				int branchTargetIndex = offsetIndex.getBranchTargetIndex(lastInstrIndex);
 				branchLabels.add(labelMap.get(branchTargetIndex)); // Branch.
 			}
-			if(!lastCodeEntry.getInstruction().isReturn() && lastCodeEntry.getInstruction() != ByteCodeInstruction.athrow
-					&& lastCodeEntry.getInstruction() != ByteCodeInstruction._goto) {
-				if(lastCodeEntry.getInstructionIndex() >= byteCodeEntries.size() - 1) {
+			if(!lastInstr.isReturn() && lastInstr != ByteCodeInstruction.athrow && lastInstr != ByteCodeInstruction._goto) {
+				if(lastInstrIndex >= instructions.size() - 1) {
 					throw new DecompileException("Last bytecode instruction does not branch, return or throw.");
 				}
-				int branchTargetIndex = lastCodeEntry.getInstructionIndex() + 1;
+				int branchTargetIndex = lastInstrIndex + 1;
 				branchLabels.add(labelMap.get(branchTargetIndex)); // Bleed.
 			}
 			CodeLabel[] canBranchToLabels = branchLabels.toArray(new CodeLabel[0]);
@@ -447,14 +444,19 @@ public class MethodDecompiler {
 			}
 			
 			// Create and add the code block.
-			codeBlocks.add(new CodeBlock(this.className, this.method, methodArgTypes, this.constPool, byteCodeEntries, labelMap,
-					labelMap.get(codeBlockBoundsArray[i].getInstrIndex()), canBranchToLabels, exHandlers, entries, initialStack, localVarMap));
+			codeBlocks.add(new CodeBlock(this.className, this.method, methodArgTypes, this.constPool, instructions, offsetIndex,
+					labelMap, labelMap.get(codeBlockBoundsArray[i].getInstrIndex()), canBranchToLabels, exHandlers,
+					startInstrIndex, endInstrIndex, initialStack, localVarMap));
 			
 		}
 		
-		/* TODO - Generate a code path graph from the code blocks (or other data if necessary).
+		// Store the code blocks, so that the code path graph can be created when it is used.
+		this.codeBlocks = codeBlocks;
+		this.controlFlowGraph = null;
+		
+		/* TODO - Use the code path graph (getControlFlowGraph()) to structure the code blocks.
 		 * Nodes are code blocks (with no branching targets in them except for the first instruction).
-		 * Edges are branches.
+		 * Edges are branches and exception handler entries.
 		 * Code blocks can branch to 1 or 2 code blocks and can be branched to by 0 (initial node) to many nodes.
 		 * Use this graph to detect if/for/while/switch/try/catch structures and store them somehow.
 		 * Then, modify the CodeBlock code to be able to handle stack elements properly.
@@ -551,8 +553,8 @@ public class MethodDecompiler {
 		 * 
 		 * Handle loops:
 		 * 1. Detect loops:
-		 *     Iterate over the graph depth-first from the root and detect circular paths.
-		 *     Store the first overlapping node of each loop (2 in 1 -> 2 -> 3 -> 2 -> ...).
+		 *     Get the natural loops from the graph (controlFlowGraph.getLoops()).
+		 *     The header of each loop is the first overlapping node (2 in 1 -> 2 -> 3 -> 2 -> ...).
 		 *     Store the other path this overlapping node has as a valid 'break' target for code within the loop.
 		 *         For later: Don't forget to add labels where necessary to break from the right loop.
 		 * 2. For code in each loop, detect if branches are leading to accepted 'break' targets for the loop
@@ -562,6 +564,7 @@ public class MethodDecompiler {
 		 * Handle non-loop code (after handling loop code, so loops and loop breaks are handled here):
 		 * 1. Detect ifs:
 		 *     These are node groups in the graph which have exactly one input and one output.
+		 *     The node where both paths of a condition join again is its immediate post-dominator.
 		 * 
 		 * 
 		 * Note: Loops always (?) start with a GOTO instruction that branches to the condition of the loop at the very
@@ -599,29 +602,27 @@ public class MethodDecompiler {
 		// Detect loops.
 		List<CodeLoop> codeLoops = new ArrayList<CodeLoop>();
 		Set<Integer> loopStartInstrIndices = new HashSet<Integer>(); // Set containing the first instr of all loops.
-		for(int i = byteCodeEntries.size() - 1; i >= 0; i--) {
-			ByteCodeEntry codeEntry = byteCodeEntries.get(i);
+		for(int i = instructions.size() - 1; i >= 0; i--) {
+			ByteCodeInstruction instr = instructions.getInstruction(i);
 			
 			// Check if the instruction is a branch instruction to a target in earlier bytecode.
-			if(codeEntry.getInstruction().isBranchInstruction() && codeEntry.getSignedInstructionArgs()[0] <= 0) {
+			if(instr.isBranchInstruction() && instructions.getSignedArg(i, 0) <= 0) {
 				
 				// Get the branch target instruction index. This is the start of the loop.
-				int loopStartIndex = this.getInstrIndexForBranch(byteCodeEntries, codeEntry);
+				int loopStartIndex = offsetIndex.getBranchTargetIndex(i);
 				assert loopStartIndex != -1;
-				int loopEndIndex = codeEntry.getInstructionIndex();
+				int loopEndIndex = i;
 				
 				// Get the loop break target. This is the instruction index a "break" would branch to.
 				int loopBreakTarget;
-				if(codeEntry.getInstruction() == ByteCodeInstruction._goto
-						|| codeEntry.getInstruction() == ByteCodeInstruction.goto_w) {
+				if(instr == ByteCodeInstruction._goto || instr == ByteCodeInstruction.goto_w) {
 					
 					// If a break target exists, it is the lowest index after the loop that can be branched to from
 					// within the loop.
 					loopBreakTarget = Integer.MAX_VALUE;
 					for(int j = loopStartIndex; j < loopEndIndex; j++) {
-						ByteCodeEntry loopCodeEntry = byteCodeEntries.get(j);
-						if(loopCodeEntry.getInstruction().isBranchInstruction()) {
-							int branchTarget = this.getInstrIndexForBranch(byteCodeEntries, loopCodeEntry);
+						if(instructions.getInstruction(j).isBranchInstruction()) {
+							int branchTarget = offsetIndex.getBranchTargetIndex(j);
 							assert branchTarget != -1; // Branch target must exist.
 							if(branchTarget > loopEndIndex && branchTarget < loopBreakTarget) {
 								loopBreakTarget = branchTarget;
@@ -636,7 +637,7 @@ public class MethodDecompiler {
 				} else {
 					
 					// When the loop condition breaks, the next line is branched to.
-					assert loopEndIndex + 1 < byteCodeEntries.size(); // A branch leads to this line, so it must exist.
+					assert loopEndIndex + 1 < instructions.size(); // A branch leads to this line, so it must exist.
 					loopBreakTarget = loopEndIndex + 1;
 				}
 				
@@ -645,16 +646,15 @@ public class MethodDecompiler {
 				// Since unconditional loops are equal to "do {...} while(true)", this structure can always be used
 				// in this case.
 				boolean isDoWhile = loopStartIndex == 0
-						|| (byteCodeEntries.get(loopStartIndex - 1).getInstruction() != ByteCodeInstruction._goto
-						&& byteCodeEntries.get(loopStartIndex - 1).getInstruction() != ByteCodeInstruction.goto_w);
+						|| (instructions.getInstruction(loopStartIndex - 1) != ByteCodeInstruction._goto
+						&& instructions.getInstruction(loopStartIndex - 1) != ByteCodeInstruction.goto_w);
 				
 				// Get the loop condition start index.
 				int conditionStartIndex = -1;
 				if(!isDoWhile) {
 					
 					// The loop starts with a GOTO that directly points at the condition.
-					conditionStartIndex = this.getInstrIndexForBranch(
-							byteCodeEntries, byteCodeEntries.get(loopStartIndex - 1));
+					conditionStartIndex = offsetIndex.getBranchTargetIndex(loopStartIndex - 1);
 					assert conditionStartIndex != -1;
 				} else {
 					
@@ -677,13 +677,11 @@ public class MethodDecompiler {
 								
 								// Get the last instruction of the current code block.
 								CodeBlockBounds nextCodeBlockBounds = codeBlockBoundsArray[j + 1];
-								ByteCodeEntry lastCodeEntry =
-										byteCodeEntries.get(nextCodeBlockBounds.getInstrIndex() - 1);
+								int lastInstrIndex = nextCodeBlockBounds.getInstrIndex() - 1;
 								
 								// Overwrite the start index if this last instruction branches to the loop start.
-								if(lastCodeEntry.getInstruction().isBranchInstruction()
-										&& this.getInstrIndexForBranch(
-										byteCodeEntries, lastCodeEntry) == loopStartIndex) {
+								if(instructions.getInstruction(lastInstrIndex).isBranchInstruction()
+										&& offsetIndex.getBranchTargetIndex(lastInstrIndex) == loopStartIndex) {
 									conditionStartIndex = boundsInstrIndex;
 								}
 							}
@@ -715,9 +713,8 @@ public class MethodDecompiler {
 		Map<Integer, CodeLoop> loopBreakInstrIndicesMap = new HashMap<Integer, CodeLoop>();
 		for(CodeLoop codeLoop : codeLoops) {
 			for(int i = codeLoop.getStartInstrIndex(); i < codeLoop.getConditionStartInstrIndex(); i++) {
-				ByteCodeEntry codeEntry = byteCodeEntries.get(i);
-				if(codeEntry.getInstruction().isBranchInstruction()) {
-					int branchTarget = this.getInstrIndexForBranch(byteCodeEntries, codeEntry);
+				if(instructions.getInstruction(i).isBranchInstruction()) {
+					int branchTarget = offsetIndex.getBranchTargetIndex(i);
 					/* TODO - This fails due to branches directly back to the loop start being seen as part of the
 					 * condition. This can probably be resolved by detecting no condition and making a while(true)
 					 * loop so that the branches directly to the method start can be "continue" and the loop condition
@@ -731,12 +728,12 @@ public class MethodDecompiler {
 							: "Loop code branch accesses the middle of the condition code. Method: "
 							+ this.method.getName(this.constPool) + this.method.getDesc(this.constPool)
 							+ ", branch instr index: "
-							+ codeEntry.getInstructionIndex() + ", target instr index: " + branchTarget
+							+ i + ", target instr index: " + branchTarget
 							+ ", code loop: " + codeLoop;
 					if(branchTarget == codeLoop.getConditionStartInstrIndex()) {
-						loopContinueInstrIndicesMap.put(codeEntry.getInstructionIndex(), codeLoop);
+						loopContinueInstrIndicesMap.put(i, codeLoop);
 					} else if(branchTarget == codeLoop.getBreakTargetInstrIndex()) {
-						loopBreakInstrIndicesMap.put(codeEntry.getInstructionIndex(), codeLoop);
+						loopBreakInstrIndicesMap.put(i, codeLoop);
 					}
 				}
 			}
@@ -822,9 +819,7 @@ public class MethodDecompiler {
 //		ret += "\n}";
 //		return ret;
 		
-		// Generate a String to return (using CodeBlock objects).
-		String ret = "{";
-		String tabs = "\t";
+		// Determine the order of labels and code blocks.
 		ArrayList<Object> codeObjects = new ArrayList<Object>();
 		ArrayList<CodeLabel> usedLabelMap = new ArrayList<CodeLabel>();
 		for(int i = 0; i < codeBlocks.size(); i++) {
@@ -846,12 +841,6 @@ public class MethodDecompiler {
 				continue;
 			}
 			
-			// Add a label scope closing "}" if the label was defined earlier.
-			if(usedLabelMap.contains(label)) {
-				tabs = tabs.substring(1);
-				ret += "\n" + tabs + "}";
-			}
-			
 			// Check if the code block is referenced to from a later index (detect loops).
 			int lastRefIndex = -1;
 			for(int j = i; j < codeBlocks.size(); j++) {
@@ -867,7 +856,6 @@ public class MethodDecompiler {
 				CodeLabel breakLabel = codeBlocks.get(lastRefIndex).getLabel();
 				if(!usedLabelMap.contains(breakLabel)) {
 					usedLabelMap.add(breakLabel);
-					ret += "\n" + tabs + breakLabel.toString() + ":";
 					
 					int lastLowerLabelIndex = -1;
 					for(int k = 0; k < codeObjects.size(); k++) {
@@ -888,8 +876,6 @@ public class MethodDecompiler {
 				}
 				CodeLabel loopLabel = new CodeLabel(label.getId(), LabelType.LOOP_LABEL);
 				codeObjects.add(loopLabel);
-				ret += "\n" + tabs + loopLabel.toString() + ":\n" + tabs + "while(true) {";
-				tabs += "\t";
 				usedLabelMap.add(loopLabel);
 				
 			}
@@ -914,40 +900,20 @@ public class MethodDecompiler {
 					} else {
 						codeObjects.add(lastLowerLabelIndex, gotoLabel);
 					}
-					
-					ret += "\n" + tabs + gotoLabel.toString() + ": {";
-					tabs += "\t";
 					usedLabelMap.add(gotoLabel);
 				}
 			}
 			
-			// Add the code. TODO - Replace labels somewhere else. Check label indices instead of strings.
+			// Add the code. Decompiling it here also defines the local variables that later code blocks use.
 			codeObjects.add(codeBlocks.get(i));
-			String decompStr = codeBlocks.get(i).toDecompiledCodeString();
-			Matcher matcher = Pattern.compile(" goto L([\\d]+)\\;").matcher(decompStr);
-			if(matcher.find()) { // Only check one occurence.
-				int labelIndex = Integer.parseInt(matcher.group(1));
-				if(labelIndex > i) {
-					decompStr = decompStr.substring(0, matcher.start()) + " break L" + labelIndex + ";"
-							+ decompStr.substring(matcher.end());
-				} else {
-					decompStr = decompStr.substring(0, matcher.start()) + " continue LOOP_L" + labelIndex + ";"
-							+ decompStr.substring(matcher.end());
-				}
-			}
-			decompStr = decompStr.replaceAll(" goto ", " break ");
-			
-			ret += ("\n" + decompStr).replaceAll("\n", "\n" + tabs);
-			
+			codeBlocks.get(i).toDecompiledCodeString();
 		}
-		ret += "\n}";
-		
-		
 		
 		// TODO - LOOP labels are at the wrong location (should often be before some labels) and are not closed with a "}".
-		// Form a code string from the labels and code.
-		ret = "{";
-		tabs = "\t";
+		// Write the code from the labels and code.
+		int baseIndentation = writer.getIndentation();
+		writer.append('{');
+		writer.indent();
 		for(int k = 0; k < codeObjects.size(); k++) {
 //			ret += "\n\n" + codeObjects.get(k).toString(); // DEBUG.
 			
@@ -956,16 +922,16 @@ public class MethodDecompiler {
 				CodeLabel label = (CodeLabel) obj;
 				switch(label.getType()) {
 				case BRANCH_LABEL:
-					ret += "\n" + tabs + label.toString() + ": {";
-					tabs += "\t";
+					writer.append('\n').append(label.toString()).append(": {");
+					writer.indent();
 					break;
 				case CATCH_LABEL:
-					ret += "\n" + tabs + label.toString() + ": {";
-					tabs += "\t";
+					writer.append('\n').append(label.toString()).append(": {");
+					writer.indent();
 //					throw new RuntimeException("CodeLabel type CATCH_LABEL has not been implemented.");
 				case LOOP_LABEL:
-					ret += "\n" + tabs + label.toString() + ":\n" + tabs + "while(true) {";
-					tabs += "\t";
+					writer.append('\n').append(label.toString()).append(":\nwhile(true) {");
+					writer.indent();
 					break;
 				default:
 					throw new RuntimeException("Unexpected CodeLabel type: " + label.getType().toString());
@@ -980,8 +946,8 @@ public class MethodDecompiler {
 					Object obj2 = codeObjects.get(m);
 					if(obj2 instanceof CodeLabel && ((CodeLabel) obj2).getId() == codeBlock.getLabel().getId()
 							&& ((CodeLabel) obj2).getType() != LabelType.LOOP_LABEL) {
-						tabs = tabs.substring(1);
-						ret += "\n" + tabs + "}";
+						writer.unindent();
+						writer.append("\n}");
 					}
 				}
 				
@@ -1000,16 +966,15 @@ public class MethodDecompiler {
 				}
 //				decompStr = decompStr.replaceAll(" goto ", " break ");
 				
-				ret += ("\n" + decompStr).replaceAll("\n", "\n" + tabs);
+				writer.append('\n').append(decompStr);
 				
 				
 			} else {
 				throw new RuntimeException("Unexpected object type: " + obj.getClass().getName());
 			}
 		}
-		ret += "\n}";
-		
-		return ret;
+		writer.setIndentation(baseIndentation);
+		writer.append("\n}");
 		
 		
 		
@@ -1617,7 +1582,7 @@ public class MethodDecompiler {
 	}
 	
 	private List<ExceptionHandler> getExceptionHandlers(
-			ExceptionTable exceptionTable, List<ByteCodeEntry> byteCodeEntries) throws DecompileException {
+			ExceptionTable exceptionTable, ByteCodeOffsetIndex offsetIndex) throws DecompileException {
 		ArrayList<ExceptionHandler> exceptionHandlers = new ArrayList<ExceptionHandler>(); 
 		for(ExceptionTableEntry exEntry : exceptionTable.getTableEntries()) {
 			
@@ -1649,24 +1614,9 @@ public class MethodDecompiler {
 			int endPc = exEntry.getEndPc();
 			int handlerPc = exEntry.getHandlerPc();
 			
-			int startPcIndex = -1;
-			int endPcIndex = -1;
-			int handlerPcIndex = -1;
-			for(int i = 0; i < byteCodeEntries.size(); i++) {
-				ByteCodeEntry codeEntry = byteCodeEntries.get(i);
-				if(codeEntry.getOffset() == startPc) {
-					startPcIndex = i;
-				}
-				if(codeEntry.getOffset() == endPc) {
-					endPcIndex = i;
-				}
-				if(codeEntry.getOffset() == handlerPc) {
-					handlerPcIndex = i;
-				}
-				if(startPcIndex != -1 && endPcIndex != -1 && handlerPcIndex != -1) {
-					break;
-				}
-			}
+			int startPcIndex = offsetIndex.getInstrIndex(startPc);
+			int endPcIndex = offsetIndex.getInstrIndex(endPc);
+			int handlerPcIndex = offsetIndex.getInstrIndex(handlerPc);
 			if(startPcIndex == -1 || endPcIndex == -1 || handlerPcIndex == -1) {
 				throw new DecompileException("Invalid ExceptionTable entry: {start_pc=" + startPc
 						+ ", end_pc=" + endPc + ", handler_pc=" + handlerPc + ", exception_type=" + exceptionType + "}");
@@ -1688,22 +1638,4 @@ public class MethodDecompiler {
 		return exceptionHandlers;
 	}
 	
-	/**
-	 * Gets the instruction index (target) for a branch instruction.
-	 * @param byteCodeEntries - The byte code entries of the method.
-	 * @param branchCodeEntry
-	 * @return The instruction index or -1 if no matching byte code entry was found.
-	 */
-	private int getInstrIndexForBranch(ArrayList<ByteCodeEntry> byteCodeEntries, ByteCodeEntry branchCodeEntry) {
-		int branchOffset = branchCodeEntry.getSignedInstructionArgs()[0];
-		int absoluteIndex = branchCodeEntry.getOffset() + branchOffset;
-		
-		for(int i = 0; i < byteCodeEntries.size(); i++) {
-			if(byteCodeEntries.get(i).getOffset() == absoluteIndex) {
-				return byteCodeEntries.get(i).getInstructionIndex(); // Should equal "Return i;".
-			}
-		}
-		return -1;
-	}
-	
 }
@@ -0,0 +1,292 @@
+package io.github.pieter12345.wbce.decompile;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import io.github.pieter12345.wbce.ByteCodeInstruction;
+import io.github.pieter12345.wbce.ClassConstantPool;
+import io.github.pieter12345.wbce.InstructionTable;
+import io.github.pieter12345.wbce.ByteCodeInstruction.ByteCodeInstructionPayload;
+import io.github.pieter12345.wbce.ClassMethods.ClassMethod;
+import io.github.pieter12345.wbce.attribute.CodeAttribute;
+import io.github.pieter12345.wbce.attribute.IAttribute;
+import io.github.pieter12345.wbce.attribute.LocalVariableTableAttribute;
+import io.github.pieter12345.wbce.attribute.CodeAttribute.ExceptionTableEntry;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolClassRef;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolDouble;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolFieldRef;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolFloat;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolInteger;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolInterfaceRef;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolInvokeDynamic;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolLong;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolMethodHandle;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolMethodRef;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolMethodType;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolNameAndTypeDesc;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolObject;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolString;
+import io.github.pieter12345.wbce.constantpool.ConstantPoolStringRef;
+
+/**
+ * Represents a SHA-256 hash of everything that the output of {@link MethodDecompiler} depends on: the class name,
+ * the method access flags, name and descriptor, the instructions, the exception table and the local variable names.
+ * Constant pool indices are hashed as the values they point to, so the fingerprint of a method does not change when
+ * the constant pool of its class is reordered by changes elsewhere in the class.
+ * Instances of this class are immutable.
+ * @author P.J.S. Kools
+ */
+public final class MethodFingerprint {
+	
+	// Variables & Constants.
+	
+	/**
+	 * The version of the decompiler output, which is included in every fingerprint. This has to be increased
+	 * whenever a change to the decompiler changes its output, so that persisted results are no longer used.
+	 */
+	public static final int DECOMPILER_VERSION = 1;
+	
+	private static final int MAX_CONSTANT_DEPTH = 4; // MethodHandle -> MethodRef -> NameAndType -> String.
+	private static final char[] HEX_CHARS = "0123456789abcdef".toCharArray();
+	
+	private final byte[] hash;
+	private final int hashCode;
+	
+	private MethodFingerprint(byte[] hash) {
+		this.hash = hash;
+		this.hashCode = Arrays.hashCode(hash);
+	}
+	
+	/**
+	 * Computes the fingerprint of the given method.
+	 * @param className - The name of the class as passed to {@link MethodDecompiler}.
+	 * @param method - The method.
+	 * @param constPool - The constant pool of the class containing the method.
+	 * @return The fingerprint, or null if the method does not have exactly one {@link CodeAttribute}, or contains
+	 * invalid bytecode or constant pool references. Decompiling such a method fails, so it cannot be cached.
+	 */
+	public static MethodFingerprint compute(String className, ClassMethod method, ClassConstantPool constPool) {
+		
+		// Get the CodeAttribute.
+		CodeAttribute codeAttr = null;
+		for(IAttribute attr : method.getAttributes().getAttributes()) {
+			if(attr instanceof CodeAttribute) {
+				if(codeAttr != null) {
+					return null;
+				}
+				codeAttr = (CodeAttribute) attr;
+			}
+		}
+		if(codeAttr == null) {
+			return null;
+		}
+		InstructionTable instructions;
+		try {
+			instructions = InstructionTable.fromCodeBytes(codeAttr.getCodeBytes());
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+		
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new Error("SHA-256 is required to be supported by every Java platform.", e);
+		}
+		
+		// Hash the method header.
+		updateInt(digest, DECOMPILER_VERSION);
+		updateString(digest, className);
+		updateInt(digest, method.getAccessFlags().getValue());
+		if(!updateConstant(digest, constPool, method.getNameIndex(), 1)
+				|| !updateConstant(digest, constPool, method.getDescIndex(), 1)) {
+			return null;
+		}
+		
+		// Hash the instructions, replacing constant pool indices by the values they point to.
+		updateInt(digest, instructions.size());
+		for(int i = 0; i < instructions.size(); i++) {
+			ByteCodeInstruction instr = instructions.getInstruction(i);
+			digest.update(instructions.getOpCode(i));
+			if(instr == ByteCodeInstruction.tableswitch || instr == ByteCodeInstruction.lookupswitch) {
+				int caseCount = instructions.getSwitchCaseCount(i);
+				updateInt(digest, instructions.getSwitchDefaultJump(i));
+				updateInt(digest, caseCount);
+				for(int j = 0; j < caseCount; j++) {
+					updateInt(digest, instructions.getSwitchCaseKey(i, j));
+					updateInt(digest, instructions.getSwitchCaseJump(i, j));
+				}
+				continue;
+			}
+			ByteCodeInstructionPayload[] payloadTypes = instr.getPayloadTypes();
+			for(int j = 0; j < InstructionTable.MAX_ARGS; j++) {
+				if(j < payloadTypes.length && payloadTypes[j].isConstPoolIndex()) {
+					if(!updateConstant(digest, constPool, instructions.getArg(i, j), 0)) {
+						return null;
+					}
+				} else {
+					updateInt(digest, instructions.getArg(i, j));
+				}
+			}
+		}
+		
+		// Hash the exception table.
+		updateInt(digest, codeAttr.getExceptionTable().getTableEntries().size());
+		for(ExceptionTableEntry entry : codeAttr.getExceptionTable().getTableEntries()) {
+			updateInt(digest, entry.getStartPc());
+			updateInt(digest, entry.getEndPc());
+			updateInt(digest, entry.getHandlerPc());
+			if(!updateConstant(digest, constPool, entry.getCatchTypeIndex(), 0)) {
+				return null;
+			}
+		}
+		
+		// Hash the local variable tables, which provide the variable names.
+		for(IAttribute attr : codeAttr.getAttributes().getAttributes()) {
+			if(attr instanceof LocalVariableTableAttribute) {
+				LocalVariableTableAttribute localVarTableAttr = (LocalVariableTableAttribute) attr;
+				updateInt(digest, localVarTableAttr.size());
+				for(int i = 0; i < localVarTableAttr.size(); i++) {
+					LocalVariableTableAttribute.LocalVariable localVar = localVarTableAttr.getLocalVariable(i);
+					updateInt(digest, localVar.getStartPc());
+					updateInt(digest, localVar.getPcLength());
+					updateInt(digest, localVar.getVariableIndex());
+					if(!updateConstant(digest, constPool, localVar.getNameIndex(), 1)
+							|| !updateConstant(digest, constPool, localVar.getDescIndex(), 1)) {
+						return null;
+					}
+				}
+			}
+		}
+		return new MethodFingerprint(digest.digest());
+	}
+	
+	/**
+	 * Hashes the constant pool value at the given index, including the values it refers to.
+	 * @param digest - The digest to update.
+	 * @param constPool - The constant pool.
+	 * @param index - The constant pool index, or 0 for an absent optional reference.
+	 * @param depth - The amount of references followed to get to this index.
+	 * @return True if the value was hashed, false if the index or one of the references in the value is invalid.
+	 */
+	private static boolean updateConstant(MessageDigest digest, ClassConstantPool constPool, int index, int depth) {
+		if(index == 0) {
+			digest.update((byte) 0);
+			return true;
+		}
+		if(!constPool.hasIndex(index) || depth > MAX_CONSTANT_DEPTH) {
+			return false;
+		}
+		ConstantPoolObject obj = constPool.get(index);
+		if(obj == null) {
+			return false; // Second slot of a long or double.
+		}
+		digest.update(obj.getType().getTagByte());
+		if(obj instanceof ConstantPoolString) {
+			updateString(digest, ((ConstantPoolString) obj).getString());
+			return true;
+		} else if(obj instanceof ConstantPoolInteger) {
+			updateInt(digest, ((ConstantPoolInteger) obj).getValue());
+			return true;
+		} else if(obj instanceof ConstantPoolFloat) {
+			updateInt(digest, Float.floatToRawIntBits(((ConstantPoolFloat) obj).getValue()));
+			return true;
+		} else if(obj instanceof ConstantPoolLong) {
+			updateLong(digest, ((ConstantPoolLong) obj).getValue());
+			return true;
+		} else if(obj instanceof ConstantPoolDouble) {
+			updateLong(digest, Double.doubleToRawLongBits(((ConstantPoolDouble) obj).getValue()));
+			return true;
+		} else if(obj instanceof ConstantPoolClassRef) {
+			return updateConstant(digest, constPool, ((ConstantPoolClassRef) obj).getIndex(), depth + 1);
+		} else if(obj instanceof ConstantPoolStringRef) {
+			return updateConstant(digest, constPool, ((ConstantPoolStringRef) obj).getIndex(), depth + 1);
+		} else if(obj instanceof ConstantPoolMethodType) {
+			return updateConstant(digest, constPool, ((ConstantPoolMethodType) obj).getIndex(), depth + 1);
+		} else if(obj instanceof ConstantPoolFieldRef) {
+			ConstantPoolFieldRef ref = (ConstantPoolFieldRef) obj;
+			return updateConstant(digest, constPool, ref.getClassIndex(), depth + 1)
+					&& updateConstant(digest, constPool, ref.getNameAndTypeIndex(), depth + 1);
+		} else if(obj instanceof ConstantPoolMethodRef) {
+			ConstantPoolMethodRef ref = (ConstantPoolMethodRef) obj;
+			return updateConstant(digest, constPool, ref.getClassIndex(), depth + 1)
+					&& updateConstant(digest, constPool, ref.getNameAndTypeIndex(), depth + 1);
+		} else if(obj instanceof ConstantPoolInterfaceRef) {
+			ConstantPoolInterfaceRef ref = (ConstantPoolInterfaceRef) obj;
+			return updateConstant(digest, constPool, ref.getClassIndex(), depth + 1)
+					&& updateConstant(digest, constPool, ref.getNameAndTypeIndex(), depth + 1);
+		} else if(obj instanceof ConstantPoolNameAndTypeDesc) {
+			ConstantPoolNameAndTypeDesc nameAndType = (ConstantPoolNameAndTypeDesc) obj;
+			return updateConstant(digest, constPool, nameAndType.getNameIndex(), depth + 1)
+					&& updateConstant(digest, constPool, nameAndType.getTypeDescIndex(), depth + 1);
+		} else if(obj instanceof ConstantPoolMethodHandle) {
+			ConstantPoolMethodHandle handle = (ConstantPoolMethodHandle) obj;
+			digest.update(handle.getRefKind());
+			return updateConstant(digest, constPool, handle.getRefIndex(), depth + 1);
+		} else if(obj instanceof ConstantPoolInvokeDynamic) {
+			
+			// The bootstrap method index points into the BootstrapMethods attribute of the class, so hash it as is.
+			ConstantPoolInvokeDynamic invokeDynamic = (ConstantPoolInvokeDynamic) obj;
+			updateInt(digest, invokeDynamic.getBootstrapMethodAttrIndex());
+			return updateConstant(digest, constPool, invokeDynamic.getNameAndTypeDescIndex(), depth + 1);
+		}
+		return false;
+	}
+	
+	private static void updateInt(MessageDigest digest, int value) {
+		digest.update((byte) (value >>> 24));
+		digest.update((byte) (value >>> 16));
+		digest.update((byte) (value >>> 8));
+		digest.update((byte) value);
+	}
+	
+	private static void updateLong(MessageDigest digest, long value) {
+		updateInt(digest, (int) (value >>> 32));
+		updateInt(digest, (int) value);
+	}
+	
+	private static void updateString(MessageDigest digest, String str) {
+		byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+		updateInt(digest, bytes.length);
+		digest.update(bytes);
+	}
+	
+	/**
+	 * Gets the hash of this fingerprint.
+	 * @return A new array containing the 32 byte SHA-256 hash.
+	 */
+	public byte[] getHash() {
+		return this.hash.clone();
+	}
+	
+	/**
+	 * Gets the hash of this fingerprint as a lowercase hexadecimal string.
+	 * @return The 64 character hexadecimal string.
+	 */
+	public String toHexString() {
+		char[] chars = new char[2 * this.hash.length];
+		for(int i = 0; i < this.hash.length; i++) {
+			chars[2 * i] = HEX_CHARS[(this.hash[i] >> 4) & 0x0F];
+			chars[2 * i + 1] = HEX_CHARS[this.hash[i] & 0x0F];
+		}
+		return new String(chars);
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		return obj == this
+				|| (obj instanceof MethodFingerprint && Arrays.equals(this.hash, ((MethodFingerprint) obj).hash));
+	}
+	
+	@Override
+	public int hashCode() {
+		return this.hashCode;
+	}
+	
+	@Override
+	public String toString() {
+		return MethodFingerprint.class.getSimpleName() + ": {" + this.toHexString() + "}";
+	}
+}
@@ -0,0 +1,111 @@
+package io.github.pieter12345.wbce.decompile;
+
+import java.io.IOException;
+
+/**
+ * Writes source code to an {@link Appendable}, prefixing every line with the current indentation.
+ * The indentation of a line is written just before its first character, so empty lines are not indented.
+ * Text is passed through directly, so the output is never held in memory by this writer.
+ * @author P.J.S. Kools
+ */
+public class SourceWriter {
+	
+	// Variables & Constants.
+	private final Appendable out;
+	private int indentation = 0;
+	private boolean atLineStart = true;
+	
+	/**
+	 * Creates a new {@link SourceWriter}.
+	 * @param out - The {@link Appendable} to write to.
+	 */
+	public SourceWriter(Appendable out) {
+		this.out = out;
+	}
+	
+	/**
+	 * Writes the given text, indenting every line in it.
+	 * @param str - The text to write.
+	 * @return This {@link SourceWriter}.
+	 * @throws IOException If the underlying {@link Appendable} throws an {@link IOException}.
+	 */
+	public SourceWriter append(CharSequence str) throws IOException {
+		int length = str.length();
+		int lineStart = 0;
+		for(int i = 0; i < length; i++) {
+			if(str.charAt(i) == '\n') {
+				if(i > lineStart) {
+					this.writeIndentation();
+					this.out.append(str, lineStart, i);
+				}
+				this.out.append('\n');
+				this.atLineStart = true;
+				lineStart = i + 1;
+			}
+		}
+		if(lineStart < length) {
+			this.writeIndentation();
+			this.out.append(str, lineStart, length);
+		}
+		return this;
+	}
+	
+	/**
+	 * Writes the given character, indenting it if it is the first character of a line.
+	 * @param c - The character to write.
+	 * @return This {@link SourceWriter}.
+	 * @throws IOException If the underlying {@link Appendable} throws an {@link IOException}.
+	 */
+	public SourceWriter append(char c) throws IOException {
+		if(c == '\n') {
+			this.out.append('\n');
+			this.atLineStart = true;
+		} else {
+			this.writeIndentation();
+			this.out.append(c);
+		}
+		return this;
+	}
+	
+	private void writeIndentation() throws IOException {
+		if(this.atLineStart) {
+			for(int i = 0; i < this.indentation; i++) {
+				this.out.append('\t');
+			}
+			this.atLineStart = false;
+		}
+	}
+	
+	/**
+	 * Increases the indentation of the following lines by one tab.
+	 * @return This {@link SourceWriter}.
+	 */
+	public SourceWriter indent() {
+		this.indentation++;
+		return this;
+	}
+	
+	/**
+	 * Decreases the indentation of the following lines by one tab.
+	 * @return This {@link SourceWriter}.
+	 * @throws IllegalStateException If the indentation is already zero.
+	 */
+	public SourceWriter unindent() {
+		if(this.indentation == 0) {
+			throw new IllegalStateException("Cannot unindent beyond zero indentation.");
+		}
+		this.indentation--;
+		return this;
+	}
+	
+	public int getIndentation() {
+		return this.indentation;
+	}
+	
+	public void setIndentation(int indentation) {
+		if(indentation < 0) {
+			throw new IllegalArgumentException("Indentation cannot be negative: " + indentation);
+		}
+		this.indentation = indentation;
+	}
+}
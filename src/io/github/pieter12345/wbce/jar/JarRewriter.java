@@ -0,0 +1,226 @@
+package io.github.pieter12345.wbce.jar;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipException;
+
+import io.github.pieter12345.wbce.ClassFile;
+import io.github.pieter12345.wbce.ReadOption;
+import io.github.pieter12345.wbce.attribute.AttributeDecoderRegistry;
+
+/**
+ * Rewrites a jar or zip file into a new file, where only changed entries are encoded and compressed again.
+ * Class files can be read from the input through {@link #getClassFile(String, Set)} and modified in place, and entries
+ * can be replaced, added and removed. When writing, read class files that serialize to the same bytes as the
+ * input entry, as well as all entries that were not read, are copied as they are stored in the input through
+ * {@link ParallelJarWriter#copyRaw(MappedJarFile, MappedJarFile.Entry)}. Changing a few classes in a large jar file
+ * therefore only costs reading, serializing and compressing those classes, plus copying the rest of the file.
+ * @author P.J.S. Kools
+ */
+public class JarRewriter implements Closeable {
+	
+	// Variables & Constants.
+	private final MappedJarFile jarFile;
+	private final Map<String, ReadClass> readClasses = new HashMap<String, ReadClass>();
+	private final Map<String, Object> replacements = new LinkedHashMap<String, Object>(); // byte[] or ClassFile.
+	private final Set<String> removedNames = new HashSet<String>();
+	
+	/**
+	 * Opens the given jar or zip file for rewriting.
+	 * @param input - The jar or zip file to rewrite.
+	 * @throws FileNotFoundException If the given file was not found.
+	 * @throws ZipException If the file is not a valid zip file.
+	 * @throws IOException If an I/O error occurs while mapping the file.
+	 */
+	public JarRewriter(File input) throws FileNotFoundException, ZipException, IOException {
+		this.jarFile = new MappedJarFile(input);
+	}
+	
+	/**
+	 * Gets the input jar or zip file.
+	 * @return The input {@link MappedJarFile}.
+	 */
+	public MappedJarFile getJarFile() {
+		return this.jarFile;
+	}
+	
+	/**
+	 * Reads the class file in the input entry with the given name. See {@link #getClassFile(String, Set)}.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @return The class file, or null if the input has no entry with the given name.
+	 * @throws IOException If the entry could not be read.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassFile getClassFile(String name) throws IOException, Exception {
+		return this.getClassFile(name, EnumSet.noneOf(ReadOption.class));
+	}
+	
+	/**
+	 * Reads the class file in the input entry with the given name. The class file is read once, after which the same
+	 * {@link ClassFile} is returned. Modifications to the returned {@link ClassFile} are written to the output.
+	 * Read options that drop data, such as {@link ReadOption#SKIP_DEBUG}, cause the class file to be written without
+	 * that data.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @param readOptions - The options to parse the class file with when it has not been read yet.
+	 * @return The class file, or null if the input has no entry with the given name.
+	 * @throws IOException If the entry could not be read.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassFile getClassFile(String name, Set<ReadOption> readOptions) throws IOException, Exception {
+		return this.getClassFile(name, readOptions, null);
+	}
+	
+	/**
+	 * Reads the class file in the input entry with the given name as described in {@link #getClassFile(String, Set)},
+	 * decoding attributes with the decoders from the given registry.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @param readOptions - The options to parse the class file with when it has not been read yet.
+	 * @param attrDecoderRegistry - The registry to decode attributes with when the class file has not been read yet,
+	 * or null to use the default registry.
+	 * @return The class file, or null if the input has no entry with the given name.
+	 * @throws IOException If the entry could not be read.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassFile getClassFile(String name, Set<ReadOption> readOptions,
+			AttributeDecoderRegistry attrDecoderRegistry) throws IOException, Exception {
+		ReadClass readClass = this.readClasses.get(name);
+		if(readClass == null) {
+			MappedJarFile.Entry entry = this.jarFile.getEntry(name);
+			if(entry == null) {
+				return null;
+			}
+			
+			// Keep the read bytes to detect whether the class file has changed when writing.
+			ByteBuffer bytes = (entry.getMethod() == MappedJarFile.STORED
+					? this.jarFile.getBuffer(entry) : ByteBuffer.wrap(this.jarFile.readBytes(entry)));
+			readClass = new ReadClass(ClassFile.read(bytes, readOptions, null, attrDecoderRegistry), bytes);
+			this.readClasses.put(name, readClass);
+		}
+		return readClass.classFile;
+	}
+	
+	/**
+	 * Sets the data of the entry with the given name, replacing the input entry or adding a new entry.
+	 * @param name - The entry name.
+	 * @param bytes - The entry data, which should not be modified afterwards.
+	 */
+	public void put(String name, byte[] bytes) {
+		this.replacements.put(name, bytes);
+		this.removedNames.remove(name);
+	}
+	
+	/**
+	 * Sets the class file of the entry with the given name, replacing the input entry or adding a new entry.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @param classFile - The class file, which is serialized when writing.
+	 */
+	public void put(String name, ClassFile classFile) {
+		this.replacements.put(name, classFile);
+		this.removedNames.remove(name);
+	}
+	
+	/**
+	 * Removes the entry with the given name, so that it is not written.
+	 * @param name - The entry name.
+	 */
+	public void remove(String name) {
+		this.replacements.remove(name);
+		this.removedNames.add(name);
+	}
+	
+	/**
+	 * Writes the rewritten jar or zip file using all available processors. See {@link #writeTo(File, int)}.
+	 * @param output - The file to write, which is overwritten if it exists. This must not be the input file.
+	 * @return The amount of entries that were encoded and compressed instead of copied.
+	 * @throws IOException If an I/O error occurs while reading or writing, or if an entry could not be compressed.
+	 */
+	public int writeTo(File output) throws IOException {
+		return this.writeTo(output, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Writes the rewritten jar or zip file. Entries of the input are written in their original order, followed by the
+	 * added entries in the order in which they were added. Replaced entries and changed class files are encoded and
+	 * compressed in parallel, and all other entries are copied as they are stored in the input.
+	 * @param output - The file to write, which is overwritten if it exists. This must not be the input file.
+	 * @param threadCount - The amount of threads to compress changed entries with.
+	 * @return The amount of entries that were encoded and compressed instead of copied.
+	 * @throws IOException If an I/O error occurs while reading or writing, or if an entry could not be compressed.
+	 */
+	public int writeTo(File output, int threadCount) throws IOException {
+		if(output.getCanonicalFile().equals(this.jarFile.getFile().getCanonicalFile())) {
+			throw new IOException("Cannot overwrite the input file while it is mapped: " + output.getAbsolutePath());
+		}
+		int encodedCount = 0;
+		try(ParallelJarWriter writer = new ParallelJarWriter(output, threadCount, MappedJarFile.DEFLATED)) {
+			for(MappedJarFile.Entry entry : this.jarFile.getEntries()) {
+				String name = entry.getName();
+				if(this.removedNames.contains(name)) {
+					continue;
+				}
+				Object replacement = this.replacements.get(name);
+				if(replacement != null) {
+					this.writeReplacement(writer, name, replacement);
+					encodedCount++;
+					continue;
+				}
+				ReadClass readClass = this.readClasses.get(name);
+				if(readClass != null) {
+					byte[] bytes = readClass.classFile.toBytes();
+					if(!ByteBuffer.wrap(bytes).equals(readClass.bytes)) {
+						writer.write(name, bytes);
+						encodedCount++;
+						continue;
+					}
+				}
+				writer.copyRaw(this.jarFile, entry);
+			}
+			for(Map.Entry<String, Object> replacement : this.replacements.entrySet()) {
+				if(this.jarFile.getEntry(replacement.getKey()) == null) {
+					this.writeReplacement(writer, replacement.getKey(), replacement.getValue());
+					encodedCount++;
+				}
+			}
+		}
+		return encodedCount;
+	}
+	
+	private void writeReplacement(ParallelJarWriter writer, String name, Object replacement) throws IOException {
+		if(replacement instanceof ClassFile) {
+			writer.write(name, (ClassFile) replacement);
+		} else {
+			writer.write(name, (byte[]) replacement);
+		}
+	}
+	
+	/**
+	 * Closes the input jar or zip file.
+	 */
+	@Override
+	public void close() {
+		this.jarFile.close();
+	}
+	
+	/**
+	 * Represents a class file that has been read from the input, together with the bytes it was read from.
+	 */
+	private static class ReadClass {
+		
+		private final ClassFile classFile;
+		private final ByteBuffer bytes;
+		
+		private ReadClass(ClassFile classFile, ByteBuffer bytes) {
+			this.classFile = classFile;
+			this.bytes = bytes;
+		}
+	}
+}
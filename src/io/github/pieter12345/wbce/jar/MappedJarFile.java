@@ -0,0 +1,585 @@
+package io.github.pieter12345.wbce.jar;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import io.github.pieter12345.wbce.ClassFile;
+import io.github.pieter12345.wbce.ClassHeader;
+import io.github.pieter12345.wbce.ReadOption;
+
+/**
+ * Reads entries from a jar or zip file without streaming through it. The file is memory-mapped and its central
+ * directory is parsed once on construction, after which entries can be read by name in any order.
+ * STORED entries are returned as slices of the mapped file without copying them. DEFLATED entries are inflated into
+ * a buffer that is reused per thread, or into a new array when the data has to outlive the next read.
+ * All methods can be called by multiple threads concurrently.
+ * @author P.J.S. Kools
+ */
+public class MappedJarFile implements Closeable {
+	
+	// Variables & Constants.
+	public static final int STORED = 0;
+	public static final int DEFLATED = 8;
+	
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034B50;
+	private static final int DATA_DESCRIPTOR_SIGNATURE = 0x08074B50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014B50;
+	private static final int END_OF_CENTRAL_DIR_SIGNATURE = 0x06054B50;
+	private static final int ZIP64_END_OF_CENTRAL_DIR_SIGNATURE = 0x06064B50;
+	private static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIGNATURE = 0x07064B50;
+	private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+	private static final int ENCRYPTED_FLAG = 0x0001;
+	private static final int DATA_DESCRIPTOR_FLAG = 0x0008;
+	private static final int LOCAL_HEADER_SIZE = 30;
+	private static final int CENTRAL_HEADER_SIZE = 46;
+	private static final int END_OF_CENTRAL_DIR_SIZE = 22;
+	
+	private final File file;
+	private final ByteBuffer buffer; // The mapped file in little-endian order, only read through absolute reads.
+	private final Map<String, Entry> entries; // The entries by name, in central directory order.
+	private final ThreadLocal<InflateContext> inflateContexts =
+			ThreadLocal.withInitial(() -> this.createInflateContext()); // The inflater and buffers per thread.
+	private final ConcurrentLinkedQueue<InflateContext> allInflateContexts =
+			new ConcurrentLinkedQueue<InflateContext>(); // The inflaters and buffers of all threads, ended on close.
+	private volatile boolean closed = false;
+	
+	/**
+	 * Opens the given jar or zip file by memory-mapping it and reading its central directory.
+	 * The file should not be modified while it is open.
+	 * @param file - The jar or zip file.
+	 * @throws FileNotFoundException If the given file was not found.
+	 * @throws ZipException If the file is not a valid zip file, or if it is a multi-disk zip file.
+	 * @throws IOException If an I/O error occurs while mapping the file, or if the file is larger than 2GB.
+	 */
+	public MappedJarFile(File file) throws FileNotFoundException, ZipException, IOException {
+		this.file = file;
+		try(FileChannel channel = new FileInputStream(file).getChannel()) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("File is too large to be mapped: " + file.getAbsolutePath());
+			}
+			this.buffer = channel.map(MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		this.entries = Collections.unmodifiableMap(this.readCentralDirectory());
+	}
+	
+	private Map<String, Entry> readCentralDirectory() throws ZipException {
+		
+		// Find the end of central directory record, which is followed by a comment of at most 65535 bytes.
+		int endPos = -1;
+		int minEndPos = Math.max(this.buffer.limit() - END_OF_CENTRAL_DIR_SIZE - 0xFFFF, 0);
+		for(int pos = this.buffer.limit() - END_OF_CENTRAL_DIR_SIZE; pos >= minEndPos; pos--) {
+			if(this.buffer.getInt(pos) == END_OF_CENTRAL_DIR_SIGNATURE
+					&& pos + END_OF_CENTRAL_DIR_SIZE + this.getUnsignedShort(pos + 20) == this.buffer.limit()) {
+				endPos = pos;
+				break;
+			}
+		}
+		if(endPos == -1) {
+			throw new ZipException("End of central directory not found in: " + this.file.getAbsolutePath());
+		}
+		if(this.getUnsignedShort(endPos + 4) != 0 || this.getUnsignedShort(endPos + 6) != 0) {
+			throw new ZipException("Multi-disk zip files are not supported: " + this.file.getAbsolutePath());
+		}
+		long entryCount = this.getUnsignedShort(endPos + 10);
+		long centralDirSize = this.getUnsignedInt(endPos + 12);
+		long centralDirOffset = this.getUnsignedInt(endPos + 16);
+		
+		// Use the zip64 end of central directory record when the values do not fit in the regular record.
+		int locatorPos = endPos - 20;
+		if((entryCount == 0xFFFF || centralDirSize == 0xFFFFFFFFL || centralDirOffset == 0xFFFFFFFFL)
+				&& locatorPos >= 0 && this.buffer.getInt(locatorPos) == ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIGNATURE) {
+			int zip64EndPos = this.checkRange(this.buffer.getLong(locatorPos + 8), 56);
+			if(this.buffer.getInt(zip64EndPos) != ZIP64_END_OF_CENTRAL_DIR_SIGNATURE) {
+				throw new ZipException("Invalid zip64 end of central directory in: " + this.file.getAbsolutePath());
+			}
+			entryCount = this.buffer.getLong(zip64EndPos + 32);
+			centralDirSize = this.buffer.getLong(zip64EndPos + 40);
+			centralDirOffset = this.buffer.getLong(zip64EndPos + 48);
+		}
+		
+		// Read the central directory file headers.
+		int pos = this.checkRange(centralDirOffset, centralDirSize);
+		int centralDirEnd = pos + (int) centralDirSize;
+		Map<String, Entry> entries = new LinkedHashMap<String, Entry>((int) Math.min(entryCount * 2, 1 << 20));
+		for(long i = 0; i < entryCount; i++) {
+			if(pos + CENTRAL_HEADER_SIZE > centralDirEnd || this.buffer.getInt(pos) != CENTRAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid central directory file header in: " + this.file.getAbsolutePath());
+			}
+			int flags = this.getUnsignedShort(pos + 8);
+			int method = this.getUnsignedShort(pos + 10);
+			int crc = this.buffer.getInt(pos + 16);
+			long compressedSize = this.getUnsignedInt(pos + 20);
+			long size = this.getUnsignedInt(pos + 24);
+			int nameLength = this.getUnsignedShort(pos + 28);
+			int extraLength = this.getUnsignedShort(pos + 30);
+			int commentLength = this.getUnsignedShort(pos + 32);
+			long localHeaderOffset = this.getUnsignedInt(pos + 42);
+			int headerEnd = pos + CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+			if(headerEnd > centralDirEnd) {
+				throw new ZipException("Invalid central directory file header in: " + this.file.getAbsolutePath());
+			}
+			
+			// Read the zip64 extra field, which contains the values that do not fit in the header.
+			if(size == 0xFFFFFFFFL || compressedSize == 0xFFFFFFFFL || localHeaderOffset == 0xFFFFFFFFL) {
+				int extraPos = pos + CENTRAL_HEADER_SIZE + nameLength;
+				int extraEnd = extraPos + extraLength;
+				while(extraPos + 4 <= extraEnd) {
+					int id = this.getUnsignedShort(extraPos);
+					int length = this.getUnsignedShort(extraPos + 2);
+					if(id == ZIP64_EXTRA_FIELD_ID) {
+						int fieldPos = extraPos + 4;
+						if(size == 0xFFFFFFFFL && fieldPos + 8 <= extraEnd) {
+							size = this.buffer.getLong(fieldPos);
+							fieldPos += 8;
+						}
+						if(compressedSize == 0xFFFFFFFFL && fieldPos + 8 <= extraEnd) {
+							compressedSize = this.buffer.getLong(fieldPos);
+							fieldPos += 8;
+						}
+						if(localHeaderOffset == 0xFFFFFFFFL && fieldPos + 8 <= extraEnd) {
+							localHeaderOffset = this.buffer.getLong(fieldPos);
+						}
+						break;
+					}
+					extraPos += 4 + length;
+				}
+			}
+			
+			// Create the entry. Its sizes and offset are validated against the file size, and the size of inflated
+			// entries is limited to the maximum array size.
+			byte[] nameBytes = new byte[nameLength];
+			ByteBuffer nameBuffer = this.buffer.duplicate();
+			nameBuffer.position(pos + CENTRAL_HEADER_SIZE);
+			nameBuffer.get(nameBytes);
+			String name = new String(nameBytes, StandardCharsets.UTF_8);
+			if(size > Integer.MAX_VALUE - 8) {
+				throw new ZipException("Entry is too large: " + name);
+			}
+			Entry entry = new Entry(name, flags, method, crc, pos, headerEnd - pos,
+					this.checkRange(localHeaderOffset, compressedSize), (int) compressedSize, (int) size);
+			entries.putIfAbsent(name, entry);
+			pos = headerEnd;
+		}
+		return entries;
+	}
+	
+	private int getUnsignedShort(int pos) {
+		return this.buffer.getShort(pos) & 0xFFFF;
+	}
+	
+	private long getUnsignedInt(int pos) {
+		return this.buffer.getInt(pos) & 0xFFFFFFFFL;
+	}
+	
+	/**
+	 * Checks whether the given range is within the mapped file.
+	 * @param offset - The offset of the range.
+	 * @param length - The length of the range.
+	 * @return The offset of the range.
+	 * @throws ZipException If the given range is not within the mapped file.
+	 */
+	private int checkRange(long offset, long length) throws ZipException {
+		if(offset < 0 || length < 0 || offset + length > this.buffer.limit()) {
+			throw new ZipException("Invalid offset " + offset + " or length " + length
+					+ " in: " + this.file.getAbsolutePath());
+		}
+		return (int) offset;
+	}
+	
+	/**
+	 * Gets the jar or zip file that this {@link MappedJarFile} reads from.
+	 * @return The file.
+	 */
+	public File getFile() {
+		return this.file;
+	}
+	
+	/**
+	 * Gets the entry with the given name.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @return The entry, or null if there is no entry with the given name.
+	 */
+	public Entry getEntry(String name) {
+		return this.entries.get(name);
+	}
+	
+	/**
+	 * Gets all entries in the order of the central directory.
+	 * @return An unmodifiable {@link Collection} containing the entries.
+	 */
+	public Collection<Entry> getEntries() {
+		return this.entries.values();
+	}
+	
+	/**
+	 * Gets the amount of entries.
+	 * @return The entry count.
+	 */
+	public int size() {
+		return this.entries.size();
+	}
+	
+	/**
+	 * Gets the data of the given entry. STORED entries are returned as a read-only slice of the mapped file without
+	 * copying them. DEFLATED entries are inflated into a buffer that is reused per thread, so the returned buffer is
+	 * only valid until the next call to this method from the same thread. Use {@link #readBytes(Entry)} or
+	 * {@link #readClassFile(Entry, Set)} when the data has to remain valid.
+	 * @param entry - The entry.
+	 * @return A buffer containing the entry data from its position to its limit.
+	 * @throws ZipException If the entry is encrypted, uses an unsupported compression method or has invalid data.
+	 * @throws IOException If this {@link MappedJarFile} has been closed.
+	 */
+	public ByteBuffer getBuffer(Entry entry) throws ZipException, IOException {
+		int dataOffset = this.getDataOffset(entry);
+		if(entry.method == STORED) {
+			return this.slice(dataOffset, entry.size);
+		}
+		InflateContext context = this.inflateContexts.get();
+		byte[] bytes = context.getOutputBuffer(entry.size);
+		this.inflate(entry, dataOffset, context, bytes);
+		return ByteBuffer.wrap(bytes, 0, entry.size);
+	}
+	
+	/**
+	 * Reads the data of the given entry into a new array.
+	 * @param entry - The entry.
+	 * @return The entry data.
+	 * @throws ZipException If the entry is encrypted, uses an unsupported compression method or has invalid data.
+	 * @throws IOException If this {@link MappedJarFile} has been closed.
+	 */
+	public byte[] readBytes(Entry entry) throws ZipException, IOException {
+		int dataOffset = this.getDataOffset(entry);
+		byte[] bytes = new byte[entry.size];
+		if(entry.method == STORED) {
+			this.slice(dataOffset, entry.size).get(bytes);
+		} else {
+			this.inflate(entry, dataOffset, this.inflateContexts.get(), bytes);
+		}
+		return bytes;
+	}
+	
+	/**
+	 * Reads the class file in the given entry. STORED entries are parsed from the mapped file without copying them,
+	 * in which case the returned {@link ClassFile} might keep the mapping reachable (see
+	 * {@link ClassFile#mapFromFile(File, Set)}). DEFLATED entries are inflated into a new array.
+	 * @param entry - The entry.
+	 * @param readOptions - The options to parse the class file with.
+	 * @return A {@link ClassFile} representing the class file in the given entry.
+	 * @throws ZipException If the entry is encrypted, uses an unsupported compression method or has invalid data.
+	 * @throws IOException If this {@link MappedJarFile} has been closed, or if the entry ends before the class file
+	 * does.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassFile readClassFile(Entry entry, Set<ReadOption> readOptions) throws IOException, Exception {
+		ByteBuffer buffer = (entry.method == STORED ? this.getBuffer(entry) : ByteBuffer.wrap(this.readBytes(entry)));
+		return ClassFile.read(buffer, readOptions);
+	}
+	
+	/**
+	 * Reads the header of the class file in the given entry. See {@link ClassFile#readHeader(ByteBuffer, boolean)}.
+	 * DEFLATED entries are inflated into the buffer that is reused per thread.
+	 * @param entry - The entry.
+	 * @param scanMembers - True to scan the fields, methods and attributes by their lengths, false to stop reading
+	 * after the interfaces.
+	 * @return A {@link ClassHeader} representing the header of the class file in the given entry.
+	 * @throws ZipException If the entry is encrypted, uses an unsupported compression method or has invalid data.
+	 * @throws IOException If this {@link MappedJarFile} has been closed, or if the entry ends before the read part of
+	 * the class file does.
+	 * @throws Exception If the class file has an illegal or unsupported format.
+	 */
+	public ClassHeader readHeader(Entry entry, boolean scanMembers) throws IOException, Exception {
+		return ClassFile.readHeader(this.getBuffer(entry), scanMembers);
+	}
+	
+	/**
+	 * Gets the offset of the data of the given entry, which follows its local file header.
+	 * @param entry - The entry.
+	 * @return The offset of the entry data in the mapped file.
+	 * @throws ZipException If the entry is encrypted, uses an unsupported compression method or has an invalid local
+	 * file header.
+	 * @throws IOException If this {@link MappedJarFile} has been closed.
+	 */
+	private int getDataOffset(Entry entry) throws ZipException, IOException {
+		if((entry.flags & ENCRYPTED_FLAG) != 0) {
+			throw new ZipException("Encrypted entries are not supported: " + entry.name);
+		}
+		if(entry.method != STORED && entry.method != DEFLATED) {
+			throw new ZipException("Unsupported compression method " + entry.method + " for entry: " + entry.name);
+		}
+		if(entry.method == STORED && entry.compressedSize != entry.size) {
+			throw new ZipException("Invalid size for stored entry: " + entry.name);
+		}
+		return this.getRawDataOffset(entry);
+	}
+	
+	/**
+	 * Gets the offset of the data of the given entry, without checking whether the data can be read.
+	 * @param entry - The entry.
+	 * @return The offset of the entry data in the mapped file.
+	 * @throws ZipException If the entry has an invalid local file header.
+	 * @throws IOException If this {@link MappedJarFile} has been closed.
+	 */
+	private int getRawDataOffset(Entry entry) throws ZipException, IOException {
+		if(this.closed) {
+			throw new IOException("The jar file has been closed: " + this.file.getAbsolutePath());
+		}
+		int dataOffset = entry.dataOffset;
+		if(dataOffset == -1) {
+			int pos = entry.localHeaderOffset;
+			this.checkRange(pos, LOCAL_HEADER_SIZE);
+			if(this.buffer.getInt(pos) != LOCAL_HEADER_SIGNATURE) {
+				throw new ZipException("Invalid local file header for entry: " + entry.name);
+			}
+			dataOffset = this.checkRange(pos + LOCAL_HEADER_SIZE
+					+ this.getUnsignedShort(pos + 26) + this.getUnsignedShort(pos + 28), entry.compressedSize);
+			entry.dataOffset = dataOffset;
+		}
+		return dataOffset;
+	}
+	
+	/**
+	 * Gets the given entry as it is stored in the file, being its local file header, compressed data and data
+	 * descriptor. This can be copied into another jar or zip file without inflating and deflating the data.
+	 * @param entry - The entry.
+	 * @return A read-only slice of the mapped file containing the entry.
+	 * @throws ZipException If the entry has an invalid local file header or data descriptor.
+	 * @throws IOException If this {@link MappedJarFile} has been closed.
+	 * @see #getRawCentralHeader(Entry)
+	 */
+	ByteBuffer getRawEntry(Entry entry) throws ZipException, IOException {
+		int end = this.getRawDataOffset(entry) + entry.compressedSize;
+		if((entry.flags & DATA_DESCRIPTOR_FLAG) != 0) {
+			
+			// The data descriptor contains the CRC-32 and sizes, which are 8 bytes for zip64 entries,
+			// and starts with an optional signature.
+			int descriptorLength = (this.hasLocalZip64ExtraField(entry) ? 20 : 12);
+			if(end + 4 <= this.buffer.limit() && this.buffer.getInt(end) == DATA_DESCRIPTOR_SIGNATURE) {
+				descriptorLength += 4;
+			}
+			end = this.checkRange(end, descriptorLength) + descriptorLength;
+		}
+		return this.slice(entry.localHeaderOffset, end - entry.localHeaderOffset);
+	}
+	
+	/**
+	 * Gets the central directory file header of the given entry as it is stored in the file.
+	 * @param entry - The entry.
+	 * @return A read-only slice of the mapped file containing the central directory file header.
+	 * @throws IOException If this {@link MappedJarFile} has been closed.
+	 * @see #getRawEntry(Entry)
+	 */
+	ByteBuffer getRawCentralHeader(Entry entry) throws IOException {
+		if(this.closed) {
+			throw new IOException("The jar file has been closed: " + this.file.getAbsolutePath());
+		}
+		return this.slice(entry.centralHeaderOffset, entry.centralHeaderLength);
+	}
+	
+	private boolean hasLocalZip64ExtraField(Entry entry) {
+		int pos = entry.localHeaderOffset;
+		int extraPos = pos + LOCAL_HEADER_SIZE + this.getUnsignedShort(pos + 26);
+		int extraEnd = extraPos + this.getUnsignedShort(pos + 28);
+		while(extraPos + 4 <= extraEnd) {
+			if(this.getUnsignedShort(extraPos) == ZIP64_EXTRA_FIELD_ID) {
+				return true;
+			}
+			extraPos += 4 + this.getUnsignedShort(extraPos + 2);
+		}
+		return false;
+	}
+	
+	private ByteBuffer slice(int offset, int length) {
+		ByteBuffer slice = this.buffer.duplicate();
+		slice.limit(offset + length).position(offset);
+		return slice.slice().asReadOnlyBuffer();
+	}
+	
+	private void inflate(Entry entry, int dataOffset, InflateContext context, byte[] bytes) throws ZipException {
+		
+		// Copy the compressed data, since an Inflater only takes array input. The extra zero byte is required by some
+		// zlib versions when inflating without a zlib header.
+		byte[] input = context.getInputBuffer(entry.compressedSize + 1);
+		ByteBuffer source = this.buffer.duplicate();
+		source.position(dataOffset);
+		source.get(input, 0, entry.compressedSize);
+		input[entry.compressedSize] = 0;
+		
+		// Inflate the data.
+		Inflater inflater = context.inflater;
+		inflater.reset();
+		inflater.setInput(input, 0, entry.compressedSize + 1);
+		int length = 0;
+		try {
+			while(length < entry.size) {
+				int amount = inflater.inflate(bytes, length, entry.size - length);
+				if(amount == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += amount;
+			}
+		} catch (DataFormatException e) {
+			ZipException ex = new ZipException("Invalid deflated data for entry: " + entry.name);
+			ex.initCause(e);
+			throw ex;
+		}
+		if(length != entry.size) {
+			throw new ZipException("Inflated size " + length + " does not match the expected size "
+					+ entry.size + " for entry: " + entry.name);
+		}
+	}
+	
+	private InflateContext createInflateContext() {
+		InflateContext context = new InflateContext();
+		this.allInflateContexts.add(context);
+		return context;
+	}
+	
+	/**
+	 * Closes this {@link MappedJarFile}, releasing the inflaters of all threads. Entries cannot be read after this.
+	 * The mapping itself is released by the garbage collector once it is no longer referenced, so buffers and
+	 * {@link ClassFile}s that were obtained from this {@link MappedJarFile} remain valid.
+	 * This method should not be called while other threads are reading entries.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		InflateContext context;
+		while((context = this.allInflateContexts.poll()) != null) {
+			context.inflater.end();
+		}
+	}
+	
+	/**
+	 * Represents an entry in the central directory of a jar or zip file.
+	 */
+	public static final class Entry {
+		
+		private final String name;
+		private final int flags;
+		private final int method;
+		private final int crc;
+		private final int centralHeaderOffset;
+		private final int centralHeaderLength;
+		private final int localHeaderOffset;
+		private final int compressedSize;
+		private final int size;
+		private volatile int dataOffset = -1; // The offset of the data, or -1 if the local header has not been read.
+		
+		private Entry(String name, int flags, int method, int crc, int centralHeaderOffset,
+				int centralHeaderLength, int localHeaderOffset, int compressedSize, int size) {
+			this.name = name;
+			this.flags = flags;
+			this.method = method;
+			this.crc = crc;
+			this.centralHeaderOffset = centralHeaderOffset;
+			this.centralHeaderLength = centralHeaderLength;
+			this.localHeaderOffset = localHeaderOffset;
+			this.compressedSize = compressedSize;
+			this.size = size;
+		}
+		
+		public String getName() {
+			return this.name;
+		}
+		
+		/**
+		 * Gets the compression method.
+		 * @return The compression method, being {@link MappedJarFile#STORED}, {@link MappedJarFile#DEFLATED} or an
+		 * unsupported method.
+		 */
+		public int getMethod() {
+			return this.method;
+		}
+		
+		/**
+		 * Gets the general purpose bit flags.
+		 * @return The flags.
+		 */
+		public int getFlags() {
+			return this.flags;
+		}
+		
+		/**
+		 * Gets the CRC-32 checksum of the uncompressed data.
+		 * @return The checksum.
+		 */
+		public int getCrc() {
+			return this.crc;
+		}
+		
+		/**
+		 * Gets the size of the compressed data.
+		 * @return The compressed size in bytes.
+		 */
+		public int getCompressedSize() {
+			return this.compressedSize;
+		}
+		
+		/**
+		 * Gets the size of the uncompressed data.
+		 * @return The size in bytes.
+		 */
+		public int getSize() {
+			return this.size;
+		}
+		
+		/**
+		 * Gets the offset of the local file header of this entry.
+		 * @return The offset in bytes from the start of the file.
+		 */
+		public int getLocalHeaderOffset() {
+			return this.localHeaderOffset;
+		}
+		
+		public boolean isDirectory() {
+			return this.name.endsWith("/");
+		}
+		
+		@Override
+		public String toString() {
+			return this.name;
+		}
+	}
+	
+	/**
+	 * Contains the inflater and reused buffers of a single thread.
+	 */
+	private static class InflateContext {
+		
+		private final Inflater inflater = new Inflater(true);
+		private byte[] inputBuffer = new byte[0];
+		private byte[] outputBuffer = new byte[0];
+		
+		private byte[] getInputBuffer(int minSize) {
+			if(this.inputBuffer.length < minSize) {
+				this.inputBuffer = new byte[Math.max(minSize, this.inputBuffer.length * 2)];
+			}
+			return this.inputBuffer;
+		}
+		
+		private byte[] getOutputBuffer(int minSize) {
+			if(this.outputBuffer.length < minSize) {
+				this.outputBuffer = new byte[Math.max(minSize, this.outputBuffer.length * 2)];
+			}
+			return this.outputBuffer;
+		}
+	}
+}
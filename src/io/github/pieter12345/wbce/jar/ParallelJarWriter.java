@@ -0,0 +1,536 @@
+package io.github.pieter12345.wbce.jar;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipException;
+
+import io.github.pieter12345.wbce.ClassFile;
+
+/**
+ * Writes a jar or zip file, compressing its entries in parallel on a pool of worker threads that each have their own
+ * {@link Deflater}. Entries are written to the file in the order in which they were added, regardless of the order
+ * in which their compression finishes, and all entries get the same timestamp, so the same input always results in
+ * the same file. Entries are written as STORED when the writer is created with that method, or when deflating them
+ * does not make them smaller. Entries of an existing jar or zip file can also be copied as they are, without
+ * inflating and deflating them. Zip64 records are written when the entry count or file size requires them.
+ * Entries should be added from a single thread.
+ * @author P.J.S. Kools
+ */
+public class ParallelJarWriter implements Closeable {
+	
+	// Variables & Constants.
+	private static final int LOCAL_HEADER_SIGNATURE = 0x04034B50;
+	private static final int CENTRAL_HEADER_SIGNATURE = 0x02014B50;
+	private static final int END_OF_CENTRAL_DIR_SIGNATURE = 0x06054B50;
+	private static final int ZIP64_END_OF_CENTRAL_DIR_SIGNATURE = 0x06064B50;
+	private static final int ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIGNATURE = 0x07064B50;
+	private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+	private static final int UTF8_FLAG = 0x0800;
+	private static final int VERSION = 20;
+	private static final int ZIP64_VERSION = 45;
+	private static final int DOS_TIME = 0; // 00:00:00.
+	private static final int DOS_DATE = (1 << 5) | 1; // 1980-01-01, the earliest DOS date.
+	
+	private final File file;
+	private final OutputStream outStream;
+	private final int method;
+	private final int level;
+	private final int maxPendingEntries;
+	private final ExecutorService executor;
+	private final ThreadLocal<WorkerContext> workerContexts =
+			ThreadLocal.withInitial(() -> this.createWorkerContext()); // The deflater and buffer per worker.
+	private final ConcurrentLinkedQueue<WorkerContext> allWorkerContexts =
+			new ConcurrentLinkedQueue<WorkerContext>(); // The deflaters and buffers of all workers, ended on close.
+	private final ArrayDeque<PendingEntry> pendingEntries = new ArrayDeque<PendingEntry>();
+	private final Set<String> entryNames = new HashSet<String>();
+	private final List<CentralDirectoryEntry> centralDirectory = new ArrayList<CentralDirectoryEntry>();
+	private final ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+	private final byte[] copyBuffer = new byte[1 << 16];
+	private long position = 0;
+	private boolean closed = false;
+	
+	/**
+	 * Creates a new {@link ParallelJarWriter} that deflates entries using all available processors.
+	 * @param file - The jar or zip file to write, which is overwritten if it exists.
+	 * @throws FileNotFoundException If the given file could not be opened for writing.
+	 */
+	public ParallelJarWriter(File file) throws FileNotFoundException {
+		this(file, Runtime.getRuntime().availableProcessors(), MappedJarFile.DEFLATED);
+	}
+	
+	/**
+	 * Creates a new {@link ParallelJarWriter} that uses the default compression level.
+	 * @param file - The jar or zip file to write, which is overwritten if it exists.
+	 * @param threadCount - The amount of worker threads.
+	 * @param method - The compression method, being {@link MappedJarFile#DEFLATED} or {@link MappedJarFile#STORED}.
+	 * @throws FileNotFoundException If the given file could not be opened for writing.
+	 */
+	public ParallelJarWriter(File file, int threadCount, int method) throws FileNotFoundException {
+		this(file, threadCount, method, Deflater.DEFAULT_COMPRESSION, threadCount * 4);
+	}
+	
+	/**
+	 * Creates a new {@link ParallelJarWriter}.
+	 * @param file - The jar or zip file to write, which is overwritten if it exists.
+	 * @param threadCount - The amount of worker threads.
+	 * @param method - The compression method, being {@link MappedJarFile#DEFLATED} or {@link MappedJarFile#STORED}.
+	 * @param level - The compression level in range [0, 9] or {@link Deflater#DEFAULT_COMPRESSION}.
+	 * @param maxPendingEntries - The maximum amount of entries that have been added, but not yet written. Adding an
+	 * entry blocks while this amount is reached.
+	 * @throws FileNotFoundException If the given file could not be opened for writing.
+	 */
+	public ParallelJarWriter(File file, int threadCount, int method,
+			int level, int maxPendingEntries) throws FileNotFoundException {
+		if(threadCount < 1 || maxPendingEntries < 1) {
+			throw new IllegalArgumentException(
+					"The thread count and the maximum amount of pending entries must be positive.");
+		}
+		if(method != MappedJarFile.STORED && method != MappedJarFile.DEFLATED) {
+			throw new IllegalArgumentException("Unsupported compression method: " + method);
+		}
+		if((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level: " + level);
+		}
+		this.file = file;
+		this.method = method;
+		this.level = level;
+		this.maxPendingEntries = maxPendingEntries;
+		this.outStream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16);
+		AtomicInteger workerCount = new AtomicInteger();
+		this.executor = Executors.newFixedThreadPool(threadCount, (runnable) -> {
+			Thread thread = new Thread(runnable,
+					ParallelJarWriter.class.getSimpleName() + "-" + workerCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * Adds an entry with the given data. The data is compressed on a worker thread, so it should not be modified
+	 * after calling this method.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @param bytes - The entry data.
+	 * @throws ZipException If an entry with the given name has already been added.
+	 * @throws IOException If an I/O error occurs while writing finished entries, or if compressing an earlier entry
+	 * failed.
+	 */
+	public void write(String name, byte[] bytes) throws ZipException, IOException {
+		this.submit(name, () -> bytes);
+	}
+	
+	/**
+	 * Adds an entry containing the given class file. The class file is serialized and compressed on a worker thread,
+	 * so it should not be used or modified after calling this method.
+	 * @param name - The entry name, such as "java/lang/Object.class".
+	 * @param classFile - The class file.
+	 * @throws ZipException If an entry with the given name has already been added.
+	 * @throws IOException If an I/O error occurs while writing finished entries, or if compressing an earlier entry
+	 * failed.
+	 */
+	public void write(String name, ClassFile classFile) throws ZipException, IOException {
+		this.submit(name, () -> classFile.toBytes());
+	}
+	
+	/**
+	 * Adds a copy of the given entry of the given jar file. The local file header, compressed data, data descriptor
+	 * and central directory file header of the entry are copied as they are, so the entry is not inflated and
+	 * deflated and keeps its timestamp, CRC-32 and compression method.
+	 * @param jarFile - The jar file containing the entry.
+	 * @param entry - The entry to copy.
+	 * @throws ZipException If an entry with the same name has already been added, or if the entry is invalid.
+	 * @throws IOException If an I/O error occurs while writing finished entries, if compressing an earlier entry
+	 * failed or if the given jar file has been closed.
+	 */
+	public void copyRaw(MappedJarFile jarFile, MappedJarFile.Entry entry) throws ZipException, IOException {
+		this.checkEntryName(entry.getName());
+		ByteBuffer rawEntry = jarFile.getRawEntry(entry);
+		ByteBuffer rawCentralHeader = jarFile.getRawCentralHeader(entry);
+		byte[] centralHeader = new byte[rawCentralHeader.remaining()];
+		rawCentralHeader.get(centralHeader);
+		this.pendingEntries.add(new PendingEntry(entry.getName(), null,
+				CompletableFuture.completedFuture(new EntryData(rawEntry, centralHeader))));
+		this.writeFinishedEntries(false);
+	}
+	
+	private void submit(String name, Callable<byte[]> bytesSupplier) throws ZipException, IOException {
+		byte[] nameBytes = this.checkEntryName(name);
+		Future<EntryData> future = this.executor.submit(() -> this.compress(bytesSupplier.call()));
+		this.pendingEntries.add(new PendingEntry(name, nameBytes, future));
+		this.writeFinishedEntries(false);
+	}
+	
+	private byte[] checkEntryName(String name) throws ZipException, IOException {
+		if(this.closed) {
+			throw new IOException("The jar writer has been closed: " + this.file.getAbsolutePath());
+		}
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		if(nameBytes.length > 0xFFFF) {
+			throw new ZipException("Entry name is too long: " + name);
+		}
+		if(!this.entryNames.add(name)) {
+			throw new ZipException("Duplicate entry: " + name);
+		}
+		return nameBytes;
+	}
+	
+	/**
+	 * Writes the pending entries from the start of the queue that have finished compressing. When waiting, this also
+	 * waits for the first pending entries until less than the maximum amount of pending entries remain.
+	 * @param waitForAll - True to wait for all pending entries and write them.
+	 * @throws IOException If an I/O error occurs while writing, or if compressing an entry failed.
+	 */
+	private void writeFinishedEntries(boolean waitForAll) throws IOException {
+		while(!this.pendingEntries.isEmpty() && (waitForAll || this.pendingEntries.size() >= this.maxPendingEntries
+				|| this.pendingEntries.peek().future.isDone())) {
+			PendingEntry entry = this.pendingEntries.poll();
+			EntryData data;
+			try {
+				data = entry.future.get();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while waiting for entry: " + entry.name);
+			} catch (ExecutionException e) {
+				throw new IOException("Failed to compress entry: " + entry.name, e.getCause());
+			}
+			this.writeEntry(entry.nameBytes, data);
+		}
+	}
+	
+	private EntryData compress(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes, 0, bytes.length);
+		if(this.method == MappedJarFile.DEFLATED) {
+			WorkerContext context = this.workerContexts.get();
+			Deflater deflater = context.deflater;
+			deflater.reset();
+			deflater.setInput(bytes);
+			deflater.finish();
+			byte[] buffer = context.getBuffer(bytes.length + (bytes.length >> 12) + (bytes.length >> 14) + 64);
+			int length = 0;
+			while(!deflater.finished()) {
+				if(length == buffer.length) {
+					buffer = context.getBuffer(buffer.length * 2);
+				}
+				length += deflater.deflate(buffer, length, buffer.length - length);
+			}
+			if(length < bytes.length) {
+				return new EntryData(MappedJarFile.DEFLATED,
+						(int) crc.getValue(), Arrays.copyOf(buffer, length), bytes.length);
+			}
+		}
+		return new EntryData(MappedJarFile.STORED, (int) crc.getValue(), bytes, bytes.length);
+	}
+	
+	private void writeEntry(byte[] nameBytes, EntryData data) throws IOException {
+		if(data.rawEntry != null) {
+			this.centralDirectory.add(new CentralDirectoryEntry(data.rawCentralHeader, this.position));
+			this.write(data.rawEntry);
+			return;
+		}
+		CentralDirectoryEntry entry = new CentralDirectoryEntry(nameBytes, data.method, data.crc,
+				data.compressedBytes.length, data.size, this.position);
+		this.header.clear();
+		this.header.putInt(LOCAL_HEADER_SIGNATURE);
+		this.header.putShort((short) VERSION);
+		this.header.putShort((short) UTF8_FLAG);
+		this.header.putShort((short) data.method);
+		this.header.putShort((short) DOS_TIME);
+		this.header.putShort((short) DOS_DATE);
+		this.header.putInt(data.crc);
+		this.header.putInt(data.compressedBytes.length);
+		this.header.putInt(data.size);
+		this.header.putShort((short) nameBytes.length);
+		this.header.putShort((short) 0); // Extra field length.
+		this.writeHeader();
+		this.write(nameBytes);
+		this.write(data.compressedBytes);
+		this.centralDirectory.add(entry);
+	}
+	
+	private void writeHeader() throws IOException {
+		this.outStream.write(this.header.array(), 0, this.header.position());
+		this.position += this.header.position();
+	}
+	
+	private void write(byte[] bytes) throws IOException {
+		this.outStream.write(bytes);
+		this.position += bytes.length;
+	}
+	
+	private void write(ByteBuffer buffer) throws IOException {
+		ByteBuffer source = buffer.duplicate();
+		while(source.hasRemaining()) {
+			int length = Math.min(source.remaining(), this.copyBuffer.length);
+			source.get(this.copyBuffer, 0, length);
+			this.outStream.write(this.copyBuffer, 0, length);
+			this.position += length;
+		}
+	}
+	
+	/**
+	 * Waits for all pending entries, writes them followed by the central directory and closes the file.
+	 * @throws IOException If an I/O error occurs while writing, or if compressing an entry failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			this.writeFinishedEntries(true);
+			this.writeCentralDirectory();
+			this.outStream.flush();
+		} finally {
+			this.executor.shutdownNow();
+			WorkerContext context;
+			while((context = this.allWorkerContexts.poll()) != null) {
+				context.deflater.end();
+			}
+			this.outStream.close();
+		}
+	}
+	
+	private void writeCentralDirectory() throws IOException {
+		long centralDirOffset = this.position;
+		for(CentralDirectoryEntry entry : this.centralDirectory) {
+			if(entry.rawHeader != null) {
+				this.write(patchLocalHeaderOffset(entry.rawHeader, entry.localHeaderOffset));
+				continue;
+			}
+			boolean zip64 = entry.localHeaderOffset >= 0xFFFFFFFFL;
+			this.header.clear();
+			this.header.putInt(CENTRAL_HEADER_SIGNATURE);
+			this.header.putShort((short) (zip64 ? ZIP64_VERSION : VERSION)); // Version made by.
+			this.header.putShort((short) (zip64 ? ZIP64_VERSION : VERSION)); // Version needed to extract.
+			this.header.putShort((short) UTF8_FLAG);
+			this.header.putShort((short) entry.method);
+			this.header.putShort((short) DOS_TIME);
+			this.header.putShort((short) DOS_DATE);
+			this.header.putInt(entry.crc);
+			this.header.putInt(entry.compressedSize);
+			this.header.putInt(entry.size);
+			this.header.putShort((short) entry.nameBytes.length);
+			this.header.putShort((short) (zip64 ? 12 : 0)); // Extra field length.
+			this.header.putShort((short) 0); // Comment length.
+			this.header.putShort((short) 0); // Disk number start.
+			this.header.putShort((short) 0); // Internal file attributes.
+			this.header.putInt(0); // External file attributes.
+			this.header.putInt(zip64 ? 0xFFFFFFFF : (int) entry.localHeaderOffset);
+			this.writeHeader();
+			this.write(entry.nameBytes);
+			if(zip64) {
+				this.header.clear();
+				this.header.putShort((short) ZIP64_EXTRA_FIELD_ID);
+				this.header.putShort((short) 8);
+				this.header.putLong(entry.localHeaderOffset);
+				this.writeHeader();
+			}
+		}
+		long centralDirSize = this.position - centralDirOffset;
+		long entryCount = this.centralDirectory.size();
+		
+		// Write the zip64 end of central directory record and locator when the values do not fit in the regular record.
+		boolean zip64 = entryCount >= 0xFFFF || centralDirSize >= 0xFFFFFFFFL || centralDirOffset >= 0xFFFFFFFFL;
+		if(zip64) {
+			long zip64EndOffset = this.position;
+			this.header.clear();
+			this.header.putInt(ZIP64_END_OF_CENTRAL_DIR_SIGNATURE);
+			this.header.putLong(44); // Size of the remaining record.
+			this.header.putShort((short) ZIP64_VERSION); // Version made by.
+			this.header.putShort((short) ZIP64_VERSION); // Version needed to extract.
+			this.header.putInt(0); // Number of this disk.
+			this.header.putInt(0); // Disk of the central directory.
+			this.header.putLong(entryCount); // Entries on this disk.
+			this.header.putLong(entryCount); // Total entries.
+			this.header.putLong(centralDirSize);
+			this.header.putLong(centralDirOffset);
+			this.writeHeader();
+			this.header.clear();
+			this.header.putInt(ZIP64_END_OF_CENTRAL_DIR_LOCATOR_SIGNATURE);
+			this.header.putInt(0); // Disk of the zip64 end of central directory record.
+			this.header.putLong(zip64EndOffset);
+			this.header.putInt(1); // Total number of disks.
+			this.writeHeader();
+		}
+		
+		// Write the end of central directory record.
+		this.header.clear();
+		this.header.putInt(END_OF_CENTRAL_DIR_SIGNATURE);
+		this.header.putShort((short) 0); // Number of this disk.
+		this.header.putShort((short) 0); // Disk of the central directory.
+		this.header.putShort((short) (zip64 ? 0xFFFF : entryCount)); // Entries on this disk.
+		this.header.putShort((short) (zip64 ? 0xFFFF : entryCount)); // Total entries.
+		this.header.putInt(zip64 ? 0xFFFFFFFF : (int) centralDirSize);
+		this.header.putInt(zip64 ? 0xFFFFFFFF : (int) centralDirOffset);
+		this.header.putShort((short) 0); // Comment length.
+		this.writeHeader();
+	}
+	
+	/**
+	 * Sets the local file header offset in the given copied central directory file header.
+	 * @param rawHeader - The central directory file header.
+	 * @param localHeaderOffset - The local file header offset.
+	 * @return The given header.
+	 * @throws ZipException If the offset requires a zip64 extra field, while the header does not have one.
+	 */
+	private static byte[] patchLocalHeaderOffset(byte[] rawHeader, long localHeaderOffset) throws ZipException {
+		ByteBuffer header = ByteBuffer.wrap(rawHeader).order(ByteOrder.LITTLE_ENDIAN);
+		if(header.getInt(42) != 0xFFFFFFFF) {
+			if(localHeaderOffset >= 0xFFFFFFFFL) {
+				throw new ZipException("Copied entry requires a zip64 local header offset.");
+			}
+			header.putInt(42, (int) localHeaderOffset);
+			return rawHeader;
+		}
+		
+		// The offset is stored in the zip64 extra field, after the sizes that are stored there.
+		int extraPos = 46 + (header.getShort(28) & 0xFFFF);
+		int extraEnd = extraPos + (header.getShort(30) & 0xFFFF);
+		while(extraPos + 4 <= extraEnd) {
+			if((header.getShort(extraPos) & 0xFFFF) == ZIP64_EXTRA_FIELD_ID) {
+				int fieldPos = extraPos + 4 + (header.getInt(24) == 0xFFFFFFFF ? 8 : 0)
+						+ (header.getInt(20) == 0xFFFFFFFF ? 8 : 0);
+				if(fieldPos + 8 <= extraEnd) {
+					header.putLong(fieldPos, localHeaderOffset);
+					return rawHeader;
+				}
+				break;
+			}
+			extraPos += 4 + (header.getShort(extraPos + 2) & 0xFFFF);
+		}
+		throw new ZipException("Copied entry has an invalid zip64 extra field.");
+	}
+	
+	private WorkerContext createWorkerContext() {
+		WorkerContext context = new WorkerContext(new Deflater(this.level, true));
+		this.allWorkerContexts.add(context);
+		return context;
+	}
+	
+	/**
+	 * Represents an entry that has been added, but not yet written.
+	 */
+	private static class PendingEntry {
+		
+		private final String name;
+		private final byte[] nameBytes;
+		private final Future<EntryData> future;
+		
+		private PendingEntry(String name, byte[] nameBytes, Future<EntryData> future) {
+			this.name = name;
+			this.nameBytes = nameBytes;
+			this.future = future;
+		}
+	}
+	
+	/**
+	 * Represents the compressed data of an entry, or a copied entry.
+	 */
+	private static class EntryData {
+		
+		private final int method;
+		private final int crc;
+		private final byte[] compressedBytes;
+		private final int size;
+		private final ByteBuffer rawEntry; // The copied local header, data and data descriptor, or null.
+		private final byte[] rawCentralHeader; // The copied central directory file header, or null.
+		
+		private EntryData(int method, int crc, byte[] compressedBytes, int size) {
+			this.method = method;
+			this.crc = crc;
+			this.compressedBytes = compressedBytes;
+			this.size = size;
+			this.rawEntry = null;
+			this.rawCentralHeader = null;
+		}
+		
+		private EntryData(ByteBuffer rawEntry, byte[] rawCentralHeader) {
+			this.method = -1;
+			this.crc = 0;
+			this.compressedBytes = null;
+			this.size = -1;
+			this.rawEntry = rawEntry;
+			this.rawCentralHeader = rawCentralHeader;
+		}
+	}
+	
+	/**
+	 * Represents an entry that has been written, to be written to the central directory.
+	 */
+	private static class CentralDirectoryEntry {
+		
+		private final byte[] nameBytes;
+		private final int method;
+		private final int crc;
+		private final int compressedSize;
+		private final int size;
+		private final long localHeaderOffset;
+		private final byte[] rawHeader; // The copied central directory file header, or null.
+		
+		private CentralDirectoryEntry(byte[] nameBytes, int method,
+				int crc, int compressedSize, int size, long localHeaderOffset) {
+			this.nameBytes = nameBytes;
+			this.method = method;
+			this.crc = crc;
+			this.compressedSize = compressedSize;
+			this.size = size;
+			this.localHeaderOffset = localHeaderOffset;
+			this.rawHeader = null;
+		}
+		
+		private CentralDirectoryEntry(byte[] rawHeader, long localHeaderOffset) {
+			this.nameBytes = null;
+			this.method = -1;
+			this.crc = 0;
+			this.compressedSize = -1;
+			this.size = -1;
+			this.localHeaderOffset = localHeaderOffset;
+			this.rawHeader = rawHeader;
+		}
+	}
+	
+	/**
+	 * Contains the deflater and reused output buffer of a single worker thread.
+	 */
+	private static class WorkerContext {
+		
+		private final Deflater deflater;
+		private byte[] buffer = new byte[0];
+		
+		private WorkerContext(Deflater deflater) {
+			this.deflater = deflater;
+		}
+		
+		private byte[] getBuffer(int minSize) {
+			if(this.buffer.length < minSize) {
+				this.buffer = Arrays.copyOf(this.buffer, minSize);
+			}
+			return this.buffer;
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package io.github.pieter12345.wbce.utils;
+
+/**
+ * ModifiedUTF8 class.
+ * Encodes and decodes strings in the modified UTF-8 format used by the class file format (JVMS 4.4.7).
+ * This differs from standard UTF-8 in that the null character is encoded using two bytes and supplementary
+ * characters are encoded as two separately encoded surrogate characters.
+ * @author P.J.S. Kools
+ */
+public abstract class ModifiedUTF8 {
+	
+	private static final char REPLACEMENT_CHAR = '\uFFFD';
+	
+	/**
+	 * decode method.
+	 * Decodes the given modified UTF-8 bytes. Malformed byte sequences are decoded as the replacement character.
+	 * @param bytes - The modified UTF-8 bytes.
+	 * @return The decoded string.
+	 */
+	@SuppressWarnings("deprecation")
+	public static String decode(byte[] bytes) {
+		
+		// Fast path for ASCII strings (class, method and field names usually are).
+		int length = bytes.length;
+		int i = 0;
+		while(i < length && bytes[i] > 0) {
+			i++;
+		}
+		if(i == length) {
+			
+			// This constructor copies the bytes as chars with a zero high byte. It does not go through a charset
+			// decoder and allows the JVM to store the bytes as a compact Latin-1 string when supported.
+			return new String(bytes, 0, 0, length);
+		}
+		
+		// Decode the remaining bytes, the ASCII prefix can be copied directly.
+		char[] chars = new char[length];
+		for(int j = 0; j < i; j++) {
+			chars[j] = (char) bytes[j];
+		}
+		int charCount = i;
+		while(i < length) {
+			int b = bytes[i++] & 0xFF;
+			if(b > 0 && b < 0x80) {
+				
+				// 1-byte format: 0xxxxxxx (except for 0x00).
+				chars[charCount++] = (char) b;
+			} else if((b & 0xE0) == 0xC0 && i < length && (bytes[i] & 0xC0) == 0x80) {
+				
+				// 2-byte format: 110xxxxx 10xxxxxx.
+				chars[charCount++] = (char) (((b & 0x1F) << 6) | (bytes[i++] & 0x3F));
+			} else if((b & 0xF0) == 0xE0 && i + 1 < length
+					&& (bytes[i] & 0xC0) == 0x80 && (bytes[i + 1] & 0xC0) == 0x80) {
+				
+				// 3-byte format: 1110xxxx 10xxxxxx 10xxxxxx.
+				chars[charCount++] = (char) (((b & 0x0F) << 12) | ((bytes[i] & 0x3F) << 6) | (bytes[i + 1] & 0x3F));
+				i += 2;
+			} else {
+				chars[charCount++] = REPLACEMENT_CHAR;
+			}
+		}
+		return new String(chars, 0, charCount);
+	}
+	
+	/**
+	 * encodedLength method.
+	 * @param str - The string.
+	 * @return The amount of bytes the given string takes in modified UTF-8 format.
+	 */
+	public static int encodedLength(String str) {
+		int length = str.length();
+		int byteCount = length;
+		for(int i = 0; i < length; i++) {
+			char c = str.charAt(i);
+			if(c == 0 || c >= 0x80) {
+				byteCount += (c < 0x800 ? 1 : 2);
+			}
+		}
+		return byteCount;
+	}
+	
+	/**
+	 * encode method.
+	 * Encodes the given string to modified UTF-8 bytes.
+	 * @param str - The string to encode.
+	 * @return The modified UTF-8 bytes.
+	 */
+	public static byte[] encode(String str) {
+		int length = str.length();
+		byte[] bytes = new byte[encodedLength(str)];
+		
+		// Fast path for ASCII strings.
+		if(bytes.length == length) {
+			for(int i = 0; i < length; i++) {
+				bytes[i] = (byte) str.charAt(i);
+			}
+			return bytes;
+		}
+		
+		int byteCount = 0;
+		for(int i = 0; i < length; i++) {
+			char c = str.charAt(i);
+			if(c != 0 && c < 0x80) {
+				bytes[byteCount++] = (byte) c;
+			} else if(c < 0x800) {
+				bytes[byteCount++] = (byte) (0xC0 | (c >> 6));
+				bytes[byteCount++] = (byte) (0x80 | (c & 0x3F));
+			} else {
+				bytes[byteCount++] = (byte) (0xE0 | (c >> 12));
+				bytes[byteCount++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[byteCount++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return bytes;
+	}
+}